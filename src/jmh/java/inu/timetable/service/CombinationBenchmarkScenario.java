@@ -0,0 +1,95 @@
+package inu.timetable.service;
+
+import inu.timetable.entity.Schedule;
+import inu.timetable.entity.Subject;
+import inu.timetable.entity.WishlistItem;
+import inu.timetable.enums.ClassMethod;
+import inu.timetable.enums.SubjectType;
+import inu.timetable.repository.WishlistRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 벤치마크용 합성 위시리스트. {@link DevCombinationScenarioService} 가 k6 시나리오를 만드는 규칙을 Spring·DB 없이 따른다.
+ *
+ * <p>과목은 모두 3학점이고 수업 한 번(1.5시간)이다. 위시리스트를 slotCount 개 시간대에 고르게 나눠 같은 시간대 과목끼리만 겹치므로,
+ * slotCount 가 작을수록 충돌이 많고 한 조합에 들어갈 수 있는 과목 수도 적다.</p>
+ */
+final class CombinationBenchmarkScenario {
+
+    static final String SEMESTER = "2026-1";
+    private static final List<String> DAYS = List.of("월", "화", "수", "목", "금");
+
+    private CombinationBenchmarkScenario() {
+    }
+
+    /**
+     * @param requiredCount 앞쪽 시간대부터 시간대마다 첫 과목을 필수로 표시할 개수. 서로 다른 시간대라 겹치지 않는다.
+     */
+    static List<WishlistItem> wishlist(int wishlistSize, int slotCount, int requiredCount) {
+        List<WishlistItem> items = new ArrayList<>();
+        int groupSize = (int) Math.ceil((double) wishlistSize / slotCount);
+
+        for (int index = 0; index < wishlistSize; index++) {
+            int slot = Math.min(index / groupSize, slotCount - 1);
+            boolean required = index % groupSize == 0 && slot < requiredCount;
+            Subject subject = subject(wishlistSize, slotCount, index, slot);
+            items.add(WishlistItem.builder()
+                    .subject(subject)
+                    .semester(SEMESTER)
+                    .priority(index + 1)
+                    .isRequired(required)
+                    .build());
+        }
+        return items;
+    }
+
+    /**
+     * 위시리스트 조회만 답하는 저장소. 과목 마스크 색인 없이 만든 {@link TimetableCombinationService} 는 이 메서드만 부른다.
+     */
+    static WishlistRepository wishlistRepository(List<WishlistItem> wishlist) {
+        return (WishlistRepository) Proxy.newProxyInstance(
+                WishlistRepository.class.getClassLoader(),
+                new Class<?>[]{WishlistRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByUserIdAndSemesterWithSubjectAndSchedules" -> wishlist;
+                    case "toString" -> "CombinationBenchmarkScenario.wishlistRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Subject subject(int wishlistSize, int slotCount, int index, int slot) {
+        Subject subject = Subject.builder()
+                .id((long) index + 1)
+                .courseCode("PERF-COMB-%02d-%02d-%03d".formatted(wishlistSize, slotCount, index + 1))
+                .semester(SEMESTER)
+                .active(true)
+                .subjectName("조합성능테스트%02d-%02d".formatted(slot + 1, index + 1))
+                .credits(3)
+                .professor("성능교수%02d".formatted(slot + 1))
+                .department("컴퓨터공학부")
+                .grade(3)
+                .subjectType(SubjectType.전심)
+                .classMethod(ClassMethod.OFFLINE)
+                .isNight(false)
+                .schedules(new ArrayList<>())
+                .build();
+        subject.getSchedules().add(schedule(subject, slot));
+        return subject;
+    }
+
+    private static Schedule schedule(Subject subject, int slot) {
+        String day = DAYS.get(slot % DAYS.size());
+        double startTime = 1.0 + (slot / DAYS.size()) * 3.0;
+        return Schedule.builder()
+                .subject(subject)
+                .dayOfWeek(day)
+                .startTime(startTime)
+                .endTime(startTime + 1.5)
+                .build();
+    }
+}
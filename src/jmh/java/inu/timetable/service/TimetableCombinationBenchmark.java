@@ -0,0 +1,102 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.TimetableCombinationCount;
+import inu.timetable.dto.TimetableCombinationCriteria;
+import inu.timetable.dto.TimetableCombinationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 시간표 조합 엔진을 HTTP·JPA 없이 잰다. 위시리스트는 {@link CombinationBenchmarkScenario} 가 k6 시나리오와 같은 규칙으로 만든다.
+ *
+ * <p>마감과 사용자별 증분 탐색 캐시는 끈다. 마감이 있으면 큰 위시리스트에서 잘린 탐색을 재게 되고, 증분 캐시는 같은
+ * 위시리스트를 반복해 부르는 벤치마크에서 탐색을 건너뛰기 때문이다. 목표 학점과 조합 수는 k6 기본값(18학점, 20개)을 쓴다.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimetableCombinationBenchmark {
+
+    private static final long USER_ID = 1L;
+    private static final int TARGET_CREDITS = 18;
+    private static final int MAX_COMBINATIONS = 20;
+
+    @Param({"6", "12", "24", "40"})
+    public int wishlistSize;
+
+    // 위시리스트를 나누는 시간대 수. 작을수록 같은 시간대 과목이 많아 충돌이 잦다.
+    @Param({"3", "6", "10"})
+    public int slotCount;
+
+    // plain: 순위 없이 찾은 순서, ranked: /generate 기본 순위, freeDays: 월요일 공강, required: 필수 과목 2개,
+    // maxCredits: ignoreTargetCredits
+    @Param({"plain", "ranked", "freeDays", "required", "maxCredits"})
+    public String variant;
+
+    @Param({TimetableCombinationService.SEQUENTIAL_ENGINE, TimetableCombinationService.PARALLEL_ENGINE})
+    public String engine;
+
+    private TimetableCombinationService combinationService;
+    private TimetableCombinationCriteria criteria;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int requiredCount = "required".equals(variant) ? 2 : 0;
+        combinationService = new TimetableCombinationService(
+                CombinationBenchmarkScenario.wishlistRepository(
+                        CombinationBenchmarkScenario.wishlist(wishlistSize, slotCount, requiredCount)),
+                null,
+                // 꺼진 색인은 저장소를 읽지 않으므로 위시리스트 엔티티로만 탐색한다.
+                new SubjectMaskIndex(null, null, null, new SimpleMeterRegistry(), false),
+                engine,
+                24,
+                0,
+                TimetableCombinationService.DEFAULT_EXACT_MAXIMUM_CREDIT_OPTIONS,
+                "0",
+                "",
+                0,
+                "10m",
+                new SimpleMeterRegistry());
+        criteria = TimetableCombinationCriteria.of(
+                CombinationBenchmarkScenario.SEMESTER,
+                "maxCredits".equals(variant) ? null : TARGET_CREDITS,
+                MAX_COMBINATIONS,
+                "freeDays".equals(variant) ? List.of("월") : List.of(),
+                false,
+                "ranked".equals(variant) ? TimetableScoreFunctions.DEFAULT_RANKING : null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        combinationService.shutdown();
+    }
+
+    @Benchmark
+    public TimetableCombinationResult generate() {
+        return combinationService.generateTimetableCombinations(USER_ID, criteria);
+    }
+
+    // /stats 와 같이 목표 학점(maxCredits 는 최대 학점) ±3 구간의 조합 수를 센다. 순위와 엔진은 세는 데 쓰이지 않는다.
+    @Benchmark
+    public TimetableCombinationCount count() {
+        return combinationService.countTimetableCombinations(USER_ID, criteria);
+    }
+}
@@ -58,6 +58,14 @@ public final class TwoLevelCacheManager implements CacheManager {
         return local.getCacheNames();
     }
 
+    /**
+     * Returns the per-instance L1 manager for callers that must probe only in-process values,
+     * without a Redis round trip and without counting towards the L1 hit ratio.
+     */
+    public CacheManager localCacheManager() {
+        return local;
+    }
+
     private static final class TwoLevelCache implements Cache {
 
         private final Cache local;
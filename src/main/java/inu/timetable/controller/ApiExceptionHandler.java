@@ -4,6 +4,7 @@ import inu.timetable.dto.ApiErrorResponse;
 import inu.timetable.exception.ApiException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -27,6 +28,13 @@ public class ApiExceptionHandler {
 
     @ExceptionHandler(ApiException.class)
     public ResponseEntity<ApiErrorResponse> handleApiException(ApiException exception) {
+        if (exception.getRetryAfter() != null) {
+            // Retry-After 는 초 단위 정수이므로 1초 미만은 1초로 올린다.
+            long seconds = Math.max(1, (exception.getRetryAfter().toMillis() + 999) / 1000);
+            return ResponseEntity.status(exception.getStatus())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                    .body(new ApiErrorResponse(exception.getMessage(), exception.getStatus().value()));
+        }
         return error(exception.getStatus(), exception.getMessage());
     }
 
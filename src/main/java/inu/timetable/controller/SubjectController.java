@@ -1,7 +1,9 @@
 package inu.timetable.controller;
 
 import inu.timetable.dto.SubjectDto;
+import inu.timetable.dto.SubjectFacetCounts;
 import inu.timetable.dto.SubjectFilterCriteria;
+import inu.timetable.dto.SubjectSuggestion;
 import inu.timetable.entity.Subject;
 import inu.timetable.enums.SubjectType;
 import inu.timetable.repository.SubjectRepository;
@@ -91,6 +93,14 @@ public class SubjectController {
         return subjectQueryService.searchByProfessor(keyword, grade);
     }
 
+    // 입력 중인 검색어의 추천. 메모리 트라이로만 답하므로 한 글자 입력도 받는다.
+    @GetMapping("/suggest")
+    public List<SubjectSuggestion> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return subjectQueryService.suggest(q, limit);
+    }
+
     @GetMapping("/filter")
     public Page<SubjectDto> filterSubjects(
             @RequestParam(required = false) String semester,
@@ -116,6 +126,30 @@ public class SubjectController {
                 timeBlocks, Math.max(0, page), clampSize(size)));
     }
 
+    // /filter 와 같은 조건의 과목 수를 패싯 값별로 센다. 페이지는 쓰지 않는다.
+    @GetMapping("/facets")
+    public SubjectFacetCounts getFacets(
+            @RequestParam(required = false) String semester,
+            @RequestParam(required = false) String subjectName,
+            @RequestParam(required = false) String professor,
+            @RequestParam(required = false) String courseCode,
+            @RequestParam(required = false) String department,
+            @RequestParam(required = false) List<String> departments,
+            @RequestParam(required = false) String dayOfWeek,
+            @RequestParam(required = false) Double startTime,
+            @RequestParam(required = false) Double endTime,
+            @RequestParam(required = false) SubjectType subjectType,
+            @RequestParam(required = false) Integer grade,
+            @RequestParam(required = false) Boolean isNight,
+            @RequestParam(required = false) Boolean unassignedTime,
+            @RequestParam(required = false) Integer credits,
+            @RequestParam(required = false) List<String> timeBlocks) {
+        return subjectQueryService.countFacets(SubjectFilterCriteria.of(
+                semester, subjectName, professor, courseCode, department, departments, dayOfWeek,
+                startTime, endTime, subjectType, grade, isNight, unassignedTime, credits,
+                timeBlocks, 0, 1));
+    }
+
     private int clampSize(int size) {
         return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
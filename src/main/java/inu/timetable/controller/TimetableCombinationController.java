@@ -1,17 +1,27 @@
 package inu.timetable.controller;
 
+import inu.timetable.dto.TimetableCombinationCount;
+import inu.timetable.dto.TimetableCombinationCriteria;
+import inu.timetable.dto.TimetableCombinationResult;
 import inu.timetable.entity.Subject;
 import inu.timetable.exception.ApiException;
 import inu.timetable.security.AuthenticatedUser;
 import inu.timetable.security.UserAccessGuard;
+import inu.timetable.service.TimetableCombinationAdmissionService;
+import inu.timetable.service.TimetableCombinationCacheService;
 import inu.timetable.service.TimetableCombinationService;
+import inu.timetable.service.TimetableCombinationStreamService;
+import inu.timetable.service.TimetableScoreFunctions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -20,6 +30,8 @@ import java.util.Map;
 
 import static inu.timetable.util.ApiRequestValues.optionalStringList;
 import static inu.timetable.util.ApiRequestValues.optionalBoolean;
+import static inu.timetable.util.ApiRequestValues.optionalDouble;
+import static inu.timetable.util.ApiRequestValues.optionalInteger;
 import static inu.timetable.util.ApiRequestValues.requiredInteger;
 import static inu.timetable.util.ApiRequestValues.requiredLong;
 import static inu.timetable.util.ApiRequestValues.optionalString;
@@ -31,10 +43,23 @@ import static inu.timetable.util.ApiRequestValues.optionalString;
 public class TimetableCombinationController {
 
     private static final int MAX_COMBINATIONS = 100;
+    // 다음 페이지는 continuationToken 으로 이어 받으므로 한 번에 많이 찾지 않는다.
+    private static final int DEFAULT_MAX_COMBINATIONS = 10;
+    // 순위 탐색은 탐색이 멈추면 이어 볼 수 없고 다음 페이지도 처음부터 다시 탐색하므로 한 번에 예전만큼 돌려준다.
+    private static final int DEFAULT_RANKED_MAX_COMBINATIONS = 20;
     private static final int MIN_TARGET_CREDITS = 1;
     private static final int MAX_TARGET_CREDITS = 40;
+    private static final int MAX_BATCH_VARIANTS = 8;
+    // 일괄 요청에서 조건마다 바꿀 수 있는 값. 나머지는 요청 본문의 공통 값을 쓴다.
+    private static final List<String> BATCH_VARIANT_FIELDS = List.of("targetCredits", "ignoreTargetCredits", "freeDays");
+    // 탐색 하나를 함께 쓰므로 모든 조건이 같아야 하는 값. 조건에 있으면 400 이다.
+    private static final List<String> BATCH_SHARED_FIELDS = List.of(
+            "semester", "sectionAware", "ranking", "diversity", "earliestStart", "latestEnd", "blockedTimes");
 
     private final TimetableCombinationService combinationService;
+    private final TimetableCombinationCacheService combinationCacheService;
+    private final TimetableCombinationStreamService streamService;
+    private final TimetableCombinationAdmissionService admissionService;
     private final UserAccessGuard userAccessGuard;
 
     @PostMapping("/generate")
@@ -42,47 +67,153 @@ public class TimetableCombinationController {
         summary = "시간표 조합 생성",
         description = "위시리스트 기반으로 목표 학점에 맞는 시간표 조합을 자동 생성합니다. " +
                      "ignoreTargetCredits가 true이면 가능한 높은 학점의 조합을 자동으로 찾습니다. " +
-                     "공강 요일을 설정하면 해당 요일에 수업이 없는 조합만 생성됩니다."
+                     "공강 요일을 설정하면 해당 요일에 수업이 없는 조합만 생성됩니다. " +
+                     "earliestStart·latestEnd(교시)와 blockedTimes(예: 수:5-10)로 수업을 두지 않을 시간을 정할 수 있습니다. " +
+                     "sectionAware가 true이면 같은 과목명의 모든 분반을 후보로 탐색합니다. " +
+                     "ranking(예: credits:10,days:3,gaps:1,start:1)으로 전체 후보 중 점수가 가장 좋은 조합을 고르며, 기본값은 credits 입니다. " +
+                     "diversity(0~" + TimetableCombinationCriteria.MAX_DIVERSITY + ")를 주면 서로 분반이 그 수 이상 다른 조합만 돌려주고, 거른 후보 수를 suppressedNearDuplicates 로 알려줍니다(이때는 이어 보기가 없습니다). " +
+                     "maxCombinations 기본값은 순위 탐색이면 20, 아니면 10 입니다. " +
+                     "다음 페이지가 있으면 응답의 continuationToken 을 같은 요청 본문에 넣어 이어서 받습니다. " +
+                     "조합 요청이 몰리면 503, 한 사용자의 동시 요청이 많으면 429 를 Retry-After 와 함께 돌려줍니다."
     )
     public ResponseEntity<?> generateTimetableCombinations(
-            @Parameter(description = "요청 파라미터: userId, semester, targetCredits, ignoreTargetCredits(선택), maxCombinations(선택), freeDays(선택)")
+            @Parameter(description = "요청 파라미터: userId, semester, targetCredits, ignoreTargetCredits(선택), maxCombinations(선택), freeDays(선택), earliestStart(선택), latestEnd(선택), blockedTimes(선택), sectionAware(선택), ranking(선택), diversity(선택), continuationToken(선택)")
             @RequestBody Map<String, Object> request,
             @AuthenticationPrincipal AuthenticatedUser authenticatedUser) {
         Long userId = requiredLong(request, "userId");
         userAccessGuard.requireMatchingUser(authenticatedUser, userId);
-        String semester = optionalString(request, "semester");
-        boolean ignoreTargetCredits = optionalBoolean(request, "ignoreTargetCredits", false);
-        Integer targetCredits = null;
-        if (!ignoreTargetCredits) {
-            targetCredits = requiredInteger(request, "targetCredits");
-            validateTargetCredits(targetCredits);
+        TimetableCombinationCriteria criteria = criteria(request, TimetableScoreFunctions.DEFAULT_RANKING);
+
+        String continuationToken = optionalString(request, "continuationToken");
+
+        // 캐시에 없어 탐색할 때만 조합 요청 허가를 얻는다.
+        TimetableCombinationResult result = combinationCacheService.generateTimetableCombinations(
+                userId, criteria, continuationToken == null || continuationToken.isBlank() ? null : continuationToken);
+        Map<String, Object> response = generateResponse(criteria, result);
+        response.put("continuationToken", result.continuationToken());
+        response.put("hasMore", result.continuationToken() != null);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/generate/batch")
+    @Operation(
+        summary = "시간표 조합 일괄 생성",
+        description = "목표 학점·공강 요일만 다른 여러 조건(variants)의 조합을 탐색 한 번으로 만들어 조건 순서대로 돌려줍니다. " +
+                     "variants 의 각 항목은 targetCredits, ignoreTargetCredits, freeDays 를 가질 수 있고, 없는 값과 " +
+                     "semester, maxCombinations, sectionAware, ranking, diversity 와 시간 조건은 요청 본문의 값을 씁니다. " +
+                     "조건에 semester, sectionAware, ranking, diversity 나 시간 조건이 있으면 400 입니다. 조건은 최대 " + MAX_BATCH_VARIANTS + "개입니다."
+    )
+    public ResponseEntity<?> generateTimetableCombinationBatch(
+            @RequestBody Map<String, Object> request,
+            @AuthenticationPrincipal AuthenticatedUser authenticatedUser) {
+        Long userId = requiredLong(request, "userId");
+        userAccessGuard.requireMatchingUser(authenticatedUser, userId);
+        List<TimetableCombinationCriteria> variants = batchVariants(request).stream()
+                .map(variant -> criteria(variant, TimetableScoreFunctions.DEFAULT_RANKING))
+                .toList();
+
+        List<TimetableCombinationResult> results = admissionService.call(
+                userId, () -> combinationService.generateTimetableCombinationBatch(userId, variants));
+        List<Map<String, Object>> responses = new ArrayList<>();
+        for (int i = 0; i < variants.size(); i++) {
+            responses.add(generateResponse(variants.get(i), results.get(i)));
         }
-        int maxCombinations = request.containsKey("maxCombinations")
-                ? requiredInteger(request, "maxCombinations")
-                : 20;
-        // 상한을 두어 대량 조합 적재로 인한 메모리/CPU 폭주(공유 인스턴스 DoS)를 방지한다.
-        maxCombinations = Math.max(1, Math.min(maxCombinations, MAX_COMBINATIONS));
-        List<String> freeDays = new ArrayList<>(optionalStringList(request, "freeDays"));
+        return ResponseEntity.ok(Map.of("results", responses));
+    }
 
-        List<List<Subject>> combinations = combinationService.generateTimetableCombinations(
-            userId, semester, targetCredits, maxCombinations, freeDays);
+    private Map<String, Object> generateResponse(TimetableCombinationCriteria criteria, TimetableCombinationResult result) {
+        List<List<Subject>> combinations = result.combinations();
 
         Map<String, Object> response = new HashMap<>();
         response.put("combinations", combinations);
         response.put("totalCount", combinations.size());
-        response.put("targetCredits", targetCredits);
-        response.put("ignoreTargetCredits", ignoreTargetCredits);
-        response.put("freeDays", freeDays);
+        response.put("targetCredits", criteria.targetCredits());
+        response.put("ignoreTargetCredits", criteria.targetCredits() == null);
+        response.put("effectiveTargetCredits", result.effectiveTargetCredits());
+        response.put("maximumCreditsProven", result.maximumCreditsProven());
+        response.put("truncated", result.truncated());
+        response.put("freeDays", criteria.freeDays());
+        response.put("earliestStart", criteria.earliestStart());
+        response.put("latestEnd", criteria.latestEnd());
+        response.put("blockedTimes", criteria.blockedTimes());
+        response.put("sectionAware", criteria.sectionAware());
+        response.put("candidateSections", result.candidateSectionCount());
+        response.put("exploredSections", result.exploredSectionCount());
+        response.put("ranking", result.ranking());
+        response.put("scores", result.scores());
+        response.put("requiredConflict", result.requiredConflict());
+        response.put("diversity", criteria.diversity());
+        response.put("suppressedNearDuplicates", result.suppressedNearDuplicates());
+        // 통계는 탐색이 조합마다 함께 만든다.
+        response.put("statistics", result.statistics());
+        return response;
+    }
 
-        List<Map<String, Object>> combinationStats = combinations.stream()
-            .map(combinationService::getTimetableStatistics)
-            .toList();
-        response.put("statistics", combinationStats);
+    // 조건마다 공통 요청 본문에 조건 값을 덮어쓴 본문을 만든다.
+    private List<Map<String, Object>> batchVariants(Map<String, Object> request) {
+        if (!(request.get("variants") instanceof List<?> variants) || variants.isEmpty()) {
+            throw ApiException.badRequest("variants 값이 필요합니다.");
+        }
+        if (variants.size() > MAX_BATCH_VARIANTS) {
+            throw ApiException.badRequest("variants 는 최대 " + MAX_BATCH_VARIANTS + "개까지 요청할 수 있습니다.");
+        }
+        List<Map<String, Object>> merged = new ArrayList<>();
+        for (Object variant : variants) {
+            if (!(variant instanceof Map<?, ?> values)) {
+                throw ApiException.badRequest("variants 값이 올바르지 않습니다.");
+            }
+            for (String field : BATCH_SHARED_FIELDS) {
+                if (values.containsKey(field)) {
+                    throw ApiException.badRequest("variants 에서는 " + field + " 를 바꿀 수 없습니다. 요청 본문에 주세요.");
+                }
+            }
+            Map<String, Object> body = new HashMap<>(request);
+            body.remove("variants");
+            for (String field : BATCH_VARIANT_FIELDS) {
+                if (values.containsKey(field)) {
+                    body.put(field, values.get(field));
+                }
+            }
+            // 조건에 목표 학점만 있으면 공통 ignoreTargetCredits 보다 그 학점을 따른다.
+            if (values.containsKey("targetCredits") && !values.containsKey("ignoreTargetCredits")) {
+                body.put("ignoreTargetCredits", false);
+            }
+            merged.add(body);
+        }
+        return merged;
+    }
 
-        return ResponseEntity.ok(response);
+    @PostMapping(value = "/generate/stream", produces = {
+        MediaType.TEXT_EVENT_STREAM_VALUE,
+        MediaType.APPLICATION_NDJSON_VALUE
+    })
+    @Operation(
+        summary = "시간표 조합 스트리밍 생성",
+        description = "generate 와 같은 요청 파라미터로, 조합을 찾는 즉시 조합과 통계를 하나씩 보냅니다. " +
+                     "Accept 가 application/x-ndjson 이면 한 줄에 JSON 하나씩, 아니면 SSE(combination, done, error 이벤트)로 보냅니다. " +
+                     "ranking 을 주지 않으면 찾은 순서대로 보내고, 주면 탐색이 끝난 뒤 순위대로 보냅니다. 연결을 끊으면 탐색을 멈춥니다."
+    )
+    public ResponseEntity<ResponseBodyEmitter> streamTimetableCombinations(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @AuthenticationPrincipal AuthenticatedUser authenticatedUser) {
+        Long userId = requiredLong(request, "userId");
+        userAccessGuard.requireMatchingUser(authenticatedUser, userId);
+        TimetableCombinationCriteria criteria = criteria(request, null);
+
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        ResponseBodyEmitter emitter = streamService.open(userId, criteria, ndjson);
+        return ResponseEntity.ok()
+            .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.TEXT_EVENT_STREAM)
+            .body(emitter);
     }
 
     @GetMapping("/stats/{userId}")
+    @Operation(
+        summary = "시간표 조합 수",
+        description = "목표 학점 ±3 학점 구간에 드는 시간표 조합 수를 조합을 만들지 않고 셉니다. " +
+                     "exact 가 true 이면 정확한 값이고, capped 가 true 이면 실제 조합 수는 possibleCombinations 이상입니다."
+    )
     public ResponseEntity<?> getTimetableStats(
             @PathVariable Long userId,
             @RequestParam String semester,
@@ -91,23 +222,55 @@ public class TimetableCombinationController {
 
         userAccessGuard.requireMatchingUser(authenticatedUser, userId);
         validateTargetCredits(targetCredits);
-        List<List<Subject>> combinations = combinationService.generateTimetableCombinations(
-            userId, semester, targetCredits, 1);
-
-        if (combinations.isEmpty()) {
-            return ResponseEntity.ok(Map.of(
-                "message", "생성 가능한 시간표 조합이 없습니다.",
-                "possibleCombinations", 0
-            ));
-        }
+        TimetableCombinationCount count = admissionService.call(userId, () -> combinationService.countTimetableCombinations(
+            userId, TimetableCombinationCriteria.of(semester, targetCredits, 1, List.of(), false)));
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("possibleCombinations", combinations.size());
+        stats.put("possibleCombinations", count.possibleCombinations());
+        stats.put("exact", count.exact());
+        stats.put("capped", count.capped());
         stats.put("targetCredits", targetCredits);
+        stats.put("requiredConflict", count.requiredConflict());
+        if (count.possibleCombinations() == 0) {
+            stats.put("message", "생성 가능한 시간표 조합이 없습니다.");
+        }
 
         return ResponseEntity.ok(stats);
     }
 
+    // generate 계열 요청 본문을 조건으로 바꾼다. ranking 이 없으면 defaultRanking 을 쓴다.
+    private TimetableCombinationCriteria criteria(Map<String, Object> request, String defaultRanking) {
+        String semester = optionalString(request, "semester");
+        boolean ignoreTargetCredits = optionalBoolean(request, "ignoreTargetCredits", false);
+        Integer targetCredits = null;
+        if (!ignoreTargetCredits) {
+            targetCredits = requiredInteger(request, "targetCredits");
+            validateTargetCredits(targetCredits);
+        }
+        String ranking = request.containsKey("ranking")
+                ? optionalString(request, "ranking")
+                : defaultRanking;
+        int maxCombinations = request.containsKey("maxCombinations")
+                ? requiredInteger(request, "maxCombinations")
+                : ranking != null && !ranking.isBlank() ? DEFAULT_RANKED_MAX_COMBINATIONS : DEFAULT_MAX_COMBINATIONS;
+        // 상한을 두어 대량 조합 적재로 인한 메모리/CPU 폭주(공유 인스턴스 DoS)를 방지한다.
+        maxCombinations = Math.max(1, Math.min(maxCombinations, MAX_COMBINATIONS));
+        List<String> freeDays = new ArrayList<>(optionalStringList(request, "freeDays"));
+        boolean sectionAware = optionalBoolean(request, "sectionAware", false);
+        Integer diversity = optionalInteger(request, "diversity");
+        return TimetableCombinationCriteria.of(
+                semester,
+                targetCredits,
+                maxCombinations,
+                freeDays,
+                sectionAware,
+                ranking,
+                optionalDouble(request, "earliestStart"),
+                optionalDouble(request, "latestEnd"),
+                optionalStringList(request, "blockedTimes"),
+                diversity != null ? diversity : 0);
+    }
+
     private void validateTargetCredits(int targetCredits) {
         if (targetCredits < MIN_TARGET_CREDITS || targetCredits > MAX_TARGET_CREDITS) {
             throw ApiException.badRequest(
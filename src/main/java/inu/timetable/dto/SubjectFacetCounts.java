@@ -0,0 +1,23 @@
+package inu.timetable.dto;
+
+import inu.timetable.enums.ClassMethod;
+import inu.timetable.enums.SubjectType;
+
+import java.util.Map;
+
+/**
+ * /api/subjects/facets 응답. 현재 필터 조건에 맞는 과목 수(total)와 그 과목들을 패싯 값별로 나눈 수다.
+ *
+ * <p>맵은 값 순서(학과는 이름순, 요일은 월~일 순)이고, 학기 카탈로그에 있는 값은 0 건이어도 담는다. 값이 null 인 과목은
+ * total 에만 들어간다.</p>
+ */
+public record SubjectFacetCounts(
+        long total,
+        Map<String, Long> departments,
+        Map<Integer, Long> grades,
+        Map<SubjectType, Long> subjectTypes,
+        Map<Boolean, Long> isNight,
+        Map<Integer, Long> credits,
+        Map<String, Long> daysOfWeek,
+        Map<ClassMethod, Long> classMethods) {
+}
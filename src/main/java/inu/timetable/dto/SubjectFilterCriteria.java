@@ -28,7 +28,8 @@ public record SubjectFilterCriteria(
         int size) {
 
     private static final List<String> TIME_BLOCK_DAY_ORDER = List.of("월", "화", "수", "목", "금", "토");
-    private static final Pattern TIME_BLOCK_PATTERN =
+    // 시간표 조합의 blockedTimes 도 같은 형식을 쓴다.
+    static final Pattern TIME_BLOCK_PATTERN =
             Pattern.compile("^([월화수목금토]):(\\d+(?:\\.\\d+)?)-(\\d+(?:\\.\\d+)?)$");
 
     public static SubjectFilterCriteria of(
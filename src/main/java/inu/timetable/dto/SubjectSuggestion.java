@@ -0,0 +1,15 @@
+package inu.timetable.dto;
+
+/**
+ * /api/subjects/suggest 응답 항목. 입력한 앞부분으로 시작하는 과목명·교수명·학과명 하나다.
+ *
+ * <p>popularity 는 그 이름을 가진 활성 과목들을 시간표에 담은 사용자 수의 합이고, 목록은 이 값이 큰 순이다.</p>
+ */
+public record SubjectSuggestion(String text, Kind kind, long popularity) {
+
+    public enum Kind {
+        SUBJECT_NAME,
+        PROFESSOR,
+        DEPARTMENT
+    }
+}
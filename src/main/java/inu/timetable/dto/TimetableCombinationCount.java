@@ -0,0 +1,15 @@
+package inu.timetable.dto;
+
+/**
+ * 조합을 만들지 않고 센 시간표 조합 수.
+ * exact 이면 possibleCombinations 가 정확한 값이고, capped 이면 실제 조합 수는 possibleCombinations 이상이다.
+ * 둘 다 false 이면 탐색 예산이 바닥나 possibleCombinations 는 하한이다.
+ * 목표 학점 구간에 드는 조합이 없을 때 generate 가 돌려주는 필수 과목만의 시간표도 하나로 센다.
+ */
+public record TimetableCombinationCount(
+        long possibleCombinations,
+        boolean exact,
+        boolean capped,
+        int effectiveTargetCredits,
+        TimetableCombinationResult.RequiredConflict requiredConflict) {
+}
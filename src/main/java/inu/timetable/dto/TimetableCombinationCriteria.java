@@ -0,0 +1,155 @@
+package inu.timetable.dto;
+
+import inu.timetable.exception.ApiException;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 시간표 조합 생성 요청 조건.
+ * targetCredits 가 null 이면 달성 가능한 최대 학점을 목표로 삼는다.
+ * sectionAware 가 true 이면 같은 과목명의 분반을 하나의 선택 그룹으로 보고 모든 분반을 후보로 탐색한다.
+ * ranking 은 순위 식(예: {@code credits:10,gaps:1})이다. null 이면 깊이 우선으로 찾은 앞쪽 조합을 학점 차이순으로 정렬하고,
+ * 값이 있으면 전체 후보 중 순위 식 점수가 가장 좋은 조합을 고른다.
+ * earliestStart·latestEnd 는 교시 단위로, 매일 이 교시 전에 시작하거나 이 교시 뒤에 끝나는 수업이 있는 분반을 뺀다.
+ * blockedTimes 는 수업을 두지 않을 구간이고, 과목 검색의 timeBlocks 와 같은 {@code 요일:시작-끝}(교시) 형식에서 읽는다.
+ * diversity 는 돌려줄 조합끼리 서로 달라야 하는 최소 분반 수(한쪽에만 있는 분반 수)다. 0 이면 거르지 않는다.
+ */
+public record TimetableCombinationCriteria(
+        String semester,
+        Integer targetCredits,
+        int maxCombinations,
+        List<String> freeDays,
+        boolean sectionAware,
+        String ranking,
+        Double earliestStart,
+        Double latestEnd,
+        List<BlockedTime> blockedTimes,
+        int diversity) {
+
+    public static final int MAX_DIVERSITY = 10;
+
+    public record BlockedTime(String dayOfWeek, double startTime, double endTime) {
+    }
+
+    public static TimetableCombinationCriteria of(
+            String semester,
+            Integer targetCredits,
+            int maxCombinations,
+            List<String> freeDays,
+            boolean sectionAware) {
+        return of(semester, targetCredits, maxCombinations, freeDays, sectionAware, null);
+    }
+
+    public static TimetableCombinationCriteria of(
+            String semester,
+            Integer targetCredits,
+            int maxCombinations,
+            List<String> freeDays,
+            boolean sectionAware,
+            String ranking) {
+        return of(semester, targetCredits, maxCombinations, freeDays, sectionAware, ranking, null, null, List.of());
+    }
+
+    public static TimetableCombinationCriteria of(
+            String semester,
+            Integer targetCredits,
+            int maxCombinations,
+            List<String> freeDays,
+            boolean sectionAware,
+            String ranking,
+            Double earliestStart,
+            Double latestEnd,
+            List<String> blockedTimes) {
+        return of(semester, targetCredits, maxCombinations, freeDays, sectionAware, ranking,
+                earliestStart, latestEnd, blockedTimes, 0);
+    }
+
+    public static TimetableCombinationCriteria of(
+            String semester,
+            Integer targetCredits,
+            int maxCombinations,
+            List<String> freeDays,
+            boolean sectionAware,
+            String ranking,
+            Double earliestStart,
+            Double latestEnd,
+            List<String> blockedTimes,
+            int diversity) {
+        if (diversity < 0 || diversity > MAX_DIVERSITY) {
+            throw ApiException.badRequest("diversity 는 0 이상 " + MAX_DIVERSITY + " 이하로 입력해주세요.");
+        }
+        if (earliestStart != null && earliestStart < 0 || latestEnd != null && latestEnd < 0) {
+            throw ApiException.badRequest("earliestStart, latestEnd 는 0 이상의 교시로 입력해주세요.");
+        }
+        if (earliestStart != null && latestEnd != null && earliestStart >= latestEnd) {
+            throw ApiException.badRequest("earliestStart 는 latestEnd 보다 앞선 교시여야 합니다.");
+        }
+        return new TimetableCombinationCriteria(
+                semester,
+                targetCredits,
+                Math.max(1, maxCombinations),
+                normalizeDays(freeDays),
+                sectionAware,
+                ranking == null || ranking.isBlank() ? null : ranking.trim(),
+                earliestStart,
+                latestEnd,
+                parseBlockedTimes(blockedTimes),
+                diversity);
+    }
+
+    /**
+     * 분반을 미리 거를 시간 조건(시작·끝 교시, 막을 구간)이 있는지.
+     */
+    public boolean hasTimeConstraints() {
+        return earliestStart != null || latestEnd != null || !blockedTimes.isEmpty();
+    }
+
+    private static List<String> normalizeDays(List<String> days) {
+        if (days == null) {
+            return List.of();
+        }
+        return days.stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(value -> !value.isBlank())
+                .distinct()
+                .toList();
+    }
+
+    // 같은 구간은 한 번만 남기고 요일·시작 순으로 정렬해, 순서만 다른 요청이 같은 조건(캐시 키)이 되게 한다.
+    private static List<BlockedTime> parseBlockedTimes(List<String> blockedTimes) {
+        if (blockedTimes == null) {
+            return List.of();
+        }
+        return blockedTimes.stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(value -> !value.isBlank())
+                .map(TimetableCombinationCriteria::parseBlockedTime)
+                .distinct()
+                .sorted(Comparator.comparingInt((BlockedTime block) -> "월화수목금토".indexOf(block.dayOfWeek()))
+                        .thenComparingDouble(BlockedTime::startTime)
+                        .thenComparingDouble(BlockedTime::endTime))
+                .toList();
+    }
+
+    private static BlockedTime parseBlockedTime(String block) {
+        var matcher = SubjectFilterCriteria.TIME_BLOCK_PATTERN.matcher(block);
+        if (!matcher.matches()) {
+            throw invalidBlockedTime(block);
+        }
+        double start = Double.parseDouble(matcher.group(2));
+        double end = Double.parseDouble(matcher.group(3));
+        if (start >= end) {
+            throw invalidBlockedTime(block);
+        }
+        return new BlockedTime(matcher.group(1), start, end);
+    }
+
+    private static ApiException invalidBlockedTime(String block) {
+        return ApiException.badRequest(
+                "blockedTimes 형식이 올바르지 않습니다: '" + block + "' (예: 수:5-10)");
+    }
+}
@@ -0,0 +1,57 @@
+package inu.timetable.dto;
+
+import inu.timetable.entity.Subject;
+
+import java.util.List;
+
+/**
+ * 시간표 조합 생성 결과와 탐색 규모.
+ * statistics 는 combinations 와 같은 순서의 조합별 통계다.
+ * courseGroupCount 는 과목명 기준 선택 그룹 수, candidateSectionCount 는 그룹에 들어간 분반 수,
+ * exploredSectionCount 는 탐색 중 실제로 시간표에 한 번 이상 놓여 본 분반 수다.
+ * scores 는 순위 탐색일 때 combinations 와 같은 순서의 점수(낮을수록 좋음)이고, 아니면 빈 목록이다.
+ * requiredConflict 는 서로 시간이 겹쳐 함께 담을 수 없는 필수 과목 쌍이며, 이때 탐색 없이 빈 결과를 돌려준다.
+ * maximumCreditsProven 은 목표 학점 없이 최대 학점을 찾았을 때만 값이 있고, 그 최대 학점이 최댓값임이 확인되었는지를 뜻한다.
+ * truncated 는 요청 마감 시간이 지나 탐색을 끝내지 못하고 그때까지 찾은 조합만 돌려주었는지를 뜻한다.
+ * suppressedNearDuplicates 는 diversity 조건에 걸려 돌려주지 않은 비슷한 후보 수다.
+ * continuationToken 은 generate 에 다음 페이지가 있을 때 그 페이지를 이어서 요청할 토큰이고, 없으면 null 이다.
+ * 이어 보기 페이지는 첫 페이지가 정한 목표 학점을 그대로 쓰므로 maximumCreditsProven 이 null 이다.
+ */
+public record TimetableCombinationResult(
+        List<List<Subject>> combinations,
+        List<TimetableCombinationStatistics> statistics,
+        int effectiveTargetCredits,
+        boolean sectionAware,
+        int courseGroupCount,
+        int candidateSectionCount,
+        int exploredSectionCount,
+        int searchedNodeCount,
+        boolean searchBudgetExhausted,
+        String ranking,
+        List<Long> scores,
+        RequiredConflict requiredConflict,
+        Boolean maximumCreditsProven,
+        boolean truncated,
+        long suppressedNearDuplicates,
+        String continuationToken) {
+
+    public record RequiredConflict(
+            Long firstSubjectId,
+            String firstSubjectName,
+            Long secondSubjectId,
+            String secondSubjectName) {
+
+        public static RequiredConflict of(Subject first, Subject second) {
+            return new RequiredConflict(first.getId(), first.getSubjectName(), second.getId(), second.getSubjectName());
+        }
+    }
+
+    public static TimetableCombinationResult empty(boolean sectionAware) {
+        return empty(sectionAware, null);
+    }
+
+    public static TimetableCombinationResult empty(boolean sectionAware, String ranking) {
+        return new TimetableCombinationResult(
+                List.of(), List.of(), 0, sectionAware, 0, 0, 0, 0, false, ranking, List.of(), null, null, false, 0, null);
+    }
+}
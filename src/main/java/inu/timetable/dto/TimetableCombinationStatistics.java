@@ -0,0 +1,116 @@
+package inu.timetable.dto;
+
+import inu.timetable.entity.Schedule;
+import inu.timetable.entity.Subject;
+import inu.timetable.enums.SubjectType;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 시간표 조합 하나의 통계(총 학점, 과목 수, 이수 구분별 과목 수, 요일별 수업 수, 월~금 중 공강 요일).
+ *
+ * <p>조합 탐색은 분반마다 컴파일할 때 세어 둔 원시 카운터를 더해 만들므로, 결과마다 과목·일정을 다시 훑거나 그룹 맵을 만들지 않는다.
+ * 맵은 응답을 직렬화할 때만 만든다. JSON 모양은 예전 통계 맵과 같다.</p>
+ *
+ * <p>요일별 수업 수는 {@link #DAYS} 의 요일만 센다. 요일이 비었거나 알 수 없는 일정은 세지 않는다.</p>
+ */
+@EqualsAndHashCode
+@ToString
+public final class TimetableCombinationStatistics {
+
+    public static final List<String> DAYS = List.of("월", "화", "수", "목", "금", "토", "일");
+    private static final int WEEKDAY_COUNT = 5;
+    private static final SubjectType[] SUBJECT_TYPES = SubjectType.values();
+
+    private final int totalCredits;
+    private final int subjectCount;
+    // SubjectType ordinal 별 과목 수.
+    private final int[] subjectTypeCounts;
+    // DAYS 순서의 요일별 일정 수.
+    private final int[] dayScheduleCounts;
+
+    /**
+     * 배열은 복사하지 않고 그대로 들고 있으므로 부르는 쪽이 넘긴 뒤에 고치지 않는다.
+     *
+     * @param subjectTypeCounts SubjectType ordinal 별 과목 수
+     * @param dayScheduleCounts {@link #DAYS} 순서의 요일별 일정 수
+     */
+    public TimetableCombinationStatistics(
+            int totalCredits,
+            int subjectCount,
+            int[] subjectTypeCounts,
+            int[] dayScheduleCounts) {
+        if (subjectTypeCounts.length != SUBJECT_TYPES.length || dayScheduleCounts.length != DAYS.size()) {
+            throw new IllegalArgumentException("Unexpected statistics counter length");
+        }
+        this.totalCredits = totalCredits;
+        this.subjectCount = subjectCount;
+        this.subjectTypeCounts = subjectTypeCounts;
+        this.dayScheduleCounts = dayScheduleCounts;
+    }
+
+    /**
+     * 엔티티에서 바로 센다. 탐색을 거치지 않은 조합에 쓴다.
+     */
+    public static TimetableCombinationStatistics of(List<Subject> subjects) {
+        int totalCredits = 0;
+        int[] subjectTypeCounts = new int[SUBJECT_TYPES.length];
+        int[] dayScheduleCounts = new int[DAYS.size()];
+        for (Subject subject : subjects) {
+            totalCredits += subject.getCredits() != null ? subject.getCredits() : 0;
+            if (subject.getSubjectType() != null) {
+                subjectTypeCounts[subject.getSubjectType().ordinal()]++;
+            }
+            for (Schedule schedule : subject.getSchedules()) {
+                int dayIndex = schedule.getDayOfWeek() == null ? -1 : DAYS.indexOf(schedule.getDayOfWeek());
+                if (dayIndex >= 0) {
+                    dayScheduleCounts[dayIndex]++;
+                }
+            }
+        }
+        return new TimetableCombinationStatistics(totalCredits, subjects.size(), subjectTypeCounts, dayScheduleCounts);
+    }
+
+    public int getTotalCredits() {
+        return totalCredits;
+    }
+
+    public int getSubjectCount() {
+        return subjectCount;
+    }
+
+    public Map<String, Long> getSubjectTypeDistribution() {
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        for (int type = 0; type < subjectTypeCounts.length; type++) {
+            if (subjectTypeCounts[type] > 0) {
+                distribution.put(SUBJECT_TYPES[type].toString(), (long) subjectTypeCounts[type]);
+            }
+        }
+        return distribution;
+    }
+
+    public Map<String, Long> getDayDistribution() {
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        for (int day = 0; day < dayScheduleCounts.length; day++) {
+            if (dayScheduleCounts[day] > 0) {
+                distribution.put(DAYS.get(day), (long) dayScheduleCounts[day]);
+            }
+        }
+        return distribution;
+    }
+
+    public List<String> getFreeDays() {
+        List<String> freeDays = new ArrayList<>(WEEKDAY_COUNT);
+        for (int day = 0; day < WEEKDAY_COUNT; day++) {
+            if (dayScheduleCounts[day] == 0) {
+                freeDays.add(DAYS.get(day));
+            }
+        }
+        return freeDays;
+    }
+}
@@ -0,0 +1,4 @@
+package inu.timetable.event;
+
+public record WishlistChangedEvent(Long userId) {
+}
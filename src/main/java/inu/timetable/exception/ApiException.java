@@ -3,14 +3,23 @@ package inu.timetable.exception;
 import lombok.Getter;
 import org.springframework.http.HttpStatus;
 
+import java.time.Duration;
+
 @Getter
 public class ApiException extends RuntimeException {
 
     private final HttpStatus status;
+    // 다시 시도할 때까지 기다릴 시간. null 이 아니면 응답에 Retry-After 헤더로 싣는다.
+    private final Duration retryAfter;
 
     private ApiException(HttpStatus status, String message) {
+        this(status, message, null);
+    }
+
+    private ApiException(HttpStatus status, String message, Duration retryAfter) {
         super(message);
         this.status = status;
+        this.retryAfter = retryAfter;
     }
 
     public static ApiException badRequest(String message) {
@@ -24,4 +33,12 @@ public class ApiException extends RuntimeException {
     public static ApiException conflict(String message) {
         return new ApiException(HttpStatus.CONFLICT, message);
     }
+
+    public static ApiException tooManyRequests(String message, Duration retryAfter) {
+        return new ApiException(HttpStatus.TOO_MANY_REQUESTS, message, retryAfter);
+    }
+
+    public static ApiException serviceUnavailable(String message, Duration retryAfter) {
+        return new ApiException(HttpStatus.SERVICE_UNAVAILABLE, message, retryAfter);
+    }
 }
@@ -16,6 +16,42 @@ import java.util.Optional;
 @Repository
 public interface SubjectRepository extends JpaRepository<Subject, Long> {
 
+        interface SubjectMaskRow {
+                Long getSubjectId();
+                String getSubjectName();
+                Integer getCredits();
+                SubjectType getSubjectType();
+                String getDayOfWeek();
+                Double getStartTime();
+                Double getEndTime();
+        }
+
+        interface SubjectSearchRow {
+                Long getSubjectId();
+                String getSubjectName();
+                String getProfessor();
+                String getCourseCode();
+                String getDepartment();
+                Integer getGrade();
+        }
+
+        interface SubjectCatalogRow {
+                Long getSubjectId();
+                String getSubjectName();
+                String getProfessor();
+                String getCourseCode();
+                String getDepartment();
+                Integer getGrade();
+                Integer getCredits();
+                SubjectType getSubjectType();
+                Boolean getIsNight();
+                ClassMethod getClassMethod();
+                Long getScheduleId();
+                String getDayOfWeek();
+                Double getStartTime();
+                Double getEndTime();
+        }
+
         // 시간 블록 완전 포함 필터.
         // 과목의 모든 스케줄이 요일별 선택 구간 안에 완전히 포함되어야 한다(위반 스케줄이 하나도 없어야 함).
         // 스케줄이 없는 과목(온라인 등)은 NOT EXISTS 가 자동으로 만족되어 포함된다.
@@ -53,6 +89,10 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
 
         List<Subject> findByProfessorContainingAndGradeAndActiveTrue(String keyword, Integer grade);
 
+        List<Subject> findByCourseCodeContainingAndActiveTrue(String keyword);
+
+        List<Subject> findByCourseCodeContainingAndGradeAndActiveTrue(String keyword, Integer grade);
+
         List<Subject> findByCredits(Integer credits);
 
         List<Subject> findByGrade(Integer grade);
@@ -179,6 +219,30 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
         @Query("SELECT DISTINCT s FROM Subject s LEFT JOIN FETCH s.schedules")
         List<Subject> findAllWithSchedules();
 
+        // 과목 마스크 색인용. 엔티티 없이 과목 × 일정 한 줄씩 읽는다(일정이 없는 과목은 일정 칸이 null 인 한 줄).
+        @Query("SELECT s.id AS subjectId, s.subjectName AS subjectName, s.credits AS credits, " +
+                        "s.subjectType AS subjectType, sch.dayOfWeek AS dayOfWeek, sch.startTime AS startTime, sch.endTime AS endTime " +
+                        "FROM Subject s LEFT JOIN s.schedules sch " +
+                        "WHERE s.active = true AND (s.semester = :semester OR s.semester IS NULL) " +
+                        "ORDER BY s.id")
+        List<SubjectMaskRow> findMaskRowsBySemester(@Param("semester") String semester);
+
+        // 필터 카탈로그용. findIdsWithFilters 와 같은 학기 조건으로 과목 × 일정 한 줄씩 읽는다(일정이 없는 과목은 scheduleId 가 null 인 한 줄).
+        @Query("SELECT s.id AS subjectId, s.subjectName AS subjectName, s.professor AS professor, " +
+                        "s.courseCode AS courseCode, s.department AS department, s.grade AS grade, s.credits AS credits, " +
+                        "s.subjectType AS subjectType, s.isNight AS isNight, s.classMethod AS classMethod, " +
+                        "sch.id AS scheduleId, sch.dayOfWeek AS dayOfWeek, sch.startTime AS startTime, sch.endTime AS endTime " +
+                        "FROM Subject s LEFT JOIN s.schedules sch " +
+                        "WHERE s.active = true AND (:semester IS NULL OR s.semester = :semester OR s.semester IS NULL) " +
+                        "ORDER BY s.id, sch.id")
+        List<SubjectCatalogRow> findCatalogRowsBySemester(@Param("semester") String semester);
+
+        // 과목 검색 n-gram 색인과 검색어 추천 트라이용. 모든 학기의 활성 과목을 과목 id 순으로 읽는다.
+        @Query("SELECT s.id AS subjectId, s.subjectName AS subjectName, s.professor AS professor, " +
+                        "s.courseCode AS courseCode, s.department AS department, s.grade AS grade " +
+                        "FROM Subject s WHERE s.active = true ORDER BY s.id")
+        List<SubjectSearchRow> findSearchRows();
+
         @Query("SELECT DISTINCT s FROM Subject s LEFT JOIN FETCH s.schedules " +
                         "WHERE (s.semester = :semester AND s.courseCode IS NOT NULL) " +
                         "OR s.courseCode IS NULL")
@@ -41,6 +41,11 @@ public interface UserTimetableRepository extends JpaRepository<UserTimetable, Lo
            "WHERE ut.user.id = :userId AND ut.semester = :semester")
     List<UserTimetable> findByUserIdAndSemesterWithSubjectAndSchedules(@Param("userId") Long userId, @Param("semester") String semester);
 
+    // 과목 마스크 색인으로 충돌을 볼 때는 과목 id 만 읽는다.
+    @Query("SELECT ut.subject.id FROM UserTimetable ut " +
+           "WHERE ut.user.id = :userId AND ut.semester = :semester")
+    List<Long> findSubjectIdsByUserIdAndSemester(@Param("userId") Long userId, @Param("semester") String semester);
+
     @Query("SELECT DISTINCT ut FROM UserTimetable ut " +
            "JOIN FETCH ut.user u " +
            "JOIN FETCH ut.subject s " +
@@ -88,4 +93,11 @@ public interface UserTimetableRepository extends JpaRepository<UserTimetable, Lo
     List<SubjectTimetableAddCount> countAddedUsersBySubjectIdsAndSemester(
             @Param("subjectIds") List<Long> subjectIds,
             @Param("semester") String semester);
+
+    // 필터 카탈로그의 인기순 정렬용. findIdsWithFilters 의 정렬 기준처럼 시간표의 학기는 가리지 않고 과목별로 담은 사용자 수를 센다.
+    @Query("SELECT s.id AS subjectId, COUNT(DISTINCT ut.user.id) AS timetableAddCount " +
+           "FROM UserTimetable ut JOIN ut.subject s " +
+           "WHERE s.active = true AND (:semester IS NULL OR s.semester = :semester OR s.semester IS NULL) " +
+           "GROUP BY s.id")
+    List<SubjectTimetableAddCount> countAddedUsersByActiveSubjectsInSemester(@Param("semester") String semester);
 }
@@ -17,6 +17,11 @@ public interface WishlistRepository extends JpaRepository<WishlistItem, Long> {
         Long getSubjectId();
         Long getWishlistCount();
     }
+
+    interface WishlistFingerprintRow {
+        Long getSubjectId();
+        Boolean getIsRequired();
+    }
     
     List<WishlistItem> findByUserIdAndSemester(Long userId, String semester);
     
@@ -27,6 +32,14 @@ public interface WishlistRepository extends JpaRepository<WishlistItem, Long> {
            "AND s.active = true " +
            "ORDER BY w.priority")
     List<WishlistItem> findByUserIdAndSemesterWithSubjectAndSchedules(@Param("userId") Long userId, @Param("semester") String semester);
+
+    // 조합 캐시 키용. 위 조회와 같은 조건·순서로 과목 id 와 필수 여부만 읽는다.
+    @Query("SELECT s.id AS subjectId, w.isRequired AS isRequired FROM WishlistItem w " +
+           "JOIN w.subject s " +
+           "WHERE w.user.id = :userId AND w.semester = :semester " +
+           "AND s.active = true " +
+           "ORDER BY w.priority")
+    List<WishlistFingerprintRow> findFingerprintRowsByUserIdAndSemester(@Param("userId") Long userId, @Param("semester") String semester);
     
     @Query("SELECT w FROM WishlistItem w JOIN FETCH w.subject s WHERE w.user.id = :userId AND s.id = :subjectId")
     List<WishlistItem> findAllByUserIdAndSubjectId(@Param("userId") Long userId, @Param("subjectId") Long subjectId);
@@ -0,0 +1,240 @@
+package inu.timetable.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 목표 학점·공강 요일·결과 수만 다른 여러 조건({@link CombinationSearch.BatchVariant})의 조합을 깊이 우선 탐색 하나로 모으는 실행.
+ *
+ * <p>모든 조건의 학점 구간을 합친 범위를 돌면서 조합마다 학점 구간과 수업 요일이 맞는 조건의 {@link Bucket} 에 나눠 담고,
+ * 아직 결과를 더 받을 수 있는 조건이 하나도 남지 않을 때만 가지를 자른다.</p>
+ */
+final class BatchRun extends CollectingRun {
+
+    final Bucket[] buckets;
+    final TimetableScoreFunction scoreFunction;
+    // 순위 탐색만 시간 마스크를 쌓는다.
+    final TimeSlotMask.Accumulator timeMask;
+    // 아직 결과를 더 받을 수 있는 조건 수. 순위 탐색은 끝까지 받는다.
+    int openBuckets;
+    // 부모 노드에서 가지를 치지 않은 조건 비트. 따로 탐색했다면 잘렸을 가지(예: 상한 학점에 0 학점 과목을 더한 조합)는
+    // 그 조건에 담지 않는다.
+    int parentLiveBuckets;
+
+    BatchRun(CombinationSearch search, List<CombinationSearch.BatchVariant> variants, int creditTolerance,
+             int nodeBudget, TimetableScoreFunction scoreFunction, SearchDeadline deadline) {
+        super(search, nodeBudget, deadline);
+        this.scoreFunction = scoreFunction;
+        this.timeMask = scoreFunction != null ? new TimeSlotMask.Accumulator(groupCount()) : null;
+        this.buckets = variants.stream()
+                .map(variant -> new Bucket(variant, creditTolerance, timeMask))
+                .toArray(Bucket[]::new);
+        this.openBuckets = (int) Arrays.stream(buckets).filter(bucket -> !bucket.full()).count();
+    }
+
+    /**
+     * 조건 순서의 결과. 탐색 규모 지표와 가지치기 수는 모든 조건이 공유 탐색의 값을 함께 쓴다.
+     */
+    List<CombinationSearch.Enumeration> enumerations(CombinationSearch.Prunes prunes) {
+        List<CombinationSearch.Enumeration> enumerations = new ArrayList<>(buckets.length);
+        for (Bucket bucket : buckets) {
+            List<int[]> combinations = bucket.accepted;
+            long[] scores = null;
+            if (bucket.best != null) {
+                List<RankedCandidate> ranked = new ArrayList<>(bucket.best);
+                ranked.sort(RankedCandidate.RANK_ORDER);
+                combinations = ranked.stream().map(RankedCandidate::chosen).toList();
+                scores = ranked.stream().mapToLong(RankedCandidate::score).toArray();
+            }
+            enumerations.add(new CombinationSearch.Enumeration(
+                    combinations,
+                    scores,
+                    bucket.firstRequiredSelection,
+                    visitedNodes,
+                    exploredOptionCount,
+                    budgetExhausted,
+                    deadlineExceeded,
+                    prunes,
+                    bucket.nearDuplicates,
+                    null));
+        }
+        return enumerations;
+    }
+
+    @Override
+    boolean push(int optionIndex) {
+        if (!super.push(optionIndex)) {
+            return false;
+        }
+        if (timeMask != null) {
+            timeMask.tryPush(options[optionIndex].timeMask());
+        }
+        return true;
+    }
+
+    @Override
+    void pop() {
+        super.pop();
+        if (timeMask != null) {
+            timeMask.pop();
+        }
+    }
+
+    @Override
+    boolean isDone() {
+        return stopped() || openBuckets == 0;
+    }
+
+    private void collect(Bucket bucket, int credits) {
+        if (bucket.best == null) {
+            if (minDistance > 0 && CombinationDiversity.isNearAny(bucket.accepted, chosen, depth, minDistance)) {
+                bucket.nearDuplicates++;
+                return;
+            }
+            bucket.accepted.add(Arrays.copyOf(chosen, depth));
+            if (bucket.full()) {
+                openBuckets--;
+            }
+            return;
+        }
+        long score = scoreFunction.score(bucket.shape.at(credits, classDays[depth]));
+        int order = bucket.found++;
+        if (bucket.best.size() == bucket.limit && score >= bucket.best.peek().score()) {
+            return;
+        }
+        RankedCandidate candidate = new RankedCandidate(score, order, Arrays.copyOf(chosen, depth));
+        if (minDistance > 0) {
+            int displaced = CombinationDiversity.admitDiverse(bucket.best, candidate, minDistance);
+            if (displaced < 0) {
+                bucket.nearDuplicates++;
+                return;
+            }
+            bucket.nearDuplicates += displaced;
+        }
+        if (bucket.best.size() == bucket.limit) {
+            bucket.best.poll();
+        }
+        bucket.best.add(candidate);
+    }
+
+    // 이 노드 아래에서 bucket 이 받을 조합이 있을 수 있으면 true. 따로 탐색할 때의 가지치기 조건과 같다.
+    private boolean canCollectBelow(Bucket bucket, int startGroup, int credits) {
+        if (bucket.full() || credits >= bucket.maxCredits
+                || credits + suffixMaxCredits[startGroup] < bucket.minCredits) {
+            return false;
+        }
+        if (bucket.best == null || bucket.best.size() < bucket.limit) {
+            return true;
+        }
+        int maxAdditionalCredits = Math.min(suffixMaxCredits[startGroup], bucket.maxCredits - credits);
+        return scoreFunction.lowerBound(bucket.shape.at(credits, classDays[depth]), maxAdditionalCredits)
+                < bucket.best.peek().score();
+    }
+
+    private boolean anyCanTake(int liveBuckets, int credits, int classDayBits) {
+        for (int b = 0; b < buckets.length; b++) {
+            if ((liveBuckets & 1 << b) != 0
+                    && credits <= buckets[b].maxCredits
+                    && (classDayBits & buckets[b].freeDayBits) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    void searchOptional(int startGroup, int credits) {
+        recordRequiredSelection();
+        // 수업 요일은 내려갈수록 늘기만 하므로, 조건마다 처음 공강과 맞는 호출이 그 조건의 필수 과목만의 첫 조합이다.
+        for (Bucket bucket : buckets) {
+            if (bucket.firstRequiredSelection == null && (classDays[depth] & bucket.freeDayBits) == 0) {
+                bucket.firstRequiredSelection = Arrays.copyOf(chosen, depth);
+            }
+        }
+        if (isDone() || !enterNode()) {
+            return;
+        }
+
+        // 선택 과목을 하나도 담지 않은 노드는 모든 조건이 받는다.
+        int reachedBuckets = depth == requiredGroupCount ? -1 : parentLiveBuckets;
+        int liveBuckets = 0;
+        for (int b = 0; b < buckets.length; b++) {
+            Bucket bucket = buckets[b];
+            if ((reachedBuckets & 1 << b) == 0
+                    || bucket.full()
+                    || (classDays[depth] & bucket.freeDayBits) != 0) {
+                continue;
+            }
+            if (depth > 0 && credits >= bucket.minCredits && credits <= bucket.maxCredits) {
+                collect(bucket, credits);
+            }
+            if (startGroup < groupCount() && canCollectBelow(bucket, startGroup, credits)) {
+                liveBuckets |= 1 << b;
+            }
+        }
+
+        if (startGroup >= groupCount() || isDone()) {
+            return;
+        }
+        if (liveBuckets == 0) {
+            creditBoundPrunes++;
+            return;
+        }
+
+        for (int group = startGroup; group < groupCount(); group++) {
+            int end = groupStarts[group + 1];
+            for (int i = nextCandidate(groupStarts[group], end); i >= 0; i = nextCandidate(i + 1, end)) {
+                CombinationSearch.Option option = options[i];
+                if (!anyCanTake(liveBuckets, credits + option.credits(),
+                        classDays[depth] | option.classDayBits())) {
+                    creditBoundPrunes++;
+                    continue;
+                }
+                if (!push(i)) {
+                    continue;
+                }
+                parentLiveBuckets = liveBuckets;
+                searchOptional(group + 1, credits + option.credits());
+                pop();
+                if (isDone()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 일괄 탐색에서 조건 하나가 모으는 결과. 순위 탐색이면 best 힙에, 아니면 accepted 에 찾은 순서대로 담는다.
+     */
+    static final class Bucket {
+
+        final int targetCredits;
+        final int minCredits;
+        final int maxCredits;
+        final int freeDayBits;
+        final int limit;
+        final List<int[]> accepted = new ArrayList<>();
+        // 순위 탐색일 때만 쓴다. 순위 함수가 목표 학점을 보므로 조건마다 모양 객체를 따로 둔다.
+        final TimetableShape shape;
+        final PriorityQueue<RankedCandidate> best;
+        int found;
+        int[] firstRequiredSelection;
+        long nearDuplicates;
+
+        Bucket(CombinationSearch.BatchVariant variant, int creditTolerance, TimeSlotMask.Accumulator timeMask) {
+            this.targetCredits = variant.targetCredits();
+            this.minCredits = variant.targetCredits() - creditTolerance;
+            this.maxCredits = variant.targetCredits() + creditTolerance;
+            this.freeDayBits = variant.freeDayBits();
+            this.limit = variant.limit();
+            this.shape = timeMask != null ? new TimetableShape(timeMask, variant.targetCredits()) : null;
+            this.best = timeMask != null ? new PriorityQueue<>(RankedCandidate.RANK_ORDER.reversed()) : null;
+        }
+
+        boolean full() {
+            return best == null && accepted.size() >= limit;
+        }
+    }
+}
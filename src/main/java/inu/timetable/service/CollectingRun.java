@@ -0,0 +1,68 @@
+package inu.timetable.service;
+
+import java.util.Arrays;
+
+/**
+ * 조합을 모으는 실행 객체(열거·순위·일괄)의 공통 상태: 한 번이라도 놓여 본 분반, 필수 그룹만의 첫 조합,
+ * 다양성 조건에 걸린 후보 수, 증분 탐색에서 반드시 고를 분반.
+ */
+abstract class CollectingRun extends CombinationRun {
+
+    final boolean[] explored;
+    int exploredOptionCount;
+    int[] firstRequiredSelection;
+    // 0 보다 크면 모은 조합끼리 분반이 이만큼 이상 달라야 한다.
+    int minDistance;
+    long nearDuplicates;
+    // 증분 탐색에서만 쓴다. 0 이상이면 이 분반을 고른 조합만 모으고, 이 분반을 더는 고를 수 없는 가지는 내려가지 않는다.
+    int includedOption = -1;
+
+    CollectingRun(CombinationSearch search, int nodeBudget, SearchDeadline deadline) {
+        super(search, nodeBudget, deadline);
+        this.explored = new boolean[options.length];
+    }
+
+    // 분반 번호는 경로에서 커지기만 하므로 마지막 분반이 includedOption 보다 앞이면 아직 고르지 않은 것이다.
+    final boolean inclusionPending() {
+        return includedOption >= 0 && (depth == 0 || chosen[depth - 1] < includedOption);
+    }
+
+    // 아직 고르지 않은 includedOption 이 앞서 고른 분반과 겹치거나 학점 상한을 넘기면 이 가지에는 담을 조합이 없다.
+    final boolean inclusionBlocked(int credits, int maxCredits) {
+        return !ConflictGraph.contains(candidates[depth], includedOption)
+                || credits + options[includedOption].credits() > maxCredits;
+    }
+
+    @Override
+    boolean push(int optionIndex) {
+        if (!super.push(optionIndex)) {
+            return false;
+        }
+        if (!explored[optionIndex]) {
+            explored[optionIndex] = true;
+            exploredOptionCount++;
+        }
+        countConflictPrunes(optionIndex);
+        return true;
+    }
+
+    // optionIndex 를 고르면서 뒤 그룹 후보에서 새로 빠진 분반 수. 빠진 분반마다 그 아래 가지 하나가 통째로 잘린다.
+    private void countConflictPrunes(int optionIndex) {
+        long[] before = candidates[depth - 1];
+        long[] after = candidates[depth];
+        int from = groupStarts[search.groupOf(optionIndex) + 1];
+        for (int word = from >>> 6; word < before.length; word++) {
+            long removed = before[word] & ~after[word];
+            if (word == from >>> 6) {
+                removed &= -1L << from;
+            }
+            conflictPrunes += Long.bitCount(removed);
+        }
+    }
+
+    final void recordRequiredSelection() {
+        if (firstRequiredSelection == null) {
+            firstRequiredSelection = Arrays.copyOf(chosen, depth);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.TimetableCombinationCriteria;
+import inu.timetable.exception.ApiException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 시간표 조합 페이지의 이어 보기 토큰.
+ *
+ * <p>토큰은 앞 페이지가 마지막으로 돌려준 조합의 분반 번호 경로와 그 학점, 순위 탐색이면 점수, 첫 페이지가 정한 목표 학점,
+ * 그리고 탐색 지문을 담는다. 순위 없는 탐색이 조합을 찾기 전에 멈췄으면 경로는 방문하지 못한 첫 노드이고 inclusive 로 표시한다. 탐색 지문은 조건(조합 수 제외)과 컴파일한 분반 구성(과목·학점·시간 마스크)의 해시라서,
+ * 위시리스트나 과목 데이터가 바뀌면 맞지 않는다. 서버 상태를 두지 않으므로 HMAC 으로 서명해 조작을 막는다.</p>
+ *
+ * <p>비밀 키를 설정하지 않으면 프로세스마다 임의 키를 만든다. 이때는 다른 노드나 재시작 뒤에는 토큰이 맞지 않는다.</p>
+ */
+final class CombinationContinuationTokens {
+
+    private static final byte VERSION = 2;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int KEY_BYTES = 32;
+    private static final int DIGEST_BYTES = 16;
+    private static final int SIGNATURE_BYTES = 16;
+    // 필수·선택 그룹마다 분반 하나라서 경로 길이는 위시리스트 과목 수를 넘지 않는다. 넉넉한 상한만 둔다.
+    private static final int MAX_PATH_LENGTH = 1024;
+
+    private final SecretKeySpec key;
+
+    CombinationContinuationTokens(String secret) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            keyBytes = new byte[KEY_BYTES];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+    }
+
+    String encode(Cursor cursor) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + DIGEST_BYTES + 2 * Integer.BYTES
+                + 1 + Long.BYTES + 1 + Short.BYTES + cursor.path().length * Integer.BYTES + SIGNATURE_BYTES);
+        buffer.put(VERSION);
+        buffer.putLong(cursor.userId());
+        buffer.put(cursor.searchDigest());
+        buffer.putInt(cursor.effectiveTargetCredits());
+        buffer.putInt(cursor.pathCredits());
+        buffer.put((byte) (cursor.score() != null ? 1 : 0));
+        buffer.putLong(cursor.score() != null ? cursor.score() : 0L);
+        buffer.put((byte) (cursor.inclusive() ? 1 : 0));
+        buffer.putShort((short) cursor.path().length);
+        for (int optionIndex : cursor.path()) {
+            buffer.putInt(optionIndex);
+        }
+        buffer.put(sign(buffer.array(), buffer.position()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * 서명을 확인하고 토큰을 푼다. 형식이 틀리거나 서명이 맞지 않거나 다른 사용자의 토큰이면 400 이다.
+     */
+    Cursor decode(Long userId, String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw invalidToken();
+        }
+        if (bytes.length <= SIGNATURE_BYTES) {
+            throw invalidToken();
+        }
+        int payloadLength = bytes.length - SIGNATURE_BYTES;
+        if (!MessageDigest.isEqual(sign(bytes, payloadLength), Arrays.copyOfRange(bytes, payloadLength, bytes.length))) {
+            throw invalidToken();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, payloadLength);
+            if (buffer.get() != VERSION) {
+                throw invalidToken();
+            }
+            long tokenUserId = buffer.getLong();
+            byte[] searchDigest = new byte[DIGEST_BYTES];
+            buffer.get(searchDigest);
+            int effectiveTargetCredits = buffer.getInt();
+            int pathCredits = buffer.getInt();
+            boolean hasScore = buffer.get() != 0;
+            long score = buffer.getLong();
+            boolean inclusive = buffer.get() != 0;
+            int pathLength = buffer.getShort();
+            if (hasScore && inclusive || pathLength <= 0 || pathLength > MAX_PATH_LENGTH || buffer.remaining() != pathLength * Integer.BYTES) {
+                throw invalidToken();
+            }
+            int[] path = new int[pathLength];
+            for (int d = 0; d < pathLength; d++) {
+                path[d] = buffer.getInt();
+            }
+            if (userId == null || tokenUserId != userId) {
+                throw invalidToken();
+            }
+            return new Cursor(tokenUserId, searchDigest, effectiveTargetCredits, path, pathCredits,
+                    hasScore ? score : null, inclusive);
+        } catch (BufferUnderflowException e) {
+            throw invalidToken();
+        }
+    }
+
+    /**
+     * 조합 수를 뺀 조건과 컴파일한 탐색의 지문. 페이지 크기는 페이지마다 바꿀 수 있다.
+     */
+    static byte[] searchDigest(TimetableCombinationCriteria criteria, CombinationSearch search) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm is unavailable", e);
+        }
+        String conditions = String.join("\u0000",
+                String.valueOf(criteria.semester()),
+                String.valueOf(criteria.targetCredits()),
+                String.join(",", criteria.freeDays().stream().sorted().toList()),
+                String.valueOf(criteria.sectionAware()),
+                String.valueOf(criteria.ranking()),
+                String.valueOf(criteria.earliestStart()),
+                String.valueOf(criteria.latestEnd()),
+                String.valueOf(criteria.blockedTimes()),
+                String.valueOf(criteria.diversity()));
+        digest.update(conditions.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer buffer = ByteBuffer.allocate(search.digestBytes());
+        search.updateDigest(buffer);
+        digest.update(buffer.array(), 0, buffer.position());
+        return Arrays.copyOf(digest.digest(), DIGEST_BYTES);
+    }
+
+    private byte[] sign(byte[] payload, int length) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            mac.update(payload, 0, length);
+            return Arrays.copyOf(mac.doFinal(), SIGNATURE_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 algorithm is unavailable", e);
+        }
+    }
+
+    private static ApiException invalidToken() {
+        return ApiException.badRequest("continuationToken 값이 올바르지 않습니다.");
+    }
+
+    /**
+     * @param path      앞 페이지가 마지막으로 돌려준 조합의 분반 번호(깊이 우선 경로)
+     * @param score     순위 탐색이면 그 조합의 점수, 아니면 null
+     * @param inclusive path 가 앞 페이지가 조합을 찾기 전에 멈춘 자리라서 그 노드부터 다시 보는지. 순위 탐색에는 없다.
+     */
+    record Cursor(
+            long userId,
+            byte[] searchDigest,
+            int effectiveTargetCredits,
+            int[] path,
+            int pathCredits,
+            Long score,
+            boolean inclusive) {
+
+        /**
+         * 같은 조건·같은 분반 구성으로 컴파일한 탐색이고 경로가 그 탐색에서 나올 수 있는 조합인지.
+         */
+        boolean matches(byte[] currentDigest, CombinationSearch search) {
+            return MessageDigest.isEqual(searchDigest, currentDigest)
+                    && search.isSelection(path)
+                    && search.credits(path) == pathCredits;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package inu.timetable.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 모은 조합끼리 분반이 minDistance 개 이상 다르게 하는 다양성 조건. 열거는 {@link #isNearAny} 로 이미 모은 조합과 가까운 조합을
+ * 건너뛰고, 순위 탐색은 {@link #admitDiverse} 로 힙 안의 가까운 후보 중 순위가 앞선 하나만 남긴다.
+ */
+final class CombinationDiversity {
+
+    private CombinationDiversity() {
+    }
+
+    // 두 조합의 분반 대칭차 크기(한쪽에만 있는 분반 수). 깊이 우선 경로는 분반 번호 오름차순이라 병합하듯 센다.
+    static int distance(int[] chosen, int length, int[] other) {
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < length && j < other.length) {
+            if (chosen[i] == other[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (chosen[i] < other[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return length + other.length - 2 * common;
+    }
+
+    static boolean isNearAny(List<int[]> kept, int[] chosen, int length, int minDistance) {
+        for (int[] other : kept) {
+            if (distance(chosen, length, other) < minDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 다양성 조건을 지키며 순위 힙에 candidate 를 넣을 수 있는지 본다. 힙에 candidate 와 분반이 minDistance 개 미만으로 다른
+     * 후보 중 순위가 앞서는 것이 있으면 -1 을 돌려준다. 없으면 가까운 후보(모두 candidate 보다 순위가 뒤)를 힙에서 빼고 그 수를
+     * 돌려주며, candidate 는 부르는 쪽이 넣는다.
+     *
+     * <p>힙을 채우면서 바로 판단하는 탐욕 근사라서, 밀려난 후보 때문에 버렸던 후보를 다시 살리지는 않는다. 다만 돌려주는 조합끼리는
+     * 늘 minDistance 이상 다르고, 힙이 찬 뒤 점수 하한으로 가지를 치는 것은 그대로 맞다(힙의 가장 나쁜 점수보다 나쁜 후보는
+     * 다양성과 관계없이 들어갈 수 없다).</p>
+     */
+    static int admitDiverse(PriorityQueue<RankedCandidate> best, RankedCandidate candidate, int minDistance) {
+        List<RankedCandidate> near = new ArrayList<>();
+        for (RankedCandidate kept : best) {
+            if (distance(candidate.chosen(), candidate.chosen().length, kept.chosen()) < minDistance) {
+                if (RankedCandidate.RANK_ORDER.compare(kept, candidate) < 0) {
+                    return -1;
+                }
+                near.add(kept);
+            }
+        }
+        near.forEach(best::remove);
+        return near.size();
+    }
+}
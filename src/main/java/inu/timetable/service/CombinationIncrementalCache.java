@@ -0,0 +1,95 @@
+package inu.timetable.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import inu.timetable.dto.TimetableCombinationCriteria;
+
+import java.time.Duration;
+
+/**
+ * 사용자마다 마지막 조합 탐색(컴파일한 탐색기와 깊이 우선 열거나 순위 탐색 결과)을 노드 로컬 Caffeine 캐시에 하나씩 둔다.
+ *
+ * <p>위시리스트에 과목 하나를 담거나 빼면 결과 캐시({@link TimetableCombinationCacheService})는 지문이 달라져 놓치지만,
+ * 같은 조건의 다음 탐색은 여기 남은 결과를 {@link CombinationSearch#enumerateFrom}·{@link CombinationSearch#rankFrom} 으로
+ * 거르거나 늘려 전체 탐색을 건너뛴다.
+ * 값은 분반 번호와 과목 데이터 사본뿐이라 엔티티를 담지 않고, 과목 데이터가 바뀌었으면 분반 데이터 비교에서 걸러지므로
+ * 변경 이벤트로 비우지 않아도 된다.</p>
+ */
+final class CombinationIncrementalCache {
+
+    private final Cache<Long, Entry> entries;
+
+    /**
+     * @param maximumSize 0 이면 기억하지 않는다.
+     */
+    CombinationIncrementalCache(long maximumSize, Duration expireAfterAccess) {
+        this.entries = maximumSize > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterAccess(expireAfterAccess)
+                        .build()
+                : null;
+    }
+
+    boolean enabled() {
+        return entries != null;
+    }
+
+    /**
+     * 같은 조건·같은 유효 목표 학점의 마지막 탐색에서 search 의 열거 결과를 만든다. 기억한 탐색이 없거나 과목 하나보다 크게
+     * 달라졌으면 null 이고, 부르는 쪽은 처음부터 탐색한다.
+     *
+     * @param scoreFunction 조건의 순위 함수. null 이면 깊이 우선 열거다.
+     * @param nodeBudget 순위 탐색에서 더 찾을 때의 노드 예산
+     */
+    CombinationSearch.Enumeration derive(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            int effectiveTargetCredits,
+            CombinationSearch search,
+            int creditTolerance,
+            int maxCombinations,
+            TimetableScoreFunction scoreFunction,
+            int nodeBudget,
+            SearchDeadline deadline) {
+        if (entries == null) {
+            return null;
+        }
+        Entry entry = entries.getIfPresent(userId);
+        if (entry == null || !entry.criteria().equals(criteria) || entry.effectiveTargetCredits() != effectiveTargetCredits) {
+            return null;
+        }
+        if (scoreFunction != null) {
+            return search.rankFrom(entry.search(), entry.enumeration(), effectiveTargetCredits, creditTolerance,
+                    maxCombinations, nodeBudget, scoreFunction, deadline);
+        }
+        return search.enumerateFrom(
+                entry.search(), entry.enumeration(), effectiveTargetCredits, creditTolerance, maxCombinations, deadline);
+    }
+
+    /**
+     * 예산·마감에 걸리지 않고 끝난 탐색만 기억한다. 사용자마다 마지막 하나만 남긴다.
+     */
+    void remember(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            int effectiveTargetCredits,
+            CombinationSearch search,
+            CombinationSearch.Enumeration enumeration) {
+        if (entries == null) {
+            return;
+        }
+        if (enumeration.budgetExhausted() || enumeration.deadlineExceeded()) {
+            entries.invalidate(userId);
+            return;
+        }
+        entries.put(userId, new Entry(criteria, effectiveTargetCredits, search, enumeration));
+    }
+
+    private record Entry(
+            TimetableCombinationCriteria criteria,
+            int effectiveTargetCredits,
+            CombinationSearch search,
+            CombinationSearch.Enumeration enumeration) {
+    }
+}
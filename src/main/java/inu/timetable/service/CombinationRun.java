@@ -0,0 +1,161 @@
+package inu.timetable.service;
+
+import java.util.Arrays;
+
+/**
+ * 컴파일된 {@link CombinationSearch} 를 깊이 우선으로 한 번 도는 실행 객체의 공통 상태와 필수 그룹 탐색.
+ *
+ * <p>탐색기는 불변이라 여러 실행이 함께 쓰고, 깊이별 후보 집합과 고른 분반 경로는 실행마다 따로 둔다. 필수 그룹은 모든 실행이
+ * 같은 방식으로 고르고, 선택 그룹을 어떻게 내려가는지({@link #searchOptional})와 언제 멈추는지({@link #isDone})는 하위 클래스가 정한다.</p>
+ */
+abstract class CombinationRun {
+
+    final CombinationSearch search;
+    final CombinationSearch.Option[] options;
+    final int[] groupStarts;
+    final int requiredGroupCount;
+    final int[] suffixMaxCredits;
+    final int[] chosen;
+    // candidates[d] 는 앞의 d 개 분반 중 어느 것과도 겹치지 않는, 아직 고를 수 있는 분반 집합이다.
+    final long[][] candidates;
+    // classDays[d] 는 앞의 d 개 분반의 수업 요일 비트 합이다.
+    final int[] classDays;
+    final int nodeBudget;
+    final SearchDeadline deadline;
+    int depth;
+    int visitedNodes;
+    boolean budgetExhausted;
+    boolean deadlineExceeded;
+    long conflictPrunes;
+    long creditBoundPrunes;
+    long scoreBoundPrunes;
+    // 이어서 탐색할 때만 쓴다. 깊이 우선 순서에서 이 경로까지의 노드는 이미 돌려주었으므로 다시 담지 않고,
+    // 경로 위 노드에서는 경로보다 앞쪽 형제를 건너뛴다.
+    int[] resumePath;
+    // chosen 의 앞 resumeMatched 개가 resumePath 와 같다.
+    int resumeMatched;
+    // true 면 resumePath 는 앞 페이지가 방문하지 못하고 멈춘 노드라서, 그 노드는 이미 지나온 노드가 아니다.
+    boolean resumeInclusive;
+    // 예산·마감에 걸려 처음 들어가지 못한 노드의 경로.
+    int[] stoppedAt;
+
+    CombinationRun(CombinationSearch search, int nodeBudget, SearchDeadline deadline) {
+        this.search = search;
+        this.options = search.options;
+        this.groupStarts = search.groupStarts;
+        this.requiredGroupCount = search.requiredGroupCount;
+        this.suffixMaxCredits = search.suffixMaxCredits;
+        this.chosen = new int[search.groupCount()];
+        this.candidates = new long[search.groupCount() + 1][];
+        this.classDays = new int[search.groupCount() + 1];
+        this.nodeBudget = nodeBudget;
+        this.deadline = deadline;
+        candidates[0] = search.selectable;
+        for (int d = 1; d < candidates.length; d++) {
+            candidates[d] = new long[search.conflicts.wordCount()];
+        }
+    }
+
+    final int groupCount() {
+        return chosen.length;
+    }
+
+    final boolean enterNode() {
+        if (visitedNodes >= nodeBudget) {
+            budgetExhausted = true;
+            recordStop();
+            return false;
+        }
+        if (deadlineExceeded || deadline.expiredAt(visitedNodes)) {
+            deadlineExceeded = true;
+            recordStop();
+            return false;
+        }
+        visitedNodes++;
+        return true;
+    }
+
+    private void recordStop() {
+        if (stoppedAt == null) {
+            stoppedAt = Arrays.copyOf(chosen, depth);
+        }
+    }
+
+    final boolean stopped() {
+        return budgetExhausted || deadlineExceeded;
+    }
+
+    // 지금 노드가 resumePath 의 앞부분인지.
+    final boolean onResumePath() {
+        return resumePath != null && resumeMatched == depth;
+    }
+
+    // 지금 노드가 앞 페이지에서 이미 지나온 노드인지.
+    final boolean passedBeforeResume() {
+        return onResumePath() && (!resumeInclusive || depth < resumePath.length);
+    }
+
+    // 지금 노드에서 자식 분반을 고르기 시작할 번호.
+    final int resumeFrom(int from) {
+        return onResumePath() && depth < resumePath.length ? Math.max(from, resumePath[depth]) : from;
+    }
+
+    final CombinationSearch.Prunes prunes() {
+        return new CombinationSearch.Prunes(conflictPrunes, 0, 0, creditBoundPrunes, scoreBoundPrunes);
+    }
+
+    /**
+     * 현재 깊이 후보 중 [from, to) 의 첫 분반. 없으면 -1.
+     */
+    final int nextCandidate(int from, int to) {
+        return ConflictGraph.nextSetBit(candidates[depth], from, to);
+    }
+
+    boolean push(int optionIndex) {
+        if (!ConflictGraph.contains(candidates[depth], optionIndex)) {
+            return false;
+        }
+        search.conflicts.removeConflicts(candidates[depth], optionIndex, candidates[depth + 1]);
+        classDays[depth + 1] = classDays[depth] | options[optionIndex].classDayBits();
+        if (onResumePath() && depth < resumePath.length && resumePath[depth] == optionIndex) {
+            resumeMatched++;
+        }
+        chosen[depth++] = optionIndex;
+        return true;
+    }
+
+    void pop() {
+        depth--;
+        resumeMatched = Math.min(resumeMatched, depth);
+    }
+
+    abstract boolean isDone();
+
+    abstract void searchOptional(int startGroup, int credits);
+
+    final void selectRequired(int group, int credits) {
+        if (group == requiredGroupCount) {
+            searchOptional(group, credits);
+            return;
+        }
+        if (!enterNode()) {
+            return;
+        }
+        int end = groupStarts[group + 1];
+        for (int i = nextCandidate(resumeFrom(groupStarts[group]), end); i >= 0; i = nextCandidate(i + 1, end)) {
+            CombinationSearch.Option option = options[i];
+            if (!push(i)) {
+                continue;
+            }
+            if (search.remainingRequiredGroupsFeasible(group + 1, candidates[depth])) {
+                selectRequired(group + 1, credits + option.credits());
+            } else {
+                conflictPrunes++;
+            }
+            pop();
+            if (isDone()) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,812 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.TimetableCombinationStatistics;
+import inu.timetable.entity.Schedule;
+import inu.timetable.entity.Subject;
+import inu.timetable.entity.WishlistItem;
+import inu.timetable.enums.SubjectType;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * 위시리스트를 과목명 단위 선택 그룹으로 컴파일한 시간표 조합 탐색기.
+ *
+ * <p>그룹마다 분반을 최대 하나 고르고, 필수 그룹은 정확히 하나를 고른다. 필수 그룹이 앞에 오고
+ * 선택 그룹은 위시리스트 순서를 따른다. 분반 모드가 아니면 그룹마다 대표 분반 하나만 남기므로
+ * 기존 "과목명 중복 제거" 탐색과 같은 순서로 같은 조합을 만든다.</p>
+ *
+ * <p>컴파일할 때 분반 쌍의 시간 충돌을 {@link ConflictGraph} 로 한 번 계산하고, 공강 요일이나 금지 칸(시작·끝 교시, 막을 구간)에
+ * 걸리거나 어떤 필수 그룹의 분반과도 함께 놓일 수 없는 선택 분반은 처음부터 후보에서 뺀다. 탐색 중 충돌 검사는 깊이별 후보 비트 집합을 보는 것으로 끝난다.</p>
+ *
+ * <p>컴파일된 탐색기는 불변이고, 탐색 상태는 호출마다 새로 만드는 실행 객체에만 둔다. 실행은 용도마다 따로 있다:
+ * {@link EnumerationRun}(열거), {@link RankingRun}(순위), {@link BatchRun}(일괄), {@link MaximumCreditRun}(최대 학점),
+ * {@link CountingRun}(조합 수). 병렬 열거는 {@link ParallelEnumeration}, 앞 탐색 결과를 이어받는 증분 탐색은
+ * {@link IncrementalEnumeration}, 비슷한 조합 거르기는 {@link CombinationDiversity} 가 맡는다.</p>
+ */
+final class CombinationSearch {
+
+    static final int UNLIMITED_NODES = Integer.MAX_VALUE;
+    private static final int SUBJECT_TYPE_COUNT = SubjectType.values().length;
+    private static final int[] NO_DAY_SCHEDULES = new int[TimetableCombinationStatistics.DAYS.size()];
+
+    // 실행 객체({@link CombinationRun} 과 그 하위 클래스)가 함께 읽는 컴파일 결과. 컴파일 뒤에는 바꾸지 않는다.
+    final Option[] options;
+    final int[] groupStarts;
+    final int requiredGroupCount;
+    final ConflictGraph conflicts;
+    // 탐색을 시작할 때 고를 수 있는 분반.
+    final long[] selectable;
+    final int[] suffixMaxCredits;
+    private final int[] requiredConflict;
+    // 컴파일할 때 후보에서 뺀 분반 수. 탐색 지표의 가지치기 수에 함께 더한다.
+    private final int freeDayExcludedCount;
+    private final int blockedSlotExcludedCount;
+    private final int conflictExcludedCount;
+
+    private CombinationSearch(
+            Option[] options,
+            int[] groupStarts,
+            int requiredGroupCount,
+            int freeDayBits,
+            TimeSlotMask forbiddenSlots) {
+        this.options = options;
+        this.groupStarts = groupStarts;
+        this.requiredGroupCount = requiredGroupCount;
+        this.conflicts = ConflictGraph.of(Arrays.stream(options).map(Option::timeMask).toArray(TimeSlotMask[]::new));
+        this.selectable = selectableOptions(freeDayBits, forbiddenSlots);
+        this.suffixMaxCredits = suffixMaxCredits();
+        this.requiredConflict = findRequiredConflict();
+        this.freeDayExcludedCount = (int) Arrays.stream(options)
+                .filter(option -> option.hasFreeDayConflict(freeDayBits))
+                .count();
+        this.blockedSlotExcludedCount = (int) Arrays.stream(options)
+                .filter(option -> !option.hasFreeDayConflict(freeDayBits) && option.timeMask().intersects(forbiddenSlots))
+                .count();
+        this.conflictExcludedCount = options.length - freeDayExcludedCount - blockedSlotExcludedCount
+                - bitCount(selectable);
+    }
+
+    /**
+     * @param sectionAware true 이면 같은 과목명의 분반을 모두 후보로 두고, 필수 그룹은 필수로 표시한 분반 중에서 고른다.
+     *                     false 이면 과목명마다 분반 하나(필수 분반 우선, 없으면 먼저 담긴 분반)만 남긴다.
+     */
+    static CombinationSearch compile(List<WishlistItem> wishlist, boolean sectionAware, Collection<String> freeDays) {
+        return compileItems(wishlist.stream().map(Item::from).toList(), sectionAware, freeDays);
+    }
+
+    /**
+     * 위시리스트 순서(priority 순)의 항목으로 컴파일한다. 항목은 엔티티나 {@link SubjectMaskIndex} 에서 만든다.
+     */
+    static CombinationSearch compileItems(List<Item> wishlist, boolean sectionAware, Collection<String> freeDays) {
+        return compileItems(wishlist, sectionAware, freeDays, TimeSlotMask.EMPTY);
+    }
+
+    /**
+     * @param forbiddenSlots 수업을 둘 수 없는 칸. 이 칸과 겹치는 분반은 공강 요일에 걸리는 분반처럼 처음부터 후보에서 뺀다.
+     *                       분반 번호는 공강 요일·금지 칸과 관계없이 같다.
+     */
+    static CombinationSearch compileItems(
+            List<Item> wishlist,
+            boolean sectionAware,
+            Collection<String> freeDays,
+            TimeSlotMask forbiddenSlots) {
+        Map<String, List<Item>> sectionsByName = new LinkedHashMap<>();
+        for (Item item : wishlist) {
+            sectionsByName.computeIfAbsent(item.subjectName(), ignored -> new ArrayList<>())
+                    .add(item);
+        }
+
+        List<List<Item>> requiredGroups = new ArrayList<>();
+        List<List<Item>> optionalGroups = new ArrayList<>();
+        for (List<Item> sections : sectionsByName.values()) {
+            List<Item> requiredSections = sections.stream()
+                    .filter(Item::required)
+                    .toList();
+            // 같은 과목명 그룹 안에 '필수(isRequired)' 분반이 있으면 그 분반을 우선 보존한다.
+            // (priority 가 앞선 선택 분반이 필수 분반을 덮어 필수 플래그가 소실되는 문제 방지)
+            List<Item> candidates = requiredSections.isEmpty() ? sections : requiredSections;
+            if (!sectionAware) {
+                candidates = List.of(candidates.get(0));
+            }
+            (requiredSections.isEmpty() ? optionalGroups : requiredGroups).add(candidates);
+        }
+
+        List<Option> options = new ArrayList<>();
+        int[] groupStarts = new int[requiredGroups.size() + optionalGroups.size() + 1];
+        int group = 0;
+        for (List<List<Item>> groups : List.of(requiredGroups, optionalGroups)) {
+            for (List<Item> sections : groups) {
+                groupStarts[group++] = options.size();
+                sections.forEach(item -> options.add(item.option()));
+            }
+        }
+        groupStarts[group] = options.size();
+        return new CombinationSearch(
+                options.toArray(Option[]::new),
+                groupStarts,
+                requiredGroups.size(),
+                dayBits(freeDays),
+                forbiddenSlots);
+    }
+
+    int groupCount() {
+        return groupStarts.length - 1;
+    }
+
+    int optionCount() {
+        return options.length;
+    }
+
+    /**
+     * 서로의 어떤 분반과도 함께 놓일 수 없는 필수 그룹 쌍의 대표 분반 인덱스 두 개. 그런 쌍이 없으면 null.
+     *
+     * <p>세 그룹 이상이 얽혀야만 생기는 충돌은 쌍으로 특정할 수 없으므로 여기서는 null 이고, 탐색에서 걸러진다.</p>
+     */
+    int[] requiredConflict() {
+        return requiredConflict == null ? null : requiredConflict.clone();
+    }
+
+    long subjectId(int optionIndex) {
+        return options[optionIndex].subjectId();
+    }
+
+    int credits(int[] chosen) {
+        int credits = 0;
+        for (int optionIndex : chosen) {
+            credits += options[optionIndex].credits();
+        }
+        return credits;
+    }
+
+    /**
+     * 조합의 통계. 분반마다 컴파일할 때 세어 둔 카운터를 더하므로 과목·일정 엔티티를 보지 않는다.
+     */
+    TimetableCombinationStatistics statistics(int[] chosen) {
+        int credits = 0;
+        int[] subjectTypes = new int[SUBJECT_TYPE_COUNT];
+        int[] daySchedules = new int[TimetableCombinationStatistics.DAYS.size()];
+        for (int optionIndex : chosen) {
+            Option option = options[optionIndex];
+            credits += option.credits();
+            if (option.subjectType() >= 0) {
+                subjectTypes[option.subjectType()]++;
+            }
+            int[] optionDaySchedules = option.daySchedules();
+            for (int day = 0; day < optionDaySchedules.length; day++) {
+                daySchedules[day] += optionDaySchedules[day];
+            }
+        }
+        return new TimetableCombinationStatistics(credits, chosen.length, subjectTypes, daySchedules);
+    }
+
+    /**
+     * chosen 이 이 탐색에서 나올 수 있는 모양(그룹 순서대로 그룹마다 분반 하나, 필수 그룹 모두 포함)인지.
+     */
+    boolean isSelection(int[] chosen) {
+        if (chosen.length < requiredGroupCount) {
+            return false;
+        }
+        int previousGroup = -1;
+        for (int d = 0; d < chosen.length; d++) {
+            if (chosen[d] < 0 || chosen[d] >= options.length) {
+                return false;
+            }
+            int group = groupOf(chosen[d]);
+            if (group <= previousGroup || d < requiredGroupCount && group != d) {
+                return false;
+            }
+            previousGroup = group;
+        }
+        return true;
+    }
+
+    int groupOf(int optionIndex) {
+        int index = Arrays.binarySearch(groupStarts, optionIndex);
+        if (index < 0) {
+            return -index - 2;
+        }
+        // 빈 그룹이 없으므로 같은 시작 번호는 하나뿐이다.
+        return index;
+    }
+
+    /**
+     * 컴파일한 분반 구성(그룹 경계, 과목 id, 학점, 수업 요일, 시간 마스크)을 buffer 에 쓴다. 이어 보기 토큰의 탐색 지문에 쓴다.
+     */
+    void updateDigest(ByteBuffer buffer) {
+        buffer.putInt(requiredGroupCount);
+        for (int groupStart : groupStarts) {
+            buffer.putInt(groupStart);
+        }
+        for (Option option : options) {
+            buffer.putLong(option.subjectId());
+            buffer.putInt(option.credits());
+            buffer.putInt(option.classDayBits());
+            option.timeMask().updateDigest(buffer);
+        }
+    }
+
+    int digestBytes() {
+        return Integer.BYTES * (groupStarts.length + 1)
+                + options.length * (Long.BYTES + 2 * Integer.BYTES + TimeSlotMask.WORD_COUNT * Long.BYTES);
+    }
+
+    /**
+     * 목표 학점 ±tolerance 구간에 드는 조합을 깊이 우선 순서대로 최대 maxCombinations 개 모은다.
+     */
+    Enumeration enumerate(int targetCredits, int creditTolerance, int maxCombinations, int nodeBudget) {
+        return enumerate(targetCredits, creditTolerance, maxCombinations, nodeBudget, null, SearchDeadline.NONE);
+    }
+
+    /**
+     * @param listener null 이 아니면 조합을 찾는 즉시 호출한다. false 를 돌려주면 그 조합까지만 모으고 탐색을 멈춘다.
+     * @param deadline 마감이 지나면 그때까지 모은 조합만 돌려준다.
+     */
+    Enumeration enumerate(
+            int targetCredits,
+            int creditTolerance,
+            int maxCombinations,
+            int nodeBudget,
+            Predicate<int[]> listener,
+            SearchDeadline deadline) {
+        return enumerate(targetCredits, creditTolerance, maxCombinations, nodeBudget, listener, deadline, null, false, 0);
+    }
+
+    /**
+     * @param resumeAfter null 이 아니면 앞 페이지가 마지막으로 돌려준 조합. 깊이 우선 순서에서 그 조합까지는 건너뛰고 그다음부터 모은다.
+     *                    결과는 처음부터 탐색해 그 조합 뒤에 찾았을 조합과 같다.
+     * @param resumeInclusive resumeAfter 가 앞 페이지가 조합을 찾기 전에 멈춘 자리({@link Enumeration#stoppedAt})이면 true.
+     *                        이때는 그 노드를 아직 방문하지 않았으므로 그 노드부터 모은다.
+     * @param minDistance 0 보다 크면 이미 모은 조합과 분반이 minDistance 개 미만으로 다른 조합은 모으지 않고 nearDuplicates 로 센다.
+     */
+    Enumeration enumerate(
+            int targetCredits,
+            int creditTolerance,
+            int maxCombinations,
+            int nodeBudget,
+            Predicate<int[]> listener,
+            SearchDeadline deadline,
+            int[] resumeAfter,
+            boolean resumeInclusive,
+            int minDistance) {
+        EnumerationRun run = new EnumerationRun(
+                this,
+                targetCredits - creditTolerance,
+                targetCredits + creditTolerance,
+                maxCombinations,
+                nodeBudget,
+                deadline);
+        run.listener = listener;
+        run.resumePath = resumeAfter;
+        run.resumeInclusive = resumeInclusive;
+        run.minDistance = minDistance;
+        run.selectRequired(0, 0);
+        return new Enumeration(
+                run.accepted,
+                null,
+                run.firstRequiredSelection,
+                run.visitedNodes,
+                run.exploredOptionCount,
+                run.budgetExhausted,
+                run.deadlineExceeded,
+                compiledPrunes().plus(run.prunes()),
+                run.nearDuplicates,
+                run.stoppedAt);
+    }
+
+    /**
+     * previous 와 선택 분반 하나만 다른(빠졌거나 더해진) 탐색이면, previous 를 같은 목표 학점·tolerance·maxCombinations 로
+     * 노드 예산 없이 열거한 결과를 이어받아 이 탐색에서 처음부터 {@link #enumerate} 한 것과 같은 결과를 만든다. 그 밖의 차이가
+     * 있으면(필수 과목, 분반 데이터, 그룹 구성, 고를 수 있는지) null 이다.
+     *
+     * <p>깊이 우선 순서는 분반 번호 경로의 사전순이고 두 탐색의 공통 분반은 번호 순서가 같으므로, 이어받은 조합은 순서를 지킨 채
+     * 새 번호로 옮기기만 하면 된다. 빠진 분반이 든 조합은 거르고, previous 가 maxCombinations 에서 멈췄으면 남은 마지막 조합
+     * 뒤부터 모자란 만큼 더 찾는다. 더해진 분반이 있으면 그 분반이 든 조합만 따로 찾아 깊이 우선 순서로 끼워 넣는다.</p>
+     *
+     * <p>노드 예산이 있으면 어디서 멈추는지가 탐색 전체의 노드 수에 달려 있으므로 예산 없는 열거에만 쓴다. 돌려주는 결과의 방문 노드,
+     * 놓여 본 분반, 가지치기 수는 더 찾은 탐색만의 값이다.</p>
+     */
+    Enumeration enumerateFrom(
+            CombinationSearch previous,
+            Enumeration previousEnumeration,
+            int targetCredits,
+            int creditTolerance,
+            int maxCombinations,
+            SearchDeadline deadline) {
+        return IncrementalEnumeration.enumerateFrom(
+                this, previous, previousEnumeration, targetCredits, creditTolerance, maxCombinations, deadline);
+    }
+
+    /**
+     * 목표 학점 ±tolerance 구간에 드는 조합 중 점수가 가장 낮은 limit 개를 점수 순으로 돌려준다.
+     *
+     * <p>탐색하면서 크기 limit 의 힙에 가장 좋은 후보만 남기고, 힙이 찬 뒤에는 순위 함수의 하한이
+     * 힙의 가장 나쁜 점수보다 나쁘지 않은 가지를 더 내려가지 않는다. 점수가 같으면 깊이 우선 순서로 먼저 찾은
+     * 조합이 앞서므로, 나중에 찾을 같은 점수의 조합은 버려도 결과가 바뀌지 않는다.</p>
+     *
+     * <p>마감이 지나면 그때까지 힙에 남은 후보를 순위대로 돌려준다.</p>
+     */
+    Enumeration rank(
+            int targetCredits,
+            int creditTolerance,
+            int limit,
+            int nodeBudget,
+            TimetableScoreFunction scoreFunction,
+            SearchDeadline deadline) {
+        return rank(targetCredits, creditTolerance, limit, nodeBudget, scoreFunction, deadline, null, 0);
+    }
+
+    /**
+     * @param after null 이 아니면 앞 페이지가 마지막으로 돌려준 조합과 그 점수. 순위가 그 조합 뒤인 조합 중에서 limit 개를 고른다.
+     *              점수가 같으면 깊이 우선 순서가 순위를 정하므로, 결과는 처음부터 더 많이 고른 순위의 다음 부분과 같다.
+     * @param minDistance 0 보다 크면 힙을 채우면서 서로 분반이 minDistance 개 미만으로 다른 후보는 순위가 앞선 하나만 남긴다
+     *                    ({@link CombinationDiversity#admitDiverse}).
+     */
+    Enumeration rank(
+            int targetCredits,
+            int creditTolerance,
+            int limit,
+            int nodeBudget,
+            TimetableScoreFunction scoreFunction,
+            SearchDeadline deadline,
+            RankCursor after,
+            int minDistance) {
+        RankingRun run = new RankingRun(this, targetCredits, creditTolerance, limit, nodeBudget, scoreFunction, deadline);
+        run.after = after;
+        run.minDistance = minDistance;
+        run.selectRequired(0, 0);
+        List<RankedCandidate> ranked = run.ranked();
+        return new Enumeration(
+                ranked.stream().map(RankedCandidate::chosen).toList(),
+                ranked.stream().mapToLong(RankedCandidate::score).toArray(),
+                run.firstRequiredSelection,
+                run.visitedNodes,
+                run.exploredOptionCount,
+                run.budgetExhausted,
+                run.deadlineExceeded,
+                compiledPrunes().plus(run.prunes()),
+                run.nearDuplicates,
+                null);
+    }
+
+    /**
+     * previous 와 선택 분반 하나만 다른(빠졌거나 더해진) 탐색이면, previous 를 같은 목표 학점·tolerance·limit·순위 함수로
+     * 끝까지 순위 탐색한 결과를 이어받아 이 탐색에서 처음부터 {@link #rank} 한 것과 같은 결과를 만든다. 그 밖의 차이가 있으면
+     * null 이다.
+     *
+     * <p>점수는 조합이 고른 분반의 학점·수업 요일·시간 마스크만 보고 이어받을 때 그 값이 같은지 확인하므로, 이어받은
+     * 조합은 점수를 다시 매겨도 previous 의 점수와 같다. 같은 점수끼리는 깊이 우선 순서가 순위를 정하는데, 번호를 옮겨도 그 순서는
+     * 같다. previous 결과는 전체 순위의 앞쪽 limit 개(또는 전부)이므로, 더해진 분반이 있으면 그 분반이 든 조합 중 previous 의
+     * 마지막 순위보다 앞서는 것만 따로 찾아 합친다. 빠진 분반이 든 조합은 거르고, previous 가 limit 개를 채웠으면 남은 마지막
+     * 순위 뒤에서 모자란 만큼 더 찾는다.</p>
+     *
+     * <p>돌려주는 결과의 방문 노드, 놓여 본 분반, 가지치기 수는 더 찾은 탐색만의 값이다.</p>
+     */
+    Enumeration rankFrom(
+            CombinationSearch previous,
+            Enumeration previousEnumeration,
+            int targetCredits,
+            int creditTolerance,
+            int limit,
+            int nodeBudget,
+            TimetableScoreFunction scoreFunction,
+            SearchDeadline deadline) {
+        return IncrementalEnumeration.rankFrom(this, previous, previousEnumeration,
+                targetCredits, creditTolerance, limit, nodeBudget, scoreFunction, deadline);
+    }
+
+    /**
+     * 목표 학점·공강 요일·결과 수만 다른 여러 조건의 결과를 탐색 한 번으로 만든다. 공강 요일 없이 컴파일한 탐색에서 부른다.
+     *
+     * <p>깊이 우선 탐색 하나가 모든 조건의 학점 구간을 합친 범위를 돌면서, 조합마다 학점 구간과 수업 요일이 맞는 조건의
+     * 결과에 나눠 담는다. 가지는 아직 결과를 더 받을 수 있는 조건이 하나도 남지 않을 때만 자른다. 조건마다 조합·점수·필수 과목만의
+     * 첫 조합은 그 조건의 공강 요일로 컴파일해 {@link #enumerate} 나 {@link #rank} 를 따로 부른 것과 같다. 다만 노드 예산과
+     * 마감은 모든 조건이 함께 쓰고, 탐색 규모 지표도 공유 탐색의 값이다.</p>
+     *
+     * @param scoreFunction null 이면 조건마다 깊이 우선 순서로 앞쪽 limit 개를, 아니면 점수가 가장 좋은 limit 개를 점수 순으로 모은다.
+     * @param minDistance 조건마다 {@link #enumerate}·{@link #rank} 와 같은 규칙으로 비슷한 조합을 거른다. 0 이면 거르지 않는다.
+     * @return variants 순서의 결과
+     */
+    List<Enumeration> enumerateBatch(
+            List<BatchVariant> variants,
+            int creditTolerance,
+            int nodeBudget,
+            TimetableScoreFunction scoreFunction,
+            SearchDeadline deadline,
+            int minDistance) {
+        if (variants.size() > Integer.SIZE) {
+            throw new IllegalArgumentException("Too many batch variants: " + variants.size());
+        }
+        BatchRun run = new BatchRun(this, variants, creditTolerance, nodeBudget, scoreFunction, deadline);
+        run.minDistance = minDistance;
+        run.selectRequired(0, 0);
+        return run.enumerations(compiledPrunes().plus(run.prunes()));
+    }
+
+    /**
+     * 탐색 밖에서 만든 조합(예: 필수 과목만의 시간표)을 같은 순위 함수로 채점한다.
+     */
+    long score(int[] chosen, int targetCredits, TimetableScoreFunction scoreFunction) {
+        TimeSlotMask.Accumulator timeMask = new TimeSlotMask.Accumulator(chosen.length);
+        int credits = 0;
+        int classDays = 0;
+        for (int optionIndex : chosen) {
+            timeMask.tryPush(options[optionIndex].timeMask());
+            credits += options[optionIndex].credits();
+            classDays |= options[optionIndex].classDayBits();
+        }
+        return scoreFunction.score(new TimetableShape(timeMask, targetCredits).at(credits, classDays));
+    }
+
+    /**
+     * {@link #enumerate} 와 같은 결과를 ForkJoinPool 에서 만든다. 마감이 지나면 순차 탐색과 결과가 다를 수 있다({@link ParallelEnumeration}).
+     */
+    Enumeration enumerateInParallel(
+            int targetCredits,
+            int creditTolerance,
+            int maxCombinations,
+            int nodeBudget,
+            ForkJoinPool pool,
+            SearchDeadline deadline) {
+        return ParallelEnumeration.enumerate(
+                this, targetCredits, creditTolerance, maxCombinations, nodeBudget, pool, deadline);
+    }
+
+    /**
+     * 공강·충돌 조건을 지키며 얻을 수 있는 최대 학점.
+     *
+     * <p>고를 수 있는 분반이 exactOptionLimit 이하면 {@link MaximumCreditSolver} 로 정확히 구한다. 넘거나 풀이가 끝까지 가지 못하면
+     * 깊이 우선 탐색으로 구하고, 탐색 노드가 nodeBudget 을 넘거나 마감이 지나면 그때까지의 최댓값을 증명되지 않은 값으로 돌려준다.</p>
+     */
+    MaximumCredits maximumCredits(int exactOptionLimit, int nodeBudget, SearchDeadline deadline) {
+        MaximumCredits exact = null;
+        if (bitCount(selectable) <= exactOptionLimit) {
+            exact = new MaximumCreditSolver(
+                    Arrays.stream(options).mapToInt(Option::credits).toArray(),
+                    groupStarts,
+                    requiredGroupCount,
+                    conflicts,
+                    selectable,
+                    deadline).solve();
+            if (exact != null && (exact.proven() || exact.deadlineExceeded())) {
+                return exact;
+            }
+        }
+        MaximumCreditRun run = new MaximumCreditRun(this, nodeBudget, deadline);
+        run.selectRequired(0, 0);
+        int credits = Math.max(0, run.best);
+        if (exact != null) {
+            credits = Math.max(credits, exact.credits());
+        }
+        return new MaximumCredits(credits, !run.budgetExhausted && !run.deadlineExceeded, run.deadlineExceeded);
+    }
+
+    /**
+     * 목표 학점 ±tolerance 구간에 드는 조합(빈 조합 제외)의 수를 조합을 만들지 않고 센다.
+     *
+     * <p>그룹마다 "건너뛰기 + 고를 수 있는 분반 각각"으로 나눠 세며, 남은 그룹이 충분히 많으면 (그룹, 학점, 남은 후보 집합)
+     * 상태별 결과를 기억해 같은 상태를 다시 세지 않는다. 모든 부분 합은 cap 에서 자르므로 cap 이상이면 cap 을 돌려준다.
+     * 처음 보는 상태가 stateBudget 을 넘으면 그 뒤 상태를 0 으로 세어 하한을 돌려준다.</p>
+     */
+    Count count(int targetCredits, int creditTolerance, long cap, int stateBudget) {
+        int minCredits = targetCredits - creditTolerance;
+        // 필수 그룹이 없고 0 학점이 구간에 들면 빈 조합도 하나로 세어지므로 하나 더 센 뒤 뺀다.
+        boolean emptyCounted = requiredGroupCount == 0 && minCredits <= 0;
+        long effectiveCap = emptyCounted ? cap + 1 : cap;
+        CountingRun run = new CountingRun(this, minCredits, targetCredits + creditTolerance, effectiveCap, stateBudget);
+        long count = run.count(0, 0, selectable);
+        if (emptyCounted) {
+            count = Math.max(0, count - 1);
+        }
+        boolean capped = count >= cap;
+        return new Count(Math.min(count, cap), !capped && !run.budgetExhausted, capped);
+    }
+
+    /**
+     * 필수 그룹마다 분반 하나씩을 겹치지 않게 고를 수 있는지. 필수 그룹이 없으면 false.
+     */
+    boolean hasRequiredSelection() {
+        return requiredGroupCount > 0
+                && hasRequiredSelection(0, selectable, new long[requiredGroupCount + 1][conflicts.wordCount()]);
+    }
+
+    private boolean hasRequiredSelection(int group, long[] candidates, long[][] levels) {
+        if (group == requiredGroupCount) {
+            return true;
+        }
+        int end = groupStarts[group + 1];
+        for (int i = ConflictGraph.nextSetBit(candidates, groupStarts[group], end);
+             i >= 0;
+             i = ConflictGraph.nextSetBit(candidates, i + 1, end)) {
+            conflicts.removeConflicts(candidates, i, levels[group + 1]);
+            if (hasRequiredSelection(group + 1, levels[group + 1], levels)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 컴파일할 때 후보에서 뺀 분반도 한 번씩 잘린 가지로 센다.
+    Prunes compiledPrunes() {
+        return new Prunes(conflictExcludedCount, freeDayExcludedCount, blockedSlotExcludedCount, 0, 0);
+    }
+
+    // 깊이 우선 순서 비교. 분반 번호를 앞에서부터 비교하고, 한쪽이 다른 쪽의 앞부분이면 짧은 쪽(조상)이 먼저다.
+    static int comparePreorder(int[] chosen, int length, int[] other) {
+        int common = Math.min(length, other.length);
+        for (int d = 0; d < common; d++) {
+            if (chosen[d] != other[d]) {
+                return Integer.compare(chosen[d], other[d]);
+            }
+        }
+        return Integer.compare(length, other.length);
+    }
+
+    private static int bitCount(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // 그룹 단위 가지치기: 남은 필수 그룹 중 후보가 하나도 남지 않은 그룹이 있으면 더 내려가지 않는다.
+    boolean remainingRequiredGroupsFeasible(int fromGroup, long[] candidates) {
+        for (int group = fromGroup; group < requiredGroupCount; group++) {
+            if (ConflictGraph.nextSetBit(candidates, groupStarts[group], groupStarts[group + 1]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 공강 요일·금지 칸에 걸리는 분반과, 어떤 필수 그룹의 분반과도 겹쳐 절대 고를 수 없는 선택 분반을 뺀다.
+    private long[] selectableOptions(int freeDayBits, TimeSlotMask forbiddenSlots) {
+        long[] bits = new long[conflicts.wordCount()];
+        for (int i = 0; i < options.length; i++) {
+            if (!options[i].hasFreeDayConflict(freeDayBits) && !options[i].timeMask().intersects(forbiddenSlots)) {
+                ConflictGraph.set(bits, i);
+            }
+        }
+        for (int i = groupStarts[requiredGroupCount]; i < options.length; i++) {
+            for (int group = 0; group < requiredGroupCount && ConflictGraph.contains(bits, i); group++) {
+                if (!hasCompatibleSection(bits, group, i)) {
+                    ConflictGraph.clear(bits, i);
+                }
+            }
+        }
+        return bits;
+    }
+
+    private boolean hasCompatibleSection(long[] candidates, int group, int optionIndex) {
+        for (int j = ConflictGraph.nextSetBit(candidates, groupStarts[group], groupStarts[group + 1]);
+             j >= 0;
+             j = ConflictGraph.nextSetBit(candidates, j + 1, groupStarts[group + 1])) {
+            if (!conflicts.conflicts(optionIndex, j)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] findRequiredConflict() {
+        for (int first = 0; first < requiredGroupCount; first++) {
+            int representative = ConflictGraph.nextSetBit(selectable, groupStarts[first], groupStarts[first + 1]);
+            if (representative < 0) {
+                // 공강 요일 때문에 고를 분반이 없는 그룹은 충돌 쌍이 아니다.
+                continue;
+            }
+            for (int second = first + 1; second < requiredGroupCount; second++) {
+                int other = ConflictGraph.nextSetBit(selectable, groupStarts[second], groupStarts[second + 1]);
+                if (other >= 0 && !anyCompatiblePair(first, second)) {
+                    return new int[]{representative, other};
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean anyCompatiblePair(int firstGroup, int secondGroup) {
+        for (int i = ConflictGraph.nextSetBit(selectable, groupStarts[firstGroup], groupStarts[firstGroup + 1]);
+             i >= 0;
+             i = ConflictGraph.nextSetBit(selectable, i + 1, groupStarts[firstGroup + 1])) {
+            if (hasCompatibleSection(selectable, secondGroup, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] suffixMaxCredits() {
+        int groupCount = groupCount();
+        int[] suffix = new int[groupCount + 1];
+        for (int group = groupCount - 1; group >= 0; group--) {
+            int groupMax = 0;
+            for (int i = ConflictGraph.nextSetBit(selectable, groupStarts[group], groupStarts[group + 1]);
+                 i >= 0;
+                 i = ConflictGraph.nextSetBit(selectable, i + 1, groupStarts[group + 1])) {
+                groupMax = Math.max(groupMax, options[i].credits());
+            }
+            suffix[group] = suffix[group + 1] + groupMax;
+        }
+        return suffix;
+    }
+
+    /**
+     * 일정 요일 목록(일정마다 하나)을 {@link TimetableCombinationStatistics#DAYS} 순서의 요일별 일정 수로 센다.
+     * 일정이 없으면 공유하는 빈 배열을 돌려주므로 돌려받은 배열은 고치지 않는다.
+     */
+    static int[] daySchedules(Collection<String> scheduleDays) {
+        if (scheduleDays == null || scheduleDays.isEmpty()) {
+            return NO_DAY_SCHEDULES;
+        }
+        int[] counts = new int[TimetableCombinationStatistics.DAYS.size()];
+        for (String day : scheduleDays) {
+            int dayIndex = day == null ? -1 : TimetableCombinationStatistics.DAYS.indexOf(day);
+            if (dayIndex >= 0) {
+                counts[dayIndex]++;
+            }
+        }
+        return counts;
+    }
+
+    static int dayBits(Collection<String> days) {
+        int bits = 0;
+        if (days == null) {
+            return bits;
+        }
+        for (String day : days) {
+            int dayIndex = TimeSlotMask.dayIndex(day);
+            if (dayIndex >= 0) {
+                bits |= 1 << dayIndex;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * @param combinations 선택한 옵션 인덱스 배열(필수 분반 포함)을 찾은 순서대로, 순위 탐색이면 순위대로 담는다.
+     * @param scores 순위 탐색일 때 combinations 와 같은 순서의 점수. 깊이 우선 열거면 null.
+     * @param firstRequiredSelection 필수 그룹만으로 만든 첫 양립 조합. 필수 그룹이 양립할 수 없으면 null.
+     * @param deadlineExceeded 마감이 지나 탐색을 끝내지 못하고 그때까지의 결과를 돌려주었으면 true.
+     * @param nearDuplicates 다양성 조건(minDistance)에 걸려 모으지 않거나 밀려난 후보 수.
+     * @param stoppedAt 순차 열거가 예산·마감에 걸려 멈췄으면 아직 방문하지 못한 첫 노드의 경로, 아니면 null.
+     *                  조합을 하나도 찾지 못하고 멈춘 페이지는 이 자리부터 이어 본다.
+     */
+    record Enumeration(
+            List<int[]> combinations,
+            long[] scores,
+            int[] firstRequiredSelection,
+            int visitedNodes,
+            int exploredOptionCount,
+            boolean budgetExhausted,
+            boolean deadlineExceeded,
+            Prunes prunes,
+            long nearDuplicates,
+            int[] stoppedAt) {
+
+        /**
+         * 앞쪽 count 개 조합(과 점수)만 남긴다.
+         */
+        Enumeration limit(int count) {
+            if (combinations.size() <= count) {
+                return this;
+            }
+            return new Enumeration(
+                    combinations.subList(0, count),
+                    scores != null ? Arrays.copyOf(scores, count) : null,
+                    firstRequiredSelection,
+                    visitedNodes,
+                    exploredOptionCount,
+                    budgetExhausted,
+                    deadlineExceeded,
+                    prunes,
+                    nearDuplicates,
+                    stoppedAt);
+        }
+    }
+
+    /**
+     * 순위 탐색을 이어 볼 자리. 앞 페이지가 마지막으로 돌려준 조합과 그 점수다.
+     */
+    record RankCursor(long score, int[] chosen) {
+    }
+
+    /**
+     * 잘린 가지 수를 이유별로 센다. 충돌·공강·금지 칸은 컴파일할 때 후보에서 뺀 분반과 탐색 중 후보 집합에서 빠져 있던 분반을,
+     * 학점 상한은 목표 구간을 벗어나 더 내려가지 않은 가지를, 점수 상한은 순위 탐색에서 하한이 힙을 넘지 못한 가지를 뜻한다.
+     */
+    record Prunes(long conflict, long freeDay, long blockedSlot, long creditBound, long scoreBound) {
+
+        static final Prunes NONE = new Prunes(0, 0, 0, 0, 0);
+
+        Prunes plus(Prunes other) {
+            return new Prunes(
+                    conflict + other.conflict,
+                    freeDay + other.freeDay,
+                    blockedSlot + other.blockedSlot,
+                    creditBound + other.creditBound,
+                    scoreBound + other.scoreBound);
+        }
+    }
+
+    /**
+     * {@link #enumerateBatch} 의 조건 하나.
+     *
+     * @param freeDayBits 공강 요일 비트({@link #dayBits}). 이 요일에 수업이 있는 조합은 이 조건에 담지 않는다.
+     * @param limit 이 조건에 모을 조합 수
+     */
+    record BatchVariant(int targetCredits, int freeDayBits, int limit) {
+    }
+
+    /**
+     * @param proven 끝까지 탐색해 credits 가 최댓값임이 확인되었으면 true. false 이면 예산이나 마감 안에서 찾은 하한이다.
+     * @param deadlineExceeded 마감이 지나 탐색을 멈췄으면 true.
+     */
+    record MaximumCredits(int credits, boolean proven, boolean deadlineExceeded) {
+    }
+
+    /**
+     * @param exact 예산 안에서 끝까지 셌고 cap 에도 닿지 않아 count 가 정확한 값이면 true.
+     * @param capped count 가 cap 에 닿아 실제 조합 수는 count 이상이면 true. 둘 다 false 이면 예산이 바닥나 count 는 하한이다.
+     */
+    record Count(long count, boolean exact, boolean capped) {
+    }
+
+    /**
+     * 컴파일 입력인 위시리스트 항목 하나. 탐색은 과목 id 로만 결과를 돌려주고, 엔티티는 부르는 쪽이 찾는다.
+     *
+     * @param subjectType   이수 구분 ordinal. 없으면 -1. 조합 통계에만 쓴다.
+     * @param daySchedules  {@link TimetableCombinationStatistics#DAYS} 순서의 요일별 일정 수. 조합 통계에만 쓴다.
+     */
+    record Item(long subjectId, String subjectName, boolean required, int credits, TimeSlotMask timeMask,
+                int classDayBits, int subjectType, int[] daySchedules) {
+
+        static Item from(WishlistItem item) {
+            Subject subject = item.getSubject();
+            List<String> classDays = subject.getSchedules().stream()
+                    .map(Schedule::getDayOfWeek)
+                    .toList();
+            return new Item(
+                    subject.getId(),
+                    subject.getSubjectName(),
+                    Boolean.TRUE.equals(item.getIsRequired()),
+                    subject.getCredits(),
+                    TimeSlotMask.of(subject.getSchedules()),
+                    dayBits(classDays),
+                    subject.getSubjectType() != null ? subject.getSubjectType().ordinal() : -1,
+                    CombinationSearch.daySchedules(classDays));
+        }
+
+        static Item from(SubjectMaskIndex.Snapshot snapshot, int entry, boolean required) {
+            return new Item(
+                    snapshot.subjectId(entry),
+                    snapshot.subjectName(entry),
+                    required,
+                    snapshot.credits(entry),
+                    snapshot.timeMask(entry),
+                    snapshot.classDayBits(entry),
+                    snapshot.subjectType(entry),
+                    snapshot.daySchedules(entry));
+        }
+
+        Option option() {
+            return new Option(subjectId, credits, timeMask, classDayBits, subjectType, daySchedules);
+        }
+    }
+
+    record Option(long subjectId, int credits, TimeSlotMask timeMask, int classDayBits, int subjectType,
+                  int[] daySchedules) {
+
+        boolean hasFreeDayConflict(int freeDayBits) {
+            return (classDayBits & freeDayBits) != 0;
+        }
+    }
+}
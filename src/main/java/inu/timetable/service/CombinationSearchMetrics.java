@@ -0,0 +1,97 @@
+package inu.timetable.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 시간표 조합 탐색 지표. reports/combination-performance 의 k6 측정을 운영에서 그대로 보도록
+ * 위시리스트 크기 구간(wishlist_size)을 태그로 단다.
+ *
+ * <ul>
+ *     <li>timetable.combination.search.duration: 탐색 시간(outcome=complete|truncated)</li>
+ *     <li>timetable.combination.search.nodes: 방문 노드 수</li>
+ *     <li>timetable.combination.search.results: 돌려준 조합 수</li>
+ *     <li>timetable.combination.search.prunes: 이유별(reason) 잘린 가지 수</li>
+ *     <li>timetable.combination.search.near_duplicates: 다양성 조건으로 거른 비슷한 후보 수</li>
+ *     <li>timetable.combination.search.incremental: 마지막 탐색을 이어받을 수 있는 요청 수(result=derived|recomputed)</li>
+ * </ul>
+ */
+final class CombinationSearchMetrics {
+
+    // k6 측정 케이스(6, 12, 18, 24, 30)와 같은 경계를 쓴다.
+    private static final int[] WISHLIST_SIZE_BOUNDS = {6, 12, 18, 24, 30};
+
+    private final MeterRegistry meterRegistry;
+
+    CombinationSearchMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    void record(int wishlistSize, long durationNanos, CombinationSearch.Enumeration enumeration, int resultCount,
+                boolean truncated) {
+        String bucket = wishlistSizeBucket(wishlistSize);
+        Timer.builder("timetable.combination.search.duration")
+                .description("Timetable combination search time")
+                .tag("wishlist_size", bucket)
+                .tag("outcome", truncated ? "truncated" : "complete")
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("timetable.combination.search.nodes")
+                .description("Search nodes visited per timetable combination request")
+                .tag("wishlist_size", bucket)
+                .register(meterRegistry)
+                .record(enumeration != null ? enumeration.visitedNodes() : 0);
+        DistributionSummary.builder("timetable.combination.search.results")
+                .description("Timetable combinations returned per request")
+                .tag("wishlist_size", bucket)
+                .register(meterRegistry)
+                .record(resultCount);
+        if (enumeration != null) {
+            CombinationSearch.Prunes prunes = enumeration.prunes();
+            incrementPrunes(bucket, "conflict", prunes.conflict());
+            incrementPrunes(bucket, "free_day", prunes.freeDay());
+            incrementPrunes(bucket, "blocked_slot", prunes.blockedSlot());
+            incrementPrunes(bucket, "credit_bound", prunes.creditBound());
+            incrementPrunes(bucket, "score_bound", prunes.scoreBound());
+            if (enumeration.nearDuplicates() > 0) {
+                Counter.builder("timetable.combination.search.near_duplicates")
+                        .description("Candidates suppressed as near-duplicates of returned combinations")
+                        .tag("wishlist_size", bucket)
+                        .register(meterRegistry)
+                        .increment(enumeration.nearDuplicates());
+            }
+        }
+    }
+
+    void recordIncremental(boolean derived) {
+        Counter.builder("timetable.combination.search.incremental")
+                .description("Combination requests eligible to reuse the user's previous search")
+                .tag("result", derived ? "derived" : "recomputed")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void incrementPrunes(String bucket, String reason, long amount) {
+        Counter.builder("timetable.combination.search.prunes")
+                .description("Search branches pruned per reason")
+                .tag("wishlist_size", bucket)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+
+    static String wishlistSizeBucket(int wishlistSize) {
+        int lower = 1;
+        for (int bound : WISHLIST_SIZE_BOUNDS) {
+            if (wishlistSize <= bound) {
+                return lower + "-" + bound;
+            }
+            lower = bound + 1;
+        }
+        return lower + "+";
+    }
+}
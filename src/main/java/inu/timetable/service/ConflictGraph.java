@@ -0,0 +1,88 @@
+package inu.timetable.service;
+
+/**
+ * 분반 사이의 시간 충돌 인접 행렬. 분반 i 의 행은 i 와 시간이 겹치는 분반 인덱스의 비트 집합이다.
+ *
+ * <p>요청마다 분반 쌍의 시간 마스크를 한 번씩만 교차해 만든다. 탐색은 "아직 고를 수 있는 분반" 비트 집합에서
+ * 고른 분반의 행을 지워 다음 깊이의 후보로 쓰므로, 충돌 검사는 비트 하나를 보는 것으로 끝나고
+ * 후보를 훑을 때도 이미 걸러진 분반은 건너뛴다.</p>
+ */
+final class ConflictGraph {
+
+    private final long[][] rows;
+    private final int wordCount;
+
+    private ConflictGraph(long[][] rows, int wordCount) {
+        this.rows = rows;
+        this.wordCount = wordCount;
+    }
+
+    static ConflictGraph of(TimeSlotMask[] masks) {
+        int wordCount = wordCount(masks.length);
+        long[][] rows = new long[masks.length][wordCount];
+        for (int a = 0; a < masks.length; a++) {
+            for (int b = a + 1; b < masks.length; b++) {
+                if (masks[a].intersects(masks[b])) {
+                    set(rows[a], b);
+                    set(rows[b], a);
+                }
+            }
+        }
+        return new ConflictGraph(rows, wordCount);
+    }
+
+    static int wordCount(int size) {
+        return Math.max(1, (size + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    int wordCount() {
+        return wordCount;
+    }
+
+    boolean conflicts(int a, int b) {
+        return contains(rows[a], b);
+    }
+
+    /**
+     * into = from 에서 option 과 충돌하는 분반을 뺀 집합.
+     */
+    void removeConflicts(long[] from, int option, long[] into) {
+        long[] row = rows[option];
+        for (int i = 0; i < wordCount; i++) {
+            into[i] = from[i] & ~row[i];
+        }
+    }
+
+    static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    static boolean contains(long[] bits, int index) {
+        return (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * [from, to) 에서 가장 앞의 켜진 비트. 없으면 -1.
+     */
+    static int nextSetBit(long[] bits, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long current = bits[word] & -1L << from;
+        while (true) {
+            if (current != 0) {
+                int index = word * Long.SIZE + Long.numberOfTrailingZeros(current);
+                return index < to ? index : -1;
+            }
+            if (++word * Long.SIZE >= to) {
+                return -1;
+            }
+            current = bits[word];
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package inu.timetable.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 조합 수 세기. 선택 그룹에서는 열거와 같이 학점이 상한에 닿으면 더 담지 않는다(0 학점 분반 포함).
+ *
+ * <p>조합을 만들지 않으므로 {@link CombinationRun} 의 경로 상태를 쓰지 않고, 그룹마다 "건너뛰기 + 고를 수 있는 분반 각각"으로
+ * 나눠 센다. 남은 그룹이 충분히 많으면 (그룹, 학점, 남은 후보 집합) 상태별 결과를 기억한다.</p>
+ */
+final class CountingRun {
+
+    // 남은 그룹이 이보다 적으면 기억하지 않고 바로 센다(해시 비용이 더 크다).
+    private static final int MEMO_MIN_REMAINING_GROUPS = 4;
+
+    final CombinationSearch search;
+    final int minCredits;
+    final int maxCredits;
+    final long cap;
+    final int stateBudget;
+    // levels[g] 는 g 번째 그룹을 고른 뒤의 후보 집합을 담는 작업 공간이다.
+    final long[][] levels;
+    final Map<CountState, Long> memo = new HashMap<>();
+    int visitedStates;
+    boolean budgetExhausted;
+
+    CountingRun(CombinationSearch search, int minCredits, int maxCredits, long cap, int stateBudget) {
+        this.search = search;
+        this.minCredits = minCredits;
+        this.maxCredits = maxCredits;
+        this.cap = cap;
+        this.stateBudget = stateBudget;
+        this.levels = new long[search.groupCount() + 1][search.conflicts.wordCount()];
+    }
+
+    long count(int group, int credits, long[] candidates) {
+        int[] groupStarts = search.groupStarts;
+        int groupCount = search.groupCount();
+        boolean optional = group >= search.requiredGroupCount;
+        if (optional) {
+            if (credits > maxCredits || credits + search.suffixMaxCredits[group] < minCredits) {
+                return 0;
+            }
+            if (credits == maxCredits || group == groupCount) {
+                return credits >= minCredits ? 1 : 0;
+            }
+        }
+
+        CountState state = groupCount - group >= MEMO_MIN_REMAINING_GROUPS
+                ? CountState.of(group, credits, candidates, groupStarts[group])
+                : null;
+        if (state != null) {
+            Long known = memo.get(state);
+            if (known != null) {
+                return known;
+            }
+        }
+        if (visitedStates >= stateBudget) {
+            budgetExhausted = true;
+            return 0;
+        }
+        visitedStates++;
+
+        // 선택 그룹은 건너뛸 수 있다.
+        long total = optional ? count(group + 1, credits, candidates) : 0;
+        int end = groupStarts[group + 1];
+        for (int i = ConflictGraph.nextSetBit(candidates, groupStarts[group], end);
+             i >= 0 && total < cap;
+             i = ConflictGraph.nextSetBit(candidates, i + 1, end)) {
+            int nextCredits = credits + search.options[i].credits();
+            if (optional && nextCredits > maxCredits) {
+                continue;
+            }
+            long[] next = levels[group + 1];
+            search.conflicts.removeConflicts(candidates, i, next);
+            if (!optional && !search.remainingRequiredGroupsFeasible(group + 1, next)) {
+                continue;
+            }
+            total = Math.min(cap, total + count(group + 1, nextCredits, next));
+        }
+
+        // 예산이 바닥난 뒤의 값은 하한일 뿐이라 기억하지 않는다.
+        if (state != null && !budgetExhausted) {
+            memo.put(state, total);
+        }
+        return total;
+    }
+
+    /**
+     * 조합 수 세기의 기억 키. 후보 집합은 아직 보지 않은 그룹(fromOption 이상)의 비트만 남긴다.
+     */
+    private static final class CountState {
+
+        final int group;
+        final int credits;
+        final long[] remaining;
+        final int hash;
+
+        private CountState(int group, int credits, long[] remaining) {
+            this.group = group;
+            this.credits = credits;
+            this.remaining = remaining;
+            this.hash = 31 * (31 * group + credits) + Arrays.hashCode(remaining);
+        }
+
+        static CountState of(int group, int credits, long[] candidates, int fromOption) {
+            int fromWord = fromOption >>> 6;
+            long[] remaining = Arrays.copyOfRange(candidates, fromWord, candidates.length);
+            remaining[0] &= -1L << fromOption;
+            return new CountState(group, credits, remaining);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other
+                    || other instanceof CountState state
+                    && group == state.group
+                    && credits == state.credits
+                    && Arrays.equals(remaining, state.remaining);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
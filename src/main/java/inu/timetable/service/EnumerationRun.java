@@ -0,0 +1,167 @@
+package inu.timetable.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 목표 학점 구간에 드는 조합을 깊이 우선 순서대로 maxCombinations 개까지 모으는 실행.
+ *
+ * <p>{@link CombinationSearch#enumerate} 말고도 이어 보기(resumePath), 스트리밍(listener), 증분 탐색(includedOption·stopAfter),
+ * 병렬 탐색의 계획 단계(plan)와 서브트리 작업(coordinator)이 같은 실행을 쓴다. 각 용도의 상태는 그 용도에서만 채운다.</p>
+ */
+final class EnumerationRun extends CollectingRun {
+
+    final int minCredits;
+    final int maxCredits;
+    final int maxCombinations;
+    final List<int[]> accepted = new ArrayList<>();
+    int[] acceptedAtNode = new int[16];
+    // 병렬 계획 단계에서만 쓴다. null 이 아니면 SPLIT_DEPTH 아래는 탐색하지 않고 계획에 남긴다.
+    List<ParallelEnumeration.PlanItem> plan;
+    // 병렬 작업에서만 쓴다. 앞선 작업 결과만으로 잘릴 것이 확정되면 superseded 가 된다.
+    ParallelEnumeration.Coordinator coordinator;
+    int planItem;
+    boolean superseded;
+    // 스트리밍에서만 쓴다. 받는 쪽이 false 를 돌려주면 cancelled 가 된다.
+    Predicate<int[]> listener;
+    boolean cancelled;
+    // 증분 탐색에서만 쓴다. null 이 아니면 깊이 우선 순서로 이 경로 뒤의 노드에 닿는 순간 멈춘다.
+    int[] stopAfter;
+    boolean passedStop;
+
+    EnumerationRun(
+            CombinationSearch search,
+            int minCredits,
+            int maxCredits,
+            int maxCombinations,
+            int nodeBudget,
+            SearchDeadline deadline) {
+        super(search, nodeBudget, deadline);
+        this.minCredits = minCredits;
+        this.maxCredits = maxCredits;
+        this.maxCombinations = maxCombinations;
+    }
+
+    void startFrom(ParallelEnumeration.Subtree subtree) {
+        for (int optionIndex : subtree.prefix()) {
+            push(optionIndex);
+        }
+        // 앞부분을 고르며 잘린 가지는 계획 단계가 이미 셌다.
+        conflictPrunes = 0;
+        searchOptional(subtree.nextGroup(), subtree.credits());
+    }
+
+    private void accept() {
+        int[] combination = Arrays.copyOf(chosen, depth);
+        if (accepted.size() == acceptedAtNode.length) {
+            acceptedAtNode = Arrays.copyOf(acceptedAtNode, acceptedAtNode.length * 2);
+        }
+        acceptedAtNode[accepted.size()] = visitedNodes;
+        accepted.add(combination);
+        if (plan != null) {
+            plan.add(new ParallelEnumeration.PlanItem(combination, null, visitedNodes));
+        }
+        if (coordinator != null) {
+            coordinator.recordAccepted(planItem);
+        }
+        if (listener != null && !listener.test(combination)) {
+            cancelled = true;
+        }
+    }
+
+    private boolean isSuperseded() {
+        if (coordinator == null || superseded) {
+            return superseded;
+        }
+        if (visitedNodes % ParallelEnumeration.SUPERSEDED_CHECK_INTERVAL == 0) {
+            coordinator.recordNodes(planItem, visitedNodes);
+            superseded = coordinator.isSuperseded(planItem);
+        }
+        return superseded;
+    }
+
+    @Override
+    boolean isDone() {
+        return accepted.size() >= maxCombinations || stopped() || cancelled || passedStop || isSuperseded();
+    }
+
+    @Override
+    void searchOptional(int startGroup, int credits) {
+        recordRequiredSelection();
+        if (isDone() || !enterNode()) {
+            return;
+        }
+        if (stopAfter != null && CombinationSearch.comparePreorder(chosen, depth, stopAfter) > 0) {
+            passedStop = true;
+            return;
+        }
+
+        // 목표 학점 달성 또는 근사치 도달 시 조합 추가.
+        // 과목 0개(빈 시간표)는 targetCredits 가 작아 minCredits<=0 이 되는 경우에도 추천하지 않는다.
+        // 이어서 탐색할 때 경로 위 노드는 앞 페이지에서 이미 지나왔다(돌려준 조합이거나 담지 않은 노드).
+        boolean inclusionPending = inclusionPending();
+        if (depth > 0 && credits >= minCredits && credits <= maxCredits && !passedBeforeResume() && !inclusionPending) {
+            if (minDistance > 0 && CombinationDiversity.isNearAny(accepted, chosen, depth, minDistance)) {
+                nearDuplicates++;
+            } else {
+                accept();
+            }
+        }
+
+        if (startGroup >= groupCount()) {
+            return;
+        }
+        // 학점이 목표보다 너무 크거나, 남은 그룹을 모두 담아도 목표에 못 미치면 중단
+        if (credits >= maxCredits || credits + suffixMaxCredits[startGroup] < minCredits) {
+            creditBoundPrunes++;
+            return;
+        }
+        if (inclusionPending && inclusionBlocked(credits, maxCredits)) {
+            conflictPrunes++;
+            return;
+        }
+
+        // 선택 그룹을 순서대로 하나씩 더하고, 그룹 안에서는 분반 중 하나만 고른다.
+        int resumeFrom = resumeFrom(0);
+        for (int group = startGroup; group < groupCount(); group++) {
+            int from = Math.max(groupStarts[group], resumeFrom);
+            int end = groupStarts[group + 1];
+            if (inclusionPending) {
+                // includedOption 을 지나친 그룹이나 그 그룹의 다른 분반으로는 내려가지 않는다.
+                if (groupStarts[group] > includedOption) {
+                    break;
+                }
+                if (includedOption < end) {
+                    from = Math.max(from, includedOption);
+                    end = includedOption + 1;
+                }
+            }
+            for (int i = nextCandidate(from, end);
+                 i >= 0;
+                 i = nextCandidate(i + 1, end)) {
+                CombinationSearch.Option option = options[i];
+                if (credits + option.credits() > maxCredits) {
+                    creditBoundPrunes++;
+                    continue;
+                }
+                if (!push(i)) {
+                    continue;
+                }
+                if (plan != null && depth - requiredGroupCount >= ParallelEnumeration.SPLIT_DEPTH) {
+                    plan.add(new ParallelEnumeration.PlanItem(
+                            null,
+                            new ParallelEnumeration.Subtree(Arrays.copyOf(chosen, depth), group + 1, credits + option.credits()),
+                            visitedNodes));
+                } else {
+                    searchOptional(group + 1, credits + option.credits());
+                }
+                pop();
+                if (isDone()) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package inu.timetable.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 선택 분반 하나만 다른(빠졌거나 더해진) 두 탐색 사이에서 앞 탐색의 결과를 이어받는 증분 열거·순위 탐색.
+ *
+ * <p>앞 탐색의 분반 번호를 새 번호로 옮기는 표({@link OptionDelta})를 만들 수 있을 때만 이어받는다. 더해진 분반이 든 조합은
+ * {@link EnumerationRun}·{@link RankingRun} 의 includedOption 으로 그 분반을 반드시 고르는 가지만 돌아 찾는다.
+ * 결과가 처음부터 탐색한 것과 같은 이유는 {@link CombinationSearch#enumerateFrom}·{@link CombinationSearch#rankFrom} 에 적었다.</p>
+ */
+final class IncrementalEnumeration {
+
+    private IncrementalEnumeration() {
+    }
+
+    /**
+     * @see CombinationSearch#enumerateFrom
+     */
+    static CombinationSearch.Enumeration enumerateFrom(
+            CombinationSearch search,
+            CombinationSearch previous,
+            CombinationSearch.Enumeration previousEnumeration,
+            int targetCredits,
+            int creditTolerance,
+            int maxCombinations,
+            SearchDeadline deadline) {
+        if (previousEnumeration.scores() != null || previousEnumeration.budgetExhausted()
+                || previousEnumeration.deadlineExceeded()) {
+            return null;
+        }
+        OptionDelta delta = deltaFrom(search, previous);
+        if (delta == null) {
+            return null;
+        }
+        List<int[]> carried = new ArrayList<>(previousEnumeration.combinations().size());
+        for (int[] chosen : previousEnumeration.combinations()) {
+            int[] mapped = delta.map(chosen);
+            if (mapped != null) {
+                carried.add(mapped);
+            }
+        }
+        // 필수 그룹은 그대로이므로 필수 과목만의 첫 조합도 번호만 옮긴다.
+        int[] firstRequiredSelection = previousEnumeration.firstRequiredSelection() != null
+                ? delta.map(previousEnumeration.firstRequiredSelection())
+                : null;
+        int minCredits = targetCredits - creditTolerance;
+        int maxCredits = targetCredits + creditTolerance;
+
+        EnumerationRun run = null;
+        List<int[]> combinations = carried;
+        if (delta.addedOption() >= 0) {
+            // 이어받은 조합은 previous 의 앞쪽 maxCombinations 개(또는 전부)이고, 더해진 분반이 든 조합도 앞쪽 maxCombinations 개를
+            // 찾으므로 둘을 합친 순서의 앞쪽 maxCombinations 개가 처음부터 찾은 결과다.
+            run = new EnumerationRun(
+                    search, minCredits, maxCredits, maxCombinations, CombinationSearch.UNLIMITED_NODES, deadline);
+            run.includedOption = delta.addedOption();
+            // 이어받은 조합이 maxCombinations 개를 채웠으면 그 마지막 조합 뒤에서 찾은 조합은 결과에 들 수 없다.
+            run.stopAfter = carried.size() >= maxCombinations ? carried.get(maxCombinations - 1) : null;
+            run.selectRequired(0, 0);
+            combinations = mergePreorder(carried, run.accepted, maxCombinations);
+        } else if (carried.size() < previousEnumeration.combinations().size()
+                && previousEnumeration.combinations().size() >= maxCombinations) {
+            // previous 가 멈춘 지점까지 새 탐색의 조합은 모두 carried 에 있으므로 그 마지막 조합 뒤부터 이어 찾는다.
+            run = new EnumerationRun(search, minCredits, maxCredits, maxCombinations - carried.size(),
+                    CombinationSearch.UNLIMITED_NODES, deadline);
+            run.resumePath = carried.isEmpty() ? null : carried.get(carried.size() - 1);
+            run.selectRequired(0, 0);
+            combinations = new ArrayList<>(carried);
+            combinations.addAll(run.accepted);
+        }
+        return new CombinationSearch.Enumeration(
+                combinations,
+                null,
+                firstRequiredSelection,
+                run != null ? run.visitedNodes : 0,
+                run != null ? run.exploredOptionCount : 0,
+                false,
+                run != null && run.deadlineExceeded,
+                run != null ? search.compiledPrunes().plus(run.prunes()) : search.compiledPrunes(),
+                0,
+                null);
+    }
+
+    /**
+     * @see CombinationSearch#rankFrom
+     */
+    static CombinationSearch.Enumeration rankFrom(
+            CombinationSearch search,
+            CombinationSearch previous,
+            CombinationSearch.Enumeration previousEnumeration,
+            int targetCredits,
+            int creditTolerance,
+            int limit,
+            int nodeBudget,
+            TimetableScoreFunction scoreFunction,
+            SearchDeadline deadline) {
+        if (previousEnumeration.scores() == null || previousEnumeration.budgetExhausted()
+                || previousEnumeration.deadlineExceeded()) {
+            return null;
+        }
+        OptionDelta delta = deltaFrom(search, previous);
+        if (delta == null) {
+            return null;
+        }
+        List<RankedCandidate> carried = new ArrayList<>(previousEnumeration.combinations().size());
+        for (int k = 0; k < previousEnumeration.combinations().size(); k++) {
+            int[] mapped = delta.map(previousEnumeration.combinations().get(k));
+            if (mapped != null) {
+                carried.add(new RankedCandidate(previousEnumeration.scores()[k], carried.size(), mapped));
+            }
+        }
+        int[] firstRequiredSelection = previousEnumeration.firstRequiredSelection() != null
+                ? delta.map(previousEnumeration.firstRequiredSelection())
+                : null;
+        boolean previousFull = previousEnumeration.combinations().size() >= limit;
+        RankedCandidate lastCarried = carried.isEmpty() ? null : carried.get(carried.size() - 1);
+
+        RankingRun run = null;
+        List<RankedCandidate> ranked = carried;
+        if (delta.addedOption() >= 0) {
+            run = new RankingRun(search, targetCredits, creditTolerance, limit, nodeBudget, scoreFunction, deadline);
+            run.includedOption = delta.addedOption();
+            // 이어받은 조합이 limit 개를 채웠으면 그 마지막 순위 뒤의 조합은 결과에 들 수 없다.
+            run.before = previousFull
+                    ? new CombinationSearch.RankCursor(lastCarried.score(), lastCarried.chosen())
+                    : null;
+            run.selectRequired(0, 0);
+            ranked = mergeRanked(carried, run.ranked(), limit);
+        } else if (carried.size() < previousEnumeration.combinations().size() && previousFull) {
+            // 새 탐색에서 previous 의 마지막 순위보다 앞서는 조합은 모두 carried 에 있으므로 그 마지막 조합 뒤에서 이어 찾는다.
+            run = new RankingRun(
+                    search, targetCredits, creditTolerance, limit - carried.size(), nodeBudget, scoreFunction, deadline);
+            run.after = lastCarried != null
+                    ? new CombinationSearch.RankCursor(lastCarried.score(), lastCarried.chosen())
+                    : null;
+            run.selectRequired(0, 0);
+            ranked = new ArrayList<>(carried);
+            ranked.addAll(run.ranked());
+        }
+        return new CombinationSearch.Enumeration(
+                ranked.stream().map(RankedCandidate::chosen).toList(),
+                ranked.stream().mapToLong(RankedCandidate::score).toArray(),
+                firstRequiredSelection,
+                run != null ? run.visitedNodes : 0,
+                run != null ? run.exploredOptionCount : 0,
+                run != null && run.budgetExhausted,
+                run != null && run.deadlineExceeded,
+                run != null ? search.compiledPrunes().plus(run.prunes()) : search.compiledPrunes(),
+                0,
+                null);
+    }
+
+    // 두 깊이 우선 순서 목록을 합쳐 앞쪽 limit 개를 남긴다. 두 목록에 같은 조합은 없다.
+    private static List<int[]> mergePreorder(List<int[]> first, List<int[]> second, int limit) {
+        List<int[]> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            if (j == second.size() || i < first.size()
+                    && CombinationSearch.comparePreorder(first.get(i), first.get(i).length, second.get(j)) < 0) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    // 두 순위 목록을 점수, 같으면 깊이 우선 순서로 합쳐 앞쪽 limit 개를 남긴다. 두 목록에 같은 조합은 없다.
+    private static List<RankedCandidate> mergeRanked(List<RankedCandidate> first, List<RankedCandidate> second, int limit) {
+        List<RankedCandidate> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            if (j == second.size() || i < first.size() && (first.get(i).score() < second.get(j).score()
+                    || first.get(i).score() == second.get(j).score()
+                    && CombinationSearch.comparePreorder(
+                    first.get(i).chosen(), first.get(i).chosen().length, second.get(j).chosen()) < 0)) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * previous 의 분반 번호를 search 의 번호로 옮기는 표. 선택 그룹의 분반 하나가 빠지거나 더해진 것 말고는 공통 분반의 순서,
+     * 데이터(과목 id·학점·수업 요일·시간 마스크), 필수 여부, 고를 수 있는지, 같은 그룹인지가 모두 같을 때만 만든다. 아니면 null.
+     */
+    private static OptionDelta deltaFrom(CombinationSearch search, CombinationSearch previous) {
+        CombinationSearch.Option[] options = search.options;
+        if (search.requiredGroupCount != previous.requiredGroupCount
+                || Math.abs(options.length - previous.options.length) > 1) {
+            return null;
+        }
+        Map<Long, Integer> indexBySubjectId = new HashMap<>();
+        for (int j = 0; j < options.length; j++) {
+            indexBySubjectId.put(options[j].subjectId(), j);
+        }
+        if (indexBySubjectId.size() != options.length) {
+            return null;
+        }
+        int[] mapping = new int[previous.options.length];
+        boolean[] mapped = new boolean[options.length];
+        int removed = 0;
+        int lastPrevious = -1;
+        int lastCurrent = -1;
+        for (int i = 0; i < previous.options.length; i++) {
+            Integer j = indexBySubjectId.get(previous.options[i].subjectId());
+            if (j == null) {
+                mapping[i] = -1;
+                if (++removed > 1 || previous.groupOf(i) < previous.requiredGroupCount) {
+                    return null;
+                }
+                continue;
+            }
+            if (j <= lastCurrent || !sameOption(search, previous, i, j)) {
+                return null;
+            }
+            if (lastPrevious >= 0 && (previous.groupOf(lastPrevious) == previous.groupOf(i))
+                    != (search.groupOf(lastCurrent) == search.groupOf(j))) {
+                return null;
+            }
+            mapping[i] = j;
+            mapped[j] = true;
+            lastPrevious = i;
+            lastCurrent = j;
+        }
+        int addedOption = -1;
+        for (int j = 0; j < options.length; j++) {
+            if (!mapped[j]) {
+                if (removed > 0 || addedOption >= 0 || search.groupOf(j) < search.requiredGroupCount) {
+                    return null;
+                }
+                addedOption = j;
+            }
+        }
+        return new OptionDelta(mapping, addedOption);
+    }
+
+    private static boolean sameOption(CombinationSearch search, CombinationSearch previous, int previousIndex, int index) {
+        CombinationSearch.Option before = previous.options[previousIndex];
+        CombinationSearch.Option after = search.options[index];
+        return before.credits() == after.credits()
+                && before.classDayBits() == after.classDayBits()
+                && before.timeMask().equals(after.timeMask())
+                && (previous.groupOf(previousIndex) < previous.requiredGroupCount)
+                == (search.groupOf(index) < search.requiredGroupCount)
+                && ConflictGraph.contains(previous.selectable, previousIndex)
+                == ConflictGraph.contains(search.selectable, index);
+    }
+
+    /**
+     * @param mapping     previous 분반 번호 → 이 탐색의 분반 번호. 빠진 분반은 -1.
+     * @param addedOption 더해진 분반 번호. 없으면 -1.
+     */
+    private record OptionDelta(int[] mapping, int addedOption) {
+
+        // 빠진 분반이 들어 있으면 null.
+        int[] map(int[] chosen) {
+            int[] mapped = new int[chosen.length];
+            for (int d = 0; d < chosen.length; d++) {
+                mapped[d] = mapping[chosen[d]];
+                if (mapped[d] < 0) {
+                    return null;
+                }
+            }
+            return mapped;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package inu.timetable.service;
+
+/**
+ * 목표 학점 없이 얻을 수 있는 최대 학점을 깊이 우선으로 찾는 실행. {@link MaximumCreditSolver} 가 풀지 못한 크기에서 쓴다.
+ *
+ * <p>남은 그룹을 모두 담아도 지금까지의 최댓값을 넘지 못하는 가지는 내려가지 않는다.</p>
+ */
+final class MaximumCreditRun extends CombinationRun {
+
+    int best = -1;
+
+    MaximumCreditRun(CombinationSearch search, int nodeBudget, SearchDeadline deadline) {
+        super(search, nodeBudget, deadline);
+    }
+
+    @Override
+    boolean isDone() {
+        return stopped();
+    }
+
+    @Override
+    void searchOptional(int startGroup, int credits) {
+        if (!enterNode()) {
+            return;
+        }
+
+        best = Math.max(best, credits);
+        if (startGroup >= groupCount() || credits + suffixMaxCredits[startGroup] <= best) {
+            return;
+        }
+
+        // 포함 가능한 과목부터 탐색해 제한된 탐색 예산 안에서도 높은 학점 조합을 먼저 찾는다.
+        for (int group = startGroup; group < groupCount(); group++) {
+            int end = groupStarts[group + 1];
+            for (int i = nextCandidate(groupStarts[group], end); i >= 0; i = nextCandidate(i + 1, end)) {
+                CombinationSearch.Option option = options[i];
+                if (!push(i)) {
+                    continue;
+                }
+                searchOptional(group + 1, credits + option.credits());
+                pop();
+                if (isDone()) {
+                    return;
+                }
+            }
+        }
+    }
+}
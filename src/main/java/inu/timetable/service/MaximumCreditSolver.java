@@ -0,0 +1,201 @@
+package inu.timetable.service;
+
+import java.util.Arrays;
+
+/**
+ * 목표 학점 없이 담을 수 있는 최대 학점을 정확히 구하는 중간 만남(meet-in-the-middle) 풀이.
+ *
+ * <p>그룹을 앞뒤 두 쪽으로 나눈다. 뒤쪽은 분반이 {@link #MAX_BACK_OPTIONS} 개를 넘지 않는 끝의 선택 그룹이고, 필수 그룹과
+ * 나머지 선택 그룹은 앞쪽이다. 뒤쪽은 "고를 수 있는 분반 집합 → 그 안에서 충돌 없이 얻는 최대 학점" 표를 부분 집합 DP 로
+ * 한 번에 채운다. 앞쪽은 충돌 없는 부분 집합을 깊이 우선으로 나열하면서, 부분 집합마다 뒤쪽에서 아직 고를 수 있는 분반 집합으로
+ * 표를 찾아 짝지을 수 있는 최대 학점을 얻는다. 같은 표 값은 앞쪽 가지의 상한으로도 쓰여 가망 없는 가지를 바로 자른다.</p>
+ *
+ * <p>분반 번호는 쪽마다 0 부터 다시 매겨 앞쪽은 long, 뒤쪽은 int 하나에 담는다. 앞쪽 분반이 64 개를 넘으면 풀지 않고,
+ * 앞쪽 나열이 {@link #MAX_FRONT_NODES} 를 넘거나 마감이 지나면 그때까지의 최댓값을 증명되지 않은 값으로 돌려준다.</p>
+ */
+final class MaximumCreditSolver {
+
+    // 뒤쪽 표는 2^MAX_BACK_OPTIONS 칸(int)이다.
+    static final int MAX_BACK_OPTIONS = 20;
+    static final int MAX_FRONT_NODES = 2_000_000;
+
+    private final int[] credits;
+    private final int[] groupStarts;
+    private final int requiredGroupCount;
+    private final ConflictGraph conflicts;
+    private final long[] selectable;
+    private final SearchDeadline deadline;
+
+    private int frontGroupCount;
+    private int[] frontGroupStarts;
+    private int[] frontCredits;
+    private long[] frontConflicts;
+    private int[] backConflictsOfFront;
+    private int[] frontSuffixCredits;
+    private int[] bestBack;
+    private int best;
+    private int frontNodes;
+    private boolean aborted;
+    private boolean deadlineExceeded;
+
+    MaximumCreditSolver(
+            int[] credits,
+            int[] groupStarts,
+            int requiredGroupCount,
+            ConflictGraph conflicts,
+            long[] selectable,
+            SearchDeadline deadline) {
+        this.credits = credits;
+        this.groupStarts = groupStarts;
+        this.requiredGroupCount = requiredGroupCount;
+        this.conflicts = conflicts;
+        this.selectable = selectable;
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return 최대 학점(필수 그룹을 채울 수 없으면 0). 앞쪽이 너무 커서 풀지 않았으면 null.
+     */
+    CombinationSearch.MaximumCredits solve() {
+        int groupCount = groupStarts.length - 1;
+        // 뒤쪽 표가 앞쪽 나열보다 커지지 않도록 뒤쪽은 전체 분반의 절반까지만 둔다.
+        int backLimit = Math.min(MAX_BACK_OPTIONS, (selectableOptions(0, groupCount).length + 1) / 2);
+        int splitGroup = groupCount;
+        int backOptionCount = 0;
+        while (splitGroup > requiredGroupCount) {
+            int groupOptions = selectableOptions(splitGroup - 1, splitGroup).length;
+            if (backOptionCount + groupOptions > backLimit) {
+                break;
+            }
+            backOptionCount += groupOptions;
+            splitGroup--;
+        }
+        int[] front = selectableOptions(0, splitGroup);
+        if (front.length > Long.SIZE) {
+            return null;
+        }
+        int[] back = selectableOptions(splitGroup, groupCount);
+
+        compileFront(front, back, splitGroup);
+        fillBestBack(back, splitGroup);
+
+        best = -1;
+        searchFront(0, 0L, (1 << back.length) - 1, 0);
+        return new CombinationSearch.MaximumCredits(Math.max(0, best), !aborted, deadlineExceeded);
+    }
+
+    private int[] selectableOptions(int fromGroup, int toGroup) {
+        int[] found = new int[groupStarts[toGroup] - groupStarts[fromGroup]];
+        int size = 0;
+        for (int i = groupStarts[fromGroup]; i < groupStarts[toGroup]; i++) {
+            if (ConflictGraph.contains(selectable, i)) {
+                found[size++] = i;
+            }
+        }
+        return Arrays.copyOf(found, size);
+    }
+
+    private void compileFront(int[] front, int[] back, int splitGroup) {
+        frontGroupCount = splitGroup;
+        frontGroupStarts = new int[splitGroup + 1];
+        frontCredits = new int[front.length];
+        frontConflicts = new long[front.length];
+        backConflictsOfFront = new int[front.length];
+        int local = 0;
+        for (int group = 0; group < splitGroup; group++) {
+            frontGroupStarts[group] = local;
+            while (local < front.length && front[local] < groupStarts[group + 1]) {
+                local++;
+            }
+        }
+        frontGroupStarts[splitGroup] = front.length;
+
+        for (int a = 0; a < front.length; a++) {
+            frontCredits[a] = credits[front[a]];
+            for (int b = 0; b < front.length; b++) {
+                if (a != b && conflicts.conflicts(front[a], front[b])) {
+                    frontConflicts[a] |= 1L << b;
+                }
+            }
+            for (int b = 0; b < back.length; b++) {
+                if (conflicts.conflicts(front[a], back[b])) {
+                    backConflictsOfFront[a] |= 1 << b;
+                }
+            }
+        }
+
+        frontSuffixCredits = new int[splitGroup + 1];
+        for (int group = splitGroup - 1; group >= 0; group--) {
+            int groupMax = 0;
+            for (int i = frontGroupStarts[group]; i < frontGroupStarts[group + 1]; i++) {
+                groupMax = Math.max(groupMax, frontCredits[i]);
+            }
+            frontSuffixCredits[group] = frontSuffixCredits[group + 1] + groupMax;
+        }
+    }
+
+    // bestBack[mask] = mask 안의 뒤쪽 분반만으로 충돌 없이(그룹마다 하나) 얻는 최대 학점.
+    private void fillBestBack(int[] back, int splitGroup) {
+        int[] excluded = new int[back.length];
+        for (int a = 0; a < back.length; a++) {
+            for (int b = 0; b < back.length; b++) {
+                boolean sameGroup = groupOf(back[a], splitGroup) == groupOf(back[b], splitGroup);
+                if (a != b && (sameGroup || conflicts.conflicts(back[a], back[b]))) {
+                    excluded[a] |= 1 << b;
+                }
+            }
+        }
+        bestBack = new int[1 << back.length];
+        for (int mask = 1; mask < bestBack.length; mask++) {
+            int lowest = Integer.numberOfTrailingZeros(mask);
+            int rest = mask & (mask - 1);
+            bestBack[mask] = Math.max(
+                    bestBack[rest],
+                    credits[back[lowest]] + bestBack[rest & ~excluded[lowest]]);
+        }
+    }
+
+    private int groupOf(int option, int fromGroup) {
+        int group = fromGroup;
+        while (groupStarts[group + 1] <= option) {
+            group++;
+        }
+        return group;
+    }
+
+    private void searchFront(int group, long blocked, int allowedBack, int creditsSoFar) {
+        if (aborted) {
+            return;
+        }
+        if (++frontNodes > MAX_FRONT_NODES) {
+            aborted = true;
+            return;
+        }
+        if (deadline.expiredAt(frontNodes)) {
+            aborted = true;
+            deadlineExceeded = true;
+            return;
+        }
+        if (group == frontGroupCount) {
+            best = Math.max(best, creditsSoFar + bestBack[allowedBack]);
+            return;
+        }
+        if (creditsSoFar + frontSuffixCredits[group] + bestBack[allowedBack] <= best) {
+            return;
+        }
+        // 담는 쪽부터 내려가 높은 학점을 먼저 찾고 상한 가지치기를 빨리 강하게 만든다.
+        for (int i = frontGroupStarts[group]; i < frontGroupStarts[group + 1]; i++) {
+            if ((blocked & 1L << i) == 0) {
+                searchFront(
+                        group + 1,
+                        blocked | frontConflicts[i],
+                        allowedBack & ~backConflictsOfFront[i],
+                        creditsSoFar + frontCredits[i]);
+            }
+        }
+        // 필수 그룹은 건너뛸 수 없다.
+        if (group >= requiredGroupCount) {
+            searchFront(group + 1, blocked, allowedBack, creditsSoFar);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package inu.timetable.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * {@link CombinationSearch#enumerate} 와 같은 결과를 ForkJoinPool 에서 만드는 병렬 열거.
+ *
+ * <p>위쪽 두 단계는 순차로 펼쳐 깊이 우선 순서의 계획(채택 노드와 서브트리 작업의 나열)을 만들고,
+ * 서브트리는 병렬로 탐색한다. 각 작업은 결과마다 자기 서브트리 안에서의 노드 순번을 남기므로,
+ * 계획 순서대로 이어 붙이면서 순차 탐색의 전역 노드 순번을 복원해 maxCombinations·nodeBudget 에서
+ * 정확히 같은 지점에서 멈춘다. 앞선 작업들의 결과 수(전역 원자 카운터)나 노드 수만으로 이미 잘릴 것이
+ * 확정된 작업은 도중에 중단한다. 탐색 규모 지표는 병렬로 실제 수행한 작업량이다.</p>
+ *
+ * <p>마감이 지나면 계획 순서로 마감 전에 끝난 부분까지만 이어 붙이므로, 이때는 순차 탐색과 결과가 다를 수 있다.</p>
+ */
+final class ParallelEnumeration {
+
+    // 병렬 탐색은 선택 과목 두 단계까지를 순차로 펼치고, 그 아래 서브트리를 작업 하나로 나눈다.
+    static final int SPLIT_DEPTH = 2;
+    // 병렬 작업이 앞선 작업 결과만으로 이미 잘렸는지 확인하는 주기(노드 수).
+    static final int SUPERSEDED_CHECK_INTERVAL = 256;
+
+    private ParallelEnumeration() {
+    }
+
+    static CombinationSearch.Enumeration enumerate(
+            CombinationSearch search,
+            int targetCredits,
+            int creditTolerance,
+            int maxCombinations,
+            int nodeBudget,
+            ForkJoinPool pool,
+            SearchDeadline deadline) {
+        int minCredits = targetCredits - creditTolerance;
+        int maxCredits = targetCredits + creditTolerance;
+        EnumerationRun planner = new EnumerationRun(search, minCredits, maxCredits, maxCombinations, nodeBudget, deadline);
+        planner.plan = new ArrayList<>();
+        planner.selectRequired(0, 0);
+
+        List<PlanItem> plan = planner.plan;
+        Coordinator coordinator = new Coordinator(plan, maxCombinations, nodeBudget);
+        List<SubtreeTask> tasks = new ArrayList<>();
+        for (int item = 0; item < plan.size(); item++) {
+            if (plan.get(item).subtree() != null) {
+                tasks.add(new SubtreeTask(search, item, minCredits, maxCredits, maxCombinations, coordinator, deadline));
+            }
+        }
+        if (!tasks.isEmpty()) {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+        return coordinator.merge(planner, tasks, search.optionCount(), search.compiledPrunes());
+    }
+
+    /**
+     * 병렬 계획의 한 칸. 위쪽 단계에서 채택된 조합(accepted)이거나, 아직 탐색하지 않은 서브트리(subtree)다.
+     * plannerNodes 는 이 칸을 만들 때까지 계획 단계가 방문한 노드 수다.
+     */
+    record PlanItem(int[] accepted, Subtree subtree, int plannerNodes) {
+    }
+
+    record Subtree(int[] prefix, int nextGroup, int credits) {
+    }
+
+    private static final class SubtreeTask extends RecursiveAction {
+
+        final int planItem;
+        final EnumerationRun run;
+
+        SubtreeTask(
+                CombinationSearch search,
+                int planItem,
+                int minCredits,
+                int maxCredits,
+                int maxCombinations,
+                Coordinator coordinator,
+                SearchDeadline deadline) {
+            this.planItem = planItem;
+            // 이 서브트리보다 앞서 계획 단계가 쓴 노드만큼은 전역 예산에서 이미 소진된 것이다.
+            this.run = new EnumerationRun(
+                    search,
+                    minCredits,
+                    maxCredits,
+                    maxCombinations,
+                    Math.max(0, coordinator.nodeBudget - coordinator.plan.get(planItem).plannerNodes()),
+                    deadline);
+            this.run.coordinator = coordinator;
+            this.run.planItem = planItem;
+        }
+
+        @Override
+        protected void compute() {
+            run.startFrom(run.coordinator.plan.get(planItem).subtree());
+            run.coordinator.recordNodes(planItem, run.visitedNodes);
+        }
+    }
+
+    /**
+     * 병렬 작업 사이에 공유하는 전역 예산. 계획 칸별 결과 수·노드 수를 원자 배열로 모으고,
+     * 전체 결과 수가 maxCombinations 에 닿기 전에는 칸별 합계를 계산하지 않는다.
+     */
+    static final class Coordinator {
+
+        final List<PlanItem> plan;
+        final int maxCombinations;
+        final int nodeBudget;
+        final AtomicInteger acceptedTotal = new AtomicInteger();
+        final AtomicIntegerArray acceptedByItem;
+        final AtomicIntegerArray nodesByItem;
+
+        Coordinator(List<PlanItem> plan, int maxCombinations, int nodeBudget) {
+            this.plan = plan;
+            this.maxCombinations = maxCombinations;
+            this.nodeBudget = nodeBudget;
+            this.acceptedByItem = new AtomicIntegerArray(plan.size());
+            this.nodesByItem = new AtomicIntegerArray(plan.size());
+            for (int item = 0; item < plan.size(); item++) {
+                if (plan.get(item).accepted() != null) {
+                    recordAccepted(item);
+                }
+            }
+        }
+
+        void recordAccepted(int item) {
+            acceptedByItem.incrementAndGet(item);
+            acceptedTotal.incrementAndGet();
+        }
+
+        void recordNodes(int item, int visitedNodes) {
+            nodesByItem.set(item, visitedNodes);
+        }
+
+        // 앞선 칸들의 결과나 노드만으로 순차 탐색이 이 칸에 오기 전에 멈췄을 것이 확정되었는지 본다.
+        boolean isSuperseded(int item) {
+            if (acceptedTotal.get() >= maxCombinations) {
+                int acceptedBefore = 0;
+                for (int before = 0; before < item; before++) {
+                    acceptedBefore += acceptedByItem.get(before);
+                }
+                if (acceptedBefore >= maxCombinations) {
+                    return true;
+                }
+            }
+            if (nodeBudget == CombinationSearch.UNLIMITED_NODES) {
+                return false;
+            }
+            long nodesBefore = plan.get(item).plannerNodes();
+            for (int before = 0; before < item; before++) {
+                nodesBefore += nodesByItem.get(before);
+            }
+            return nodesBefore >= nodeBudget;
+        }
+
+        CombinationSearch.Enumeration merge(
+                EnumerationRun planner,
+                List<SubtreeTask> tasks,
+                int optionCount,
+                CombinationSearch.Prunes compiledPrunes) {
+            List<int[]> combinations = new ArrayList<>();
+            boolean[] explored = planner.explored.clone();
+            long subtreeNodes = 0;
+            boolean budgetExhausted = false;
+            boolean deadlineExceeded = false;
+            boolean stopped = false;
+            CombinationSearch.Prunes prunes = compiledPrunes.plus(planner.prunes());
+            for (SubtreeTask task : tasks) {
+                prunes = prunes.plus(task.run.prunes());
+            }
+            int taskCursor = 0;
+
+            for (int item = 0; item < plan.size() && !stopped; item++) {
+                PlanItem planItem = plan.get(item);
+                if (planItem.accepted() != null) {
+                    if (planItem.plannerNodes() + subtreeNodes > nodeBudget) {
+                        budgetExhausted = true;
+                        break;
+                    }
+                    combinations.add(planItem.accepted());
+                    stopped = combinations.size() >= maxCombinations;
+                    continue;
+                }
+
+                // 순차 탐색이라면 이 서브트리의 뿌리 노드에 들어가기 전에 예산이 바닥난다.
+                if (planItem.plannerNodes() + subtreeNodes >= nodeBudget) {
+                    budgetExhausted = true;
+                    break;
+                }
+                EnumerationRun run = tasks.get(taskCursor++).run;
+                for (int i = 0; i < run.accepted.size(); i++) {
+                    if (planItem.plannerNodes() + subtreeNodes + run.acceptedAtNode[i] > nodeBudget) {
+                        budgetExhausted = true;
+                        stopped = true;
+                        break;
+                    }
+                    combinations.add(run.accepted.get(i));
+                    if (combinations.size() >= maxCombinations) {
+                        stopped = true;
+                        break;
+                    }
+                }
+                for (int option = 0; option < optionCount; option++) {
+                    explored[option] |= run.explored[option];
+                }
+                subtreeNodes += run.visitedNodes;
+                if (!stopped && run.budgetExhausted) {
+                    budgetExhausted = true;
+                    stopped = true;
+                }
+                // 마감으로 멈춘 서브트리 뒤의 결과는 순차 탐색이라면 아직 찾지 못했을 것이다.
+                if (!stopped && run.deadlineExceeded) {
+                    deadlineExceeded = true;
+                    stopped = true;
+                }
+            }
+
+            if (!stopped) {
+                budgetExhausted |= planner.budgetExhausted || planner.visitedNodes + subtreeNodes > nodeBudget;
+                deadlineExceeded |= planner.deadlineExceeded;
+            }
+
+            int exploredOptionCount = 0;
+            for (boolean value : explored) {
+                exploredOptionCount += value ? 1 : 0;
+            }
+            long visitedNodes = Math.min((long) nodeBudget, planner.visitedNodes + subtreeNodes);
+            return new CombinationSearch.Enumeration(
+                    combinations,
+                    null,
+                    planner.firstRequiredSelection,
+                    (int) visitedNodes,
+                    exploredOptionCount,
+                    budgetExhausted,
+                    deadlineExceeded,
+                    prunes,
+                    0,
+                    null);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package inu.timetable.service;
+
+import java.util.Comparator;
+
+/**
+ * 순위 탐색이 힙에 남기는 후보. 점수가 같으면 깊이 우선 순서로 먼저 찾은(order 가 작은) 후보가 앞선다.
+ */
+record RankedCandidate(long score, int order, int[] chosen) {
+
+    static final Comparator<RankedCandidate> RANK_ORDER = Comparator.comparingLong(RankedCandidate::score)
+            .thenComparingInt(RankedCandidate::order);
+}
@@ -0,0 +1,173 @@
+package inu.timetable.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 목표 학점 구간에 드는 조합 중 순위 함수 점수가 가장 낮은 limit 개를 모으는 실행.
+ *
+ * <p>크기 limit 의 힙에 가장 좋은 후보만 남기고, 힙이 찬 뒤에는 순위 함수의 하한이 힙의 가장 나쁜 점수보다 나쁘지 않은 가지를
+ * 더 내려가지 않는다. 이어 보기는 after 뒤의, 증분 탐색은 before 앞의 순위만 받는다.</p>
+ */
+final class RankingRun extends CollectingRun {
+
+    final int minCredits;
+    final int maxCredits;
+    final int limit;
+    final TimetableScoreFunction scoreFunction;
+    // 순위 함수가 요일별 첫·마지막 교시를 보므로 순위 탐색만 시간 마스크를 함께 쌓는다.
+    final TimeSlotMask.Accumulator timeMask;
+    final TimetableShape shape;
+    // 가장 나쁜 후보가 머리에 오는 크기 limit 의 힙.
+    final PriorityQueue<RankedCandidate> best;
+    int found;
+    // 이어서 탐색할 때만 쓴다. 순위가 이 자리 뒤인 조합만 받는다.
+    CombinationSearch.RankCursor after;
+    // 증분 탐색에서만 쓴다. null 이 아니면 순위가 이 자리 앞인 조합만 받는다.
+    CombinationSearch.RankCursor before;
+
+    RankingRun(CombinationSearch search, int targetCredits, int creditTolerance, int limit, int nodeBudget,
+               TimetableScoreFunction scoreFunction, SearchDeadline deadline) {
+        super(search, nodeBudget, deadline);
+        this.minCredits = targetCredits - creditTolerance;
+        this.maxCredits = targetCredits + creditTolerance;
+        this.limit = limit;
+        this.scoreFunction = scoreFunction;
+        this.timeMask = new TimeSlotMask.Accumulator(groupCount());
+        this.shape = new TimetableShape(timeMask, targetCredits);
+        this.best = new PriorityQueue<>(RankedCandidate.RANK_ORDER.reversed());
+    }
+
+    // 힙에 남은 후보를 순위대로.
+    List<RankedCandidate> ranked() {
+        List<RankedCandidate> ranked = new ArrayList<>(best);
+        ranked.sort(RankedCandidate.RANK_ORDER);
+        return ranked;
+    }
+
+    @Override
+    boolean push(int optionIndex) {
+        if (!super.push(optionIndex)) {
+            return false;
+        }
+        // 충돌 그래프로 이미 걸렀으므로 항상 쌓인다.
+        timeMask.tryPush(options[optionIndex].timeMask());
+        return true;
+    }
+
+    @Override
+    void pop() {
+        super.pop();
+        timeMask.pop();
+    }
+
+    private void offer(int credits) {
+        long score = scoreFunction.score(shape.at(credits, classDays[depth]));
+        if (after != null && (score < after.score()
+                || score == after.score() && CombinationSearch.comparePreorder(chosen, depth, after.chosen()) <= 0)) {
+            return;
+        }
+        if (before != null && (score > before.score()
+                || score == before.score() && CombinationSearch.comparePreorder(chosen, depth, before.chosen()) >= 0)) {
+            return;
+        }
+        int order = found++;
+        // 점수가 같으면 먼저 찾은 후보가 이기므로, 나중 후보는 더 낮은 점수일 때만 들어간다.
+        if (best.size() == limit && score >= best.peek().score()) {
+            return;
+        }
+        RankedCandidate candidate = new RankedCandidate(score, order, Arrays.copyOf(chosen, depth));
+        if (minDistance > 0) {
+            int displaced = CombinationDiversity.admitDiverse(best, candidate, minDistance);
+            if (displaced < 0) {
+                nearDuplicates++;
+                return;
+            }
+            nearDuplicates += displaced;
+        }
+        if (best.size() == limit) {
+            best.poll();
+        }
+        best.add(candidate);
+    }
+
+    // 이 노드 아래 어떤 조합도 힙의 가장 나쁜 후보를 밀어낼 수 없거나 before 보다 앞설 수 없으면 true.
+    private boolean cannotImprove(int startGroup, int credits) {
+        boolean full = best.size() == limit;
+        if (!full && before == null) {
+            return false;
+        }
+        int maxAdditionalCredits = Math.min(suffixMaxCredits[startGroup], maxCredits - credits);
+        long lowerBound = scoreFunction.lowerBound(shape.at(credits, classDays[depth]), maxAdditionalCredits);
+        // 깊이 우선 순서로 before 뒤인 노드는 그 아래 조합도 모두 before 뒤라서, 점수가 같아도 앞설 수 없다.
+        return full && lowerBound >= best.peek().score()
+                || before != null && (lowerBound > before.score() || lowerBound == before.score()
+                && CombinationSearch.comparePreorder(chosen, depth, before.chosen()) > 0);
+    }
+
+    @Override
+    boolean isDone() {
+        return stopped();
+    }
+
+    @Override
+    void searchOptional(int startGroup, int credits) {
+        recordRequiredSelection();
+        if (isDone() || !enterNode()) {
+            return;
+        }
+
+        boolean inclusionPending = inclusionPending();
+        if (depth > 0 && credits >= minCredits && credits <= maxCredits && !inclusionPending) {
+            offer(credits);
+        }
+
+        if (startGroup >= groupCount()) {
+            return;
+        }
+        if (credits >= maxCredits || credits + suffixMaxCredits[startGroup] < minCredits) {
+            creditBoundPrunes++;
+            return;
+        }
+        if (inclusionPending && inclusionBlocked(credits, maxCredits)) {
+            conflictPrunes++;
+            return;
+        }
+        if (cannotImprove(startGroup, credits)) {
+            scoreBoundPrunes++;
+            return;
+        }
+
+        for (int group = startGroup; group < groupCount(); group++) {
+            int from = groupStarts[group];
+            int end = groupStarts[group + 1];
+            if (inclusionPending) {
+                // includedOption 을 지나친 그룹이나 그 그룹의 다른 분반으로는 내려가지 않는다.
+                if (from > includedOption) {
+                    break;
+                }
+                if (includedOption < end) {
+                    from = includedOption;
+                    end = includedOption + 1;
+                }
+            }
+            for (int i = nextCandidate(from, end); i >= 0; i = nextCandidate(i + 1, end)) {
+                CombinationSearch.Option option = options[i];
+                if (credits + option.credits() > maxCredits) {
+                    creditBoundPrunes++;
+                    continue;
+                }
+                if (!push(i)) {
+                    continue;
+                }
+                searchOptional(group + 1, credits + option.credits());
+                pop();
+                if (isDone()) {
+                    return;
+                }
+            }
+        }
+    }
+}
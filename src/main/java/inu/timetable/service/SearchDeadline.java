@@ -0,0 +1,55 @@
+package inu.timetable.service;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 요청 하나의 탐색 마감 시각. 탐색은 노드마다가 아니라 {@link #CHECK_INTERVAL} 노드마다 시계를 본다.
+ * 스트리밍처럼 요청이 취소될 수 있으면 같은 주기로 취소 여부도 보고, 취소되면 마감이 지난 것으로 다룬다.
+ */
+final class SearchDeadline {
+
+    static final SearchDeadline NONE = new SearchDeadline(0L, false, null);
+    // 2 의 거듭제곱이어야 한다. 노드 하나가 수십 ns 라서 마감을 넘는 폭은 수십 μs 안쪽이다.
+    static final int CHECK_INTERVAL = 1024;
+
+    private final long deadlineNanos;
+    private final boolean enabled;
+    private final BooleanSupplier cancelled;
+
+    private SearchDeadline(long deadlineNanos, boolean enabled, BooleanSupplier cancelled) {
+        this.deadlineNanos = deadlineNanos;
+        this.enabled = enabled;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @param timeout 0 이하이면 마감이 없다.
+     */
+    static SearchDeadline after(Duration timeout) {
+        return after(timeout, null);
+    }
+
+    /**
+     * @param cancelled null 이 아니면 true 를 돌려줄 때 마감이 지난 것으로 본다.
+     */
+    static SearchDeadline after(Duration timeout, BooleanSupplier cancelled) {
+        boolean enabled = timeout != null && !timeout.isZero() && !timeout.isNegative();
+        if (!enabled && cancelled == null) {
+            return NONE;
+        }
+        return new SearchDeadline(enabled ? System.nanoTime() + timeout.toNanos() : 0L, enabled, cancelled);
+    }
+
+    boolean expired() {
+        return enabled && System.nanoTime() - deadlineNanos >= 0
+                || cancelled != null && cancelled.getAsBoolean();
+    }
+
+    /**
+     * 노드 순번이 확인 주기에 걸릴 때만 시계와 취소 여부를 본다.
+     */
+    boolean expiredAt(long visitedNodes) {
+        return (enabled || cancelled != null) && (visitedNodes & (CHECK_INTERVAL - 1)) == 0 && expired();
+    }
+}
@@ -72,6 +72,13 @@ public class SharedSubjectCacheInvalidationService {
                 });
     }
 
+    /**
+     * 이 노드가 마지막으로 관찰한 범위별 공유 무효화 버전. 아직 관찰하지 않았으면 0.
+     */
+    public long observedVersion(String scope) {
+        return observedVersions.getOrDefault(scope, 0L);
+    }
+
     private void incrementVersion(String scope) {
         if (!publishEnabled) {
             return;
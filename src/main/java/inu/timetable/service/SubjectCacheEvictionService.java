@@ -14,6 +14,7 @@ import org.springframework.transaction.event.TransactionalEventListener;
 public class SubjectCacheEvictionService {
 
     private final CacheManager cacheManager;
+    private final SubjectFilterCatalog subjectFilterCatalog;
 
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
     public void evictAfterSubjectDataChanged(SubjectDataChangedEvent event) {
@@ -22,6 +23,10 @@ public class SubjectCacheEvictionService {
 
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
     public void evictFilterAfterPopularityChanged(SubjectPopularityChangedEvent event) {
+        // 카탈로그 정렬로 답하면 여기서 비워도 이전 정렬이 다시 캐시되므로, 카탈로그가 정렬을 바꾼 뒤 비운다.
+        if (subjectFilterCatalog.evictsFiltersAfterReorder()) {
+            return;
+        }
         clearCache(SubjectCacheNames.SUBJECT_FILTERS);
     }
 
@@ -10,6 +10,8 @@ public final class SubjectCacheNames {
     public static final String SUBJECT_PROFESSOR_SEARCH = "subjectProfessorSearch";
     public static final String SUBJECT_DEPARTMENTS = "subjectDepartments";
     public static final String SUBJECT_GRADES = "subjectGrades";
+    // CacheManager 밖의 노드 로컬 캐시(TimetableCombinationCacheService). ALL 에는 넣지 않고 지표 태그로만 쓴다.
+    public static final String TIMETABLE_COMBINATIONS = "timetableCombinations";
 
     public static final List<String> ALL = List.of(
             ACTIVE_SUBJECT_COUNT,
@@ -0,0 +1,625 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.SubjectFacetCounts;
+import inu.timetable.dto.SubjectFilterCriteria;
+import inu.timetable.dto.TimetableCombinationStatistics;
+import inu.timetable.enums.ClassMethod;
+import inu.timetable.enums.SubjectType;
+import inu.timetable.repository.SubjectRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * 한 학기 활성 과목의 불변 열 지향 사본. 과목 id 오름차순으로 나란한 원시 배열이고, 학과·교수·요일은 사전 번호로 줄여 둔다.
+ * {@link SubjectRepository#findIdsWithFilters} 의 조건과 정렬을 SQL 과 같은 결과가 나오도록 메모리에서 평가한다.
+ *
+ * <p>일정은 과목마다 구간(scheduleOffsets)으로 나눈 평평한 배열이다. 필터는 교시 값을 그대로 비교하므로 시간 칸 마스크로
+ * 반올림하지 않고 시작·끝 교시를 double 로 둔다(null 은 NaN).</p>
+ *
+ * <p>학과·학년·이수 구분·야간·학점·수업 요일·수업 방식은 값마다 과목 위치 비트맵을 둔다. 같음 조건은 비트맵 AND 로 평가하고,
+ * 패싯 수는 조건에 맞는 과목 비트맵과 값 비트맵의 교집합 크기다.</p>
+ */
+final class SubjectCatalogSnapshot {
+
+    static final int NULL_VALUE = Integer.MIN_VALUE;
+    // 색인에 없는 값의 비트맵. 비트맵끼리 조합할 때 인자로만 쓴다.
+    private static final BitSet EMPTY = new BitSet();
+    private static final List<String> TIME_BLOCK_DAYS = List.of("월", "화", "수", "목", "금", "토");
+    // 배열 하나의 헤더, 객체 하나의 헤더(압축 참조 기준).
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int OBJECT_HEADER_BYTES = 16;
+
+    private final long catalogVersion;
+    private final long[] subjectIds;
+    // LIKE 비교용으로 소문자로 둔다.
+    private final String[] subjectNames;
+    private final String[] courseCodes;
+    private final int[] professorCodes;
+    private final String[] professors;
+    private final int[] departmentCodes;
+    private final String[] departments;
+    private final Map<String, Integer> departmentCodeByName;
+    // null 은 NULL_VALUE, 열거형·불리언은 -1.
+    private final int[] grades;
+    private final int[] credits;
+    private final byte[] subjectTypes;
+    private final byte[] nights;
+    private final byte[] classMethods;
+    // 과목 entry 의 일정은 [scheduleOffsets[entry], scheduleOffsets[entry + 1]) 이다.
+    private final int[] scheduleOffsets;
+    private final int[] scheduleDays;
+    private final double[] scheduleStarts;
+    private final double[] scheduleEnds;
+    private final String[] days;
+    private final Map<String, Integer> dayCodeByName;
+    // 요일 사전 번호별 시간 블록 요일 위치(월=0 … 토=5). 그 밖의 요일은 -1.
+    private final int[] timeBlockDayIndexes;
+    // 값별 비트맵 색인. 비트 i 는 과목 위치 i 이고, null 값은 어느 비트맵에도 없다. 만든 뒤에는 고치지 않는다.
+    private final BitSet[] departmentBitmaps;
+    private final SortedMap<Integer, BitSet> gradeBitmaps;
+    private final BitSet[] subjectTypeBitmaps;
+    private final BitSet[] nightBitmaps;
+    private final SortedMap<Integer, BitSet> creditBitmaps;
+    private final BitSet[] classMethodBitmaps;
+    // 그 요일 일정이 하나라도 있는 과목, 일정이 하나도 없는 과목.
+    private final BitSet[] dayBitmaps;
+    private final BitSet unscheduled;
+    private final long estimatedBytes;
+
+    private SubjectCatalogSnapshot(long catalogVersion, Columns columns) {
+        this.catalogVersion = catalogVersion;
+        int size = columns.subjectIds.size();
+        this.subjectIds = new long[size];
+        this.subjectNames = columns.subjectNames.toArray(String[]::new);
+        this.courseCodes = columns.courseCodes.toArray(String[]::new);
+        this.professorCodes = new int[size];
+        this.professors = columns.professors.values();
+        this.departmentCodes = new int[size];
+        this.departments = columns.departments.values();
+        this.departmentCodeByName = Map.copyOf(columns.departments.codes);
+        this.grades = new int[size];
+        this.credits = new int[size];
+        this.subjectTypes = new byte[size];
+        this.nights = new byte[size];
+        this.classMethods = new byte[size];
+        for (int i = 0; i < size; i++) {
+            subjectIds[i] = columns.subjectIds.get(i);
+            professorCodes[i] = columns.professorCodes.get(i);
+            departmentCodes[i] = columns.departmentCodes.get(i);
+            grades[i] = columns.grades.get(i);
+            credits[i] = columns.credits.get(i);
+            subjectTypes[i] = columns.subjectTypes.get(i);
+            nights[i] = columns.nights.get(i);
+            classMethods[i] = columns.classMethods.get(i);
+        }
+        this.scheduleOffsets = columns.scheduleOffsets.stream().mapToInt(Integer::intValue).toArray();
+        this.scheduleDays = columns.scheduleDays.stream().mapToInt(Integer::intValue).toArray();
+        this.scheduleStarts = columns.scheduleStarts.stream().mapToDouble(Double::doubleValue).toArray();
+        this.scheduleEnds = columns.scheduleEnds.stream().mapToDouble(Double::doubleValue).toArray();
+        this.days = columns.days.values();
+        this.dayCodeByName = Map.copyOf(columns.days.codes);
+        this.timeBlockDayIndexes = Arrays.stream(days).mapToInt(TIME_BLOCK_DAYS::indexOf).toArray();
+        this.departmentBitmaps = bitmaps(departments.length, entry -> departmentCodes[entry]);
+        this.gradeBitmaps = bitmapsByValue(grades);
+        this.subjectTypeBitmaps = bitmaps(SubjectType.values().length, entry -> subjectTypes[entry]);
+        this.nightBitmaps = bitmaps(2, entry -> nights[entry]);
+        this.creditBitmaps = bitmapsByValue(credits);
+        this.classMethodBitmaps = bitmaps(ClassMethod.values().length, entry -> classMethods[entry]);
+        this.dayBitmaps = new BitSet[days.length];
+        Arrays.setAll(dayBitmaps, code -> new BitSet(size));
+        this.unscheduled = new BitSet(size);
+        for (int entry = 0; entry < size; entry++) {
+            if (scheduleOffsets[entry] == scheduleOffsets[entry + 1]) {
+                unscheduled.set(entry);
+            }
+            for (int schedule = scheduleOffsets[entry]; schedule < scheduleOffsets[entry + 1]; schedule++) {
+                if (scheduleDays[schedule] >= 0) {
+                    dayBitmaps[scheduleDays[schedule]].set(entry);
+                }
+            }
+        }
+        this.estimatedBytes = estimateBytes();
+    }
+
+    /**
+     * @param rows 과목 id 순으로 정렬된 과목 × 일정 행
+     */
+    static SubjectCatalogSnapshot build(long catalogVersion, List<SubjectRepository.SubjectCatalogRow> rows) {
+        Columns columns = new Columns();
+        for (SubjectRepository.SubjectCatalogRow row : rows) {
+            // 행은 과목 id 순이라 같은 과목의 일정은 이어서 온다.
+            if (columns.subjectIds.isEmpty()
+                    || !columns.subjectIds.get(columns.subjectIds.size() - 1).equals(row.getSubjectId())) {
+                columns.addSubject(row);
+            }
+            if (row.getScheduleId() != null) {
+                columns.addSchedule(row);
+            }
+        }
+        columns.scheduleOffsets.add(columns.scheduleDays.size());
+        return new SubjectCatalogSnapshot(catalogVersion, columns);
+    }
+
+    long catalogVersion() {
+        return catalogVersion;
+    }
+
+    int size() {
+        return subjectIds.length;
+    }
+
+    long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * findIdsWithFilters 의 정렬(담은 사용자 수 내림차순, 과목 id 오름차순)대로 늘어놓은 과목 위치.
+     */
+    int[] popularityOrder(Map<Long, Long> timetableAddCounts) {
+        long[] counts = new long[size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = timetableAddCounts.getOrDefault(subjectIds[i], 0L);
+        }
+        // 과목 위치는 이미 id 오름차순이므로 안정 정렬이면 같은 수끼리 id 순서가 남는다.
+        return IntStream.range(0, counts.length)
+                .boxed()
+                .sorted((left, right) -> Long.compare(counts[right], counts[left]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * order 순서로 조건에 맞는 과목을 세고, 요청한 페이지의 과목 id 만 담는다.
+     */
+    Page<Long> page(int[] order, SubjectFilterCriteria criteria) {
+        Filter filter = new Filter(criteria);
+        long offset = (long) criteria.page() * criteria.size();
+        // 비트맵만으로 끝나는 조건이면 후보 수가 곧 전체 수라 페이지를 채운 뒤 멈춘다.
+        long knownTotal = filter.residual ? -1 : filter.candidates.cardinality();
+        List<Long> content = new ArrayList<>();
+        long total = 0;
+        for (int entry : order) {
+            if (knownTotal >= 0 && content.size() == criteria.size()) {
+                break;
+            }
+            if (!filter.matches(entry)) {
+                continue;
+            }
+            if (total >= offset && content.size() < criteria.size()) {
+                content.add(subjectIds[entry]);
+            }
+            total++;
+        }
+        return new PageImpl<>(
+                content,
+                PageRequest.of(criteria.page(), criteria.size()),
+                knownTotal >= 0 ? knownTotal : total);
+    }
+
+    /**
+     * 조건에 맞는 과목 수와, 그 과목들을 패싯 값별로 나눈 수. 학기 카탈로그에 있는 값은 0 건이어도 담는다.
+     *
+     * <p>요일 패싯은 그 요일 일정이 있는 과목 수다. 시작·끝 교시 조건이 있으면 그 요일 일정 하나가 함께 만족해야 한다.</p>
+     */
+    SubjectFacetCounts facets(SubjectFilterCriteria criteria) {
+        Filter filter = new Filter(criteria);
+        BitSet matched = filter.matchedEntries();
+
+        Map<String, Long> departmentCounts = new LinkedHashMap<>();
+        IntStream.range(0, departments.length)
+                .boxed()
+                .sorted(Comparator.comparing(code -> departments[code]))
+                .forEach(code -> departmentCounts.put(departments[code], countBoth(matched, departmentBitmaps[code])));
+        Map<Integer, Long> gradeCounts = new LinkedHashMap<>();
+        gradeBitmaps.forEach((grade, bitmap) -> gradeCounts.put(grade, countBoth(matched, bitmap)));
+        Map<SubjectType, Long> subjectTypeCounts = new LinkedHashMap<>();
+        for (SubjectType subjectType : SubjectType.values()) {
+            BitSet bitmap = subjectTypeBitmaps[subjectType.ordinal()];
+            if (!bitmap.isEmpty()) {
+                subjectTypeCounts.put(subjectType, countBoth(matched, bitmap));
+            }
+        }
+        Map<Boolean, Long> nightCounts = new LinkedHashMap<>();
+        for (int night = 0; night < nightBitmaps.length; night++) {
+            if (!nightBitmaps[night].isEmpty()) {
+                nightCounts.put(night == 1, countBoth(matched, nightBitmaps[night]));
+            }
+        }
+        Map<Integer, Long> creditCounts = new LinkedHashMap<>();
+        creditBitmaps.forEach((credit, bitmap) -> creditCounts.put(credit, countBoth(matched, bitmap)));
+        Map<String, Long> dayCounts = new LinkedHashMap<>();
+        IntStream.range(0, days.length)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingInt(code -> dayOrder(days[code]))
+                        .thenComparing(code -> days[code]))
+                .forEach(code -> dayCounts.put(days[code], filter.countWithScheduleOn(matched, code)));
+        Map<ClassMethod, Long> classMethodCounts = new LinkedHashMap<>();
+        for (ClassMethod classMethod : ClassMethod.values()) {
+            BitSet bitmap = classMethodBitmaps[classMethod.ordinal()];
+            if (!bitmap.isEmpty()) {
+                classMethodCounts.put(classMethod, countBoth(matched, bitmap));
+            }
+        }
+        return new SubjectFacetCounts(
+                matched.cardinality(),
+                departmentCounts,
+                gradeCounts,
+                subjectTypeCounts,
+                nightCounts,
+                creditCounts,
+                dayCounts,
+                classMethodCounts);
+    }
+
+    // 배열과 사전 문자열, 비트맵의 대략적인 크기.
+    private long estimateBytes() {
+        long bytes = 17L * ARRAY_HEADER_BYTES
+                + (long) size() * (Long.BYTES + 6L * Integer.BYTES + 3L)
+                + (long) scheduleDays.length * (Integer.BYTES + 2L * Double.BYTES);
+        for (String[] strings : List.of(subjectNames, courseCodes, professors, departments, days)) {
+            bytes += (long) strings.length * Integer.BYTES;
+            for (String value : strings) {
+                if (value != null) {
+                    bytes += OBJECT_HEADER_BYTES + ARRAY_HEADER_BYTES + value.length() * 2L;
+                }
+            }
+        }
+        List<BitSet> bitmaps = new ArrayList<>();
+        for (BitSet[] values : List.of(departmentBitmaps, subjectTypeBitmaps, nightBitmaps, classMethodBitmaps, dayBitmaps)) {
+            bitmaps.addAll(Arrays.asList(values));
+        }
+        bitmaps.addAll(gradeBitmaps.values());
+        bitmaps.addAll(creditBitmaps.values());
+        bitmaps.add(unscheduled);
+        for (BitSet bitmap : bitmaps) {
+            bytes += OBJECT_HEADER_BYTES + ARRAY_HEADER_BYTES + bitmap.size() / Byte.SIZE;
+        }
+        return bytes;
+    }
+
+    private static String lower(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    // codeOf 가 돌려준 번호(0 이상 valueCount 미만)별 비트맵. 음수는 null 값이라 넣지 않는다.
+    private BitSet[] bitmaps(int valueCount, IntUnaryOperator codeOf) {
+        BitSet[] bitmaps = new BitSet[valueCount];
+        Arrays.setAll(bitmaps, code -> new BitSet(size()));
+        for (int entry = 0; entry < size(); entry++) {
+            int code = codeOf.applyAsInt(entry);
+            if (code >= 0) {
+                bitmaps[code].set(entry);
+            }
+        }
+        return bitmaps;
+    }
+
+    private static SortedMap<Integer, BitSet> bitmapsByValue(int[] values) {
+        SortedMap<Integer, BitSet> bitmaps = new TreeMap<>();
+        for (int entry = 0; entry < values.length; entry++) {
+            if (values[entry] != NULL_VALUE) {
+                bitmaps.computeIfAbsent(values[entry], ignored -> new BitSet(values.length)).set(entry);
+            }
+        }
+        return bitmaps;
+    }
+
+    private static BitSet bitmap(BitSet[] bitmaps, int code) {
+        return code >= 0 && code < bitmaps.length ? bitmaps[code] : EMPTY;
+    }
+
+    private static long countBoth(BitSet left, BitSet right) {
+        BitSet both = (BitSet) left.clone();
+        both.and(right);
+        return both.cardinality();
+    }
+
+    // 요일 패싯 순서. 월~일 다음에 그 밖의 값을 둔다.
+    private static int dayOrder(String day) {
+        int index = TimetableCombinationStatistics.DAYS.indexOf(day);
+        return index >= 0 ? index : TimetableCombinationStatistics.DAYS.size();
+    }
+
+    /**
+     * 조건 하나를 과목 위치 판정으로 바꾼 것. 값이 같아야 하는 조건은 비트맵 AND 로 후보(candidates)를 좁히고, 문자열 LIKE·
+     * 시작·끝 교시·시간 블록처럼 비트맵으로 답할 수 없는 조건만 후보마다 따로 본다. 교수 사전은 값마다 한 번만 비교해 둔다.
+     */
+    private final class Filter {
+
+        private final BitSet candidates;
+        private final boolean residual;
+        private final LikePattern subjectName;
+        private final LikePattern courseCode;
+        private final boolean[] professorMatches;
+        private final Integer dayOfWeek;
+        private final Double startTime;
+        private final Double endTime;
+        private final boolean timeBlocksActive;
+        private final double[] blockStarts = new double[TIME_BLOCK_DAYS.size()];
+        private final double[] blockEnds = new double[TIME_BLOCK_DAYS.size()];
+
+        Filter(SubjectFilterCriteria criteria) {
+            this.subjectName = LikePattern.of(criteria.subjectName());
+            this.courseCode = LikePattern.of(criteria.courseCode());
+            LikePattern professor = LikePattern.of(criteria.professor());
+            this.professorMatches = professor != null ? new boolean[professors.length] : null;
+            for (int code = 0; professorMatches != null && code < professors.length; code++) {
+                professorMatches[code] = professor.matches(professors[code]);
+            }
+            // 사전에 없는 요일·학과는 음수 번호의 빈 비트맵이라 어떤 과목과도 같지 않다. 요일은 null 요일(-1)과 겹치지 않게 -2 로 둔다.
+            this.dayOfWeek = criteria.dayOfWeek() == null ? null : dayCodeByName.getOrDefault(criteria.dayOfWeek(), -2);
+            this.startTime = criteria.startTime();
+            this.endTime = criteria.endTime();
+            SubjectFilterCriteria.TimeBlockParams params = criteria.toTimeBlockParams();
+            this.timeBlocksActive = params.active();
+            Double[] ranges = {
+                    params.monStart(), params.monEnd(), params.tueStart(), params.tueEnd(),
+                    params.wedStart(), params.wedEnd(), params.thuStart(), params.thuEnd(),
+                    params.friStart(), params.friEnd(), params.satStart(), params.satEnd()};
+            for (int day = 0; day < blockStarts.length; day++) {
+                blockStarts[day] = ranges[day * 2] != null ? ranges[day * 2] : Double.NaN;
+                blockEnds[day] = ranges[day * 2 + 1] != null ? ranges[day * 2 + 1] : Double.NaN;
+            }
+
+            BitSet bits = new BitSet(size());
+            bits.set(0, size());
+            if (criteria.department() != null) {
+                bits.and(bitmap(departmentBitmaps, departmentCodeByName.getOrDefault(criteria.department(), -1)));
+            }
+            if (!criteria.departments().isEmpty()) {
+                BitSet anyDepartment = new BitSet(size());
+                for (String name : criteria.departments()) {
+                    anyDepartment.or(bitmap(departmentBitmaps, departmentCodeByName.getOrDefault(name, -1)));
+                }
+                bits.and(anyDepartment);
+            }
+            if (criteria.subjectType() != null) {
+                bits.and(subjectTypeBitmaps[criteria.subjectType().ordinal()]);
+            }
+            if (criteria.grade() != null) {
+                bits.and(gradeBitmaps.getOrDefault(criteria.grade(), EMPTY));
+            }
+            if (criteria.isNight() != null) {
+                bits.and(nightBitmaps[criteria.isNight() ? 1 : 0]);
+            }
+            if (criteria.credits() != null) {
+                bits.and(creditBitmaps.getOrDefault(criteria.credits(), EMPTY));
+            }
+            // unassignedTime 은 온라인 과목의 모든 일정 행과 일정 없는 과목의 null 행을 통과시키므로 비트맵으로 정확히 답한다.
+            // 요일도 그 요일 행이 있으면 되고, 둘을 함께 걸어도 일정 없는 과목은 요일 비트맵에 없어 온라인 과목만 남는다.
+            if (Boolean.TRUE.equals(criteria.unassignedTime())) {
+                BitSet unassigned = (BitSet) classMethodBitmaps[ClassMethod.ONLINE.ordinal()].clone();
+                unassigned.or(unscheduled);
+                bits.and(unassigned);
+            }
+            if (dayOfWeek != null) {
+                bits.and(bitmap(dayBitmaps, dayOfWeek));
+            }
+            this.candidates = bits;
+            this.residual = subjectName != null || courseCode != null || professorMatches != null
+                    || startTime != null || endTime != null || timeBlocksActive;
+        }
+
+        boolean matches(int entry) {
+            return candidates.get(entry) && (!residual || residualMatches(entry));
+        }
+
+        BitSet matchedEntries() {
+            BitSet matched = (BitSet) candidates.clone();
+            if (residual) {
+                for (int entry = matched.nextSetBit(0); entry >= 0; entry = matched.nextSetBit(entry + 1)) {
+                    if (!residualMatches(entry)) {
+                        matched.clear(entry);
+                    }
+                }
+            }
+            return matched;
+        }
+
+        // matched 중 dayCode 요일 일정이 있는 과목 수. 시작·끝 교시 조건이 있으면 그 요일 행 하나가 함께 만족해야 한다.
+        long countWithScheduleOn(BitSet matched, int dayCode) {
+            if (startTime == null && endTime == null) {
+                return countBoth(matched, dayBitmaps[dayCode]);
+            }
+            long count = 0;
+            for (int entry = matched.nextSetBit(0); entry >= 0; entry = matched.nextSetBit(entry + 1)) {
+                if (anyScheduleRowMatches(entry, dayCode)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private boolean residualMatches(int entry) {
+            if (professorMatches != null
+                    && (professorCodes[entry] < 0 || !professorMatches[professorCodes[entry]])) {
+                return false;
+            }
+            if (subjectName != null && !subjectName.matches(subjectNames[entry])) {
+                return false;
+            }
+            if (courseCode != null && !courseCode.matches(courseCodes[entry])) {
+                return false;
+            }
+            if ((startTime != null || endTime != null) && !anyScheduleRowMatches(entry, dayOfWeek)) {
+                return false;
+            }
+            return !timeBlocksActive || !anyScheduleOutsideTimeBlocks(entry);
+        }
+
+        // LEFT JOIN 한 일정 행 하나가 요일·시작·끝 조건을 함께 만족해야 한다. 시작·끝 조건이 있으면 null 행(일정 없는 과목)은
+        // 통과하지 못하고, unassignedTime 은 후보 비트맵에서 이미 온라인 과목으로 좁혀 행마다 같은 값이다.
+        private boolean anyScheduleRowMatches(int entry, Integer day) {
+            for (int schedule = scheduleOffsets[entry]; schedule < scheduleOffsets[entry + 1]; schedule++) {
+                // NaN 과의 비교는 거짓이므로 시작·끝이 null 인 일정은 SQL 처럼 걸러진다.
+                if ((day == null || scheduleDays[schedule] == day)
+                        && (startTime == null || scheduleStarts[schedule] >= startTime)
+                        && (endTime == null || scheduleEnds[schedule] <= endTime)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean anyScheduleOutsideTimeBlocks(int entry) {
+            for (int schedule = scheduleOffsets[entry]; schedule < scheduleOffsets[entry + 1]; schedule++) {
+                if (outsideTimeBlocks(schedule)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // TIME_BLOCK_CONTAINMENT_CLAUSE 의 NOT (…) 가 참인 일정, 즉 요일별 조건이 모두 확실히 거짓인 일정이다.
+        // 요일·시작·끝이 null 이면 그 비교는 알 수 없음이라 거짓으로 치지 않는다(SQL 3값 논리).
+        private boolean outsideTimeBlocks(int schedule) {
+            int dayCode = scheduleDays[schedule];
+            int blockDay = dayCode >= 0 ? timeBlockDayIndexes[dayCode] : -1;
+            double start = scheduleStarts[schedule];
+            double end = scheduleEnds[schedule];
+            for (int day = 0; day < blockStarts.length; day++) {
+                boolean otherDay = dayCode >= 0 && blockDay != day;
+                boolean definitelyFalse = otherDay
+                        || Double.isNaN(blockStarts[day])
+                        || (!Double.isNaN(start) && start < blockStarts[day])
+                        || (!Double.isNaN(end) && !Double.isNaN(blockEnds[day]) && end > blockEnds[day]);
+                if (!definitelyFalse) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * LOWER(column) LIKE LOWER('%' || keyword || '%'). PostgreSQL 처럼 %·_ 는 와일드카드, \ 는 다음 글자를 그대로 비교한다.
+     */
+    static final class LikePattern {
+
+        private final String literal;
+        private final Pattern pattern;
+
+        private LikePattern(String literal, Pattern pattern) {
+            this.literal = literal;
+            this.pattern = pattern;
+        }
+
+        static LikePattern of(String keyword) {
+            if (keyword == null) {
+                return null;
+            }
+            String lowered = keyword.toLowerCase(Locale.ROOT);
+            StringBuilder literal = new StringBuilder();
+            StringBuilder regex = new StringBuilder();
+            boolean wildcard = false;
+            for (int i = 0; i < lowered.length(); i++) {
+                char c = lowered.charAt(i);
+                if (c == '\\' && i + 1 < lowered.length()) {
+                    c = lowered.charAt(++i);
+                } else if (c == '%' || c == '_') {
+                    wildcard = true;
+                    regex.append(c == '%' ? ".*" : ".");
+                    continue;
+                }
+                literal.append(c);
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+            return wildcard
+                    ? new LikePattern(null, Pattern.compile(regex.toString(), Pattern.DOTALL))
+                    : new LikePattern(literal.toString(), null);
+        }
+
+        /**
+         * @param lowered 소문자로 바꾼 열 값. null 이면 SQL 처럼 맞지 않는다.
+         */
+        boolean matches(String lowered) {
+            if (lowered == null) {
+                return false;
+            }
+            return pattern != null ? pattern.matcher(lowered).find() : lowered.contains(literal);
+        }
+    }
+
+    /**
+     * 사전 번호. null 은 -1 이다.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return codes.computeIfAbsent(value, ignored -> {
+                values.add(value);
+                return values.size() - 1;
+            });
+        }
+
+        String[] values() {
+            return values.toArray(String[]::new);
+        }
+    }
+
+    // 행을 읽는 동안만 쓰는 가변 열.
+    private static final class Columns {
+
+        private final List<Long> subjectIds = new ArrayList<>();
+        private final List<String> subjectNames = new ArrayList<>();
+        private final List<String> courseCodes = new ArrayList<>();
+        private final List<Integer> professorCodes = new ArrayList<>();
+        private final Dictionary professors = new Dictionary();
+        private final List<Integer> departmentCodes = new ArrayList<>();
+        private final Dictionary departments = new Dictionary();
+        private final List<Integer> grades = new ArrayList<>();
+        private final List<Integer> credits = new ArrayList<>();
+        private final List<Byte> subjectTypes = new ArrayList<>();
+        private final List<Byte> nights = new ArrayList<>();
+        private final List<Byte> classMethods = new ArrayList<>();
+        private final List<Integer> scheduleOffsets = new ArrayList<>();
+        private final List<Integer> scheduleDays = new ArrayList<>();
+        private final List<Double> scheduleStarts = new ArrayList<>();
+        private final List<Double> scheduleEnds = new ArrayList<>();
+        private final Dictionary days = new Dictionary();
+
+        void addSubject(SubjectRepository.SubjectCatalogRow row) {
+            subjectIds.add(row.getSubjectId());
+            subjectNames.add(lower(row.getSubjectName()));
+            courseCodes.add(lower(row.getCourseCode()));
+            professorCodes.add(professors.code(lower(row.getProfessor())));
+            departmentCodes.add(departments.code(row.getDepartment()));
+            grades.add(row.getGrade() != null ? row.getGrade() : NULL_VALUE);
+            credits.add(row.getCredits() != null ? row.getCredits() : NULL_VALUE);
+            SubjectType subjectType = row.getSubjectType();
+            subjectTypes.add((byte) (subjectType != null ? subjectType.ordinal() : -1));
+            nights.add((byte) (row.getIsNight() == null ? -1 : row.getIsNight() ? 1 : 0));
+            ClassMethod classMethod = row.getClassMethod();
+            classMethods.add((byte) (classMethod != null ? classMethod.ordinal() : -1));
+            scheduleOffsets.add(scheduleDays.size());
+        }
+
+        void addSchedule(SubjectRepository.SubjectCatalogRow row) {
+            scheduleDays.add(days.code(row.getDayOfWeek()));
+            scheduleStarts.add(row.getStartTime() != null ? row.getStartTime() : Double.NaN);
+            scheduleEnds.add(row.getEndTime() != null ? row.getEndTime() : Double.NaN);
+        }
+    }
+}
@@ -31,6 +31,7 @@ public class SubjectFilterCacheService {
 
     private final SubjectRepository subjectRepository;
     private final UserTimetableRepository userTimetableRepository;
+    private final SubjectFilterCatalog subjectFilterCatalog;
 
     @Cacheable(
             cacheNames = SubjectCacheNames.SUBJECT_FILTERS,
@@ -38,13 +39,48 @@ public class SubjectFilterCacheService {
             condition = "#criteria.size() <= " + MAX_CACHEABLE_PAGE_SIZE,
             sync = true)
     public SubjectPageCacheValue filterSubjects(SubjectFilterCriteria criteria) {
+        Page<Long> subjectIdPage = subjectFilterCatalog.findIds(criteria, () -> findIdsWithSql(criteria));
+
+        List<Long> subjectIds = subjectIdPage.getContent();
+        if (subjectIds.isEmpty()) {
+            return new SubjectPageCacheValue(
+                    List.of(),
+                    criteria.page(),
+                    criteria.size(),
+                    subjectIdPage.getTotalElements());
+        }
+
+        List<Subject> subjects = new ArrayList<>(subjectRepository.findWithSchedulesByIds(subjectIds));
+        Map<Long, Integer> subjectOrder = IntStream.range(0, subjectIds.size())
+                .boxed()
+                .collect(Collectors.toMap(subjectIds::get, index -> index));
+        subjects.sort(Comparator.comparingInt(
+                subject -> subjectOrder.getOrDefault(subject.getId(), Integer.MAX_VALUE)));
+
+        Map<Long, Long> timetableAddCounts = userTimetableRepository.countAddedUsersBySubjectIds(subjectIds).stream()
+                .collect(Collectors.toMap(
+                        UserTimetableRepository.SubjectTimetableAddCount::getSubjectId,
+                        UserTimetableRepository.SubjectTimetableAddCount::getTimetableAddCount));
+
+        List<SubjectDto> subjectDtos = subjects.stream()
+                .map(subject -> SubjectDto.from(subject, timetableAddCounts.getOrDefault(subject.getId(), 0L)))
+                .collect(Collectors.toCollection(ArrayList::new));
+        return new SubjectPageCacheValue(
+                subjectDtos,
+                criteria.page(),
+                criteria.size(),
+                subjectIdPage.getTotalElements());
+    }
+
+    // 카탈로그를 쓰지 않거나 쓸 수 없을 때, 그리고 compare 모드에서 비교 기준으로 쓰는 SQL 경로.
+    Page<Long> findIdsWithSql(SubjectFilterCriteria criteria) {
         Pageable pageable = PageRequest.of(criteria.page(), criteria.size());
         List<String> departments = criteria.departments();
         List<String> departmentListParam = departments.isEmpty()
                 ? List.of("__unused_department__")
                 : departments;
         SubjectFilterCriteria.TimeBlockParams timeBlockParams = criteria.toTimeBlockParams();
-        Page<Long> subjectIdPage = subjectRepository.findIdsWithFilters(
+        return subjectRepository.findIdsWithFilters(
                 criteria.semester(),
                 criteria.subjectName(),
                 criteria.professor(),
@@ -75,35 +111,5 @@ public class SubjectFilterCacheService {
                 timeBlockParams.satStart(),
                 timeBlockParams.satEnd(),
                 pageable);
-
-        List<Long> subjectIds = subjectIdPage.getContent();
-        if (subjectIds.isEmpty()) {
-            return new SubjectPageCacheValue(
-                    List.of(),
-                    criteria.page(),
-                    criteria.size(),
-                    subjectIdPage.getTotalElements());
-        }
-
-        List<Subject> subjects = new ArrayList<>(subjectRepository.findWithSchedulesByIds(subjectIds));
-        Map<Long, Integer> subjectOrder = IntStream.range(0, subjectIds.size())
-                .boxed()
-                .collect(Collectors.toMap(subjectIds::get, index -> index));
-        subjects.sort(Comparator.comparingInt(
-                subject -> subjectOrder.getOrDefault(subject.getId(), Integer.MAX_VALUE)));
-
-        Map<Long, Long> timetableAddCounts = userTimetableRepository.countAddedUsersBySubjectIds(subjectIds).stream()
-                .collect(Collectors.toMap(
-                        UserTimetableRepository.SubjectTimetableAddCount::getSubjectId,
-                        UserTimetableRepository.SubjectTimetableAddCount::getTimetableAddCount));
-
-        List<SubjectDto> subjectDtos = subjects.stream()
-                .map(subject -> SubjectDto.from(subject, timetableAddCounts.getOrDefault(subject.getId(), 0L)))
-                .collect(Collectors.toCollection(ArrayList::new));
-        return new SubjectPageCacheValue(
-                subjectDtos,
-                criteria.page(),
-                criteria.size(),
-                subjectIdPage.getTotalElements());
     }
 }
@@ -0,0 +1,362 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.SubjectFacetCounts;
+import inu.timetable.dto.SubjectFilterCriteria;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.event.SubjectPopularityChangedEvent;
+import inu.timetable.exception.ApiException;
+import inu.timetable.repository.SubjectRepository;
+import inu.timetable.repository.UserTimetableRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * /api/subjects/filter 의 과목 id 페이지를 SQL 없이 구하는 학기별 열 지향 카탈로그({@link SubjectCatalogSnapshot}).
+ * 필터 캐시({@link SubjectFilterCacheService})를 놓쳤을 때 findIdsWithFilters 와 개수 쿼리 대신 쓰고, 과목 엔티티 조회는 그대로 둔다.
+ *
+ * <p>subject.catalog.mode 로 경로를 고른다.</p>
+ * <ul>
+ *     <li>catalog: 카탈로그로 답하고, 카탈로그를 만들지 못하면 SQL 로 돌아간다.</li>
+ *     <li>sql: 기존 SQL 만 쓴다.</li>
+ *     <li>compare: SQL 결과로 답하면서 카탈로그 결과와 비교해 subject.catalog.compare(result=match|mismatch)에 남긴다.</li>
+ * </ul>
+ *
+ * <p>/api/subjects/facets 의 패싯 수({@link #countFacets})는 모드와 관계없이 카탈로그로 센다.</p>
+ *
+ * <p>사본은 과목이 있는 학기(findDistinctSemesters)와 학기 없는 조회에만 만들어 둔다. 학기는 요청 값 그대로라 다른 학기는 SQL 로
+ * 찾고, 패싯 수는 그 요청에서만 쓸 사본을 만들어 센다.</p>
+ *
+ * <p>과목 데이터 버전(이 노드의 변경 이벤트 횟수 + 공유 무효화 버전)은 {@link SubjectMaskIndex} 와 같이 다룬다. 이 노드의 변경은
+ * 커밋 직후 들고 있던 학기를 모두 새 사본으로 바꿔 넣고, 다른 노드의 변경은 첫 조회에서 다시 만든다. 인기순 정렬은 따로
+ * 버전을 두어 subject.catalog.refresh-interval-ms 마다 담은 사용자 수만 다시 읽고, 그 사이 조회는 이전 정렬로 답한다. catalog
+ * 모드에서는 담기·빼기마다 필터 캐시를 비우지 않고({@link SubjectCacheEvictionService}) 정렬을 바꿔 넣은 뒤에 비운다.</p>
+ */
+@Slf4j
+@Service
+public class SubjectFilterCatalog {
+
+    static final String CATALOG_MODE = "catalog";
+    static final String SQL_MODE = "sql";
+    static final String COMPARE_MODE = "compare";
+    // 학기 없는 조회(모든 학기)의 사본 키.
+    private static final String ALL_SEMESTERS = "";
+    private static final Duration FACETS_RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final SubjectRepository subjectRepository;
+    private final UserTimetableRepository userTimetableRepository;
+    private final AppSettingService appSettingService;
+    private final SharedSubjectCacheInvalidationService sharedInvalidationService;
+    private final CacheManager cacheManager;
+    private final String mode;
+    private final Map<String, Catalog> catalogs = new ConcurrentHashMap<>();
+    private volatile KnownSemesters knownSemesters;
+    private final AtomicLong localCatalogVersion = new AtomicLong();
+    private final AtomicLong localPopularityVersion = new AtomicLong();
+    private final Timer rebuildTimer;
+    private final Timer filterTimer;
+    private final Timer facetsTimer;
+    private final Counter catalogQueryCounter;
+    private final Counter sqlQueryCounter;
+    private final Counter matchCounter;
+    private final Counter mismatchCounter;
+
+    public SubjectFilterCatalog(
+            SubjectRepository subjectRepository,
+            UserTimetableRepository userTimetableRepository,
+            AppSettingService appSettingService,
+            SharedSubjectCacheInvalidationService sharedInvalidationService,
+            CacheManager cacheManager,
+            MeterRegistry meterRegistry,
+            @Value("${subject.catalog.mode:catalog}") String mode) {
+        this.subjectRepository = subjectRepository;
+        this.userTimetableRepository = userTimetableRepository;
+        this.appSettingService = appSettingService;
+        this.sharedInvalidationService = sharedInvalidationService;
+        this.cacheManager = cacheManager;
+        if (!List.of(CATALOG_MODE, SQL_MODE, COMPARE_MODE).contains(mode)) {
+            throw new IllegalArgumentException("Unknown subject.catalog.mode: " + mode);
+        }
+        this.mode = mode;
+        Gauge.builder("subject.catalog.memory", this, SubjectFilterCatalog::estimatedBytes)
+                .description("Estimated heap held by subject filter catalog snapshots")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("subject.catalog.rebuild")
+                .description("Subject filter catalog rebuild time")
+                .register(meterRegistry);
+        this.filterTimer = Timer.builder("subject.catalog.filter")
+                .description("Subject filter evaluation time in the catalog")
+                .register(meterRegistry);
+        this.facetsTimer = Timer.builder("subject.catalog.facets")
+                .description("Subject facet count time in the catalog")
+                .register(meterRegistry);
+        this.catalogQueryCounter = Counter.builder("subject.catalog.queries")
+                .tag("source", "catalog")
+                .register(meterRegistry);
+        this.sqlQueryCounter = Counter.builder("subject.catalog.queries")
+                .tag("source", "sql")
+                .register(meterRegistry);
+        this.matchCounter = Counter.builder("subject.catalog.compare")
+                .tag("result", "match")
+                .register(meterRegistry);
+        this.mismatchCounter = Counter.builder("subject.catalog.compare")
+                .tag("result", "mismatch")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAfterApplicationReady() {
+        if (SQL_MODE.equals(mode)) {
+            return;
+        }
+        try {
+            catalog(appSettingService.getCurrentSemester());
+        } catch (RuntimeException exception) {
+            // 카탈로그가 없어도 필터는 SQL 로 동작한다.
+            log.warn("Subject filter catalog could not load the current semester", exception);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void rebuildAfterSubjectDataChanged(SubjectDataChangedEvent event) {
+        localCatalogVersion.incrementAndGet();
+        for (String key : List.copyOf(catalogs.keySet())) {
+            try {
+                if (isKnownSemester(key)) {
+                    rebuild(key, true);
+                } else {
+                    catalogs.remove(key);
+                }
+            } catch (RuntimeException exception) {
+                // 낡은 사본은 버전이 맞지 않아 쓰이지 않고, 다음 조회가 다시 만든다.
+                log.warn("Subject filter catalog rebuild failed: semester={}", key, exception);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void reorderAfterPopularityChanged(SubjectPopularityChangedEvent event) {
+        // 담기·빼기마다 다시 읽지 않고 다음 주기에 모아서 반영한다.
+        localPopularityVersion.incrementAndGet();
+    }
+
+    /**
+     * 인기순 버전이 바뀐 학기의 정렬을 다시 만들고, catalog 모드면 이전 정렬로 캐시된 필터 결과를 비운다.
+     * 실패하면 이전 정렬로 계속 답한다.
+     */
+    @Scheduled(fixedDelayString = "${subject.catalog.refresh-interval-ms:60000}")
+    public void refresh() {
+        boolean reordered = false;
+        for (Map.Entry<String, Catalog> entry : List.copyOf(catalogs.entrySet())) {
+            if (entry.getValue().popularityVersion() == popularityVersion()) {
+                continue;
+            }
+            try {
+                reordered |= rebuild(entry.getKey(), true) != entry.getValue();
+            } catch (RuntimeException exception) {
+                log.warn("Subject filter catalog reorder failed: semester={}", entry.getKey(), exception);
+            }
+        }
+        if (reordered && evictsFiltersAfterReorder()) {
+            Cache filters = cacheManager.getCache(SubjectCacheNames.SUBJECT_FILTERS);
+            if (filters != null) {
+                filters.clear();
+            }
+        }
+    }
+
+    /**
+     * 필터 결과를 카탈로그 정렬로 답하는지. 그렇다면 담기·빼기 뒤 필터 캐시는 {@link #refresh} 가 정렬을 바꾼 뒤 비운다.
+     */
+    public boolean evictsFiltersAfterReorder() {
+        return CATALOG_MODE.equals(mode);
+    }
+
+    /**
+     * 조건에 맞는 과목 id 페이지. 설정한 모드에 따라 카탈로그나 sqlQuery 로 구한다.
+     */
+    public Page<Long> findIds(SubjectFilterCriteria criteria, Supplier<Page<Long>> sqlQuery) {
+        if (SQL_MODE.equals(mode)) {
+            return sql(sqlQuery);
+        }
+        Catalog catalog;
+        try {
+            catalog = catalog(criteria.semester());
+        } catch (RuntimeException exception) {
+            log.warn("Subject filter catalog unavailable: semester={}", criteria.semester(), exception);
+            return sql(sqlQuery);
+        }
+        if (catalog == null) {
+            return sql(sqlQuery);
+        }
+        if (COMPARE_MODE.equals(mode) && catalog.popularityVersion() != popularityVersion()) {
+            // 인기순을 아직 다시 읽지 않아 SQL 과 정렬이 다를 수 있으므로 비교하지 않는다.
+            return sql(sqlQuery);
+        }
+        Page<Long> fromCatalog = page(catalog, criteria);
+        if (CATALOG_MODE.equals(mode)) {
+            catalogQueryCounter.increment();
+            return fromCatalog;
+        }
+        Page<Long> fromSql = sql(sqlQuery);
+        if (fromSql.getContent().equals(fromCatalog.getContent())
+                && fromSql.getTotalElements() == fromCatalog.getTotalElements()) {
+            matchCounter.increment();
+        } else {
+            mismatchCounter.increment();
+            log.warn("Subject filter catalog mismatch: criteria={}, sql={} (total {}), catalog={} (total {})",
+                    criteria, fromSql.getContent(), fromSql.getTotalElements(),
+                    fromCatalog.getContent(), fromCatalog.getTotalElements());
+        }
+        return fromSql;
+    }
+
+    /**
+     * 조건에 맞는 과목 수와 패싯 값별 과목 수. SQL 로는 패싯마다 쿼리가 하나씩 들므로 모드와 관계없이 카탈로그로 센다.
+     */
+    public SubjectFacetCounts countFacets(SubjectFilterCriteria criteria) {
+        SubjectCatalogSnapshot snapshot;
+        try {
+            Catalog catalog = catalog(criteria.semester());
+            // 모르는 학기는 사본을 남기지 않고 이 요청에서만 만든다.
+            snapshot = catalog != null
+                    ? catalog.snapshot()
+                    : SubjectCatalogSnapshot.build(
+                            catalogVersion(), subjectRepository.findCatalogRowsBySemester(criteria.semester()));
+        } catch (RuntimeException exception) {
+            log.warn("Subject filter catalog unavailable for facets: semester={}", criteria.semester(), exception);
+            throw ApiException.serviceUnavailable("과목 분류별 개수를 지금 계산할 수 없습니다. 잠시 후 다시 시도해주세요.",
+                    FACETS_RETRY_AFTER);
+        }
+        long startedAt = System.nanoTime();
+        SubjectFacetCounts facets = snapshot.facets(criteria);
+        facetsTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return facets;
+    }
+
+    private Page<Long> sql(Supplier<Page<Long>> sqlQuery) {
+        sqlQueryCounter.increment();
+        return sqlQuery.get();
+    }
+
+    private Page<Long> page(Catalog catalog, SubjectFilterCriteria criteria) {
+        long startedAt = System.nanoTime();
+        Page<Long> page = catalog.snapshot().page(catalog.order(), criteria);
+        filterTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return page;
+    }
+
+    // 과목 데이터 버전만 맞으면 들고 있는 사본을 쓴다. 인기순 정렬이 낡았으면 refresh 가 바꿔 넣을 때까지 이전 정렬로 답한다.
+    // 모르는 학기면 null 이다.
+    private Catalog catalog(String semester) {
+        String key = semester != null ? semester : ALL_SEMESTERS;
+        Catalog current = catalogs.get(key);
+        if (current != null && current.snapshot().catalogVersion() == catalogVersion()) {
+            return current;
+        }
+        if (!isKnownSemester(key)) {
+            return null;
+        }
+        return rebuild(key, false);
+    }
+
+    private boolean isKnownSemester(String key) {
+        if (ALL_SEMESTERS.equals(key)) {
+            return true;
+        }
+        // 버전은 읽기 전에 잡는다. 읽는 중에 바뀌면 다음 조회에서 다시 읽는다.
+        long version = catalogVersion();
+        KnownSemesters known = knownSemesters;
+        if (known == null || known.catalogVersion() != version) {
+            known = new KnownSemesters(version, Set.copyOf(subjectRepository.findDistinctSemesters()));
+            knownSemesters = known;
+        }
+        return known.semesters().contains(key);
+    }
+
+    // 같은 학기를 두 요청이 동시에 다시 만들지 않도록 직렬화한다. 조회는 사본이 낡았을 때만 들어오고 인기순은 주기 작업이 다시
+    // 만들므로 학기별 잠금까지는 두지 않는다. reorder 가 false 면 사본이 맞을 때 인기순이 낡았어도 그대로 둔다.
+    private synchronized Catalog rebuild(String key, boolean reorder) {
+        // 버전은 읽기 전에 잡는다. 읽는 중에 바뀌면 다음 조회나 주기에 다시 만든다.
+        long version = catalogVersion();
+        long popularityVersion = popularityVersion();
+        Catalog current = catalogs.get(key);
+        if (current != null
+                && current.snapshot().catalogVersion() == version
+                && (!reorder || current.popularityVersion() == popularityVersion)) {
+            return current;
+        }
+        String semester = ALL_SEMESTERS.equals(key) ? null : key;
+        SubjectCatalogSnapshot snapshot = current != null && current.snapshot().catalogVersion() == version
+                ? current.snapshot()
+                : buildSnapshot(semester, version);
+        Map<Long, Long> timetableAddCounts = userTimetableRepository
+                .countAddedUsersByActiveSubjectsInSemester(semester).stream()
+                .collect(Collectors.toMap(
+                        UserTimetableRepository.SubjectTimetableAddCount::getSubjectId,
+                        UserTimetableRepository.SubjectTimetableAddCount::getTimetableAddCount));
+        Catalog built = new Catalog(snapshot, popularityVersion, snapshot.popularityOrder(timetableAddCounts));
+        catalogs.put(key, built);
+        return built;
+    }
+
+    private SubjectCatalogSnapshot buildSnapshot(String semester, long version) {
+        long startedAt = System.nanoTime();
+        SubjectCatalogSnapshot snapshot = SubjectCatalogSnapshot.build(
+                version, subjectRepository.findCatalogRowsBySemester(semester));
+        long elapsed = System.nanoTime() - startedAt;
+        rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Subject filter catalog built: semester={}, subjects={}, estimatedBytes={}, elapsedMs={}",
+                semester, snapshot.size(), snapshot.estimatedBytes(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return snapshot;
+    }
+
+    private long catalogVersion() {
+        return localCatalogVersion.get()
+                + sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_ALL);
+    }
+
+    private long popularityVersion() {
+        return localPopularityVersion.get()
+                + sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_FILTERS);
+    }
+
+    private double estimatedBytes() {
+        return catalogs.values().stream().mapToLong(catalog -> catalog.snapshot().estimatedBytes()).sum();
+    }
+
+    /**
+     * 한 학기 사본과 그때의 인기순 정렬. 둘 중 하나가 바뀌면 통째로 바꿔 넣는다.
+     */
+    private record Catalog(SubjectCatalogSnapshot snapshot, long popularityVersion, int[] order) {
+    }
+
+    /**
+     * 과목 데이터 버전별 과목이 있는 학기.
+     */
+    private record KnownSemesters(long catalogVersion, Set<String> semesters) {
+    }
+}
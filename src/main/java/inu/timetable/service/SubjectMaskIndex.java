@@ -0,0 +1,364 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.TimetableCombinationStatistics;
+import inu.timetable.entity.Schedule;
+import inu.timetable.enums.SubjectType;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.repository.SubjectRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 학기별 과목 시간 마스크 색인. 과목 id 마다 학점·수업 요일 비트·시간 마스크(와 조합 통계용 이수 구분·요일별 일정 수)를 원시 배열로 들고 있어서,
+ * 시간표 조합 탐색과 시간표 추가 충돌 검사가 과목 id 만 DB 에서 읽고 일정 조인과 교시 → 칸 변환을 건너뛴다.
+ *
+ * <p>요청 경로에서는 색인을 만들지 않는다. 현재 학기 색인은 시작할 때 만들고, 다른 학기는 처음 찾은 뒤 다음
+ * timetable.subject-mask-index.refresh-interval-ms 주기에 만든다. 색인마다 만들 때의 과목 데이터 버전(이 노드의 변경 이벤트 횟수
+ * + 공유 무효화 버전)을 남기고, 버전이 달라진 색인은 쓰지 않는다. 이 노드의 변경은 커밋 직후 들고 있던 학기를 모두 다시 만들고,
+ * 다른 노드의 변경은 공유 버전을 관찰한 뒤 다음 주기에 다시 만든다. 다시 만들 때까지는 엔티티 경로로 답한다.</p>
+ *
+ * <p>색인에 없는 과목(다른 학기 과목, 색인 이후 추가된 과목)을 만나면 부르는 쪽이 기존 엔티티 경로로 돌아간다.</p>
+ */
+@Slf4j
+@Service
+public class SubjectMaskIndex {
+
+    private final SubjectRepository subjectRepository;
+    private final AppSettingService appSettingService;
+    private final SharedSubjectCacheInvalidationService sharedInvalidationService;
+    private final boolean enabled;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // 색인이 없거나 낡아서 엔티티 경로로 답한 학기. 다음 주기에 만든다.
+    private final Set<String> requestedSemesters = ConcurrentHashMap.newKeySet();
+    private final AtomicLong localCatalogVersion = new AtomicLong();
+    private final Timer rebuildTimer;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public SubjectMaskIndex(
+            SubjectRepository subjectRepository,
+            AppSettingService appSettingService,
+            SharedSubjectCacheInvalidationService sharedInvalidationService,
+            MeterRegistry meterRegistry,
+            @Value("${timetable.subject-mask-index.enabled:true}") boolean enabled) {
+        this.subjectRepository = subjectRepository;
+        this.appSettingService = appSettingService;
+        this.sharedInvalidationService = sharedInvalidationService;
+        this.enabled = enabled;
+        Gauge.builder("subject.mask.index.memory", this, SubjectMaskIndex::estimatedBytes)
+                .description("Estimated heap held by subject mask index snapshots")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("subject.mask.index.subjects", this, SubjectMaskIndex::subjectCount)
+                .description("Subjects held by subject mask index snapshots")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("subject.mask.index.rebuild")
+                .description("Subject mask index rebuild time")
+                .register(meterRegistry);
+        this.hitCounter = Counter.builder("subject.mask.index.lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("subject.mask.index.lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAfterApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            String currentSemester = appSettingService.getCurrentSemester();
+            if (currentSemester != null) {
+                requestedSemesters.add(currentSemester);
+            }
+        } catch (RuntimeException exception) {
+            // 색인이 없어도 조합·시간표 추가는 엔티티 경로로 동작한다.
+            log.warn("Subject mask index could not load the current semester", exception);
+            return;
+        }
+        refresh();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void rebuildAfterSubjectDataChanged(SubjectDataChangedEvent event) {
+        localCatalogVersion.incrementAndGet();
+        refresh();
+    }
+
+    /**
+     * 들고 있거나 찾은 학기 중 버전이 바뀐 색인을 다시 만든다. 실패한 학기는 다음 주기에 다시 시도한다.
+     */
+    @Scheduled(fixedDelayString = "${timetable.subject-mask-index.refresh-interval-ms:1000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        Set<String> semesters = new HashSet<>(snapshots.keySet());
+        semesters.addAll(requestedSemesters);
+        for (String semester : semesters) {
+            try {
+                rebuildIfStale(semester);
+                requestedSemesters.remove(semester);
+            } catch (RuntimeException exception) {
+                log.warn("Subject mask index rebuild failed: semester={}", semester, exception);
+            }
+        }
+    }
+
+    /**
+     * 학기 색인. 색인이 꺼져 있거나 아직 없거나 과목 데이터가 바뀐 뒤 다시 만들지 않았으면 null 이고, 부르는 쪽은 엔티티 경로를 쓴다.
+     */
+    public Snapshot snapshot(String semester) {
+        if (!enabled || semester == null) {
+            return null;
+        }
+        Snapshot current = snapshots.get(semester);
+        if (current != null && current.catalogVersion == catalogVersion()) {
+            return current;
+        }
+        requestedSemesters.add(semester);
+        return null;
+    }
+
+    /**
+     * ids 가 모두 색인에 있으면 색인 위치를 ids 순서대로, 하나라도 없으면 null 을 돌려준다.
+     */
+    public int[] resolve(Snapshot snapshot, List<Long> subjectIds) {
+        if (snapshot == null) {
+            return null;
+        }
+        int[] entries = new int[subjectIds.size()];
+        for (int i = 0; i < entries.length; i++) {
+            Long subjectId = subjectIds.get(i);
+            entries[i] = subjectId == null ? -1 : snapshot.indexOf(subjectId);
+            if (entries[i] < 0) {
+                missCounter.increment();
+                return null;
+            }
+        }
+        hitCounter.increment();
+        return entries;
+    }
+
+    // 이벤트와 주기 작업이 겹쳐도 한 번씩만 만든다.
+    private synchronized void rebuildIfStale(String semester) {
+        // 버전은 읽기 전에 잡는다. 읽는 중에 과목 데이터가 바뀌면 다음 주기에 다시 만든다.
+        long version = catalogVersion();
+        Snapshot current = snapshots.get(semester);
+        if (current != null && current.catalogVersion == version) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        Snapshot built = Snapshot.build(version, subjectRepository.findMaskRowsBySemester(semester));
+        long elapsed = System.nanoTime() - startedAt;
+        rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        snapshots.put(semester, built);
+        log.info("Subject mask index built: semester={}, subjects={}, estimatedBytes={}, elapsedMs={}",
+                semester, built.size(), built.estimatedBytes, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private long catalogVersion() {
+        return localCatalogVersion.get()
+                + sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_ALL);
+    }
+
+    private double estimatedBytes() {
+        return snapshots.values().stream().mapToLong(snapshot -> snapshot.estimatedBytes).sum();
+    }
+
+    private double subjectCount() {
+        return snapshots.values().stream().mapToInt(Snapshot::size).sum();
+    }
+
+    /**
+     * 한 학기의 불변 색인. 과목 id 오름차순으로 나란한 배열이다.
+     */
+    public static final class Snapshot {
+
+        // 배열 하나의 헤더, 객체 하나의 헤더(압축 참조 기준).
+        private static final int ARRAY_HEADER_BYTES = 16;
+        private static final int OBJECT_HEADER_BYTES = 16;
+
+        private final long catalogVersion;
+        private final long[] subjectIds;
+        private final String[] subjectNames;
+        private final int[] credits;
+        private final int[] classDayBits;
+        private final TimeSlotMask[] timeMasks;
+        // 조합 통계용. 이수 구분 ordinal(없으면 -1)과 요일별 일정 수.
+        private final int[] subjectTypes;
+        private final int[][] daySchedules;
+        private final long estimatedBytes;
+
+        private Snapshot(
+                long catalogVersion,
+                long[] subjectIds,
+                String[] subjectNames,
+                int[] credits,
+                int[] classDayBits,
+                TimeSlotMask[] timeMasks,
+                int[] subjectTypes,
+                int[][] daySchedules) {
+            this.catalogVersion = catalogVersion;
+            this.subjectIds = subjectIds;
+            this.subjectNames = subjectNames;
+            this.credits = credits;
+            this.classDayBits = classDayBits;
+            this.timeMasks = timeMasks;
+            this.subjectTypes = subjectTypes;
+            this.daySchedules = daySchedules;
+            this.estimatedBytes = estimateBytes();
+        }
+
+        static Snapshot build(long catalogVersion, List<SubjectRepository.SubjectMaskRow> rows) {
+            List<Long> ids = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            List<Integer> credits = new ArrayList<>();
+            List<SubjectType> types = new ArrayList<>();
+            List<List<Schedule>> schedules = new ArrayList<>();
+            for (SubjectRepository.SubjectMaskRow row : rows) {
+                // 행은 과목 id 순이라 같은 과목의 일정은 이어서 온다.
+                if (ids.isEmpty() || !ids.get(ids.size() - 1).equals(row.getSubjectId())) {
+                    ids.add(row.getSubjectId());
+                    names.add(row.getSubjectName());
+                    credits.add(row.getCredits() != null ? row.getCredits() : 0);
+                    types.add(row.getSubjectType());
+                    schedules.add(new ArrayList<>());
+                }
+                if (row.getDayOfWeek() != null || row.getStartTime() != null || row.getEndTime() != null) {
+                    schedules.get(schedules.size() - 1).add(Schedule.builder()
+                            .dayOfWeek(row.getDayOfWeek())
+                            .startTime(row.getStartTime())
+                            .endTime(row.getEndTime())
+                            .build());
+                }
+            }
+
+            int size = ids.size();
+            long[] subjectIds = new long[size];
+            String[] subjectNames = new String[size];
+            int[] subjectCredits = new int[size];
+            int[] classDayBits = new int[size];
+            TimeSlotMask[] timeMasks = new TimeSlotMask[size];
+            int[] subjectTypes = new int[size];
+            int[][] daySchedules = new int[size][];
+            for (int i = 0; i < size; i++) {
+                subjectIds[i] = ids.get(i);
+                // 같은 과목명의 분반이 문자열 하나를 함께 쓰도록 한다.
+                subjectNames[i] = names.get(i) != null ? names.get(i).intern() : null;
+                subjectCredits[i] = credits.get(i);
+                // 조합 탐색이 엔티티에서 만드는 값과 같은 규칙으로 만든다.
+                List<String> scheduleDays = schedules.get(i).stream()
+                        .map(Schedule::getDayOfWeek)
+                        .toList();
+                classDayBits[i] = CombinationSearch.dayBits(scheduleDays);
+                timeMasks[i] = TimeSlotMask.of(schedules.get(i));
+                subjectTypes[i] = types.get(i) != null ? types.get(i).ordinal() : -1;
+                daySchedules[i] = CombinationSearch.daySchedules(scheduleDays);
+            }
+            return new Snapshot(catalogVersion, subjectIds, subjectNames, subjectCredits, classDayBits, timeMasks,
+                    subjectTypes, daySchedules);
+        }
+
+        public int size() {
+            return subjectIds.length;
+        }
+
+        /**
+         * 과목 id 의 색인 위치. 없으면 음수.
+         */
+        public int indexOf(long subjectId) {
+            int index = Arrays.binarySearch(subjectIds, subjectId);
+            return index >= 0 ? index : -1;
+        }
+
+        public long subjectId(int entry) {
+            return subjectIds[entry];
+        }
+
+        public String subjectName(int entry) {
+            return subjectNames[entry];
+        }
+
+        public int credits(int entry) {
+            return credits[entry];
+        }
+
+        public int classDayBits(int entry) {
+            return classDayBits[entry];
+        }
+
+        public TimeSlotMask timeMask(int entry) {
+            return timeMasks[entry];
+        }
+
+        public int subjectType(int entry) {
+            return subjectTypes[entry];
+        }
+
+        // 일정이 없는 과목끼리는 빈 배열 하나를 함께 쓰므로 돌려받은 배열은 고치지 않는다.
+        public int[] daySchedules(int entry) {
+            return daySchedules[entry];
+        }
+
+        /**
+         * entry 의 시간이 entries 중 하나와라도 겹치는지.
+         */
+        public boolean conflictsWithAny(int entry, int[] entries) {
+            TimeSlotMask mask = timeMasks[entry];
+            for (int other : entries) {
+                if (mask.intersects(timeMasks[other])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // 배열과 마스크, 서로 다른 과목명 문자열·요일별 일정 수 배열의 대략적인 크기. 빈 마스크는 공유 상수라 세지 않는다.
+        private long estimateBytes() {
+            int size = size();
+            long bytes = 7L * ARRAY_HEADER_BYTES
+                    + (long) size * (Long.BYTES + Integer.BYTES + Integer.BYTES + 4L * Integer.BYTES);
+            Set<int[]> distinctDaySchedules = Collections.newSetFromMap(new IdentityHashMap<>());
+            distinctDaySchedules.addAll(Arrays.asList(daySchedules));
+            bytes += distinctDaySchedules.size()
+                    * (ARRAY_HEADER_BYTES + (long) TimetableCombinationStatistics.DAYS.size() * Integer.BYTES);
+            for (TimeSlotMask mask : timeMasks) {
+                if (mask != TimeSlotMask.EMPTY) {
+                    bytes += OBJECT_HEADER_BYTES + ARRAY_HEADER_BYTES + (long) TimeSlotMask.WORD_COUNT * Long.BYTES;
+                }
+            }
+            Set<String> distinctNames = new HashSet<>(Arrays.asList(subjectNames));
+            for (String name : distinctNames) {
+                if (name != null) {
+                    bytes += OBJECT_HEADER_BYTES + ARRAY_HEADER_BYTES + name.length() * 2L;
+                }
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package inu.timetable.service;
+
+import inu.timetable.repository.SubjectRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 활성 과목의 과목명·교수명·과목 코드 부분 일치 검색용 불변 n-gram 역색인. 과목 id 오름차순 위치마다 원문을 두고, 글자 2개·3개
+ * 조각(bigram·trigram)마다 그 조각이 들어 있는 과목 위치를 오름차순 int 배열(posting list)로 둔다.
+ *
+ * <p>검색어가 두 글자면 bigram 목록이 곧 후보이고, 세 글자 이상이면 검색어의 trigram 목록을 모두 교집합한다. 조각이 모두 들어
+ * 있어도 이어져 있지 않을 수 있으므로 후보는 원문으로 다시 확인한다. 비교는 {@code findBySubjectNameContaining} 처럼 대소문자를
+ * 가리고 %·_ 도 글자 그대로 본다.</p>
+ *
+ * <p>과목명과 교수명은 한글 음절을 초성으로 바꾼 사본(데이터 → ㄷㅇㅌ)도 색인한다. 검색어에 초성 자모가 있으면 검색어도 초성으로
+ * 바꿔 이 사본에서 후보를 찾고, 초성 자모는 그 초성으로 시작하는 음절과, 나머지 글자는 같은 글자와 맞춰 본다.</p>
+ */
+final class SubjectNgramIndex {
+
+    static final int NULL_VALUE = Integer.MIN_VALUE;
+    private static final char FIRST_SYLLABLE = '가';
+    private static final char LAST_SYLLABLE = '힣';
+    // 초성 하나에 딸린 음절 수(중성 21 × 종성 28).
+    private static final int SYLLABLES_PER_INITIAL = 21 * 28;
+    private static final String INITIALS = "ㄱㄲㄴㄷㄸㄹㅁㅂㅃㅅㅆㅇㅈㅉㅊㅋㅌㅍㅎ";
+    private static final int[] NO_POSTINGS = new int[0];
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int OBJECT_HEADER_BYTES = 16;
+
+    private final long catalogVersion;
+    private final long[] subjectIds;
+    private final int[] grades;
+    private final Map<Field, FieldIndex> fields;
+    private final long estimatedBytes;
+
+    /**
+     * 검색 대상 열. 초성 검색은 한글이 들어가는 과목명과 교수명만 한다.
+     */
+    enum Field {
+        SUBJECT_NAME(true),
+        PROFESSOR(true),
+        COURSE_CODE(false);
+
+        private final boolean initials;
+
+        Field(boolean initials) {
+            this.initials = initials;
+        }
+    }
+
+    private SubjectNgramIndex(long catalogVersion, List<SubjectRepository.SubjectSearchRow> rows) {
+        this.catalogVersion = catalogVersion;
+        int size = rows.size();
+        this.subjectIds = new long[size];
+        this.grades = new int[size];
+        Map<Field, String[]> texts = new HashMap<>();
+        for (Field field : Field.values()) {
+            texts.put(field, new String[size]);
+        }
+        for (int entry = 0; entry < size; entry++) {
+            SubjectRepository.SubjectSearchRow row = rows.get(entry);
+            subjectIds[entry] = row.getSubjectId();
+            grades[entry] = row.getGrade() != null ? row.getGrade() : NULL_VALUE;
+            texts.get(Field.SUBJECT_NAME)[entry] = row.getSubjectName();
+            texts.get(Field.PROFESSOR)[entry] = row.getProfessor();
+            texts.get(Field.COURSE_CODE)[entry] = row.getCourseCode();
+        }
+        Map<Field, FieldIndex> indexes = new HashMap<>();
+        long bytes = 2L * ARRAY_HEADER_BYTES + (long) size * (Long.BYTES + Integer.BYTES);
+        for (Field field : Field.values()) {
+            FieldIndex index = FieldIndex.build(texts.get(field), field.initials);
+            indexes.put(field, index);
+            bytes += index.estimateBytes();
+        }
+        this.fields = Map.copyOf(indexes);
+        this.estimatedBytes = bytes;
+    }
+
+    /**
+     * rows 는 과목 id 오름차순이어야 한다({@link SubjectRepository#findSearchRows}).
+     */
+    static SubjectNgramIndex build(long catalogVersion, List<SubjectRepository.SubjectSearchRow> rows) {
+        return new SubjectNgramIndex(catalogVersion, rows);
+    }
+
+    long catalogVersion() {
+        return catalogVersion;
+    }
+
+    int size() {
+        return subjectIds.length;
+    }
+
+    long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * fields 중 하나라도 keyword 를 담은 과목 id(오름차순). grade 가 있으면 그 학년 과목만 남긴다.
+     */
+    List<Long> search(String keyword, Integer grade, Field... fields) {
+        BitSet matched = new BitSet(subjectIds.length);
+        for (Field field : fields) {
+            FieldIndex index = this.fields.get(field);
+            boolean initialQuery = field.initials && containsInitial(keyword);
+            int[] candidates = initialQuery
+                    ? index.initialPostings.candidates(toInitials(keyword), subjectIds.length)
+                    : index.postings.candidates(keyword, subjectIds.length);
+            for (int entry : candidates) {
+                if (matched.get(entry) || grade != null && grades[entry] != grade) {
+                    continue;
+                }
+                String text = index.texts[entry];
+                if (initialQuery ? matchesWithInitials(text, keyword) : text != null && text.contains(keyword)) {
+                    matched.set(entry);
+                }
+            }
+        }
+        List<Long> subjectIdList = new ArrayList<>(matched.cardinality());
+        for (int entry = matched.nextSetBit(0); entry >= 0; entry = matched.nextSetBit(entry + 1)) {
+            subjectIdList.add(subjectIds[entry]);
+        }
+        return subjectIdList;
+    }
+
+    static boolean containsInitial(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (INITIALS.indexOf(value.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 한글 음절만 초성 자모로 바꾼다. 글자 수는 그대로라 원문과 위치가 맞는다.
+    static String toInitials(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= FIRST_SYLLABLE && chars[i] <= LAST_SYLLABLE) {
+                chars[i] = INITIALS.charAt((chars[i] - FIRST_SYLLABLE) / SYLLABLES_PER_INITIAL);
+            }
+        }
+        return new String(chars);
+    }
+
+    // 초성 자모는 그 초성의 음절이나 같은 자모와, 나머지 글자는 같은 글자와 맞춰 본다.
+    static boolean matchesWithInitials(String text, String keyword) {
+        if (text == null) {
+            return false;
+        }
+        for (int start = 0; start + keyword.length() <= text.length(); start++) {
+            if (matchesAt(text, start, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAt(String text, int start, String keyword) {
+        for (int offset = 0; offset < keyword.length(); offset++) {
+            if (!matchesChar(text.charAt(start + offset), keyword.charAt(offset))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 초성 자모는 그 초성의 음절이나 같은 자모와, 나머지 글자는 같은 글자와 맞는다.
+    static boolean matchesChar(char textChar, char keywordChar) {
+        if (textChar == keywordChar) {
+            return true;
+        }
+        return INITIALS.indexOf(keywordChar) >= 0
+                && textChar >= FIRST_SYLLABLE && textChar <= LAST_SYLLABLE
+                && INITIALS.charAt((textChar - FIRST_SYLLABLE) / SYLLABLES_PER_INITIAL) == keywordChar;
+    }
+
+    /**
+     * 한 열의 원문과 그 n-gram 색인, 초성 사본 색인(초성 검색을 하지 않는 열은 null).
+     */
+    private record FieldIndex(String[] texts, Postings postings, Postings initialPostings) {
+
+        static FieldIndex build(String[] texts, boolean initials) {
+            Postings postings = Postings.build(texts);
+            Postings initialPostings = null;
+            if (initials) {
+                String[] initialTexts = Arrays.stream(texts)
+                        .map(text -> text != null ? toInitials(text) : null)
+                        .toArray(String[]::new);
+                initialPostings = Postings.build(initialTexts);
+            }
+            return new FieldIndex(texts, postings, initialPostings);
+        }
+
+        long estimateBytes() {
+            long bytes = ARRAY_HEADER_BYTES + (long) texts.length * Integer.BYTES;
+            for (String text : texts) {
+                if (text != null) {
+                    bytes += OBJECT_HEADER_BYTES + ARRAY_HEADER_BYTES + text.length() * 2L;
+                }
+            }
+            return bytes + postings.estimateBytes() + (initialPostings != null ? initialPostings.estimateBytes() : 0);
+        }
+    }
+
+    /**
+     * n-gram → 그 조각이 들어 있는 과목 위치(오름차순, 중복 없음).
+     */
+    private record Postings(Map<String, int[]> lists) {
+
+        static Postings build(String[] texts) {
+            Map<String, PostingBuilder> builders = new HashMap<>();
+            for (int entry = 0; entry < texts.length; entry++) {
+                String text = texts[entry];
+                if (text == null) {
+                    continue;
+                }
+                for (int length = 2; length <= 3; length++) {
+                    for (int start = 0; start + length <= text.length(); start++) {
+                        builders.computeIfAbsent(text.substring(start, start + length), ignored -> new PostingBuilder())
+                                .add(entry);
+                    }
+                }
+            }
+            Map<String, int[]> lists = new HashMap<>(builders.size() * 2);
+            builders.forEach((gram, builder) -> lists.put(gram, builder.toArray()));
+            return new Postings(lists);
+        }
+
+        /**
+         * keyword 를 담고 있을 수 있는 과목 위치. 두 글자보다 짧으면 조각으로 좁힐 수 없어 모든 위치를 돌려준다.
+         */
+        int[] candidates(String keyword, int size) {
+            if (keyword.length() < 2) {
+                int[] all = new int[size];
+                Arrays.setAll(all, entry -> entry);
+                return all;
+            }
+            if (keyword.length() == 2) {
+                return lists.getOrDefault(keyword, NO_POSTINGS);
+            }
+            List<int[]> gramLists = new ArrayList<>();
+            for (int start = 0; start + 3 <= keyword.length(); start++) {
+                int[] list = lists.get(keyword.substring(start, start + 3));
+                if (list == null) {
+                    return NO_POSTINGS;
+                }
+                gramLists.add(list);
+            }
+            // 짧은 목록부터 교집합해 비교 횟수를 줄인다.
+            gramLists.sort(Comparator.comparingInt(list -> list.length));
+            int[] result = gramLists.get(0);
+            for (int i = 1; i < gramLists.size() && result.length > 0; i++) {
+                result = intersect(result, gramLists.get(i));
+            }
+            return result;
+        }
+
+        long estimateBytes() {
+            long bytes = 0;
+            for (Map.Entry<String, int[]> entry : lists.entrySet()) {
+                bytes += 2L * OBJECT_HEADER_BYTES + 2L * ARRAY_HEADER_BYTES
+                        + entry.getKey().length() * 2L + (long) entry.getValue().length * Integer.BYTES;
+            }
+            return bytes;
+        }
+
+        // 두 오름차순 목록의 교집합. left 가 짧다.
+        private static int[] intersect(int[] left, int[] right) {
+            int[] result = new int[left.length];
+            int count = 0;
+            int j = 0;
+            for (int value : left) {
+                while (j < right.length && right[j] < value) {
+                    j++;
+                }
+                if (j == right.length) {
+                    break;
+                }
+                if (right[j] == value) {
+                    result[count++] = value;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+    private static final class PostingBuilder {
+
+        private int[] entries = new int[4];
+        private int count;
+
+        // 위치는 오름차순으로 들어오므로 같은 과목 안에서 되풀이된 조각만 걸러내면 된다.
+        void add(int entry) {
+            if (count > 0 && entries[count - 1] == entry) {
+                return;
+            }
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, count * 2);
+            }
+            entries[count++] = entry;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(entries, count);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package inu.timetable.service;
 
 import inu.timetable.dto.SubjectDto;
+import inu.timetable.dto.SubjectFacetCounts;
 import inu.timetable.dto.SubjectFilterCriteria;
+import inu.timetable.dto.SubjectSuggestion;
 import inu.timetable.repository.SubjectRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.Cacheable;
@@ -19,6 +21,8 @@ public class SubjectQueryService {
     private final SubjectRepository subjectRepository;
     private final SubjectFilterCacheService subjectFilterCacheService;
     private final SubjectSearchCacheService subjectSearchCacheService;
+    private final SubjectFilterCatalog subjectFilterCatalog;
+    private final SubjectSuggestionIndex subjectSuggestionIndex;
 
     @Cacheable(cacheNames = SubjectCacheNames.ACTIVE_SUBJECT_COUNT, key = "'active'", sync = true)
     public long countActiveSubjects() {
@@ -57,4 +61,12 @@ public class SubjectQueryService {
     public Page<SubjectDto> filterSubjects(SubjectFilterCriteria criteria) {
         return subjectFilterCacheService.filterSubjects(criteria).toPage();
     }
+
+    public SubjectFacetCounts countFacets(SubjectFilterCriteria criteria) {
+        return subjectFilterCatalog.countFacets(criteria);
+    }
+
+    public List<SubjectSuggestion> suggest(String prefix, int limit) {
+        return subjectSuggestionIndex.suggest(prefix, limit);
+    }
 }
@@ -10,7 +10,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,6 +21,8 @@ import java.util.stream.Collectors;
 public class SubjectSearchCacheService {
 
     private final SubjectRepository subjectRepository;
+    private final SubjectSearchIndex subjectSearchIndex;
+    private final SubjectSearchPrefixCache subjectSearchPrefixCache;
 
     @Cacheable(
             cacheNames = SubjectCacheNames.SUBJECT_NAME_SEARCH,
@@ -26,12 +30,28 @@ public class SubjectSearchCacheService {
             sync = true)
     public List<SubjectDto> searchBySubjectName(String keyword, Integer grade) {
         SubjectSearchCriteria criteria = SubjectSearchCriteria.of(keyword, grade);
-        List<Subject> subjects = grade == null
+        // 더 짧은 검색어의 캐시 결과가 있으면 걸러서 답하고, 그 결과가 이 검색어로 다시 캐시된다.
+        List<SubjectDto> derived = subjectSearchPrefixCache.derive(
+                SubjectCacheNames.SUBJECT_NAME_SEARCH, criteria, subjectSearchIndex::matchesSubjectName);
+        if (derived != null) {
+            return derived;
+        }
+        List<Long> subjectIds = subjectSearchIndex.findIdsBySubjectName(criteria);
+        if (subjectIds != null) {
+            return toDtos(findWithSchedules(subjectIds));
+        }
+        List<Subject> subjects = new ArrayList<>(grade == null
                 ? subjectRepository.findBySubjectNameContainingAndActiveTrue(criteria.keyword())
-                : subjectRepository.findBySubjectNameContainingAndGradeAndActiveTrue(criteria.keyword(), criteria.grade());
-        return subjects.stream()
-                .map(SubjectDto::from)
-                .collect(Collectors.toCollection(ArrayList::new));
+                : subjectRepository.findBySubjectNameContainingAndGradeAndActiveTrue(criteria.keyword(), criteria.grade()));
+        // 과목 코드로 찾은 과목은 색인 경로와 같게 과목명으로 찾은 과목과 합친다.
+        List<Subject> byCourseCode = grade == null
+                ? subjectRepository.findByCourseCodeContainingAndActiveTrue(criteria.keyword())
+                : subjectRepository.findByCourseCodeContainingAndGradeAndActiveTrue(criteria.keyword(), criteria.grade());
+        Set<Long> found = subjects.stream().map(Subject::getId).collect(Collectors.toSet());
+        byCourseCode.stream()
+                .filter(subject -> found.add(subject.getId()))
+                .forEach(subjects::add);
+        return toDtos(subjects);
     }
 
     @Cacheable(
@@ -40,9 +60,32 @@ public class SubjectSearchCacheService {
             sync = true)
     public List<SubjectDto> searchByProfessor(String keyword, Integer grade) {
         SubjectSearchCriteria criteria = SubjectSearchCriteria.of(keyword, grade);
+        List<SubjectDto> derived = subjectSearchPrefixCache.derive(
+                SubjectCacheNames.SUBJECT_PROFESSOR_SEARCH, criteria, subjectSearchIndex::matchesProfessor);
+        if (derived != null) {
+            return derived;
+        }
+        List<Long> subjectIds = subjectSearchIndex.findIdsByProfessor(criteria);
+        if (subjectIds != null) {
+            return toDtos(findWithSchedules(subjectIds));
+        }
         List<Subject> subjects = grade == null
                 ? subjectRepository.findByProfessorContainingAndActiveTrue(criteria.keyword())
                 : subjectRepository.findByProfessorContainingAndGradeAndActiveTrue(criteria.keyword(), criteria.grade());
+        return toDtos(subjects);
+    }
+
+    // 색인이 찾은 id 순서(과목 id 오름차순)로 과목과 일정을 읽는다.
+    private List<Subject> findWithSchedules(List<Long> subjectIds) {
+        if (subjectIds.isEmpty()) {
+            return List.of();
+        }
+        List<Subject> subjects = new ArrayList<>(subjectRepository.findWithSchedulesByIds(subjectIds));
+        subjects.sort(Comparator.comparing(Subject::getId));
+        return subjects;
+    }
+
+    private static List<SubjectDto> toDtos(List<Subject> subjects) {
         return subjects.stream()
                 .map(SubjectDto::from)
                 .collect(Collectors.toCollection(ArrayList::new));
@@ -0,0 +1,202 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.SubjectDto;
+import inu.timetable.dto.SubjectSearchCriteria;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.repository.SubjectRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * /api/subjects/search 와 /search/professor 의 과목 id 를 LIKE '%x%' 없이 찾는 노드 로컬 n-gram 색인({@link SubjectNgramIndex}).
+ * 검색 캐시({@link SubjectSearchCacheService})를 놓쳤을 때 쓰고, 찾은 과목 엔티티는 id 로 읽는다.
+ *
+ * <p>subject.search.mode 로 경로를 고른다. index 는 색인으로 답하고 색인을 만들지 못하면 SQL 로 돌아가며, sql 은 기존
+ * 부분 일치 쿼리만 쓴다. 과목 데이터 버전은 {@link SubjectFilterCatalog} 와 같이 다룬다.</p>
+ *
+ * <ul>
+ *     <li>subject.search.index.memory: 색인의 대략적인 힙 크기</li>
+ *     <li>subject.search.index.rebuild: 색인을 만드는 시간</li>
+ *     <li>subject.search.index.query: 색인 검색 시간</li>
+ *     <li>subject.search.queries: 검색 경로별 수(source=index|sql)</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class SubjectSearchIndex {
+
+    static final String INDEX_MODE = "index";
+    static final String SQL_MODE = "sql";
+
+    private final SubjectRepository subjectRepository;
+    private final SharedSubjectCacheInvalidationService sharedInvalidationService;
+    private final String mode;
+    private final AtomicLong localCatalogVersion = new AtomicLong();
+    private volatile SubjectNgramIndex index;
+    private final Timer rebuildTimer;
+    private final Timer queryTimer;
+    private final Counter indexQueryCounter;
+    private final Counter sqlQueryCounter;
+
+    public SubjectSearchIndex(
+            SubjectRepository subjectRepository,
+            SharedSubjectCacheInvalidationService sharedInvalidationService,
+            MeterRegistry meterRegistry,
+            @Value("${subject.search.mode:index}") String mode) {
+        this.subjectRepository = subjectRepository;
+        this.sharedInvalidationService = sharedInvalidationService;
+        if (!List.of(INDEX_MODE, SQL_MODE).contains(mode)) {
+            throw new IllegalArgumentException("Unknown subject.search.mode: " + mode);
+        }
+        this.mode = mode;
+        Gauge.builder("subject.search.index.memory", this, SubjectSearchIndex::estimatedBytes)
+                .description("Estimated heap held by the subject search n-gram index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("subject.search.index.rebuild")
+                .description("Subject search n-gram index rebuild time")
+                .register(meterRegistry);
+        this.queryTimer = Timer.builder("subject.search.index.query")
+                .description("Subject search n-gram index lookup time")
+                .register(meterRegistry);
+        this.indexQueryCounter = Counter.builder("subject.search.queries")
+                .tag("source", "index")
+                .register(meterRegistry);
+        this.sqlQueryCounter = Counter.builder("subject.search.queries")
+                .tag("source", "sql")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAfterApplicationReady() {
+        if (SQL_MODE.equals(mode)) {
+            return;
+        }
+        try {
+            current();
+        } catch (RuntimeException exception) {
+            // 색인이 없어도 검색은 SQL 로 동작한다.
+            log.warn("Subject search index could not be built", exception);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void rebuildAfterSubjectDataChanged(SubjectDataChangedEvent event) {
+        localCatalogVersion.incrementAndGet();
+        if (index == null) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException exception) {
+            // 낡은 색인은 버전이 맞지 않아 쓰이지 않고, 다음 검색이 다시 만든다.
+            log.warn("Subject search index rebuild failed", exception);
+        }
+    }
+
+    /**
+     * 과목명이나 과목 코드에 검색어가 들어 있는 과목 id(오름차순). null 이면 색인을 쓰지 않으므로 SQL 로 찾는다.
+     */
+    public List<Long> findIdsBySubjectName(SubjectSearchCriteria criteria) {
+        return findIds(criteria, SubjectNgramIndex.Field.SUBJECT_NAME, SubjectNgramIndex.Field.COURSE_CODE);
+    }
+
+    /**
+     * 교수명에 검색어가 들어 있는 과목 id(오름차순). null 이면 색인을 쓰지 않으므로 SQL 로 찾는다.
+     */
+    public List<Long> findIdsByProfessor(SubjectSearchCriteria criteria) {
+        return findIds(criteria, SubjectNgramIndex.Field.PROFESSOR);
+    }
+
+    /**
+     * {@link #findIdsBySubjectName} 과 같은 기준으로 과목 하나가 keyword 에 맞는지. sql 모드는 초성을 풀지 않는다.
+     */
+    public boolean matchesSubjectName(SubjectDto subject, String keyword) {
+        return matches(subject.getSubjectName(), keyword) || matches(subject.getCourseCode(), keyword);
+    }
+
+    /**
+     * {@link #findIdsByProfessor} 와 같은 기준으로 과목 하나가 keyword 에 맞는지.
+     */
+    public boolean matchesProfessor(SubjectDto subject, String keyword) {
+        return matches(subject.getProfessor(), keyword);
+    }
+
+    private boolean matches(String text, String keyword) {
+        if (text == null) {
+            return false;
+        }
+        return INDEX_MODE.equals(mode) && SubjectNgramIndex.containsInitial(keyword)
+                ? SubjectNgramIndex.matchesWithInitials(text, keyword)
+                : text.contains(keyword);
+    }
+
+    private List<Long> findIds(SubjectSearchCriteria criteria, SubjectNgramIndex.Field... fields) {
+        if (SQL_MODE.equals(mode) || criteria.keyword() == null) {
+            sqlQueryCounter.increment();
+            return null;
+        }
+        SubjectNgramIndex current;
+        try {
+            current = current();
+        } catch (RuntimeException exception) {
+            log.warn("Subject search index unavailable", exception);
+            sqlQueryCounter.increment();
+            return null;
+        }
+        long startedAt = System.nanoTime();
+        List<Long> subjectIds = current.search(criteria.keyword(), criteria.grade(), fields);
+        queryTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        indexQueryCounter.increment();
+        return subjectIds;
+    }
+
+    private SubjectNgramIndex current() {
+        SubjectNgramIndex current = index;
+        if (current != null && current.catalogVersion() == catalogVersion()) {
+            return current;
+        }
+        return rebuild();
+    }
+
+    // 두 요청이 동시에 다시 만들지 않도록 직렬화한다.
+    private synchronized SubjectNgramIndex rebuild() {
+        // 버전은 읽기 전에 잡는다. 읽는 중에 바뀌면 다음 검색에서 다시 만든다.
+        long version = catalogVersion();
+        SubjectNgramIndex current = index;
+        if (current != null && current.catalogVersion() == version) {
+            return current;
+        }
+        long startedAt = System.nanoTime();
+        SubjectNgramIndex built = SubjectNgramIndex.build(version, subjectRepository.findSearchRows());
+        long elapsed = System.nanoTime() - startedAt;
+        rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Subject search index built: subjects={}, estimatedBytes={}, elapsedMs={}",
+                built.size(), built.estimatedBytes(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        index = built;
+        return built;
+    }
+
+    private long catalogVersion() {
+        return localCatalogVersion.get()
+                + sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_ALL);
+    }
+
+    private double estimatedBytes() {
+        SubjectNgramIndex current = index;
+        return current != null ? current.estimatedBytes() : 0;
+    }
+}
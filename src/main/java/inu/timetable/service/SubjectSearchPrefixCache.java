@@ -0,0 +1,132 @@
+package inu.timetable.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import inu.timetable.config.TwoLevelCacheManager;
+import inu.timetable.dto.SubjectDto;
+import inu.timetable.dto.SubjectSearchCriteria;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+
+/**
+ * 검색어를 늘려 가며 다시 찾을 때("데이" → "데이터" → "데이터베이스") 검색 캐시에 남은 더 짧은 검색어의 결과를 걸러서 답한다.
+ * 검색어 안에 든 더 짧은 검색어("베이스")의 결과는 늘린 검색어의 결과를 모두 담고 있으므로, 캐시 값이 있으면 DB 를 읽지 않아도 된다.
+ *
+ * <p>검색어 하나에 짧은 검색어 후보가 여럿이므로 이 노드의 Caffeine 캐시만 조용히 들여다본다. Redis(L2)는 후보마다 왕복이
+ * 생기므로 묻지 않고, 후보를 찾는 조회는 캐시 적중률 통계에도 넣지 않는다. 로컬 캐시가 없는 구성(redis 단독)에서는 쓰지 않는다.</p>
+ *
+ * <p>검색 결과는 페이지 없이 통째로 캐시되므로 캐시 값은 항상 완전하다. 과목 데이터가 바뀌면 검색 캐시가 함께 비워지므로
+ * 걸러 낸 결과도 새 캐시 값과 같은 시점의 데이터다. subject.search.prefix-reuse.enabled 로 끌 수 있다.</p>
+ *
+ * <ul>
+ *     <li>subject.search.cache.derived: 짧은 검색어 결과로 답한 수(result=hit)와 찾지 못해 DB 로 간 수(result=miss)</li>
+ * </ul>
+ */
+@Service
+public class SubjectSearchPrefixCache {
+
+    // 컨트롤러가 두 글자보다 짧은 검색어는 받지 않으므로 그보다 짧은 캐시 키는 없다.
+    static final int MIN_PREFIX_LENGTH = 2;
+
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Map<String, Counter> hitCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> missCounters = new ConcurrentHashMap<>();
+
+    public SubjectSearchPrefixCache(
+            CacheManager cacheManager,
+            MeterRegistry meterRegistry,
+            @Value("${subject.search.prefix-reuse.enabled:true}") boolean enabled) {
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    /**
+     * cacheName 캐시에 남은, criteria 검색어 안에 든 더 짧은 검색어의 결과를 matcher 와 학년으로 걸러 돌려준다.
+     * 긴 검색어부터, 같은 길이면 앞에 있는 것부터 찾고, 쓸 수 있는 캐시 값이 없으면 null 이다.
+     */
+    public List<SubjectDto> derive(
+            String cacheName,
+            SubjectSearchCriteria criteria,
+            BiPredicate<SubjectDto, String> matcher) {
+        String keyword = criteria.keyword();
+        if (!enabled || keyword == null || keyword.length() <= MIN_PREFIX_LENGTH) {
+            return null;
+        }
+        Cache<Object, Object> cache = localCache(cacheName);
+        if (cache == null) {
+            return null;
+        }
+        for (int length = keyword.length() - 1; length >= MIN_PREFIX_LENGTH; length--) {
+            for (int start = 0; start + length <= keyword.length(); start++) {
+                // 앞뒤 공백은 캐시 키에서 잘리므로 공백으로 시작하거나 끝나는 부분은 다른 검색어가 된다.
+                if (Character.isWhitespace(keyword.charAt(start))
+                        || Character.isWhitespace(keyword.charAt(start + length - 1))) {
+                    continue;
+                }
+                String contained = keyword.substring(start, start + length);
+                List<SubjectDto> cached = cached(cache, SubjectSearchCriteria.of(contained, criteria.grade()));
+                if (cached == null && criteria.grade() != null) {
+                    cached = cached(cache, SubjectSearchCriteria.of(contained, null));
+                }
+                if (cached != null) {
+                    counter(hitCounters, cacheName, "hit").increment();
+                    return filter(cached, keyword, criteria.grade(), matcher);
+                }
+            }
+        }
+        counter(missCounters, cacheName, "miss").increment();
+        return null;
+    }
+
+    // 2단 캐시면 이 노드의 L1 만 본다.
+    private Cache<Object, Object> localCache(String cacheName) {
+        CacheManager local = cacheManager instanceof TwoLevelCacheManager twoLevel
+                ? twoLevel.localCacheManager()
+                : cacheManager;
+        return local.getCache(cacheName) instanceof CaffeineCache caffeine ? caffeine.getNativeCache() : null;
+    }
+
+    // getIfPresentQuietly 는 Caffeine 통계(적중/실패)와 만료 순서를 건드리지 않는다.
+    @SuppressWarnings("unchecked")
+    private static List<SubjectDto> cached(
+            Cache<Object, Object> cache,
+            SubjectSearchCriteria key) {
+        return cache.policy().getIfPresentQuietly(key) instanceof List<?> list ? (List<SubjectDto>) list : null;
+    }
+
+    // 캐시 값의 순서(과목 id 오름차순)를 그대로 둔다.
+    private static List<SubjectDto> filter(
+            List<SubjectDto> cached,
+            String keyword,
+            Integer grade,
+            BiPredicate<SubjectDto, String> matcher) {
+        List<SubjectDto> subjects = new ArrayList<>();
+        for (SubjectDto subject : cached) {
+            if ((grade == null || Objects.equals(grade, subject.getGrade())) && matcher.test(subject, keyword)) {
+                subjects.add(subject);
+            }
+        }
+        return subjects;
+    }
+
+    private Counter counter(Map<String, Counter> counters, String cacheName, String result) {
+        return counters.computeIfAbsent(cacheName, name -> Counter.builder("subject.search.cache.derived")
+                .description("Subject searches answered by filtering a cached shorter keyword")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+}
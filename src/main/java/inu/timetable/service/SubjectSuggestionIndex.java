@@ -0,0 +1,152 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.SubjectSuggestion;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.event.SubjectPopularityChangedEvent;
+import inu.timetable.repository.SubjectRepository;
+import inu.timetable.repository.UserTimetableRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * /api/subjects/suggest 의 검색어 추천을 메모리 트라이({@link SubjectSuggestionTrie})로만 답한다. 요청 경로에서는 DB 를 읽지 않고,
+ * 트라이가 아직 없으면 빈 목록을 돌려준다.
+ *
+ * <p>과목 데이터가 바뀌면 커밋 직후 다시 만든다. 시간표 담기·빼기로 바뀌는 인기순과 다른 노드의 변경은
+ * subject.suggest.refresh-interval-ms 마다 버전을 보고 다시 만든다. 버전은 {@link SubjectFilterCatalog} 와 같이 다룬다.</p>
+ */
+@Slf4j
+@Service
+public class SubjectSuggestionIndex {
+
+    private final SubjectRepository subjectRepository;
+    private final UserTimetableRepository userTimetableRepository;
+    private final SharedSubjectCacheInvalidationService sharedInvalidationService;
+    private final int maxResults;
+    private final AtomicLong localCatalogVersion = new AtomicLong();
+    private final AtomicLong localPopularityVersion = new AtomicLong();
+    private volatile SubjectSuggestionTrie trie;
+    private final Timer rebuildTimer;
+    private final Timer lookupTimer;
+
+    public SubjectSuggestionIndex(
+            SubjectRepository subjectRepository,
+            UserTimetableRepository userTimetableRepository,
+            SharedSubjectCacheInvalidationService sharedInvalidationService,
+            MeterRegistry meterRegistry,
+            @Value("${subject.suggest.max-results:10}") int maxResults) {
+        this.subjectRepository = subjectRepository;
+        this.userTimetableRepository = userTimetableRepository;
+        this.sharedInvalidationService = sharedInvalidationService;
+        this.maxResults = Math.max(1, maxResults);
+        Gauge.builder("subject.suggest.memory", this, SubjectSuggestionIndex::estimatedBytes)
+                .description("Estimated heap held by the subject suggestion trie")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("subject.suggest.rebuild")
+                .description("Subject suggestion trie rebuild time")
+                .register(meterRegistry);
+        this.lookupTimer = Timer.builder("subject.suggest.lookup")
+                .description("Subject suggestion trie lookup time")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAfterApplicationReady() {
+        refresh();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void rebuildAfterSubjectDataChanged(SubjectDataChangedEvent event) {
+        localCatalogVersion.incrementAndGet();
+        refresh();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void reorderAfterPopularityChanged(SubjectPopularityChangedEvent event) {
+        // 담기·빼기마다 다시 만들지 않고 다음 주기에 모아서 반영한다.
+        localPopularityVersion.incrementAndGet();
+    }
+
+    /**
+     * 버전이 바뀌었으면 트라이를 다시 만든다. 실패하면 이전 트라이로 계속 답한다.
+     */
+    @Scheduled(fixedDelayString = "${subject.suggest.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            rebuildIfStale();
+        } catch (RuntimeException exception) {
+            log.warn("Subject suggestion trie rebuild failed", exception);
+        }
+    }
+
+    /**
+     * prefix 로 시작하는 과목명·교수명·학과명을 인기순으로 limit 개까지(최대 subject.suggest.max-results).
+     */
+    public List<SubjectSuggestion> suggest(String prefix, int limit) {
+        SubjectSuggestionTrie current = trie;
+        if (current == null || prefix == null) {
+            return List.of();
+        }
+        long startedAt = System.nanoTime();
+        List<SubjectSuggestion> suggestions = current.suggest(prefix, Math.max(1, Math.min(limit, maxResults)));
+        lookupTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return suggestions;
+    }
+
+    // 이벤트와 주기 작업이 겹쳐도 한 번씩만 만든다.
+    private synchronized void rebuildIfStale() {
+        // 버전은 읽기 전에 잡는다. 읽는 중에 바뀌면 다음 주기에 다시 만든다.
+        long version = catalogVersion();
+        long popularityVersion = popularityVersion();
+        SubjectSuggestionTrie current = trie;
+        if (current != null
+                && current.catalogVersion() == version
+                && current.popularityVersion() == popularityVersion) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        Map<Long, Long> timetableAddCounts = userTimetableRepository
+                .countAddedUsersByActiveSubjectsInSemester(null).stream()
+                .collect(Collectors.toMap(
+                        UserTimetableRepository.SubjectTimetableAddCount::getSubjectId,
+                        UserTimetableRepository.SubjectTimetableAddCount::getTimetableAddCount));
+        SubjectSuggestionTrie built = SubjectSuggestionTrie.build(
+                version, popularityVersion, subjectRepository.findSearchRows(), timetableAddCounts, maxResults);
+        long elapsed = System.nanoTime() - startedAt;
+        rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Subject suggestion trie built: terms={}, estimatedBytes={}, elapsedMs={}",
+                built.size(), built.estimatedBytes(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        trie = built;
+    }
+
+    private long catalogVersion() {
+        return localCatalogVersion.get()
+                + sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_ALL);
+    }
+
+    private long popularityVersion() {
+        return localPopularityVersion.get()
+                + sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_FILTERS);
+    }
+
+    private double estimatedBytes() {
+        SubjectSuggestionTrie current = trie;
+        return current != null ? current.estimatedBytes() : 0;
+    }
+}
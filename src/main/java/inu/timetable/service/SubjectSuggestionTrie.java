@@ -0,0 +1,237 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.SubjectSuggestion;
+import inu.timetable.repository.SubjectRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 활성 과목의 과목명·교수명·학과명 검색어 추천용 불변 트라이. 이름 하나가 추천 항목(term) 하나이고, 항목은 인기(그 이름을 가진
+ * 과목을 시간표에 담은 사용자 수의 합)가 큰 순으로 번호를 매긴다.
+ *
+ * <p>노드마다 그 아래 항목 중 앞 번호 maxResults 개를 미리 담아 두어, 추천은 입력 길이만큼 트라이를 내려가 그 목록을 읽는 것으로
+ * 끝난다. 비교는 대소문자를 가리지 않는다.</p>
+ *
+ * <p>이름을 초성으로 바꾼 트라이도 둔다. 입력이 초성뿐이면(ㄷㅇ) 초성 트라이의 목록을 그대로 쓰고, 음절과 초성이 섞이면(데ㅇ)
+ * 이름 트라이에서 초성 자리만 갈라져 내려간 노드들의 목록을 합친다.</p>
+ */
+final class SubjectSuggestionTrie {
+
+    private static final int[] NO_TERMS = new int[0];
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int OBJECT_HEADER_BYTES = 16;
+
+    private final long catalogVersion;
+    private final long popularityVersion;
+    // 인기순 항목과 그 비교용 소문자 이름.
+    private final SubjectSuggestion[] terms;
+    private final String[] keys;
+    private final Node textRoot;
+    private final Node initialRoot;
+    private final long estimatedBytes;
+
+    private SubjectSuggestionTrie(
+            long catalogVersion,
+            long popularityVersion,
+            SubjectSuggestion[] terms,
+            int maxResults) {
+        this.catalogVersion = catalogVersion;
+        this.popularityVersion = popularityVersion;
+        this.terms = terms;
+        this.keys = Arrays.stream(terms)
+                .map(term -> term.text().toLowerCase(Locale.ROOT))
+                .toArray(String[]::new);
+        NodeBuilder textBuilder = new NodeBuilder();
+        NodeBuilder initialBuilder = new NodeBuilder();
+        // 인기순으로 넣으므로 노드에 먼저 닿은 maxResults 개가 곧 그 노드의 상위 항목이다.
+        for (int term = 0; term < terms.length; term++) {
+            textBuilder.insert(keys[term], term, maxResults);
+            initialBuilder.insert(SubjectNgramIndex.toInitials(keys[term]), term, maxResults);
+        }
+        this.textRoot = textBuilder.build();
+        this.initialRoot = initialBuilder.build();
+        long bytes = 2L * ARRAY_HEADER_BYTES + (long) terms.length * 2L * Integer.BYTES;
+        for (int term = 0; term < terms.length; term++) {
+            bytes += 2L * OBJECT_HEADER_BYTES + 2L * ARRAY_HEADER_BYTES + terms[term].text().length() * 4L;
+        }
+        this.estimatedBytes = bytes + textRoot.estimateBytes() + initialRoot.estimateBytes();
+    }
+
+    /**
+     * rows 의 과목명·교수명·학과명을 항목으로 모은다. timetableAddCounts 는 과목 id 별 시간표에 담은 사용자 수다.
+     */
+    static SubjectSuggestionTrie build(
+            long catalogVersion,
+            long popularityVersion,
+            List<SubjectRepository.SubjectSearchRow> rows,
+            Map<Long, Long> timetableAddCounts,
+            int maxResults) {
+        Map<SubjectSuggestion.Kind, Map<String, Long>> popularityByKind = new LinkedHashMap<>();
+        for (SubjectSuggestion.Kind kind : SubjectSuggestion.Kind.values()) {
+            popularityByKind.put(kind, new LinkedHashMap<>());
+        }
+        for (SubjectRepository.SubjectSearchRow row : rows) {
+            long popularity = timetableAddCounts.getOrDefault(row.getSubjectId(), 0L);
+            add(popularityByKind.get(SubjectSuggestion.Kind.SUBJECT_NAME), row.getSubjectName(), popularity);
+            add(popularityByKind.get(SubjectSuggestion.Kind.PROFESSOR), row.getProfessor(), popularity);
+            add(popularityByKind.get(SubjectSuggestion.Kind.DEPARTMENT), row.getDepartment(), popularity);
+        }
+        List<SubjectSuggestion> terms = new ArrayList<>();
+        popularityByKind.forEach((kind, popularities) -> popularities.forEach(
+                (text, popularity) -> terms.add(new SubjectSuggestion(text, kind, popularity))));
+        terms.sort(Comparator.comparingLong(SubjectSuggestion::popularity).reversed()
+                .thenComparing(SubjectSuggestion::text)
+                .thenComparing(SubjectSuggestion::kind));
+        return new SubjectSuggestionTrie(
+                catalogVersion, popularityVersion, terms.toArray(SubjectSuggestion[]::new), maxResults);
+    }
+
+    long catalogVersion() {
+        return catalogVersion;
+    }
+
+    long popularityVersion() {
+        return popularityVersion;
+    }
+
+    int size() {
+        return terms.length;
+    }
+
+    long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * prefix 로 시작하는 항목을 인기순으로 limit 개까지. limit 은 만들 때의 maxResults 를 넘지 않아야 한다.
+     */
+    List<SubjectSuggestion> suggest(String prefix, int limit) {
+        String key = prefix.trim().toLowerCase(Locale.ROOT);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        if (!SubjectNgramIndex.containsInitial(key)) {
+            return toSuggestions(find(textRoot, key).top, limit);
+        }
+        if (SubjectNgramIndex.toInitials(key).equals(key)) {
+            return toSuggestions(find(initialRoot, key).top, limit);
+        }
+        // 음절이 섞인 입력은 이름 트라이에서 초성 자리만 그 초성의 음절로 갈라져 내려간다. 닿은 노드들은 서로 겹치지 않으므로
+        // 각 노드의 상위 항목을 합쳐 번호순으로 고르면 된다.
+        List<Node> reached = new ArrayList<>();
+        collectMatching(textRoot, key, 0, reached);
+        int[] termIds = reached.stream()
+                .flatMapToInt(matched -> Arrays.stream(matched.top))
+                .sorted()
+                .toArray();
+        return toSuggestions(termIds, limit);
+    }
+
+    private static void collectMatching(Node node, String key, int depth, List<Node> reached) {
+        if (depth == key.length()) {
+            reached.add(node);
+            return;
+        }
+        char label = key.charAt(depth);
+        if (!SubjectNgramIndex.containsInitial(String.valueOf(label))) {
+            Node child = node.child(label);
+            if (child != Node.EMPTY) {
+                collectMatching(child, key, depth + 1, reached);
+            }
+            return;
+        }
+        for (int i = 0; i < node.labels.length; i++) {
+            if (SubjectNgramIndex.matchesChar(node.labels[i], label)) {
+                collectMatching(node.children[i], key, depth + 1, reached);
+            }
+        }
+    }
+
+    private List<SubjectSuggestion> toSuggestions(int[] termIds, int limit) {
+        List<SubjectSuggestion> suggestions = new ArrayList<>(Math.min(limit, termIds.length));
+        for (int i = 0; i < termIds.length && i < limit; i++) {
+            suggestions.add(terms[termIds[i]]);
+        }
+        return suggestions;
+    }
+
+    private static Node find(Node root, String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != Node.EMPTY; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    private static void add(Map<String, Long> popularities, String text, long popularity) {
+        if (text != null && !text.isBlank()) {
+            popularities.merge(text, popularity, Long::sum);
+        }
+    }
+
+    /**
+     * 트라이 노드. 자식은 글자 오름차순 배열이고, top 은 아래 항목 중 앞 번호 몇 개다.
+     */
+    private record Node(char[] labels, Node[] children, int[] top) {
+
+        static final Node EMPTY = new Node(new char[0], new Node[0], NO_TERMS);
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : EMPTY;
+        }
+
+        long estimateBytes() {
+            long bytes = OBJECT_HEADER_BYTES + 4L * ARRAY_HEADER_BYTES
+                    + labels.length * (Character.BYTES + (long) Integer.BYTES)
+                    + (long) top.length * Integer.BYTES;
+            for (Node child : children) {
+                bytes += child.estimateBytes();
+            }
+            return bytes;
+        }
+    }
+
+    private static final class NodeBuilder {
+
+        private final TreeMap<Character, NodeBuilder> children = new TreeMap<>();
+        private final List<Integer> top = new ArrayList<>();
+
+        void insert(String key, int term, int maxResults) {
+            NodeBuilder node = this;
+            node.offer(term, maxResults);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), ignored -> new NodeBuilder());
+                node.offer(term, maxResults);
+            }
+        }
+
+        private void offer(int term, int maxResults) {
+            if (top.size() < maxResults) {
+                top.add(term);
+            }
+        }
+
+        Node build() {
+            char[] labels = new char[children.size()];
+            Node[] built = new Node[children.size()];
+            int index = 0;
+            for (Map.Entry<Character, NodeBuilder> child : children.entrySet()) {
+                labels[index] = child.getKey();
+                built[index] = child.getValue().build();
+                index++;
+            }
+            return new Node(
+                    labels,
+                    built,
+                    top.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package inu.timetable.service;
+
+import inu.timetable.entity.Schedule;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 요일(월~일) × 하루 128칸(30분 단위 교시)을 long 14개로 표현하는 고정 폭 시간 마스크.
+ *
+ * <p>시간표 조합 탐색, 시간표 추가 시 충돌 검사, 공식 데이터 변경 후 충돌 정리가 모두 이 마스크의
+ * 교집합 하나로 겹침을 판정한다. 요일·시간이 없는 일정(온라인/시간 미지정)은 마스크에 들어가지 않고,
+ * 야간 과목처럼 시작 시각이 끝 시각보다 큰 일정은 끝 시각에 8교시를 더해 해석한다.</p>
+ */
+public final class TimeSlotMask {
+
+    static final List<String> DAYS = List.of("월", "화", "수", "목", "금", "토", "일");
+    static final int SLOTS_PER_DAY = 128;
+    static final int WORDS_PER_DAY = SLOTS_PER_DAY / Long.SIZE;
+    static final int WORD_COUNT = DAYS.size() * WORDS_PER_DAY;
+
+    private static final double NIGHT_WRAP_PERIODS = 8.0;
+
+    public static final TimeSlotMask EMPTY = new TimeSlotMask(new long[WORD_COUNT]);
+
+    private final long[] words;
+
+    private TimeSlotMask(long[] words) {
+        this.words = words;
+    }
+
+    public static TimeSlotMask of(Collection<Schedule> schedules) {
+        if (schedules == null || schedules.isEmpty()) {
+            return EMPTY;
+        }
+        long[] words = new long[WORD_COUNT];
+        for (Schedule schedule : schedules) {
+            if (schedule != null) {
+                mark(words, schedule.getDayOfWeek(), schedule.getStartTime(), schedule.getEndTime());
+            }
+        }
+        return new TimeSlotMask(words);
+    }
+
+    /**
+     * 요일과 교시 구간을 직접 받아 마스크를 만든다. 구간은 [startTime, endTime) 으로 해석한다.
+     */
+    public static TimeSlotMask of(String dayOfWeek, Double startTime, Double endTime) {
+        long[] words = new long[WORD_COUNT];
+        mark(words, dayOfWeek, startTime, endTime);
+        return new TimeSlotMask(words);
+    }
+
+    /**
+     * 매일 earliestStart 교시 전과 latestEnd 교시 뒤의 칸. 둘 다 null 이면 빈 마스크다.
+     */
+    public static TimeSlotMask outsideDailyWindow(Double earliestStart, Double latestEnd) {
+        if (earliestStart == null && latestEnd == null) {
+            return EMPTY;
+        }
+        long[] words = new long[WORD_COUNT];
+        for (String day : DAYS) {
+            if (earliestStart != null) {
+                mark(words, day, 0.0, earliestStart);
+            }
+            if (latestEnd != null && latestEnd * 2 < SLOTS_PER_DAY) {
+                mark(words, day, latestEnd, SLOTS_PER_DAY / 2.0);
+            }
+        }
+        return new TimeSlotMask(words);
+    }
+
+    /**
+     * 월~일 순서의 요일 인덱스. 알 수 없는 요일이면 -1 을 돌려준다.
+     */
+    public static int dayIndex(String dayOfWeek) {
+        return dayOfWeek == null ? -1 : DAYS.indexOf(dayOfWeek);
+    }
+
+    public boolean intersects(TimeSlotMask other) {
+        long[] otherWords = other.words;
+        for (int i = 0; i < WORD_COUNT; i++) {
+            if ((words[i] & otherWords[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public TimeSlotMask or(TimeSlotMask other) {
+        long[] merged = new long[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; i++) {
+            merged[i] = words[i] | other.words[i];
+        }
+        return new TimeSlotMask(merged);
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 이어 보기 토큰의 탐색 지문에 칸 비트를 그대로 넣는다.
+    void updateDigest(ByteBuffer buffer) {
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other
+                || other instanceof TimeSlotMask mask && Arrays.equals(words, mask.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    private static void mark(long[] words, String dayOfWeek, Double startTime, Double endTime) {
+        int dayIndex = dayIndex(dayOfWeek);
+        if (dayIndex < 0 || startTime == null || endTime == null) {
+            return;
+        }
+        double end = startTime > endTime ? endTime + NIGHT_WRAP_PERIODS : endTime;
+        int startSlot = Math.max(0, (int) Math.round(startTime * 2));
+        int endSlot = Math.min(SLOTS_PER_DAY, (int) Math.round(end * 2));
+        int base = dayIndex * SLOTS_PER_DAY;
+        for (int slot = startSlot; slot < endSlot; slot++) {
+            int bit = base + slot;
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * 깊이 우선 탐색용 누적 마스크. 겹치지 않는 마스크만 쌓을 수 있으므로 되돌리기는
+     * 쌓았던 마스크의 비트를 지우는 것으로 충분하고, 탐색 중에는 객체를 새로 만들지 않는다.
+     */
+    public static final class Accumulator {
+
+        private final long[] words = new long[WORD_COUNT];
+        private final TimeSlotMask[] stack;
+        private int depth;
+
+        public Accumulator(int capacity) {
+            this.stack = new TimeSlotMask[Math.max(1, capacity)];
+        }
+
+        public boolean intersects(TimeSlotMask mask) {
+            long[] maskWords = mask.words;
+            for (int i = 0; i < WORD_COUNT; i++) {
+                if ((words[i] & maskWords[i]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 현재 누적 마스크와 겹치지 않으면 합치고 true 를 돌려준다. 겹치면 아무것도 바꾸지 않는다.
+         */
+        public boolean tryPush(TimeSlotMask mask) {
+            if (intersects(mask)) {
+                return false;
+            }
+            long[] maskWords = mask.words;
+            for (int i = 0; i < WORD_COUNT; i++) {
+                words[i] |= maskWords[i];
+            }
+            stack[depth++] = mask;
+            return true;
+        }
+
+        public void pop() {
+            long[] maskWords = stack[--depth].words;
+            stack[depth] = null;
+            for (int i = 0; i < WORD_COUNT; i++) {
+                words[i] &= ~maskWords[i];
+            }
+        }
+
+        public int depth() {
+            return depth;
+        }
+
+        /**
+         * 해당 요일에서 가장 이른 점유 칸(30분 단위). 비어 있으면 -1.
+         */
+        public int firstSlot(int dayIndex) {
+            int base = dayIndex * WORDS_PER_DAY;
+            for (int word = 0; word < WORDS_PER_DAY; word++) {
+                if (words[base + word] != 0) {
+                    return word * Long.SIZE + Long.numberOfTrailingZeros(words[base + word]);
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 해당 요일에서 가장 늦은 점유 칸(30분 단위). 비어 있으면 -1.
+         */
+        public int lastSlot(int dayIndex) {
+            int base = dayIndex * WORDS_PER_DAY;
+            for (int word = WORDS_PER_DAY - 1; word >= 0; word--) {
+                if (words[base + word] != 0) {
+                    return word * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(words[base + word]);
+                }
+            }
+            return -1;
+        }
+
+        public int occupiedSlots(int dayIndex) {
+            int base = dayIndex * WORDS_PER_DAY;
+            int count = 0;
+            for (int word = 0; word < WORDS_PER_DAY; word++) {
+                count += Long.bitCount(words[base + word]);
+            }
+            return count;
+        }
+
+        public TimeSlotMask snapshot() {
+            return new TimeSlotMask(words.clone());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package inu.timetable.service;
+
+import inu.timetable.exception.ApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * CPU 를 많이 쓰는 시간표 조합 요청(generate·batch·stats)을 인스턴스마다 정해진 수만 동시에 돌리는 격벽.
+ *
+ * <p>조합 요청은 과목 조회와 같은 Tomcat 스레드 풀에서 돌므로, 몰리면 가벼운 요청까지 스레드를 기다리게 된다.
+ * 여기서는 동시 실행 수(max-concurrent)만큼의 허가와 짧은 대기열(queue-capacity)을 두어, 조합 요청이 붙잡을 수 있는
+ * 요청 스레드를 둘의 합으로 묶는다. 대기열이 찼거나 queue-timeout 안에 허가를 얻지 못하면 바로 503 을, 한 사용자가
+ * per-user-max-concurrent 보다 많이 동시에 요청하면 429 를 Retry-After 와 함께 돌려준다.</p>
+ *
+ * <ul>
+ *     <li>timetable.combination.admission.active: 실행 중인 요청 수</li>
+ *     <li>timetable.combination.admission.queue: 허가를 기다리는 요청 수</li>
+ *     <li>timetable.combination.admission.wait: 허가를 얻기까지 기다린 시간</li>
+ *     <li>timetable.combination.admission.rejections: 거절한 요청 수(reason=queue_full|timeout|user_limit)</li>
+ * </ul>
+ */
+@Service
+public class TimetableCombinationAdmissionService {
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final Duration queueTimeout;
+    private final int perUserMaxConcurrent;
+    private final Duration retryAfter;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ConcurrentHashMap<Long, Integer> inFlightByUser = new ConcurrentHashMap<>();
+    private final Timer waitTimer;
+    private final MeterRegistry meterRegistry;
+
+    public TimetableCombinationAdmissionService(
+            MeterRegistry meterRegistry,
+            @Value("${timetable.combination.admission.enabled:true}") boolean enabled,
+            @Value("${timetable.combination.admission.max-concurrent:0}") int maxConcurrent,
+            @Value("${timetable.combination.admission.queue-capacity:16}") int queueCapacity,
+            @Value("${timetable.combination.admission.queue-timeout:500ms}") String queueTimeout,
+            @Value("${timetable.combination.admission.per-user-max-concurrent:2}") int perUserMaxConcurrent,
+            @Value("${timetable.combination.admission.retry-after:1s}") String retryAfter) {
+        this.enabled = enabled;
+        // 0 이면 가용 CPU 수만큼 동시에 돌린다.
+        this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.queueTimeout = DurationStyle.detectAndParse(queueTimeout);
+        this.perUserMaxConcurrent = perUserMaxConcurrent;
+        this.retryAfter = DurationStyle.detectAndParse(retryAfter);
+        this.permits = new Semaphore(this.maxConcurrent, true);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("timetable.combination.admission.active", this, TimetableCombinationAdmissionService::activeCount)
+                .description("Timetable combination requests running")
+                .register(meterRegistry);
+        Gauge.builder("timetable.combination.admission.queue", waiting, AtomicInteger::get)
+                .description("Timetable combination requests waiting for a permit")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("timetable.combination.admission.wait")
+                .description("Time timetable combination requests waited for a permit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 허가를 얻어 work 를 돌리고 결과를 돌려준다. 허가를 얻지 못하면 work 를 부르지 않고 429 나 503 을 던진다.
+     */
+    public <T> T call(Long userId, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        enterUser(userId);
+        try {
+            acquire();
+            try {
+                return work.get();
+            } finally {
+                permits.release();
+            }
+        } finally {
+            leaveUser(userId);
+        }
+    }
+
+    int activeCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    int waitingCount() {
+        return waiting.get();
+    }
+
+    private void enterUser(Long userId) {
+        if (perUserMaxConcurrent <= 0 || userId == null) {
+            return;
+        }
+        int inFlight = inFlightByUser.merge(userId, 1, Integer::sum);
+        if (inFlight > perUserMaxConcurrent) {
+            leaveUser(userId);
+            throw reject("user_limit", ApiException.tooManyRequests(
+                    "진행 중인 시간표 조합 요청이 너무 많습니다. 잠시 후 다시 시도해주세요.", retryAfter));
+        }
+    }
+
+    private void leaveUser(Long userId) {
+        if (perUserMaxConcurrent <= 0 || userId == null) {
+            return;
+        }
+        inFlightByUser.computeIfPresent(userId, (ignored, inFlight) -> inFlight > 1 ? inFlight - 1 : null);
+    }
+
+    private void acquire() {
+        // tryAcquire() 는 공정 모드여도 줄을 건너뛰므로, 기다리는 요청이 있으면 그 뒤에 서도록 대기 시간 0 으로 묻는다.
+        boolean acquiredNow;
+        try {
+            acquiredNow = permits.tryAcquire(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("timeout", saturated());
+        }
+        if (acquiredNow) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            throw reject("queue_full", saturated());
+        }
+        long startedAt = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        waitTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            throw reject("timeout", saturated());
+        }
+    }
+
+    private ApiException saturated() {
+        return ApiException.serviceUnavailable("시간표 조합 요청이 많습니다. 잠시 후 다시 시도해주세요.", retryAfter);
+    }
+
+    private ApiException reject(String reason, ApiException exception) {
+        Counter.builder("timetable.combination.admission.rejections")
+                .description("Timetable combination requests rejected by admission control")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return exception;
+    }
+}
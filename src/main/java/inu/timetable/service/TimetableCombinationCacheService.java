@@ -0,0 +1,171 @@
+package inu.timetable.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import inu.timetable.dto.TimetableCombinationCriteria;
+import inu.timetable.dto.TimetableCombinationResult;
+import inu.timetable.entity.Schedule;
+import inu.timetable.entity.Subject;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.event.WishlistChangedEvent;
+import inu.timetable.repository.WishlistRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 같은 위시리스트·조건으로 반복되는 시간표 조합 생성 결과를 노드 로컬 Caffeine 캐시에 둔다.
+ *
+ * <p>키는 (사용자, 조건, 위시리스트 지문, 과목 데이터 버전)이다. 지문은 과목 id·필수 여부를 우선순위 순서로
+ * 나열한 가벼운 조회 결과라서, 과목·시간표까지 읽는 무거운 조회와 탐색을 건너뛰면서도 위시리스트가 바뀌면
+ * 다른 노드에서 바뀐 경우까지 키가 달라진다. 과목 데이터 버전은 이 노드의 변경 이벤트 횟수와 공유 무효화
+ * 버전을 함께 써서, 변경 전에 시작한 계산이 변경 뒤에 넣은 값은 다시 읽히지 않는다.</p>
+ *
+ * <p>값은 JPA 엔티티를 담고 있어 Redis 로 공유하지 않는다. 그래서 SubjectCacheNames.ALL 이 아닌 별도 캐시로 두고,
+ * 지표만 subject.cache.requests 에 cache=timetableCombinations 태그로 함께 남긴다.</p>
+ *
+ * <p>지문만 짧은 읽기 전용 트랜잭션에서 읽고, 탐색은 트랜잭션 밖에서 한다. 탐색은 마감이나 순위 예산까지 CPU 만 쓰므로
+ * 그동안 DB 연결을 잡아 두지 않는다. 위시리스트와 과목은 탐색이 저장소 호출마다 따로 읽는다.</p>
+ *
+ * <p>캐시를 먼저 보고, 탐색해야 할 때만 TimetableCombinationAdmissionService 의 허가를 얻는다. 캐시에서 바로 답하는 요청은
+ * 조합 요청 허가와 사용자별 동시 요청 수를 쓰지 않는다.</p>
+ */
+@Service
+public class TimetableCombinationCacheService {
+
+    private final TimetableCombinationService combinationService;
+    private final WishlistRepository wishlistRepository;
+    private final SharedSubjectCacheInvalidationService sharedInvalidationService;
+    private final TimetableCombinationAdmissionService admissionService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final Cache<CombinationCacheKey, TimetableCombinationResult> cache;
+    private final AtomicLong localCatalogVersion = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public TimetableCombinationCacheService(
+            TimetableCombinationService combinationService,
+            WishlistRepository wishlistRepository,
+            SharedSubjectCacheInvalidationService sharedInvalidationService,
+            TimetableCombinationAdmissionService admissionService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${timetable.combination.cache.enabled:true}") boolean enabled,
+            @Value("${timetable.combination.cache.maximum-size:2000}") long maximumSize,
+            @Value("${timetable.combination.cache.expire-after-write:10m}") String expireAfterWrite) {
+        this.combinationService = combinationService;
+        this.wishlistRepository = wishlistRepository;
+        this.sharedInvalidationService = sharedInvalidationService;
+        this.admissionService = admissionService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(DurationStyle.detectAndParse(expireAfterWrite))
+                .build();
+        this.hitCounter = Counter.builder("subject.cache.requests")
+                .tag("cache", SubjectCacheNames.TIMETABLE_COMBINATIONS)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("subject.cache.requests")
+                .tag("cache", SubjectCacheNames.TIMETABLE_COMBINATIONS)
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public TimetableCombinationResult generateTimetableCombinations(Long userId, TimetableCombinationCriteria criteria) {
+        return generateTimetableCombinations(userId, criteria, null);
+    }
+
+    /**
+     * 이어 보기 페이지는 토큰마다 다르고 다시 요청되는 일이 드물어 캐시하지 않는다. 첫 페이지 결과의 토큰은 이 노드의 키로
+     * 서명되어 있어 캐시된 결과를 돌려줘도 그대로 이어 볼 수 있다. 탐색할 때만 허가를 얻으므로 429 나 503 은 캐시에 없을 때만 난다.
+     */
+    public TimetableCombinationResult generateTimetableCombinations(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            String continuationToken) {
+        if (continuationToken != null) {
+            return admissionService.call(userId, () ->
+                    combinationService.generateTimetableCombinations(userId, criteria, continuationToken));
+        }
+        if (!enabled) {
+            return admissionService.call(userId, () -> combinationService.generateTimetableCombinations(userId, criteria));
+        }
+
+        // 버전은 위시리스트를 읽기 전에 잡는다. 계산 중에 과목 데이터가 바뀌면 이 키로는 다시 읽히지 않는다.
+        long catalogVersion = catalogVersion();
+        List<Long> fingerprint = readOnlyTransaction.execute(status -> wishlistRepository
+                .findFingerprintRowsByUserIdAndSemester(userId, criteria.semester())
+                .stream()
+                .map(row -> Boolean.TRUE.equals(row.getIsRequired()) ? -row.getSubjectId() : row.getSubjectId())
+                .toList());
+        CombinationCacheKey key = new CombinationCacheKey(userId, criteria, fingerprint, catalogVersion);
+
+        TimetableCombinationResult cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hitCounter.increment();
+            return cached;
+        }
+        missCounter.increment();
+
+        TimetableCombinationResult result = admissionService.call(
+                userId, () -> combinationService.generateTimetableCombinations(userId, criteria));
+        // 마감에 걸린 결과는 그때의 부하에 따른 부분 결과이므로 다음 요청에 다시 쓰지 않는다.
+        if (result.truncated()) {
+            return result;
+        }
+        initializeForDetachedUse(result);
+        cache.put(key, result);
+        return result;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void evictAfterSubjectDataChanged(SubjectDataChangedEvent event) {
+        localCatalogVersion.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void evictAfterWishlistChanged(WishlistChangedEvent event) {
+        // 지문이 달라지므로 정확성에는 필요 없지만, 다시 쓰이지 않을 항목을 바로 비운다.
+        cache.asMap().keySet().removeIf(key -> Objects.equals(key.userId(), event.userId()));
+    }
+
+    private long catalogVersion() {
+        return localCatalogVersion.get()
+                + sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_ALL);
+    }
+
+    // 캐시된 엔티티는 다음 요청에서 세션 밖에서 직렬화되므로 지연 로딩 연관을 미리 읽어 둔다.
+    // 트랜잭션 밖이지만 요청 스레드의 open-in-view 세션에 엔티티가 남아 있어 읽을 수 있다.
+    private void initializeForDetachedUse(TimetableCombinationResult result) {
+        for (List<Subject> combination : result.combinations()) {
+            for (Subject subject : combination) {
+                for (Schedule schedule : subject.getSchedules()) {
+                    Hibernate.initialize(schedule.getRoomSegments());
+                }
+            }
+        }
+    }
+
+    private record CombinationCacheKey(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            List<Long> wishlistFingerprint,
+            long catalogVersion) {
+    }
+}
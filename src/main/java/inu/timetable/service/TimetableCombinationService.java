@@ -1,13 +1,27 @@
 package inu.timetable.service;
 
-import inu.timetable.entity.Schedule;
+import inu.timetable.dto.TimetableCombinationCount;
+import inu.timetable.dto.TimetableCombinationCriteria;
+import inu.timetable.dto.TimetableCombinationResult;
+import inu.timetable.dto.TimetableCombinationStatistics;
 import inu.timetable.entity.Subject;
 import inu.timetable.entity.WishlistItem;
+import inu.timetable.exception.ApiException;
+import inu.timetable.repository.SubjectRepository;
 import inu.timetable.repository.WishlistRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -15,14 +29,71 @@ public class TimetableCombinationService {
 
     private static final int CREDIT_TOLERANCE = 3;
     private static final int MAX_TARGET_SEARCH_NODES = 50_000;
-    private static final int SLOTS_PER_DAY = 128;
-    private static final List<String> KNOWN_DAYS = List.of("월", "화", "수", "목", "금", "토", "일");
+    // 순위 탐색은 앞쪽 결과에서 멈추지 않고 분기 한정으로만 가지를 치므로 별도 상한을 둔다.
+    private static final int MAX_RANKING_SEARCH_NODES = 200_000;
+    // 조합 수 세기는 이 값까지만 정확히 세고, 기억 상태가 이 수를 넘으면 하한으로 멈춘다.
+    private static final long COMBINATION_COUNT_CAP = 1_000_000L;
+    private static final int MAX_COUNT_STATES = 200_000;
+    static final String SEQUENTIAL_ENGINE = "sequential";
+    static final String PARALLEL_ENGINE = "parallel";
+    static final int DEFAULT_EXACT_MAXIMUM_CREDIT_OPTIONS = 48;
     
     private final WishlistRepository wishlistRepository;
-    
+    // 과목 마스크 색인이 꺼져 있거나 아직 없으면 위시리스트 엔티티로만 탐색한다.
+    private final SubjectRepository subjectRepository;
+    private final SubjectMaskIndex subjectMaskIndex;
+    // parallel 엔진일 때만 만든다. 요청 스레드는 작업을 나눠 넣고 병합이 끝날 때까지 기다린다.
+    private final ForkJoinPool combinationPool;
+    private final int forkThreshold;
+    // 고를 수 있는 분반이 이 수 이하면 최대 학점을 중간 만남 풀이로 정확히 구하고, 넘으면 예산 안의 깊이 우선 탐색을 쓴다.
+    private final int exactMaximumCreditOptions;
+    // 요청마다 탐색에 쓸 수 있는 시간. 지나면 그때까지 찾은 조합을 truncated 로 돌려준다. 0 이면 마감이 없다.
+    private final Duration searchDeadline;
+    private final CombinationSearchMetrics metrics;
+    private final CombinationContinuationTokens continuationTokens;
+    // 사용자마다 마지막 순위 없는 탐색. 위시리스트 과목 하나가 바뀐 다음 탐색은 이것을 거르거나 늘려 만든다.
+    private final CombinationIncrementalCache incrementalSearches;
+
     @Autowired
-    public TimetableCombinationService(WishlistRepository wishlistRepository) {
+    public TimetableCombinationService(
+            WishlistRepository wishlistRepository,
+            SubjectRepository subjectRepository,
+            SubjectMaskIndex subjectMaskIndex,
+            @Value("${timetable.combination.engine:sequential}") String engine,
+            @Value("${timetable.combination.parallel.fork-threshold:24}") int forkThreshold,
+            @Value("${timetable.combination.parallel.parallelism:0}") int parallelism,
+            @Value("${timetable.combination.max-credits.exact-option-limit:48}") int exactMaximumCreditOptions,
+            @Value("${timetable.combination.deadline:300ms}") String searchDeadline,
+            @Value("${timetable.combination.continuation.secret:}") String continuationSecret,
+            @Value("${timetable.combination.incremental.maximum-size:1000}") long incrementalMaximumSize,
+            @Value("${timetable.combination.incremental.expire-after-access:10m}") String incrementalExpireAfterAccess,
+            MeterRegistry meterRegistry) {
         this.wishlistRepository = wishlistRepository;
+        this.subjectRepository = subjectRepository;
+        this.subjectMaskIndex = subjectMaskIndex;
+        this.forkThreshold = Math.max(1, forkThreshold);
+        this.exactMaximumCreditOptions = exactMaximumCreditOptions;
+        this.searchDeadline = DurationStyle.detectAndParse(searchDeadline);
+        this.metrics = new CombinationSearchMetrics(meterRegistry);
+        this.continuationTokens = new CombinationContinuationTokens(continuationSecret);
+        this.incrementalSearches = new CombinationIncrementalCache(
+                incrementalMaximumSize, DurationStyle.detectAndParse(incrementalExpireAfterAccess));
+        if (PARALLEL_ENGINE.equalsIgnoreCase(engine)) {
+            this.combinationPool = new ForkJoinPool(parallelism > 0
+                    ? parallelism
+                    : Runtime.getRuntime().availableProcessors());
+        } else if (SEQUENTIAL_ENGINE.equalsIgnoreCase(engine)) {
+            this.combinationPool = null;
+        } else {
+            throw new IllegalArgumentException("Unknown timetable.combination.engine: " + engine);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (combinationPool != null) {
+            combinationPool.shutdownNow();
+        }
     }
     
     public List<List<Subject>> generateTimetableCombinations(Long userId, String semester, int targetCredits, int maxCombinations) {
@@ -31,274 +102,687 @@ public class TimetableCombinationService {
 
     public List<List<Subject>> generateTimetableCombinations(Long userId, String semester, Integer targetCredits,
                                                             int maxCombinations, List<String> freeDays) {
-        // 위시리스트 가져오기
-        List<WishlistItem> wishlist = wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(userId, semester);
+        return generateTimetableCombinations(
+                userId,
+                TimetableCombinationCriteria.of(semester, targetCredits, maxCombinations, freeDays, false))
+                .combinations();
+    }
 
-        if (wishlist.isEmpty()) {
-            return new ArrayList<>();
-        }
+    public TimetableCombinationResult generateTimetableCombinations(Long userId, TimetableCombinationCriteria criteria) {
+        return generateTimetableCombinations(userId, criteria, null);
+    }
 
-        // 과목명별로 그룹화하여 중복 제거.
-        // 같은 과목명 그룹 안에 '필수(isRequired)' 분반이 있으면 그 분반을 우선 보존한다.
-        // (priority 가 앞선 선택 분반이 필수 분반을 덮어 필수 플래그가 소실되는 문제 방지)
-        Map<String, WishlistItem> uniqueSubjects = new LinkedHashMap<>();
-        for (WishlistItem item : wishlist) {
-            String subjectName = item.getSubject().getSubjectName();
-            WishlistItem existing = uniqueSubjects.get(subjectName);
-            if (existing == null) {
-                uniqueSubjects.put(subjectName, item);
-            } else if (Boolean.TRUE.equals(item.getIsRequired())
-                    && !Boolean.TRUE.equals(existing.getIsRequired())) {
-                uniqueSubjects.put(subjectName, item);
+    /**
+     * continuationToken 이 있으면 앞 페이지 뒤의 조합부터 maxCombinations 개를 돌려준다. 결과는 처음부터 더 많이 요청했을 때
+     * 그 뒤쪽에 올 조합과 같다(순위 없는 결과는 페이지 안에서만 학점 차이순으로 정렬한다). 다음 페이지가 있으면 결과의
+     * continuationToken 에 다음 토큰을 담는다.
+     *
+     * <p>토큰이 맞지 않으면 400, 그사이 위시리스트나 과목 데이터가 바뀌어 이어 볼 수 없으면 409 다.</p>
+     */
+    public TimetableCombinationResult generateTimetableCombinations(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            String continuationToken) {
+        CombinationContinuationTokens.Cursor cursor = continuationToken != null
+                ? continuationTokens.decode(userId, continuationToken)
+                : null;
+        return search(userId, criteria, null, null, null, true, cursor);
+    }
+
+    /**
+     * 목표 학점·공강 요일·조합 수만 다른 여러 조건을 탐색 한 번으로 만든다. 결과는 variants 순서이고,
+     * 조건마다 generate 와 같은 조합을 돌려준다. 다만 노드 예산과 마감은 조건들이 함께 쓰므로, 큰 위시리스트에서는
+     * 따로 부를 때보다 일찍 truncated 나 searchBudgetExhausted 가 될 수 있고, 탐색 규모 지표는 공유 탐색의 값이다.
+     *
+     * <p>semester·sectionAware·ranking·diversity 와 시간 조건(earliestStart·latestEnd·blockedTimes)은 모든 조건이 같아야 한다.
+     * 병렬 엔진 설정과 관계없이 순차로 탐색한다.</p>
+     */
+    public List<TimetableCombinationResult> generateTimetableCombinationBatch(
+            Long userId,
+            List<TimetableCombinationCriteria> variants) {
+        if (variants.isEmpty()) {
+            return List.of();
+        }
+        TimetableCombinationCriteria first = variants.get(0);
+        for (TimetableCombinationCriteria variant : variants) {
+            if (!Objects.equals(variant.semester(), first.semester())
+                    || variant.sectionAware() != first.sectionAware()
+                    || !Objects.equals(variant.ranking(), first.ranking())
+                    || !Objects.equals(variant.earliestStart(), first.earliestStart())
+                    || !Objects.equals(variant.latestEnd(), first.latestEnd())
+                    || !Objects.equals(variant.blockedTimes(), first.blockedTimes())
+                    || variant.diversity() != first.diversity()) {
+                throw ApiException.badRequest(
+                        "variants 는 semester, sectionAware, ranking, diversity 와 시간 조건이 모두 같아야 합니다.");
             }
         }
+        return searchBatch(userId, variants, true);
+    }
+
+    private List<TimetableCombinationResult> searchBatch(
+            Long userId,
+            List<TimetableCombinationCriteria> variants,
+            boolean preferIndex) {
+        TimetableCombinationCriteria shared = variants.get(0);
+        TimetableScoreFunction scoreFunction = shared.ranking() != null
+                ? TimetableScoreFunctions.parse(shared.ranking())
+                : null;
+
+        LoadedWishlist wishlist = loadWishlist(userId, shared.semester(), preferIndex);
+        if (wishlist.items().isEmpty()) {
+            return variants.stream()
+                    .map(variant -> TimetableCombinationResult.empty(variant.sectionAware(), variant.ranking()))
+                    .toList();
+        }
 
-        List<WishlistItem> deduplicatedWishlist = new ArrayList<>(uniqueSubjects.values());
-
-        // 필수 과목과 선택 과목 분리
-        List<Subject> requiredSubjects = deduplicatedWishlist.stream()
-            .filter(item -> item.getIsRequired() != null && item.getIsRequired())
-            .map(WishlistItem::getSubject)
-            .collect(Collectors.toList());
-
-        List<Subject> optionalSubjects = deduplicatedWishlist.stream()
-            .filter(item -> item.getIsRequired() == null || !item.getIsRequired())
-            .map(WishlistItem::getSubject)
-            .collect(Collectors.toList());
-
-        Set<String> freeDaySet = freeDays == null ? Set.of() : new HashSet<>(freeDays);
-        TimeSlotEncoder timeSlotEncoder = new TimeSlotEncoder();
-        List<SubjectOption> requiredOptions = requiredSubjects.stream()
-                .map(subject -> SubjectOption.from(subject, timeSlotEncoder))
-                .toList();
-        List<SubjectOption> optionalOptions = optionalSubjects.stream()
-                .map(subject -> SubjectOption.from(subject, timeSlotEncoder))
-                .toList();
-
-        BitSet requiredTimeMask = new BitSet();
-        int requiredCredits = 0;
-        for (SubjectOption requiredOption : requiredOptions) {
-            if (requiredOption.hasFreeDayConflict(freeDaySet)
-                    || requiredOption.hasTimeConflict(requiredTimeMask)) {
-                return new ArrayList<>(); // 필수 과목들끼리 시간이 겹치거나 공강 요일을 위반하면 조합 생성 불가
+        long startedAt = System.nanoTime();
+        SearchDeadline deadline = SearchDeadline.after(searchDeadline);
+        TimeSlotMask forbiddenSlots = forbiddenSlots(shared);
+
+        // 필수 과목 충돌과 최대 학점은 공강 요일에 따라 달라지므로 공강 요일 조합마다 따로 컴파일해 구한다.
+        // 분반 목록은 공강 요일과 관계없이 같으므로 분반 번호는 모든 컴파일에서 같다.
+        Map<Integer, CombinationSearch> searchesByFreeDays = new HashMap<>();
+        TimetableCombinationResult[] results = new TimetableCombinationResult[variants.size()];
+        CombinationSearch.MaximumCredits[] maximumCredits = new CombinationSearch.MaximumCredits[variants.size()];
+        int[] effectiveTargetCredits = new int[variants.size()];
+        List<Integer> searchedVariants = new ArrayList<>();
+        List<CombinationSearch.BatchVariant> batchVariants = new ArrayList<>();
+        for (int v = 0; v < variants.size(); v++) {
+            TimetableCombinationCriteria variant = variants.get(v);
+            int freeDayBits = CombinationSearch.dayBits(variant.freeDays());
+            CombinationSearch variantSearch = searchesByFreeDays.computeIfAbsent(freeDayBits,
+                    ignored -> CombinationSearch.compileItems(
+                            wishlist.items(), shared.sectionAware(), variant.freeDays(), forbiddenSlots));
+            int[] requiredConflict = variantSearch.requiredConflict();
+            if (requiredConflict != null) {
+                TimetableCombinationResult.RequiredConflict conflict =
+                        requiredConflict(variantSearch, requiredConflict, wishlist);
+                if (conflict == null) {
+                    return searchBatch(userId, variants, false);
+                }
+                results[v] = requiredConflictResult(variant, variantSearch, conflict);
+                continue;
             }
-            requiredTimeMask.or(requiredOption.timeMask());
-            requiredCredits += requiredOption.credits();
+            if (variant.targetCredits() == null) {
+                maximumCredits[v] = variantSearch.maximumCredits(
+                        exactMaximumCreditOptions, MAX_TARGET_SEARCH_NODES, deadline);
+            }
+            effectiveTargetCredits[v] = maximumCredits[v] != null
+                    ? maximumCredits[v].credits()
+                    : variant.targetCredits();
+            searchedVariants.add(v);
+            batchVariants.add(new CombinationSearch.BatchVariant(
+                    effectiveTargetCredits[v], freeDayBits, variant.maxCombinations()));
         }
 
-        List<List<Subject>> combinations = new ArrayList<>();
-        int[] optionalSuffixCredits = suffixCredits(optionalOptions);
-        int effectiveTargetCredits = targetCredits != null
-                ? targetCredits
-                : findMaximumFeasibleCredits(
-                        optionalOptions,
-                        0,
-                        requiredCredits,
-                        requiredTimeMask,
-                        freeDaySet,
-                        optionalSuffixCredits,
-                        requiredCredits,
-                        new int[]{0});
-
-        // 필수 과목을 먼저 포함한 상태로 조합 생성
-        generateCombinationsWithRequired(optionalOptions, new ArrayList<>(requiredSubjects), 0,
-                requiredCredits, requiredTimeMask, effectiveTargetCredits, combinations, maxCombinations,
-                freeDaySet, optionalSuffixCredits);
+        // 공강 요일 없이 컴파일한 탐색 하나로 모든 조건의 조합을 모은다. 시간 조건은 모든 조건이 같으므로 함께 컴파일한다.
+        CombinationSearch search = CombinationSearch.compileItems(
+                wishlist.items(), shared.sectionAware(), List.of(), forbiddenSlots);
+        int nodeBudget = scoreFunction != null
+                ? MAX_RANKING_SEARCH_NODES
+                : shared.sectionAware() ? MAX_TARGET_SEARCH_NODES : CombinationSearch.UNLIMITED_NODES;
+        List<CombinationSearch.Enumeration> enumerations = batchVariants.isEmpty()
+                ? List.of()
+                : search.enumerateBatch(
+                        batchVariants, CREDIT_TOLERANCE, nodeBudget, scoreFunction, deadline, shared.diversity());
+
+        List<List<int[]>> selections = new ArrayList<>();
+        List<List<Long>> scores = new ArrayList<>();
+        for (int i = 0; i < enumerations.size(); i++) {
+            int v = searchedVariants.get(i);
+            List<Long> variantScores = new ArrayList<>();
+            selections.add(selections(
+                            search, enumerations.get(i), effectiveTargetCredits[v], scoreFunction, true, true,
+                            variantScores)
+                    .stream()
+                    .limit(variants.get(v).maxCombinations())
+                    .toList());
+            scores.add(variantScores);
+        }
+        Map<Long, Subject> subjectsById = subjectsById(wishlist, selections.stream()
+                .flatMap(List::stream)
+                .flatMapToInt(Arrays::stream)
+                .mapToObj(search::subjectId)
+                .collect(Collectors.toSet()));
+        if (subjectsById == null) {
+            return searchBatch(userId, variants, false);
+        }
 
-        // 필수 과목 학점 합이 목표+tolerance 를 넘어 유효 조합이 하나도 없으면,
-        // 필수 과목만으로 구성된 시간표를 최소 1개 보장한다(필수는 반드시 포함되어야 하므로).
-        // 필수끼리의 시간 충돌은 위에서 이미 걸러졌으므로 여기 도달하면 유효한 조합이다.
-        if (combinations.isEmpty() && !requiredSubjects.isEmpty()) {
-            combinations.add(new ArrayList<>(requiredSubjects));
+        int resultCount = 0;
+        boolean anyTruncated = false;
+        for (int i = 0; i < enumerations.size(); i++) {
+            int v = searchedVariants.get(i);
+            TimetableCombinationCriteria variant = variants.get(v);
+            CombinationSearch.Enumeration enumeration = enumerations.get(i);
+            List<List<Subject>> combinations = selections.get(i).stream()
+                    .map(chosen -> subjects(search, chosen, subjectsById))
+                    .collect(Collectors.toList());
+            List<TimetableCombinationStatistics> statistics = selections.get(i).stream()
+                    .map(search::statistics)
+                    .toList();
+            boolean truncated = enumeration.deadlineExceeded()
+                    || maximumCredits[v] != null && maximumCredits[v].deadlineExceeded();
+            resultCount += combinations.size();
+            anyTruncated |= truncated;
+            results[v] = new TimetableCombinationResult(
+                    combinations,
+                    statistics,
+                    effectiveTargetCredits[v],
+                    variant.sectionAware(),
+                    search.groupCount(),
+                    search.optionCount(),
+                    enumeration.exploredOptionCount(),
+                    enumeration.visitedNodes(),
+                    enumeration.budgetExhausted(),
+                    variant.ranking(),
+                    scores.get(i),
+                    null,
+                    maximumCredits[v] != null ? maximumCredits[v].proven() : null,
+                    truncated,
+                    enumeration.nearDuplicates(),
+                    null);
         }
+        metrics.record(wishlist.items().size(), System.nanoTime() - startedAt,
+                enumerations.isEmpty() ? null : enumerations.get(0), resultCount, anyTruncated);
+        return List.of(results);
+    }
 
-        // 학점 기준으로 정렬 (목표 학점에 가까운 순)
-        combinations.sort((a, b) -> {
-            int creditsA = a.stream().mapToInt(Subject::getCredits).sum();
-            int creditsB = b.stream().mapToInt(Subject::getCredits).sum();
+    /**
+     * generate 가 만들 수 있는 조합의 수를 조합을 만들지 않고 센다. maxCombinations 와 ranking 은 쓰지 않는다.
+     */
+    public TimetableCombinationCount countTimetableCombinations(Long userId, TimetableCombinationCriteria criteria) {
+        return count(userId, criteria, true);
+    }
 
-            int diffA = Math.abs(creditsA - effectiveTargetCredits);
-            int diffB = Math.abs(creditsB - effectiveTargetCredits);
+    private TimetableCombinationCount count(Long userId, TimetableCombinationCriteria criteria, boolean preferIndex) {
+        LoadedWishlist wishlist = loadWishlist(userId, criteria.semester(), preferIndex);
+        if (wishlist.items().isEmpty()) {
+            return new TimetableCombinationCount(0, true, false, 0, null);
+        }
 
-            return Integer.compare(diffA, diffB);
-        });
+        CombinationSearch search = CombinationSearch.compileItems(
+                wishlist.items(), criteria.sectionAware(), criteria.freeDays(), forbiddenSlots(criteria));
+        int[] requiredConflict = search.requiredConflict();
+        if (requiredConflict != null) {
+            TimetableCombinationResult.RequiredConflict conflict = requiredConflict(search, requiredConflict, wishlist);
+            if (conflict == null) {
+                return count(userId, criteria, false);
+            }
+            return new TimetableCombinationCount(
+                    0,
+                    true,
+                    false,
+                    criteria.targetCredits() != null ? criteria.targetCredits() : 0,
+                    conflict);
+        }
 
-        return combinations.stream().limit(maxCombinations).collect(Collectors.toList());
+        int effectiveTargetCredits = criteria.targetCredits() != null
+                ? criteria.targetCredits()
+                : search.maximumCredits(exactMaximumCreditOptions, MAX_TARGET_SEARCH_NODES, SearchDeadline.NONE)
+                        .credits();
+        CombinationSearch.Count count = search.count(
+                effectiveTargetCredits, CREDIT_TOLERANCE, COMBINATION_COUNT_CAP, MAX_COUNT_STATES);
+        // 구간에 드는 조합이 없으면 generate 는 필수 과목만의 시간표 하나를 돌려준다.
+        if (count.exact() && count.count() == 0 && search.hasRequiredSelection()) {
+            return new TimetableCombinationCount(1, true, false, effectiveTargetCredits, null);
+        }
+        return new TimetableCombinationCount(
+                count.count(), count.exact(), count.capped(), effectiveTargetCredits, null);
     }
-    
-    private void generateCombinationsWithRequired(List<SubjectOption> optionalSubjects, List<Subject> current,
-                                                int startIndex, int currentCredits, BitSet currentTimeMask,
-                                                int targetCredits, List<List<Subject>> combinations,
-                                                int maxCombinations, Set<String> freeDays, int[] suffixCredits) {
 
-        if (combinations.size() >= maxCombinations) {
-            return;
-        }
+    /**
+     * 조합을 찾는 즉시 그 통계와 함께 sink 로 넘긴다. sink 가 false 를 돌려주면(클라이언트 연결 종료 등) 탐색을 멈춘다.
+     *
+     * <p>순위 없는 탐색은 깊이 우선으로 찾은 순서대로 넘기므로 학점 차이순 정렬은 하지 않는다.
+     * 순위 탐색은 끝나야 순위가 정해지므로 탐색이 끝난 뒤 순위대로 넘긴다. 반환값의 combinations 는 넘긴 순서와 같다.</p>
+     *
+     * <p>마감은 generate 와 같다. 마감이 지나면 그때까지 넘긴 조합으로 끝나고 결과의 truncated 가 true 다.</p>
+     */
+    public TimetableCombinationResult streamTimetableCombinations(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            BiPredicate<List<Subject>, TimetableCombinationStatistics> sink) {
+        // 스트리밍은 찾는 즉시 엔티티를 넘겨야 하므로 처음부터 엔티티로 읽는다.
+        return search(userId, criteria, null, Objects.requireNonNull(sink), null, false, null);
+    }
+
+    /**
+     * {@link #streamTimetableCombinations(Long, TimetableCombinationCriteria, BiPredicate)} 와 같지만
+     * {@link #loadStreamWishlist} 로 미리 읽은 위시리스트를 쓰고 DB 를 읽지 않는다. 부르는 쪽은 트랜잭션 밖에서 탐색할 수 있다.
+     *
+     * @param cancelled true 가 되면 탐색을 멈춘다. 조합을 찾지 못하는 가지를 도는 중에도 마감과 같은 주기로 확인한다.
+     */
+    public TimetableCombinationResult streamTimetableCombinations(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            List<WishlistItem> wishlist,
+            BiPredicate<List<Subject>, TimetableCombinationStatistics> sink,
+            BooleanSupplier cancelled) {
+        return search(userId, criteria, entityWishlist(wishlist), Objects.requireNonNull(sink),
+                Objects.requireNonNull(cancelled), false, null);
+    }
 
-        int minCredits = targetCredits - CREDIT_TOLERANCE;
-        int maxCredits = targetCredits + CREDIT_TOLERANCE;
+    /**
+     * 스트리밍에 넣을 위시리스트를 과목·일정까지 조인해 읽는다.
+     */
+    public List<WishlistItem> loadStreamWishlist(Long userId, String semester) {
+        return wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(userId, semester);
+    }
+
+    /**
+     * @param preloaded 부르는 쪽이 미리 읽은 위시리스트. null 이면 여기서 읽는다.
+     * @param cancelled null 이 아니면 true 가 될 때 마감처럼 탐색을 멈춘다.
+     * @param cursor 이어 보기면 앞 페이지의 토큰, 아니면 null. 스트리밍은 페이지를 나누지 않으므로 늘 null 이다.
+     */
+    private TimetableCombinationResult search(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            LoadedWishlist preloaded,
+            BiPredicate<List<Subject>, TimetableCombinationStatistics> sink,
+            BooleanSupplier cancelled,
+            boolean preferIndex,
+            CombinationContinuationTokens.Cursor cursor) {
+        // 순위 식은 위시리스트를 읽기 전에 검증한다.
+        TimetableScoreFunction scoreFunction = criteria.ranking() != null
+                ? TimetableScoreFunctions.parse(criteria.ranking())
+                : null;
+
+        // 위시리스트 가져오기
+        LoadedWishlist wishlist = preloaded != null
+                ? preloaded
+                : loadWishlist(userId, criteria.semester(), preferIndex);
 
-        // 목표 학점 달성 또는 근사치 도달 시 조합 추가.
-        // 과목 0개(빈 시간표)는 targetCredits 가 작아 minCredits<=0 이 되는 경우에도 추천하지 않는다.
-        if (!current.isEmpty() && currentCredits >= minCredits && currentCredits <= maxCredits) {
-            combinations.add(new ArrayList<>(current));
+        if (wishlist.items().isEmpty()) {
+            return TimetableCombinationResult.empty(criteria.sectionAware(), criteria.ranking());
         }
 
-        // 학점이 목표보다 너무 크면 중단
-        if (currentCredits >= maxCredits) {
-            return;
+        // 마감과 탐색 시간은 위시리스트 조회를 빼고 컴파일부터 잰다.
+        long startedAt = System.nanoTime();
+        SearchDeadline deadline = SearchDeadline.after(searchDeadline, cancelled);
+
+        // 과목명별 선택 그룹으로 묶는다. 분반 모드가 아니면 과목명마다 분반 하나만 남긴다.
+        // 공강 요일과 시간 조건에 걸리는 분반은 여기서 한 번에 후보에서 빠진다.
+        CombinationSearch search = CombinationSearch.compileItems(
+                wishlist.items(), criteria.sectionAware(), criteria.freeDays(), forbiddenSlots(criteria));
+
+        // 서로 겹치는 필수 과목 쌍은 컴파일한 충돌 그래프에서 바로 찾아 탐색 없이 알려준다.
+        int[] requiredConflict = search.requiredConflict();
+        if (requiredConflict != null) {
+            TimetableCombinationResult.RequiredConflict conflict = requiredConflict(search, requiredConflict, wishlist);
+            if (conflict == null) {
+                return search(userId, criteria, preloaded, sink, cancelled, false, cursor);
+            }
+            metrics.record(wishlist.items().size(), System.nanoTime() - startedAt, null, 0, false);
+            return requiredConflictResult(criteria, search, conflict);
         }
 
-        if (startIndex >= optionalSubjects.size() || currentCredits + suffixCredits[startIndex] < minCredits) {
-            return;
+        // 토큰은 같은 조건으로 같은 분반 구성을 컴파일했을 때만 이어 볼 수 있다.
+        if (cursor != null && !cursor.matches(CombinationContinuationTokens.searchDigest(criteria, search), search)) {
+            throw ApiException.conflict("위시리스트나 과목 정보가 바뀌어 이어서 볼 수 없습니다. 처음부터 다시 조회해주세요.");
         }
 
-        // 선택 과목들을 재귀적으로 추가
-        for (int i = startIndex; i < optionalSubjects.size(); i++) {
-            SubjectOption option = optionalSubjects.get(i);
-            if (option.hasFreeDayConflict(freeDays)
-                    || option.hasTimeConflict(currentTimeMask)
-                    || currentCredits + option.credits() > maxCredits) {
-                continue;
-            }
+        // 목표 학점이 없으면 달성 가능한 최대 학점을 목표로 삼는다. 이어 보기는 첫 페이지가 정한 목표를 그대로 쓴다.
+        CombinationSearch.MaximumCredits maximumCredits = criteria.targetCredits() == null && cursor == null
+                ? search.maximumCredits(exactMaximumCreditOptions, MAX_TARGET_SEARCH_NODES, deadline)
+                : null;
+        int effectiveTargetCredits = cursor != null
+                ? cursor.effectiveTargetCredits()
+                : maximumCredits != null ? maximumCredits.credits() : criteria.targetCredits();
+
+        // generate 는 다음 페이지가 있는지 알도록 한 개 더 찾는다. 스트리밍은 페이지를 나누지 않는다.
+        // 다양성 조건은 앞에서 고른 조합에 따라 뒤 조합이 달라지므로 이어 보기를 두지 않는다.
+        boolean paged = sink == null && criteria.diversity() == 0;
+        int limit = criteria.maxCombinations();
+        int searchLimit = paged && limit < Integer.MAX_VALUE ? limit + 1 : limit;
+
+        // 순위 없이 스트리밍할 때는 찾은 조합을 바로 넘긴다. 넘긴 조합은 다시 만들지 않도록 모아 둔다.
+        List<List<Subject>> streamed = new ArrayList<>();
+        List<TimetableCombinationStatistics> streamedStatistics = new ArrayList<>();
+        boolean streamingInSearchOrder = sink != null && scoreFunction == null;
+        // 노드 예산 없이 깊이 우선으로 모으거나 순위를 매기는 첫 페이지 generate 만 마지막 탐색을 이어받을 수 있다.
+        boolean incremental = incrementalSearches.enabled() && sink == null && cursor == null
+                && criteria.diversity() == 0 && !criteria.sectionAware();
+        CombinationSearch.Enumeration enumeration = incremental
+                ? enumerateIncrementally(userId, search, wishlist.items().size(), effectiveTargetCredits, criteria,
+                        scoreFunction, searchLimit, deadline)
+                : scoreFunction != null
+                ? search.rank(
+                        effectiveTargetCredits,
+                        CREDIT_TOLERANCE,
+                        searchLimit,
+                        MAX_RANKING_SEARCH_NODES,
+                        scoreFunction,
+                        deadline,
+                        cursor != null ? new CombinationSearch.RankCursor(cursor.score(), cursor.path()) : null,
+                        criteria.diversity())
+                : enumerate(search, wishlist.items().size(), effectiveTargetCredits, criteria, searchLimit, deadline,
+                        !streamingInSearchOrder ? null : chosen -> {
+                            List<Subject> combination = subjects(search, chosen, wishlist.loadedSubjects());
+                            TimetableCombinationStatistics statistics = search.statistics(chosen);
+                            streamed.add(combination);
+                            streamedStatistics.add(statistics);
+                            return sink.test(combination, statistics);
+                        },
+                        cursor != null ? cursor.path() : null,
+                        cursor != null && cursor.inclusive());
+        String nextContinuationToken = paged
+                ? continuationToken(userId, criteria, search, enumeration, effectiveTargetCredits, limit)
+                : null;
+        List<Long> scores = new ArrayList<>();
+        // 필수 과목만의 시간표는 첫 페이지에서만 보장한다.
+        List<int[]> selections = selections(
+                search, enumeration.limit(limit), effectiveTargetCredits, scoreFunction, sink == null, cursor == null,
+                scores);
 
-            current.add(option.subject());
-            BitSet nextTimeMask = (BitSet) currentTimeMask.clone();
-            nextTimeMask.or(option.timeMask());
-            generateCombinationsWithRequired(optionalSubjects, current, i + 1,
-                    currentCredits + option.credits(), nextTimeMask, targetCredits, combinations,
-                    maxCombinations, freeDays, suffixCredits);
-            current.remove(current.size() - 1);
+        List<List<Subject>> combinations = new ArrayList<>();
+        List<TimetableCombinationStatistics> statistics = new ArrayList<>();
+        if (streamingInSearchOrder) {
+            combinations.addAll(streamed);
+            statistics.addAll(streamedStatistics);
+            if (streamed.isEmpty() && !selections.isEmpty()) {
+                combinations.add(subjects(search, selections.get(0), wishlist.loadedSubjects()));
+                statistics.add(search.statistics(selections.get(0)));
+                sink.test(combinations.get(0), statistics.get(0));
+            }
+        } else {
+            List<int[]> limitedSelections = selections.stream().limit(criteria.maxCombinations()).toList();
+            Map<Long, Subject> subjectsById = subjectsById(wishlist, limitedSelections.stream()
+                    .flatMapToInt(Arrays::stream)
+                    .mapToObj(search::subjectId)
+                    .collect(Collectors.toSet()));
+            if (subjectsById == null) {
+                return search(userId, criteria, preloaded, sink, cancelled, false, cursor);
+            }
+            for (int[] chosen : limitedSelections) {
+                combinations.add(subjects(search, chosen, subjectsById));
+                statistics.add(search.statistics(chosen));
+            }
+        }
 
-            if (combinations.size() >= maxCombinations) {
-                return;
+        if (sink != null && scoreFunction != null) {
+            for (int i = 0; i < combinations.size(); i++) {
+                if (!sink.test(combinations.get(i), statistics.get(i))) {
+                    break;
+                }
             }
         }
+
+        boolean truncated = enumeration.deadlineExceeded()
+                || maximumCredits != null && maximumCredits.deadlineExceeded();
+        List<List<Subject>> limited = combinations.stream()
+                .limit(criteria.maxCombinations())
+                .collect(Collectors.toList());
+        metrics.record(wishlist.items().size(), System.nanoTime() - startedAt, enumeration, limited.size(), truncated);
+
+        return new TimetableCombinationResult(
+                limited,
+                List.copyOf(statistics.subList(0, limited.size())),
+                effectiveTargetCredits,
+                criteria.sectionAware(),
+                search.groupCount(),
+                search.optionCount(),
+                enumeration.exploredOptionCount(),
+                enumeration.visitedNodes(),
+                enumeration.budgetExhausted(),
+                criteria.ranking(),
+                scores,
+                null,
+                maximumCredits != null ? maximumCredits.proven() : null,
+                truncated,
+                enumeration.nearDuplicates(),
+                nextContinuationToken);
     }
 
-    private int findMaximumFeasibleCredits(List<SubjectOption> optionalSubjects, int startIndex,
-                                           int currentCredits, BitSet currentTimeMask,
-                                           Set<String> freeDays, int[] suffixCredits,
-                                           int bestCredits, int[] visitedNodes) {
-        if (++visitedNodes[0] > MAX_TARGET_SEARCH_NODES) {
-            return bestCredits;
+    /**
+     * 다음 페이지 토큰. 페이지 크기보다 더 찾았으면 페이지의 마지막 조합 뒤부터 이어 본다.
+     * 순위 없는 탐색은 예산·마감에 걸려 멈췄어도 찾은 조합이 깊이 우선 순서의 앞부분이므로 마지막으로 찾은 조합 뒤부터 이어 본다.
+     * 하나도 찾기 전에 멈췄으면 방문하지 못한 첫 노드부터 이어 본다(병렬 엔진은 멈춘 자리를 모르므로 토큰이 없다).
+     * 순위 탐색이 멈췄으면 고른 조합이 실제 순위의 앞부분이 아닐 수 있어 토큰을 만들지 않는다.
+     */
+    private String continuationToken(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            CombinationSearch search,
+            CombinationSearch.Enumeration enumeration,
+            int effectiveTargetCredits,
+            int limit) {
+        List<int[]> found = enumeration.combinations();
+        boolean ranked = enumeration.scores() != null;
+        boolean stopped = enumeration.budgetExhausted() || enumeration.deadlineExceeded();
+        int[] path;
+        Long score = null;
+        boolean inclusive = false;
+        if (found.size() > limit && !(ranked && stopped)) {
+            path = found.get(limit - 1);
+            score = ranked ? enumeration.scores()[limit - 1] : null;
+        } else if (!ranked && stopped && !found.isEmpty()) {
+            path = found.get(found.size() - 1);
+        } else if (!ranked && stopped && enumeration.stoppedAt() != null && enumeration.stoppedAt().length > 0
+                && search.isSelection(enumeration.stoppedAt())) {
+            path = enumeration.stoppedAt();
+            inclusive = true;
+        } else {
+            return null;
         }
+        return continuationTokens.encode(new CombinationContinuationTokens.Cursor(
+                userId,
+                CombinationContinuationTokens.searchDigest(criteria, search),
+                effectiveTargetCredits,
+                path,
+                search.credits(path),
+                score,
+                inclusive));
+    }
 
-        int best = Math.max(bestCredits, currentCredits);
-        if (startIndex >= optionalSubjects.size()
-                || currentCredits + suffixCredits[startIndex] <= best) {
-            return best;
+    // 시작·끝 교시와 막을 구간을 금지 칸 마스크 하나로 만든다. 공강 요일은 시간 없는 일정도 걸러야 하므로 요일 비트로 따로 본다.
+    private static TimeSlotMask forbiddenSlots(TimetableCombinationCriteria criteria) {
+        if (!criteria.hasTimeConstraints()) {
+            return TimeSlotMask.EMPTY;
+        }
+        TimeSlotMask forbidden = TimeSlotMask.outsideDailyWindow(criteria.earliestStart(), criteria.latestEnd());
+        for (TimetableCombinationCriteria.BlockedTime blocked : criteria.blockedTimes()) {
+            forbidden = forbidden.or(TimeSlotMask.of(blocked.dayOfWeek(), blocked.startTime(), blocked.endTime()));
         }
+        return forbidden;
+    }
 
-        // 포함 가능한 과목부터 탐색해 제한된 탐색 예산 안에서도 높은 학점 조합을 먼저 찾는다.
-        for (int i = startIndex; i < optionalSubjects.size(); i++) {
-            SubjectOption option = optionalSubjects.get(i);
-            if (option.hasFreeDayConflict(freeDays)
-                    || option.hasTimeConflict(currentTimeMask)) {
-                continue;
-            }
+    /**
+     * 탐색 결과를 돌려줄 조합 순서로 정리하고, 순위 탐색이면 점수를 scores 에 담는다.
+     *
+     * @param sortByCredits 순위 없는 결과를 목표 학점에 가까운 순으로 정렬할지(스트리밍은 찾은 순서를 지킨다)
+     * @param requiredFallback 조합이 없을 때 필수 과목만의 시간표를 넣을지(이어 보기 페이지는 넣지 않는다)
+     */
+    private static List<int[]> selections(
+            CombinationSearch search,
+            CombinationSearch.Enumeration enumeration,
+            int effectiveTargetCredits,
+            TimetableScoreFunction scoreFunction,
+            boolean sortByCredits,
+            boolean requiredFallback,
+            List<Long> scores) {
+        List<int[]> selections = new ArrayList<>(enumeration.combinations());
+        if (enumeration.scores() != null) {
+            Arrays.stream(enumeration.scores()).forEach(scores::add);
+        }
 
-            BitSet nextTimeMask = (BitSet) currentTimeMask.clone();
-            nextTimeMask.or(option.timeMask());
-            best = findMaximumFeasibleCredits(
-                    optionalSubjects,
-                    i + 1,
-                    currentCredits + option.credits(),
-                    nextTimeMask,
-                    freeDays,
-                    suffixCredits,
-                    best,
-                    visitedNodes);
+        // 필수 과목 학점 합이 목표+tolerance 를 넘어 유효 조합이 하나도 없으면,
+        // 필수 과목만으로 구성된 시간표를 최소 1개 보장한다(필수는 반드시 포함되어야 하므로).
+        // 필수끼리의 시간 충돌은 탐색에서 이미 걸러졌으므로 여기 도달하면 유효한 조합이다.
+        int[] requiredSelection = enumeration.firstRequiredSelection();
+        if (requiredFallback && selections.isEmpty() && requiredSelection != null && requiredSelection.length > 0) {
+            selections.add(requiredSelection);
+            if (scoreFunction != null) {
+                scores.add(search.score(requiredSelection, effectiveTargetCredits, scoreFunction));
+            }
         }
-        return best;
-    }
 
-    private int[] suffixCredits(List<SubjectOption> optionalSubjects) {
-        int[] suffixCredits = new int[optionalSubjects.size() + 1];
-        for (int i = optionalSubjects.size() - 1; i >= 0; i--) {
-            suffixCredits[i] = suffixCredits[i + 1] + optionalSubjects.get(i).credits();
+        if (sortByCredits && scoreFunction == null) {
+            // 학점 기준으로 정렬 (목표 학점에 가까운 순)
+            selections.sort(Comparator.comparingInt(
+                    chosen -> Math.abs(search.credits(chosen) - effectiveTargetCredits)));
         }
-        return suffixCredits;
-    }
-    
-    public Map<String, Object> getTimetableStatistics(List<Subject> subjects) {
-        Map<String, Object> stats = new HashMap<>();
-
-        int totalCredits = subjects.stream().mapToInt(Subject::getCredits).sum();
-
-        Map<String, Long> subjectTypeCount = subjects.stream()
-            .collect(Collectors.groupingBy(
-                s -> s.getSubjectType().toString(),
-                Collectors.counting()
-            ));
-
-        // 요일별 수업 개수 계산
-        Map<String, Long> dayCount = subjects.stream()
-            .flatMap(subject -> subject.getSchedules().stream())
-            .collect(Collectors.groupingBy(
-                Schedule::getDayOfWeek,
-                Collectors.counting()
-            ));
-
-        // 공강 요일 계산 (월~금 중 수업이 없는 요일)
-        List<String> allDays = List.of("월", "화", "수", "목", "금");
-        List<String> actualFreeDays = allDays.stream()
-            .filter(day -> !dayCount.containsKey(day))
-            .collect(Collectors.toList());
-
-        stats.put("totalCredits", totalCredits);
-        stats.put("subjectCount", subjects.size());
-        stats.put("subjectTypeDistribution", subjectTypeCount);
-        stats.put("dayDistribution", dayCount);
-        stats.put("freeDays", actualFreeDays);
-
-        return stats;
+        return selections;
     }
 
-    private record SubjectOption(Subject subject, int credits, BitSet timeMask, Set<String> classDays) {
+    private static TimetableCombinationResult requiredConflictResult(
+            TimetableCombinationCriteria criteria,
+            CombinationSearch search,
+            TimetableCombinationResult.RequiredConflict conflict) {
+        return new TimetableCombinationResult(
+                List.of(),
+                List.of(),
+                criteria.targetCredits() != null ? criteria.targetCredits() : 0,
+                criteria.sectionAware(),
+                search.groupCount(),
+                search.optionCount(),
+                0,
+                0,
+                false,
+                criteria.ranking(),
+                List.of(),
+                conflict,
+                criteria.targetCredits() == null ? true : null,
+                false,
+                0,
+                null);
+    }
 
-        private static SubjectOption from(Subject subject, TimeSlotEncoder timeSlotEncoder) {
-            BitSet timeMask = new BitSet();
-            Set<String> classDays = new HashSet<>();
-            for (Schedule schedule : subject.getSchedules()) {
-                if (schedule.getDayOfWeek() != null) {
-                    classDays.add(schedule.getDayOfWeek());
-                }
-                if (schedule.getDayOfWeek() == null
-                        || schedule.getStartTime() == null
-                        || schedule.getEndTime() == null) {
-                    continue;
-                }
-                int dayIndex = timeSlotEncoder.dayIndex(schedule.getDayOfWeek());
-                int startSlot = (int) Math.round(schedule.getStartTime() * 2);
-                int endSlot = (int) Math.round(schedule.getEndTime() * 2);
-                for (int slot = startSlot; slot < endSlot; slot++) {
-                    timeMask.set(dayIndex * SLOTS_PER_DAY + slot);
+    /**
+     * 탐색에 넣을 위시리스트 항목을 읽는다. 과목 마스크 색인에 모든 과목이 있으면 위시리스트에서는 과목 id·필수 여부만 읽고,
+     * 엔티티는 결과에 든 과목만 나중에 읽는다. 색인이 없거나 빠진 과목이 있으면 과목·일정까지 조인해 읽는다.
+     */
+    private LoadedWishlist loadWishlist(Long userId, String semester, boolean preferIndex) {
+        if (preferIndex) {
+            SubjectMaskIndex.Snapshot snapshot = subjectMaskIndex.snapshot(semester);
+            if (snapshot != null) {
+                List<WishlistRepository.WishlistFingerprintRow> rows =
+                        wishlistRepository.findFingerprintRowsByUserIdAndSemester(userId, semester);
+                int[] entries = subjectMaskIndex.resolve(snapshot, rows.stream()
+                        .map(WishlistRepository.WishlistFingerprintRow::getSubjectId)
+                        .toList());
+                if (entries != null) {
+                    List<CombinationSearch.Item> items = new ArrayList<>(entries.length);
+                    for (int i = 0; i < entries.length; i++) {
+                        items.add(CombinationSearch.Item.from(
+                                snapshot, entries[i], Boolean.TRUE.equals(rows.get(i).getIsRequired())));
+                    }
+                    return new LoadedWishlist(items, null);
                 }
             }
-            return new SubjectOption(subject, subject.getCredits(), timeMask, classDays);
         }
 
-        private boolean hasTimeConflict(BitSet currentTimeMask) {
-            return currentTimeMask.intersects(timeMask);
-        }
+        return entityWishlist(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(userId, semester));
+    }
+
+    private static LoadedWishlist entityWishlist(List<WishlistItem> wishlist) {
+        Map<Long, Subject> subjects = new HashMap<>();
+        wishlist.forEach(item -> subjects.put(item.getSubject().getId(), item.getSubject()));
+        return new LoadedWishlist(wishlist.stream().map(CombinationSearch.Item::from).toList(), subjects);
+    }
 
-        private boolean hasFreeDayConflict(Set<String> freeDays) {
-            return !freeDays.isEmpty() && classDays.stream().anyMatch(freeDays::contains);
+    // 과목 id → 엔티티. 색인으로 읽은 위시리스트의 과목이 그새 비활성화되었으면 null 이고, 부르는 쪽은 엔티티 경로로 다시 구한다.
+    private Map<Long, Subject> subjectsById(LoadedWishlist wishlist, Set<Long> subjectIds) {
+        if (wishlist.loadedSubjects() != null) {
+            return wishlist.loadedSubjects();
         }
+        if (subjectIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Subject> subjects = new HashMap<>();
+        subjectRepository.findWithSchedulesByIds(List.copyOf(subjectIds))
+                .forEach(subject -> subjects.put(subject.getId(), subject));
+        return subjects.keySet().containsAll(subjectIds) ? subjects : null;
     }
 
-    private static class TimeSlotEncoder {
-        private final Map<String, Integer> dayIndexes = new HashMap<>();
+    private TimetableCombinationResult.RequiredConflict requiredConflict(
+            CombinationSearch search,
+            int[] requiredConflict,
+            LoadedWishlist wishlist) {
+        long first = search.subjectId(requiredConflict[0]);
+        long second = search.subjectId(requiredConflict[1]);
+        Map<Long, Subject> subjects = subjectsById(wishlist, Set.of(first, second));
+        return subjects == null
+                ? null
+                : TimetableCombinationResult.RequiredConflict.of(subjects.get(first), subjects.get(second));
+    }
 
-        private TimeSlotEncoder() {
-            for (int i = 0; i < KNOWN_DAYS.size(); i++) {
-                dayIndexes.put(KNOWN_DAYS.get(i), i);
-            }
+    private static List<Subject> subjects(CombinationSearch search, int[] chosen, Map<Long, Subject> subjectsById) {
+        List<Subject> subjects = new ArrayList<>(chosen.length);
+        for (int optionIndex : chosen) {
+            subjects.add(subjectsById.get(search.subjectId(optionIndex)));
         }
+        return subjects;
+    }
 
-        private int dayIndex(String dayOfWeek) {
-            return dayIndexes.computeIfAbsent(dayOfWeek, ignored -> dayIndexes.size());
+    /**
+     * 같은 조건의 마지막 탐색에서 위시리스트 과목 하나만 바뀌었으면 그 결과를 거르거나 늘려 만들고, 아니면 처음부터 탐색한다.
+     * 어느 쪽이든 결과는 처음부터 탐색한 것과 같고, 다음 요청을 위해 기억해 둔다.
+     */
+    private CombinationSearch.Enumeration enumerateIncrementally(
+            Long userId,
+            CombinationSearch search,
+            int wishlistSize,
+            int effectiveTargetCredits,
+            TimetableCombinationCriteria criteria,
+            TimetableScoreFunction scoreFunction,
+            int maxCombinations,
+            SearchDeadline deadline) {
+        CombinationSearch.Enumeration enumeration = incrementalSearches.derive(userId, criteria, effectiveTargetCredits,
+                search, CREDIT_TOLERANCE, maxCombinations, scoreFunction, MAX_RANKING_SEARCH_NODES, deadline);
+        metrics.recordIncremental(enumeration != null);
+        if (enumeration == null) {
+            enumeration = scoreFunction != null
+                    ? search.rank(effectiveTargetCredits, CREDIT_TOLERANCE, maxCombinations, MAX_RANKING_SEARCH_NODES,
+                            scoreFunction, deadline)
+                    : enumerate(search, wishlistSize, effectiveTargetCredits, criteria, maxCombinations, deadline,
+                            null, null, false);
         }
+        incrementalSearches.remember(userId, criteria, effectiveTargetCredits, search, enumeration);
+        return enumeration;
+    }
+
+    // 순위 없이 깊이 우선 순서로 앞쪽 maxCombinations 개를 모은다. 필수 과목을 먼저 포함한 상태로 조합 생성.
+    private CombinationSearch.Enumeration enumerate(
+            CombinationSearch search,
+            int wishlistSize,
+            int effectiveTargetCredits,
+            TimetableCombinationCriteria criteria,
+            int maxCombinations,
+            SearchDeadline deadline,
+            Predicate<int[]> listener,
+            int[] resumeAfter,
+            boolean resumeInclusive) {
+        // 분반 모드는 후보 공간이 커지므로 조합 열거에도 최대 학점 탐색과 같은 노드 예산을 적용한다.
+        int enumerationBudget = criteria.sectionAware()
+                ? MAX_TARGET_SEARCH_NODES
+                : CombinationSearch.UNLIMITED_NODES;
+        // 위시리스트가 충분히 크면 병렬 엔진으로 나눠 탐색한다(결과는 순차 엔진과 같다).
+        // 찾는 즉시 넘겨야 하는 스트리밍과 이어 보기, 앞서 모은 조합을 보고 거르는 다양성 조건은 순차 엔진으로만 탐색한다.
+        if (listener == null && resumeAfter == null && criteria.diversity() == 0
+                && combinationPool != null && wishlistSize >= forkThreshold) {
+            return search.enumerateInParallel(
+                    effectiveTargetCredits,
+                    CREDIT_TOLERANCE,
+                    maxCombinations,
+                    enumerationBudget,
+                    combinationPool,
+                    deadline);
+        }
+        return search.enumerate(
+                effectiveTargetCredits,
+                CREDIT_TOLERANCE,
+                maxCombinations,
+                enumerationBudget,
+                listener,
+                deadline,
+                resumeAfter,
+                resumeInclusive,
+                criteria.diversity());
+    }
+
+    /**
+     * @param loadedSubjects 엔티티 경로로 읽었으면 위시리스트 과목 전체, 색인 경로면 null.
+     */
+    private record LoadedWishlist(List<CombinationSearch.Item> items, Map<Long, Subject> loadedSubjects) {
     }
 }
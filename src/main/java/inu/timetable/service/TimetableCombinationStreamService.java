@@ -0,0 +1,214 @@
+package inu.timetable.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import inu.timetable.dto.TimetableCombinationCriteria;
+import inu.timetable.dto.TimetableCombinationResult;
+import inu.timetable.dto.TimetableCombinationStatistics;
+import inu.timetable.entity.Subject;
+import inu.timetable.entity.WishlistItem;
+import inu.timetable.exception.ApiException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 시간표 조합을 찾는 즉시 SSE(text/event-stream) 또는 NDJSON(application/x-ndjson)으로 내보낸다.
+ *
+ * <p>탐색은 전용 작업 스레드에서 돌고 요청 스레드는 emitter 를 돌려준 뒤 바로 반환된다.
+ * 클라이언트가 연결을 끊으면(전송 실패, emitter 종료/타임아웃) 탐색이 마감을 확인하는 주기에 멈춘다.
+ * 작업 스레드에는 open-in-view 세션이 없으므로, 위시리스트를 읽고 과목의 지연 로딩 연관(강의실 구간 등)까지 JSON 트리로 만드는
+ * 일만 짧은 읽기 전용 트랜잭션 안에서 한다. 탐색과 전송은 DB 연결을 잡지 않고 한다.</p>
+ */
+@Slf4j
+@Service
+public class TimetableCombinationStreamService {
+
+    private static final byte NEWLINE = '\n';
+
+    private final TimetableCombinationService combinationService;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor streamExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long timeoutMillis;
+    private final Duration retryAfter;
+
+    public TimetableCombinationStreamService(
+            TimetableCombinationService combinationService,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${timetable.combination.stream.threads:4}") int threads,
+            @Value("${timetable.combination.stream.queue-capacity:32}") int queueCapacity,
+            @Value("${timetable.combination.stream.timeout-ms:30000}") long timeoutMillis,
+            @Value("${timetable.combination.stream.retry-after:1s}") String retryAfter) {
+        this.combinationService = combinationService;
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfter = DurationStyle.detectAndParse(retryAfter);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.streamExecutor = new ThreadPoolExecutor(
+                Math.max(1, threads),
+                Math.max(1, threads),
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "combination-stream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+
+    /**
+     * @param ndjson true 이면 한 줄에 JSON 하나씩(type 필드로 구분), false 이면 SSE 이벤트(combination, done, error)로 보낸다.
+     */
+    public ResponseBodyEmitter open(Long userId, TimetableCombinationCriteria criteria, boolean ndjson) {
+        // 잘못된 순위 식은 스트림을 열기 전에 400 으로 돌려준다.
+        if (criteria.ranking() != null) {
+            TimetableScoreFunctions.parse(criteria.ranking());
+        }
+
+        ResponseBodyEmitter emitter = ndjson ? new ResponseBodyEmitter(timeoutMillis) : new SseEmitter(timeoutMillis);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        emitter.onCompletion(() -> cancelled.set(true));
+        emitter.onTimeout(() -> cancelled.set(true));
+        emitter.onError(error -> cancelled.set(true));
+
+        try {
+            streamExecutor.execute(() -> stream(userId, criteria, emitter, ndjson, cancelled));
+        } catch (RejectedExecutionException e) {
+            throw ApiException.serviceUnavailable("시간표 조합 요청이 많습니다. 잠시 후 다시 시도해주세요.", retryAfter);
+        }
+        return emitter;
+    }
+
+    private void stream(
+            Long userId,
+            TimetableCombinationCriteria criteria,
+            ResponseBodyEmitter emitter,
+            boolean ndjson,
+            AtomicBoolean cancelled) {
+        AtomicInteger index = new AtomicInteger();
+        try {
+            Map<Long, JsonNode> subjectJson = new HashMap<>();
+            List<WishlistItem> wishlist = readOnlyTransaction.execute(status -> {
+                List<WishlistItem> items = combinationService.loadStreamWishlist(userId, criteria.semester());
+                for (WishlistItem item : items) {
+                    subjectJson.computeIfAbsent(item.getSubject().getId(),
+                            subjectId -> objectMapper.valueToTree(item.getSubject()));
+                }
+                return items;
+            });
+            TimetableCombinationResult result = combinationService.streamTimetableCombinations(
+                    userId,
+                    criteria,
+                    wishlist,
+                    (combination, statistics) -> !cancelled.get()
+                            && send(emitter, ndjson, "combination",
+                                    combinationEvent(index.getAndIncrement(), combination, subjectJson, statistics),
+                                    cancelled),
+                    cancelled::get);
+            if (!cancelled.get()) {
+                send(emitter, ndjson, "done", doneEvent(result), cancelled);
+            }
+            if (cancelled.get()) {
+                log.debug("Timetable combination stream cancelled by client: userId={}, sent={}", userId, index.get());
+                return;
+            }
+            emitter.complete();
+        } catch (RuntimeException e) {
+            log.warn("Timetable combination stream failed: userId={}", userId, e);
+            if (!cancelled.get()) {
+                send(emitter, ndjson, "error", Map.of("message", "시간표 조합 생성 중 오류가 발생했습니다."), cancelled);
+                emitter.complete();
+            }
+        }
+    }
+
+    private Map<String, Object> combinationEvent(
+            int index,
+            List<Subject> combination,
+            Map<Long, JsonNode> subjectJson,
+            TimetableCombinationStatistics statistics) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("index", index);
+        event.put("combination", combination.stream().map(subject -> subjectJson.get(subject.getId())).toList());
+        event.put("statistics", statistics);
+        return event;
+    }
+
+    private Map<String, Object> doneEvent(TimetableCombinationResult result) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("totalCount", result.combinations().size());
+        event.put("effectiveTargetCredits", result.effectiveTargetCredits());
+        event.put("maximumCreditsProven", result.maximumCreditsProven());
+        event.put("sectionAware", result.sectionAware());
+        event.put("candidateSections", result.candidateSectionCount());
+        event.put("exploredSections", result.exploredSectionCount());
+        event.put("searchBudgetExhausted", result.searchBudgetExhausted());
+        event.put("truncated", result.truncated());
+        event.put("ranking", result.ranking());
+        event.put("scores", result.scores());
+        event.put("requiredConflict", result.requiredConflict());
+        return event;
+    }
+
+    // 전송에 실패하면 클라이언트가 떠난 것으로 보고 cancelled 를 세운다.
+    private boolean send(
+            ResponseBodyEmitter emitter,
+            boolean ndjson,
+            String type,
+            Map<String, Object> payload,
+            AtomicBoolean cancelled) {
+        try {
+            if (ndjson) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("type", type);
+                line.putAll(payload);
+                emitter.send(ndjsonLine(line), MediaType.APPLICATION_NDJSON);
+            } else {
+                ((SseEmitter) emitter).send(SseEmitter.event().name(type).data(payload, MediaType.APPLICATION_JSON));
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            cancelled.set(true);
+            return false;
+        }
+    }
+
+    private byte[] ndjsonLine(Map<String, Object> line) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(line);
+        byte[] withNewline = new byte[json.length + 1];
+        System.arraycopy(json, 0, withNewline, 0, json.length);
+        withNewline[json.length] = NEWLINE;
+        return withNewline;
+    }
+}
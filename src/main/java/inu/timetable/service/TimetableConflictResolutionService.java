@@ -2,7 +2,6 @@ package inu.timetable.service;
 
 import inu.timetable.dto.TimetableReconciliationResult;
 import inu.timetable.dto.TimetableReconciliationResult.RemovedTimetableEntry;
-import inu.timetable.entity.Schedule;
 import inu.timetable.entity.Subject;
 import inu.timetable.entity.UserNotification;
 import inu.timetable.entity.UserTimetable;
@@ -17,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -163,6 +163,7 @@ public class TimetableConflictResolutionService {
                         .computeIfAbsent(entry.getUser().getId(), ignored -> new ArrayList<>())
                         .add(entry));
         List<UserTimetable> entriesToRemove = new ArrayList<>();
+        Map<Long, TimeSlotMask> subjectMasks = new HashMap<>();
 
         for (Long userId : candidateUserIds) {
             List<UserTimetable> snapshot =
@@ -171,11 +172,11 @@ public class TimetableConflictResolutionService {
                 if (!changedSubjectIds.contains(changedEntry.getSubject().getId())) {
                     continue;
                 }
+                TimeSlotMask changedMask = timeMask(changedEntry.getSubject(), subjectMasks);
                 boolean hasConflict = snapshot.stream()
                         .filter(otherEntry -> !Objects.equals(otherEntry.getId(), changedEntry.getId()))
-                        .anyMatch(otherEntry -> overlaps(
-                                changedEntry.getSubject().getSchedules(),
-                                otherEntry.getSubject().getSchedules()));
+                        .anyMatch(otherEntry -> changedMask.intersects(
+                                timeMask(otherEntry.getSubject(), subjectMasks)));
                 if (hasConflict) {
                     entriesToRemove.add(changedEntry);
                 }
@@ -233,39 +234,15 @@ public class TimetableConflictResolutionService {
                 .toList();
     }
 
-    // 같은 요일이고 newStart < otherEnd AND newEnd > otherStart 이면 겹침으로 본다.
-    private boolean overlaps(List<Schedule> newSchedules, List<Schedule> otherSchedules) {
-        if (newSchedules == null || otherSchedules == null) {
-            return false;
+    // 같은 과목은 여러 유저 시간표에 반복해서 나오므로 요청 안에서 마스크를 한 번만 만든다.
+    // 같은 요일이고 시작 < 상대 끝 AND 끝 > 상대 시작이면 겹침으로 보는 규칙은 TimeSlotMask 가 따른다.
+    private TimeSlotMask timeMask(Subject subject, Map<Long, TimeSlotMask> subjectMasks) {
+        if (subject.getId() == null) {
+            return TimeSlotMask.of(subject.getSchedules());
         }
-        return newSchedules.stream().anyMatch(changed -> otherSchedules.stream()
-                .anyMatch(other -> overlaps(changed, other)));
-    }
-
-    private boolean overlaps(Schedule changed, Schedule other) {
-        if (changed == null
-                || other == null
-                || changed.getDayOfWeek() == null
-                || changed.getStartTime() == null
-                || changed.getEndTime() == null
-                || other.getDayOfWeek() == null
-                || other.getStartTime() == null
-                || other.getEndTime() == null
-                || !changed.getDayOfWeek().equals(other.getDayOfWeek())) {
-            return false;
-        }
-
-        double changedStart = changed.getStartTime();
-        double changedEnd = changed.getEndTime();
-        double otherStart = other.getStartTime();
-        double otherEnd = other.getEndTime();
-        if (changedStart > changedEnd) {
-            changedEnd += 8.0;
-        }
-        if (otherStart > otherEnd) {
-            otherEnd += 8.0;
-        }
-        return changedStart < otherEnd && changedEnd > otherStart;
+        return subjectMasks.computeIfAbsent(
+                subject.getId(),
+                ignored -> TimeSlotMask.of(subject.getSchedules()));
     }
 
 }
@@ -0,0 +1,203 @@
+package inu.timetable.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import inu.timetable.event.SubjectDataChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 사용자·학기별로 시간표가 이미 차지한 시간 칸을 노드 로컬 Caffeine 캐시에 둔다. 시간표 추가 충돌 검사는 이 마스크와
+ * 새 과목 마스크의 교집합 한 번으로 끝나고, 과목·일정까지 읽는 무거운 조회는 놓쳤을 때만 한다.
+ *
+ * <p>값은 과목 id 별 시간 마스크와 그 합집합이다. 추가·삭제·비우기는 값을 바로 고치고(write-through), 꺼낼 때마다
+ * 가벼운 과목 id 조회 결과와 과목 구성이 같은지 확인한다. 그래서 롤백된 변경이나 다른 노드에서 바뀐 시간표는 놓친
+ * 것으로 보고 다시 읽는다. 과목 시간이 바뀌면 이 노드의 변경 이벤트로 모두 비우고, 다른 노드의 변경은 공유 무효화
+ * 버전으로 걸러낸다.</p>
+ *
+ * <ul>
+ *     <li>timetable.occupancy.cache.lookups: 조회 수(result=hit|miss)</li>
+ *     <li>timetable.conflict.check: 충돌 검사 시간(occupancy=hit|miss)</li>
+ * </ul>
+ */
+@Service
+public class TimetableOccupancyCache {
+
+    private final SharedSubjectCacheInvalidationService sharedInvalidationService;
+    // 사용자 → 학기 → 점유 칸. 학기 없이 과목을 빼는 요청이 있어 사용자 단위로 묶는다. 안쪽 맵은 고치지 않고 바꿔 넣는다.
+    private final Cache<Long, Map<String, Occupancy>> cache;
+    private final AtomicLong localCatalogVersion = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Timer hitTimer;
+    private final Timer missTimer;
+
+    public TimetableOccupancyCache(
+            SharedSubjectCacheInvalidationService sharedInvalidationService,
+            MeterRegistry meterRegistry,
+            @Value("${timetable.occupancy-cache.enabled:true}") boolean enabled,
+            @Value("${timetable.occupancy-cache.maximum-size:10000}") long maximumSize,
+            @Value("${timetable.occupancy-cache.expire-after-access:30m}") String expireAfterAccess) {
+        this.sharedInvalidationService = sharedInvalidationService;
+        this.cache = enabled && maximumSize > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterAccess(DurationStyle.detectAndParse(expireAfterAccess))
+                        .build()
+                : null;
+        this.hitCounter = Counter.builder("timetable.occupancy.cache.lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("timetable.occupancy.cache.lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.hitTimer = Timer.builder("timetable.conflict.check")
+                .description("Timetable add conflict check time")
+                .tag("occupancy", "hit")
+                .register(meterRegistry);
+        this.missTimer = Timer.builder("timetable.conflict.check")
+                .description("Timetable add conflict check time")
+                .tag("occupancy", "miss")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void invalidateAfterSubjectDataChanged(SubjectDataChangedEvent event) {
+        localCatalogVersion.incrementAndGet();
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 지금의 과목 데이터 버전. 놓쳐서 다시 읽을 때는 읽기 전에 잡아 {@link Occupancy#of} 에 넘긴다.
+     */
+    public long catalogVersion() {
+        return localCatalogVersion.get()
+                + sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_ALL);
+    }
+
+    /**
+     * 캐시한 점유 칸의 과목 구성이 subjectIds 와 같고 과목 데이터 버전도 같으면 그 값을, 아니면 null 을 돌려준다.
+     */
+    public Occupancy get(Long userId, String semester, List<Long> subjectIds) {
+        Map<String, Occupancy> semesters = cache != null ? cache.getIfPresent(userId) : null;
+        Occupancy occupancy = semesters != null ? semesters.get(semester) : null;
+        if (occupancy == null
+                || occupancy.catalogVersion() != catalogVersion()
+                || !occupancy.subjectMasks().keySet().equals(new HashSet<>(subjectIds))) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return occupancy;
+    }
+
+    public void put(Long userId, String semester, Occupancy occupancy) {
+        if (cache == null) {
+            return;
+        }
+        cache.asMap().compute(userId, (ignored, semesters) -> with(semesters, semester, occupancy));
+    }
+
+    /**
+     * 시간표에 과목을 넣은 뒤 부른다. 그 학기를 캐시하고 있을 때만 고친다.
+     */
+    public void subjectAdded(Long userId, String semester, Long subjectId, TimeSlotMask mask) {
+        if (cache == null) {
+            return;
+        }
+        cache.asMap().computeIfPresent(userId, (ignored, semesters) -> {
+            Occupancy occupancy = semesters.get(semester);
+            return occupancy == null ? semesters : with(semesters, semester, occupancy.with(subjectId, mask));
+        });
+    }
+
+    /**
+     * 모든 학기에서 과목을 뺀 뒤 부른다.
+     */
+    public void subjectRemoved(Long userId, Long subjectId) {
+        if (cache == null) {
+            return;
+        }
+        cache.asMap().computeIfPresent(userId, (ignored, semesters) -> {
+            Map<String, Occupancy> updated = new HashMap<>();
+            semesters.forEach((semester, occupancy) -> updated.put(semester, occupancy.without(subjectId)));
+            return Map.copyOf(updated);
+        });
+    }
+
+    /**
+     * 학기 시간표를 비운 뒤 부른다. semester 가 null 이면 모든 학기를 비운 것이다.
+     */
+    public void cleared(Long userId, String semester) {
+        if (cache == null) {
+            return;
+        }
+        cache.asMap().computeIfPresent(userId, (ignored, semesters) -> {
+            Map<String, Occupancy> updated = new HashMap<>();
+            semesters.forEach((cachedSemester, occupancy) -> updated.put(cachedSemester,
+                    semester == null || semester.equals(cachedSemester)
+                            ? Occupancy.of(occupancy.catalogVersion(), Map.of())
+                            : occupancy));
+            return Map.copyOf(updated);
+        });
+    }
+
+    public void recordConflictCheck(boolean hit, long elapsedNanos) {
+        (hit ? hitTimer : missTimer).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Map<String, Occupancy> with(Map<String, Occupancy> semesters, String semester, Occupancy occupancy) {
+        Map<String, Occupancy> updated = semesters != null ? new HashMap<>(semesters) : new HashMap<>();
+        updated.put(semester, occupancy);
+        return Map.copyOf(updated);
+    }
+
+    /**
+     * 한 학기 시간표의 점유 칸. 과목 id 별 마스크와 그 합집합이다.
+     */
+    public record Occupancy(long catalogVersion, Map<Long, TimeSlotMask> subjectMasks, TimeSlotMask occupied) {
+
+        public static Occupancy of(long catalogVersion, Map<Long, TimeSlotMask> subjectMasks) {
+            TimeSlotMask occupied = TimeSlotMask.EMPTY;
+            for (TimeSlotMask mask : subjectMasks.values()) {
+                occupied = occupied.or(mask);
+            }
+            return new Occupancy(catalogVersion, Map.copyOf(subjectMasks), occupied);
+        }
+
+        public boolean conflictsWith(TimeSlotMask mask) {
+            return occupied.intersects(mask);
+        }
+
+        Occupancy with(Long subjectId, TimeSlotMask mask) {
+            Map<Long, TimeSlotMask> updated = new HashMap<>(subjectMasks);
+            updated.put(subjectId, mask);
+            return new Occupancy(catalogVersion, Map.copyOf(updated), occupied.or(mask));
+        }
+
+        // 합집합에서 한 과목만 뺄 수는 없으므로 남은 과목으로 다시 만든다. 시간표 과목은 많아야 열몇 개다.
+        Occupancy without(Long subjectId) {
+            if (!subjectMasks.containsKey(subjectId)) {
+                return this;
+            }
+            Map<Long, TimeSlotMask> updated = new HashMap<>(subjectMasks);
+            updated.remove(subjectId);
+            return of(catalogVersion, updated);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package inu.timetable.service;
+
+/**
+ * 시간표 조합 순위 함수. 점수는 벌점이므로 낮을수록 좋은 시간표다.
+ *
+ * <p>{@link #lowerBound} 는 분기 한정(branch-and-bound)에 쓰인다. 부분 시간표에 과목을 더 담아 만들 수 있는
+ * 어떤 시간표의 점수보다도 크지 않은 값을 돌려줘야 하며, 확실하지 않으면 0 을 돌려주면 된다(가지치기만 약해진다).</p>
+ */
+public interface TimetableScoreFunction {
+
+    long score(TimetableShape timetable);
+
+    /**
+     * @param maxAdditionalCredits 앞으로 더 담을 수 있는 학점의 상한
+     */
+    long lowerBound(TimetableShape partial, int maxAdditionalCredits);
+}
@@ -0,0 +1,169 @@
+package inu.timetable.service;
+
+import inu.timetable.exception.ApiException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 기본 제공 순위 함수와 순위 식 파서.
+ *
+ * <p>순위 식은 {@code credits:10,days:3,gaps:1,start:1} 처럼 항목:가중치를 쉼표로 잇는다. 가중치를 생략하면 1 이다.</p>
+ * <ul>
+ *     <li>credits: 목표 학점과의 차이(학점)</li>
+ *     <li>days: 수업이 있는 요일 수. 낮을수록 공강일이 많다.</li>
+ *     <li>gaps: 요일마다 첫 수업과 마지막 수업 사이의 빈 시간(30분 단위)</li>
+ *     <li>start: 11:00 이전에 시작하는 요일마다 11:00 까지 남은 시간(30분 단위)</li>
+ * </ul>
+ */
+public final class TimetableScoreFunctions {
+
+    public static final String DEFAULT_RANKING = "credits";
+
+    // 3교시(11:00) 이전 시작을 이른 시작으로 본다.
+    private static final int LATE_START_SLOT = 6;
+
+    public static final TimetableScoreFunction CREDIT_DISTANCE = new TimetableScoreFunction() {
+        @Override
+        public long score(TimetableShape timetable) {
+            return Math.abs(timetable.credits() - timetable.targetCredits());
+        }
+
+        @Override
+        public long lowerBound(TimetableShape partial, int maxAdditionalCredits) {
+            // 과목을 더 담으면 학점은 늘기만 하므로 [credits, credits + maxAdditionalCredits] 안에서 가장 가까운 값이 하한이다.
+            int credits = partial.credits();
+            int target = partial.targetCredits();
+            if (credits >= target) {
+                return credits - target;
+            }
+            return Math.max(0, target - credits - maxAdditionalCredits);
+        }
+    };
+
+    public static final TimetableScoreFunction CLASS_DAYS = new TimetableScoreFunction() {
+        @Override
+        public long score(TimetableShape timetable) {
+            return Integer.bitCount(timetable.classDayBits());
+        }
+
+        @Override
+        public long lowerBound(TimetableShape partial, int maxAdditionalCredits) {
+            // 수업 요일은 과목을 더해도 줄지 않는다.
+            return score(partial);
+        }
+    };
+
+    public static final TimetableScoreFunction GAPS = new TimetableScoreFunction() {
+        @Override
+        public long score(TimetableShape timetable) {
+            long gaps = 0;
+            for (int day = 0; day < TimetableShape.DAY_COUNT; day++) {
+                int first = timetable.firstSlot(day);
+                if (first >= 0) {
+                    gaps += timetable.lastSlot(day) - first + 1 - timetable.occupiedSlots(day);
+                }
+            }
+            return gaps;
+        }
+
+        @Override
+        public long lowerBound(TimetableShape partial, int maxAdditionalCredits) {
+            // 빈 시간은 뒤에 담는 과목이 메울 수 있으므로 하한을 0 으로 둔다.
+            return 0;
+        }
+    };
+
+    public static final TimetableScoreFunction EARLY_START = new TimetableScoreFunction() {
+        @Override
+        public long score(TimetableShape timetable) {
+            long early = 0;
+            for (int day = 0; day < TimetableShape.DAY_COUNT; day++) {
+                int first = timetable.firstSlot(day);
+                if (first >= 0 && first < LATE_START_SLOT) {
+                    early += LATE_START_SLOT - first;
+                }
+            }
+            return early;
+        }
+
+        @Override
+        public long lowerBound(TimetableShape partial, int maxAdditionalCredits) {
+            // 과목을 더하면 요일별 첫 수업은 같거나 빨라지기만 한다.
+            return score(partial);
+        }
+    };
+
+    private TimetableScoreFunctions() {
+    }
+
+    /**
+     * 순위 식을 가중합 순위 함수로 바꾼다. 알 수 없는 항목이나 음수 가중치는 400 으로 거절한다.
+     */
+    public static TimetableScoreFunction parse(String ranking) {
+        String expression = ranking == null || ranking.isBlank() ? DEFAULT_RANKING : ranking;
+        List<TimetableScoreFunction> functions = new ArrayList<>();
+        List<Long> weights = new ArrayList<>();
+        for (String term : expression.split(",")) {
+            String[] parts = term.trim().split(":", 2);
+            TimetableScoreFunction function = component(parts[0].trim().toLowerCase(Locale.ROOT));
+            long weight = parts.length == 2 ? parseWeight(parts[1].trim(), term) : 1L;
+            if (weight > 0) {
+                functions.add(function);
+                weights.add(weight);
+            }
+        }
+        if (functions.size() == 1 && weights.get(0) == 1L) {
+            return functions.get(0);
+        }
+        return weighted(functions, weights.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private static TimetableScoreFunction component(String name) {
+        return switch (name) {
+            case "credits" -> CREDIT_DISTANCE;
+            case "days" -> CLASS_DAYS;
+            case "gaps" -> GAPS;
+            case "start" -> EARLY_START;
+            default -> throw ApiException.badRequest(
+                    "알 수 없는 순위 항목입니다: " + name + " (credits, days, gaps, start 중에서 선택)");
+        };
+    }
+
+    private static long parseWeight(String value, String term) {
+        try {
+            long weight = Long.parseLong(value);
+            if (weight < 0 || weight > 1_000) {
+                throw ApiException.badRequest("순위 가중치는 0~1000 사이여야 합니다: " + term.trim());
+            }
+            return weight;
+        } catch (NumberFormatException e) {
+            throw ApiException.badRequest("순위 가중치는 정수여야 합니다: " + term.trim());
+        }
+    }
+
+    private static TimetableScoreFunction weighted(List<TimetableScoreFunction> functions, long[] weights) {
+        TimetableScoreFunction[] terms = functions.toArray(TimetableScoreFunction[]::new);
+        return new TimetableScoreFunction() {
+            @Override
+            public long score(TimetableShape timetable) {
+                long score = 0;
+                for (int i = 0; i < terms.length; i++) {
+                    score += weights[i] * terms[i].score(timetable);
+                }
+                return score;
+            }
+
+            @Override
+            public long lowerBound(TimetableShape partial, int maxAdditionalCredits) {
+                // 항목별 하한의 가중합은 가중합의 하한이다.
+                long bound = 0;
+                for (int i = 0; i < terms.length; i++) {
+                    bound += weights[i] * terms[i].lowerBound(partial, maxAdditionalCredits);
+                }
+                return bound;
+            }
+        };
+    }
+}
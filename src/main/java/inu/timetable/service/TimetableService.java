@@ -13,7 +13,9 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class TimetableService {
@@ -22,16 +24,22 @@ public class TimetableService {
     private final UserRepository userRepository;
     private final SubjectRepository subjectRepository;
     private final ApplicationEventPublisher eventPublisher;
+    private final SubjectMaskIndex subjectMaskIndex;
+    private final TimetableOccupancyCache occupancyCache;
     
     @Autowired
     public TimetableService(UserTimetableRepository userTimetableRepository, 
                            UserRepository userRepository,
                            SubjectRepository subjectRepository,
-                           ApplicationEventPublisher eventPublisher) {
+                           ApplicationEventPublisher eventPublisher,
+                           SubjectMaskIndex subjectMaskIndex,
+                           TimetableOccupancyCache occupancyCache) {
         this.userTimetableRepository = userTimetableRepository;
         this.userRepository = userRepository;
         this.subjectRepository = subjectRepository;
         this.eventPublisher = eventPublisher;
+        this.subjectMaskIndex = subjectMaskIndex;
+        this.occupancyCache = occupancyCache;
     }
     
     @Transactional
@@ -52,8 +60,8 @@ public class TimetableService {
         }
         
         // 시간표 겹침 확인
-        List<UserTimetable> currentTimetable = userTimetableRepository.findByUserIdAndSemesterWithSubjectAndSchedules(userId, semester);
-        if (hasTimeConflict(currentTimetable, subject)) {
+        TimeSlotMask subjectMask = timeMask(semester, subject);
+        if (hasTimeConflict(userId, semester, subjectMask)) {
             throw ApiException.conflict("시간표가 겹치는 과목이 있습니다.");
         }
         
@@ -65,6 +73,7 @@ public class TimetableService {
             .build();
             
         UserTimetable saved = userTimetableRepository.save(userTimetable);
+        occupancyCache.subjectAdded(userId, semester, subjectId, subjectMask);
         publishPopularityChanged("timetable-subject-added");
         return saved;
     }
@@ -75,6 +84,7 @@ public class TimetableService {
         if (deleted == 0) {
             throw ApiException.notFound("시간표에서 해당 과목을 찾을 수 없습니다.");
         }
+        occupancyCache.subjectRemoved(userId, subjectId);
         publishPopularityChanged("timetable-subject-removed");
     }
     
@@ -108,6 +118,7 @@ public class TimetableService {
         // 전체 비우기는 멱등 연산 — 이미 비어 있어도 오류가 아니라 0건 삭제로 정상 처리한다.
         if (!timetables.isEmpty()) {
             userTimetableRepository.deleteAll(timetables);
+            occupancyCache.cleared(userId, semester != null && !semester.isEmpty() ? semester : null);
             publishPopularityChanged("timetable-cleared");
         }
     }
@@ -116,44 +127,49 @@ public class TimetableService {
         eventPublisher.publishEvent(new SubjectPopularityChangedEvent(reason));
     }
     
-    private boolean hasTimeConflict(List<UserTimetable> currentTimetable, Subject newSubject) {
-        for (UserTimetable existing : currentTimetable) {
-            for (var existingSchedule : existing.getSubject().getSchedules()) {
-                for (var newSchedule : newSubject.getSchedules()) {
-                    // 온라인/시간 미지정 과목은 요일·시간이 null 이므로 충돌 판정에서 제외한다.
-                    // (조합 서비스 SubjectOption.from 과 동일한 정책 — 두 경로의 동작을 일치시킨다.)
-                    if (existingSchedule.getDayOfWeek() == null
-                            || existingSchedule.getStartTime() == null
-                            || existingSchedule.getEndTime() == null
-                            || newSchedule.getDayOfWeek() == null
-                            || newSchedule.getStartTime() == null
-                            || newSchedule.getEndTime() == null) {
-                        continue;
-                    }
-                    // 같은 요일인지 확인
-                    if (existingSchedule.getDayOfWeek().equals(newSchedule.getDayOfWeek())) {
-                        // 시간이 겹치는지 확인
-                        double existingStart = existingSchedule.getStartTime();
-                        double existingEnd = existingSchedule.getEndTime();
-                        double newStart = newSchedule.getStartTime();
-                        double newEnd = newSchedule.getEndTime();
-                        
-                        // 야간 과목 시간 조정 (startTime > endTime인 경우)
-                        if (existingStart > existingEnd) {
-                            existingEnd += 8.0;
-                        }
-                        if (newStart > newEnd) {
-                            newEnd += 8.0;
-                        }
-                        
-                        // 시간 겹침 확인: (시작시간 < 상대방 끝시간) && (끝시간 > 상대방 시작시간)
-                        if (newStart < existingEnd && newEnd > existingStart) {
-                            return true;
-                        }
-                    }
-                }
+    // 온라인/시간 미지정 일정은 마스크에 들어가지 않으므로 충돌 판정에서 자연히 제외된다.
+    // (조합 서비스와 같은 TimeSlotMask 를 써서 두 경로의 동작을 일치시킨다.)
+    // 과목 마스크 색인에 있으면 일정을 읽지 않고 색인 마스크를 쓴다.
+    private TimeSlotMask timeMask(String semester, Subject subject) {
+        SubjectMaskIndex.Snapshot snapshot = subjectMaskIndex.snapshot(semester);
+        int entry = snapshot != null ? snapshot.indexOf(subject.getId()) : -1;
+        return entry >= 0 ? snapshot.timeMask(entry) : TimeSlotMask.of(subject.getSchedules());
+    }
+
+    // 시간표 과목 id 만 읽어 점유 칸 캐시와 맞춰 보고, 맞으면 마스크 교집합 한 번으로 판정한다.
+    private boolean hasTimeConflict(Long userId, String semester, TimeSlotMask newMask) {
+        if (newMask.isEmpty()) {
+            return false;
+        }
+        long startedAt = System.nanoTime();
+        List<Long> subjectIds = userTimetableRepository.findSubjectIdsByUserIdAndSemester(userId, semester);
+        TimetableOccupancyCache.Occupancy occupancy = occupancyCache.get(userId, semester, subjectIds);
+        boolean hit = occupancy != null;
+        if (!hit) {
+            occupancy = loadOccupancy(userId, semester, subjectIds);
+            occupancyCache.put(userId, semester, occupancy);
+        }
+        boolean conflict = occupancy.conflictsWith(newMask);
+        occupancyCache.recordConflictCheck(hit, System.nanoTime() - startedAt);
+        return conflict;
+    }
+
+    // 과목 마스크 색인에 시간표 과목이 모두 있으면 색인 마스크로, 아니면 과목·일정까지 읽어 만든다.
+    private TimetableOccupancyCache.Occupancy loadOccupancy(Long userId, String semester, List<Long> subjectIds) {
+        // 버전은 읽기 전에 잡는다. 읽는 중에 과목 데이터가 바뀌면 다음 조회에서 다시 읽는다.
+        long catalogVersion = occupancyCache.catalogVersion();
+        Map<Long, TimeSlotMask> subjectMasks = new HashMap<>();
+        SubjectMaskIndex.Snapshot snapshot = subjectMaskIndex.snapshot(semester);
+        int[] entries = subjectMaskIndex.resolve(snapshot, subjectIds);
+        if (entries != null) {
+            for (int i = 0; i < entries.length; i++) {
+                subjectMasks.put(subjectIds.get(i), snapshot.timeMask(entries[i]));
+            }
+        } else {
+            for (UserTimetable existing : userTimetableRepository.findByUserIdAndSemesterWithSubjectAndSchedules(userId, semester)) {
+                subjectMasks.put(existing.getSubject().getId(), TimeSlotMask.of(existing.getSubject().getSchedules()));
             }
         }
-        return false;
+        return TimetableOccupancyCache.Occupancy.of(catalogVersion, subjectMasks);
     }
 }
@@ -0,0 +1,55 @@
+package inu.timetable.service;
+
+/**
+ * 점수 함수가 보는 시간표 모양. 탐색 중인 (부분) 시간표의 학점, 수업 요일, 요일별 점유 칸을 읽기 전용으로 보여준다.
+ *
+ * <p>탐색 실행 객체가 하나를 만들어 노드마다 다시 가리키게 하므로, 점수 함수는 이 객체를 보관하면 안 된다.
+ * 칸은 30분 단위이고 0번 칸이 08:00 이다. 즉 1교시(09:00)는 2번 칸이다.</p>
+ */
+public final class TimetableShape {
+
+    public static final int DAY_COUNT = TimeSlotMask.DAYS.size();
+
+    private final TimeSlotMask.Accumulator timeMask;
+    private final int targetCredits;
+    private int credits;
+    private int classDayBits;
+
+    TimetableShape(TimeSlotMask.Accumulator timeMask, int targetCredits) {
+        this.timeMask = timeMask;
+        this.targetCredits = targetCredits;
+    }
+
+    TimetableShape at(int credits, int classDayBits) {
+        this.credits = credits;
+        this.classDayBits = classDayBits;
+        return this;
+    }
+
+    public int credits() {
+        return credits;
+    }
+
+    public int targetCredits() {
+        return targetCredits;
+    }
+
+    /**
+     * 수업이 있는 요일 비트(월=1, 화=2, ...). 시간 없이 요일만 있는 일정도 포함한다.
+     */
+    public int classDayBits() {
+        return classDayBits;
+    }
+
+    public int firstSlot(int dayIndex) {
+        return timeMask.firstSlot(dayIndex);
+    }
+
+    public int lastSlot(int dayIndex) {
+        return timeMask.lastSlot(dayIndex);
+    }
+
+    public int occupiedSlots(int dayIndex) {
+        return timeMask.occupiedSlots(dayIndex);
+    }
+}
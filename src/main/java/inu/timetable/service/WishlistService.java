@@ -3,11 +3,13 @@ package inu.timetable.service;
 import inu.timetable.entity.Subject;
 import inu.timetable.entity.User;
 import inu.timetable.entity.WishlistItem;
+import inu.timetable.event.WishlistChangedEvent;
 import inu.timetable.exception.ApiException;
 import inu.timetable.repository.SubjectRepository;
 import inu.timetable.repository.UserRepository;
 import inu.timetable.repository.WishlistRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,14 +21,17 @@ public class WishlistService {
     private final WishlistRepository wishlistRepository;
     private final UserRepository userRepository;
     private final SubjectRepository subjectRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
     public WishlistService(WishlistRepository wishlistRepository,
                           UserRepository userRepository,
-                          SubjectRepository subjectRepository) {
+                          SubjectRepository subjectRepository,
+                          ApplicationEventPublisher eventPublisher) {
         this.wishlistRepository = wishlistRepository;
         this.userRepository = userRepository;
         this.subjectRepository = subjectRepository;
+        this.eventPublisher = eventPublisher;
     }
     
     @Transactional
@@ -59,12 +64,15 @@ public class WishlistService {
             .isRequired(isRequired != null ? isRequired : false)
             .build();
             
-        return wishlistRepository.save(wishlistItem);
+        WishlistItem saved = wishlistRepository.save(wishlistItem);
+        eventPublisher.publishEvent(new WishlistChangedEvent(userId));
+        return saved;
     }
     
     @Transactional
     public void removeFromWishlist(Long userId, Long subjectId) {
         wishlistRepository.deleteByUserIdAndSubjectId(userId, subjectId);
+        eventPublisher.publishEvent(new WishlistChangedEvent(userId));
     }
     
     public List<WishlistItem> getUserWishlist(Long userId, String semester) {
@@ -79,6 +87,7 @@ public class WishlistService {
             throw ApiException.notFound("위시리스트에서 해당 과목을 찾을 수 없습니다.");
         }
         items.forEach(item -> item.setPriority(priority));
+        eventPublisher.publishEvent(new WishlistChangedEvent(userId));
         return items.get(0);
     }
 
@@ -89,6 +98,7 @@ public class WishlistService {
             throw ApiException.notFound("위시리스트에서 해당 과목을 찾을 수 없습니다.");
         }
         items.forEach(item -> item.setIsRequired(isRequired));
+        eventPublisher.publishEvent(new WishlistChangedEvent(userId));
         return items.get(0);
     }
     
@@ -40,6 +40,18 @@ public final class ApiRequestValues {
         }
     }
 
+    public static Double optionalDouble(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value.toString());
+        } catch (NumberFormatException exception) {
+            throw ApiException.badRequest(field + " 값이 올바르지 않습니다.");
+        }
+    }
+
     public static Boolean optionalBoolean(Map<String, Object> request, String field, boolean defaultValue) {
         Object value = request.get(field);
         if (value == null) {
@@ -1,7 +1,9 @@
 package inu.timetable.controller;
 
 import inu.timetable.dto.SubjectDto;
+import inu.timetable.dto.SubjectFacetCounts;
 import inu.timetable.dto.SubjectFilterCriteria;
+import inu.timetable.dto.SubjectSuggestion;
 import inu.timetable.exception.ApiException;
 import inu.timetable.repository.SubjectRepository;
 import inu.timetable.service.SubjectQueryService;
@@ -14,6 +16,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -39,6 +42,17 @@ class SubjectControllerTest {
         verify(subjectQueryService).findDistinctDepartments("2026-2");
     }
 
+    @Test
+    void suggestAcceptsSingleCharacterInputAndDelegatesToQueryService() {
+        SubjectController controller = new SubjectController(subjectRepository, subjectQueryService);
+        List<SubjectSuggestion> expected = List.of(
+                new SubjectSuggestion("데이터베이스", SubjectSuggestion.Kind.SUBJECT_NAME, 12L));
+        when(subjectQueryService.suggest("데", 5)).thenReturn(expected);
+
+        assertThat(controller.suggest("데", 5)).isSameAs(expected);
+        verify(subjectQueryService).suggest("데", 5);
+    }
+
     @Test
     void filterSubjectsNormalizesRequestAndDelegatesToQueryService() {
         SubjectController controller = new SubjectController(subjectRepository, subjectQueryService);
@@ -78,6 +92,24 @@ class SubjectControllerTest {
         assertThat(criteria.timeBlocks()).containsExactly("수:4-10", "금:4-9");
     }
 
+    @Test
+    void getFacetsNormalizesRequestAndDelegatesToQueryService() {
+        SubjectController controller = new SubjectController(subjectRepository, subjectQueryService);
+        SubjectFilterCriteria criteria = SubjectFilterCriteria.of(
+                " 2026-1 ", null, null, null, null, List.of("컴퓨터공학부, 정보통신공학과"),
+                null, null, null, null, null, null, true, null, null, 0, 1);
+        SubjectFacetCounts expected = new SubjectFacetCounts(
+                0, Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of());
+        when(subjectQueryService.countFacets(criteria)).thenReturn(expected);
+
+        SubjectFacetCounts result = controller.getFacets(
+                " 2026-1 ", null, null, null, null, List.of("컴퓨터공학부, 정보통신공학과"),
+                null, null, null, null, null, null, true, null, null);
+
+        assertThat(result).isSameAs(expected);
+        verify(subjectQueryService).countFacets(criteria);
+    }
+
     @Test
     void filterSubjectsRejectsMalformedTimeBlocks() {
         SubjectController controller = new SubjectController(subjectRepository, subjectQueryService);
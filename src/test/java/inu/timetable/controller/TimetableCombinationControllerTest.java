@@ -0,0 +1,145 @@
+package inu.timetable.controller;
+
+import inu.timetable.dto.TimetableCombinationCriteria;
+import inu.timetable.dto.TimetableCombinationResult;
+import inu.timetable.enums.UserStatus;
+import inu.timetable.exception.ApiException;
+import inu.timetable.repository.UserRepository;
+import inu.timetable.security.AuthenticatedUser;
+import inu.timetable.security.UserAccessGuard;
+import inu.timetable.service.TimetableCombinationAdmissionService;
+import inu.timetable.service.TimetableCombinationCacheService;
+import inu.timetable.service.TimetableCombinationService;
+import inu.timetable.service.TimetableCombinationStreamService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TimetableCombinationControllerTest {
+
+    private TimetableCombinationService combinationService;
+    private TimetableCombinationCacheService combinationCacheService;
+    private TimetableCombinationAdmissionService admissionService;
+    private UserRepository userRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        combinationService = mock(TimetableCombinationService.class);
+        combinationCacheService = mock(TimetableCombinationCacheService.class);
+        admissionService = mock(TimetableCombinationAdmissionService.class);
+        userRepository = mock(UserRepository.class);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new TimetableCombinationController(
+                        combinationService,
+                        combinationCacheService,
+                        mock(TimetableCombinationStreamService.class),
+                        admissionService,
+                        new UserAccessGuard(userRepository)))
+                .setControllerAdvice(new ApiExceptionHandler())
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void generateDefaultsToTwentyCombinationsForRankedRequestsAndTenOtherwise() throws Exception {
+        authenticate(1L);
+        when(userRepository.existsByIdAndStatus(1L, UserStatus.ACTIVE)).thenReturn(true);
+        when(combinationCacheService.generateTimetableCombinations(eq(1L), any(), isNull()))
+                .thenReturn(TimetableCombinationResult.empty(false));
+
+        mockMvc.perform(post("/api/timetable-combination/generate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"userId": 1, "semester": "2026-1", "targetCredits": 18}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/timetable-combination/generate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"userId": 1, "semester": "2026-1", "targetCredits": 18, "ranking": ""}
+                                """))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<TimetableCombinationCriteria> criteria = ArgumentCaptor.forClass(TimetableCombinationCriteria.class);
+        verify(combinationCacheService, times(2))
+                .generateTimetableCombinations(eq(1L), criteria.capture(), isNull());
+        assertThat(criteria.getAllValues().get(0).ranking()).isNotNull();
+        assertThat(criteria.getAllValues().get(0).maxCombinations()).isEqualTo(20);
+        assertThat(criteria.getAllValues().get(1).ranking()).isNull();
+        assertThat(criteria.getAllValues().get(1).maxCombinations()).isEqualTo(10);
+        // 허가는 캐시 서비스가 캐시에 없을 때만 얻는다.
+        verifyNoInteractions(admissionService);
+    }
+
+    @Test
+    void batchRejectsVariantsThatChangeSharedFieldsWithBadRequest() throws Exception {
+        authenticate(1L);
+        when(userRepository.existsByIdAndStatus(1L, UserStatus.ACTIVE)).thenReturn(true);
+
+        mockMvc.perform(post("/api/timetable-combination/generate/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"userId": 1, "semester": "2026-1", "variants": [
+                                  {"targetCredits": 18},
+                                  {"targetCredits": 15, "ranking": "compact"}
+                                ]}
+                                """))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(combinationService, admissionService);
+    }
+
+    @Test
+    void batchMapsServiceRejectionToBadRequest() throws Exception {
+        authenticate(1L);
+        when(userRepository.existsByIdAndStatus(1L, UserStatus.ACTIVE)).thenReturn(true);
+        when(admissionService.call(eq(1L), any())).thenAnswer(invocation ->
+                ((Supplier<?>) invocation.getArgument(1)).get());
+        when(combinationService.generateTimetableCombinationBatch(eq(1L), anyList()))
+                .thenThrow(ApiException.badRequest("variants 는 semester 가 같아야 합니다."));
+
+        mockMvc.perform(post("/api/timetable-combination/generate/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"userId": 1, "semester": "2026-1", "variants": [{"targetCredits": 18}]}
+                                """))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void authenticate(Long userId) {
+        AuthenticatedUser authenticatedUser = new AuthenticatedUser(
+                userId, "student", "encoded-password", List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(
+                        authenticatedUser, null, authenticatedUser.getAuthorities()));
+    }
+}
@@ -0,0 +1,59 @@
+package inu.timetable.dto;
+
+import inu.timetable.exception.ApiException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimetableCombinationCriteriaTest {
+
+    @Test
+    void ofParsesBlockedTimesInDayOrderForStableCacheKey() {
+        TimetableCombinationCriteria criteria = criteriaWithBlockedTimes(
+                Arrays.asList(" 금:4-9 ", "수:6-8", "수:1-2", null, " ", "수:6-8"));
+
+        assertThat(criteria.blockedTimes()).containsExactly(
+                new TimetableCombinationCriteria.BlockedTime("수", 1.0, 2.0),
+                new TimetableCombinationCriteria.BlockedTime("수", 6.0, 8.0),
+                new TimetableCombinationCriteria.BlockedTime("금", 4.0, 9.0));
+        assertThat(criteria).isEqualTo(criteriaWithBlockedTimes(List.of("금:4-9", "수:1-2", "수:6-8")));
+        assertThat(criteria.hasTimeConstraints()).isTrue();
+        assertThat(criteriaWithBlockedTimes(null).hasTimeConstraints()).isFalse();
+    }
+
+    @Test
+    void ofRejectsMalformedBlockedTimesAndEmptyWindow() {
+        for (String invalid : List.of("월:abc", "일:1-2", "수:5-5", "수:9-4", "수4-10")) {
+            assertThatThrownBy(() -> criteriaWithBlockedTimes(List.of(invalid)))
+                    .isInstanceOf(ApiException.class)
+                    .satisfies(exception -> assertThat(((ApiException) exception).getStatus())
+                            .isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+        assertThatThrownBy(() -> TimetableCombinationCriteria.of(
+                "2026-1", 18, 10, List.of(), false, null, 6.0, 6.0, List.of()))
+                .isInstanceOf(ApiException.class);
+    }
+
+    @Test
+    void ofAcceptsDiversityOnlyWithinRange() {
+        assertThat(TimetableCombinationCriteria.of("2026-1", 18, 10, List.of(), false).diversity()).isZero();
+        assertThat(TimetableCombinationCriteria.of(
+                "2026-1", 18, 10, List.of(), false, null, null, null, List.of(), 10).diversity()).isEqualTo(10);
+        for (int invalid : new int[] {-1, TimetableCombinationCriteria.MAX_DIVERSITY + 1}) {
+            assertThatThrownBy(() -> TimetableCombinationCriteria.of(
+                    "2026-1", 18, 10, List.of(), false, null, null, null, List.of(), invalid))
+                    .isInstanceOf(ApiException.class)
+                    .satisfies(exception -> assertThat(((ApiException) exception).getStatus())
+                            .isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+    }
+
+    private static TimetableCombinationCriteria criteriaWithBlockedTimes(List<String> blockedTimes) {
+        return TimetableCombinationCriteria.of("2026-1", 18, 10, List.of(), false, null, null, null, blockedTimes);
+    }
+}
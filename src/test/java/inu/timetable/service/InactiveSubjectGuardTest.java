@@ -41,6 +41,12 @@ class InactiveSubjectGuardTest {
     @Mock
     private ApplicationEventPublisher eventPublisher;
 
+    @Mock
+    private SubjectMaskIndex subjectMaskIndex;
+
+    @Mock
+    private TimetableOccupancyCache occupancyCache;
+
     private WishlistService wishlistService;
     private TimetableService timetableService;
     private User user;
@@ -48,12 +54,14 @@ class InactiveSubjectGuardTest {
 
     @BeforeEach
     void setUp() {
-        wishlistService = new WishlistService(wishlistRepository, userRepository, subjectRepository);
+        wishlistService = new WishlistService(wishlistRepository, userRepository, subjectRepository, eventPublisher);
         timetableService = new TimetableService(
                 userTimetableRepository,
                 userRepository,
                 subjectRepository,
-                eventPublisher);
+                eventPublisher,
+                subjectMaskIndex,
+                occupancyCache);
         user = User.builder().id(1L).username("student").password("encoded").build();
         inactiveSubject = Subject.builder().id(10L).active(false).build();
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
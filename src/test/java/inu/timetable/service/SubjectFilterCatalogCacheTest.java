@@ -0,0 +1,154 @@
+package inu.timetable.service;
+
+import inu.timetable.config.CacheConfig;
+import inu.timetable.dto.SubjectDto;
+import inu.timetable.dto.SubjectFilterCriteria;
+import inu.timetable.entity.Subject;
+import inu.timetable.enums.ClassMethod;
+import inu.timetable.enums.SubjectType;
+import inu.timetable.event.SubjectPopularityChangedEvent;
+import inu.timetable.repository.SubjectRepository;
+import inu.timetable.repository.UserTimetableRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = {
+        JacksonAutoConfiguration.class,
+        CacheConfig.class,
+        SubjectCacheEvictionService.class,
+        SubjectFilterCacheService.class,
+        SubjectFilterCatalog.class,
+        SimpleMeterRegistry.class
+}, properties = {
+        "subject.cache.maximum-size=100",
+        "subject.cache.expire-after-write=10m",
+        // 이 테스트는 카탈로그 정렬과 필터 캐시가 함께 바뀌는지 본다. SQL 경로의 캐시는 SubjectQueryServiceCacheTest 가 본다.
+        "subject.catalog.mode=catalog"
+})
+class SubjectFilterCatalogCacheTest {
+
+    private static final String SEMESTER = "2026-1";
+
+    @Autowired
+    private SubjectFilterCacheService subjectFilterCacheService;
+
+    @Autowired
+    private SubjectFilterCatalog subjectFilterCatalog;
+
+    @Autowired
+    private SubjectCacheEvictionService subjectCacheEvictionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @MockitoBean
+    private SubjectRepository subjectRepository;
+
+    @MockitoBean
+    private UserTimetableRepository userTimetableRepository;
+
+    @MockitoBean
+    private AppSettingService appSettingService;
+
+    @MockitoBean
+    private SharedSubjectCacheInvalidationService sharedInvalidationService;
+
+    @BeforeEach
+    void setUp() {
+        reset(subjectRepository, userTimetableRepository);
+        subjectCacheEvictionService.evictAllSubjectReadCaches();
+    }
+
+    @Test
+    void filterCacheKeepsCatalogOrderUntilRefreshReordersIt() {
+        SubjectFilterCriteria criteria = SubjectFilterCriteria.of(
+                SEMESTER, null, null, null, null, List.of(),
+                null, null, null, null, null, null, null, null, null, 0, 20);
+        when(subjectRepository.findDistinctSemesters()).thenReturn(List.of(SEMESTER));
+        List<SubjectRepository.SubjectCatalogRow> rows = List.of(catalogRow(1L, "자료구조"), catalogRow(2L, "데이터베이스"));
+        when(subjectRepository.findCatalogRowsBySemester(SEMESTER)).thenReturn(rows);
+        when(userTimetableRepository.countAddedUsersByActiveSubjectsInSemester(SEMESTER))
+                .thenReturn(List.of(), List.of(count(2L, 1L)));
+        when(subjectRepository.findWithSchedulesByIds(anyList()))
+                .thenReturn(List.of(subject(1L, "자료구조"), subject(2L, "데이터베이스")));
+        when(userTimetableRepository.countAddedUsersBySubjectIds(anyList())).thenReturn(List.of());
+
+        assertThat(ids(criteria)).containsExactly(1L, 2L);
+
+        // 담기 직후에는 필터 캐시를 비우지 않으므로 이전 정렬이 그대로 남고, 새로 캐시되는 값도 같은 정렬이다.
+        eventPublisher.publishEvent(new SubjectPopularityChangedEvent("test"));
+        assertThat(ids(criteria)).containsExactly(1L, 2L);
+        verify(subjectRepository, times(1)).findWithSchedulesByIds(List.of(1L, 2L));
+
+        // 정렬을 바꿔 넣으면 필터 캐시를 비워 다음 조회가 새 정렬로 캐시된다.
+        subjectFilterCatalog.refresh();
+        assertThat(ids(criteria)).containsExactly(2L, 1L);
+        assertThat(ids(criteria)).containsExactly(2L, 1L);
+        verify(subjectRepository, times(1)).findWithSchedulesByIds(List.of(2L, 1L));
+        verify(userTimetableRepository, times(2)).countAddedUsersByActiveSubjectsInSemester(SEMESTER);
+    }
+
+    private List<Long> ids(SubjectFilterCriteria criteria) {
+        return subjectFilterCacheService.filterSubjects(criteria).toPage().getContent().stream()
+                .map(SubjectDto::getId)
+                .toList();
+    }
+
+    private static SubjectRepository.SubjectCatalogRow catalogRow(Long subjectId, String subjectName) {
+        SubjectRepository.SubjectCatalogRow row = mock(SubjectRepository.SubjectCatalogRow.class);
+        when(row.getSubjectId()).thenReturn(subjectId);
+        when(row.getSubjectName()).thenReturn(subjectName);
+        when(row.getGrade()).thenReturn(2);
+        when(row.getCredits()).thenReturn(3);
+        when(row.getSubjectType()).thenReturn(SubjectType.전심);
+        when(row.getClassMethod()).thenReturn(ClassMethod.OFFLINE);
+        return row;
+    }
+
+    private static UserTimetableRepository.SubjectTimetableAddCount count(Long subjectId, Long timetableAddCount) {
+        return new UserTimetableRepository.SubjectTimetableAddCount() {
+            @Override
+            public Long getSubjectId() {
+                return subjectId;
+            }
+
+            @Override
+            public Long getTimetableAddCount() {
+                return timetableAddCount;
+            }
+        };
+    }
+
+    private static Subject subject(Long id, String subjectName) {
+        return Subject.builder()
+                .id(id)
+                .semester(SEMESTER)
+                .subjectName(subjectName)
+                .credits(3)
+                .professor("김교수")
+                .department("컴퓨터공학부")
+                .grade(2)
+                .subjectType(SubjectType.전심)
+                .classMethod(ClassMethod.OFFLINE)
+                .isNight(false)
+                .schedules(new ArrayList<>())
+                .build();
+    }
+}
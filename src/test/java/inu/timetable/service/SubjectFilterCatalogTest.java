@@ -0,0 +1,442 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.SubjectFacetCounts;
+import inu.timetable.dto.SubjectFilterCriteria;
+import inu.timetable.entity.Schedule;
+import inu.timetable.entity.Subject;
+import inu.timetable.entity.User;
+import inu.timetable.entity.UserTimetable;
+import inu.timetable.enums.ClassMethod;
+import inu.timetable.enums.SubjectType;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.event.SubjectPopularityChangedEvent;
+import inu.timetable.repository.SubjectRepository;
+import inu.timetable.repository.UserTimetableRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.url=jdbc:h2:mem:subject_catalog;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class SubjectFilterCatalogTest {
+
+    private static final String SEMESTER = "2026-1";
+    private static final Supplier<Page<Long>> NO_SQL = () -> {
+        throw new AssertionError("catalog mode must not run the SQL filter");
+    };
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private UserTimetableRepository userTimetableRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Subject dataStructures;
+    private Subject database;
+    private Subject dataMining;
+    private Subject blended;
+
+    @BeforeEach
+    void setUp() {
+        dataStructures = persistSubject("자료구조", "김교수", "CSE101", "컴퓨터공학부", 2, 3, SubjectType.전심,
+                ClassMethod.OFFLINE, false, SEMESTER, schedule("월", 1.0, 3.0));
+        database = persistSubject("데이터베이스", "이교수", "CSE201", "컴퓨터공학부", 3, 3, SubjectType.전핵,
+                ClassMethod.OFFLINE, false, SEMESTER, schedule("화", 4.0, 6.0), schedule("목", 4.0, 6.0));
+        dataMining = persistSubject("Data Mining", "Park", "CSE_301", "정보통신공학과", 3, 2, SubjectType.전심,
+                ClassMethod.OFFLINE, true, SEMESTER, schedule("수", 10.0, 12.0));
+        persistSubject("온라인교양", "최교수", "GEN100", null, null, 2, SubjectType.핵교,
+                ClassMethod.ONLINE, false, SEMESTER);
+        blended = persistSubject("블렌디드", "김교수", "GEN200", "교양", 1, 3, SubjectType.심교,
+                ClassMethod.ONLINE, false, SEMESTER, schedule("금", 2.0, 3.0));
+        persistSubject("일요특강", "한교수", "SUN001", "컴퓨터공학부", 4, 1, SubjectType.일선,
+                ClassMethod.OFFLINE, false, SEMESTER, schedule("일", 1.0, 2.0));
+        persistSubject("시간미정", "한교수", "TBA001", "컴퓨터공학부", 2, 3, SubjectType.전심,
+                ClassMethod.OFFLINE, false, SEMESTER, schedule(null, null, null));
+        persistSubject("100%출석", "이교수", "PCT100", "교양", 1, 1, SubjectType.일선,
+                ClassMethod.BLENDED, false, SEMESTER, schedule("토", 1.0, 5.0));
+        persistSubject("공통과목", "박교수", "ALL100", "교양", 1, 2, SubjectType.기교,
+                ClassMethod.OFFLINE, false, null, schedule("화", 1.0, 2.0));
+        persistSubject("지난학기", "김교수", "OLD100", "컴퓨터공학부", 2, 3, SubjectType.전심,
+                ClassMethod.OFFLINE, false, "2025-2", schedule("월", 1.0, 3.0));
+        Subject inactive = persistSubject("폐강과목", "김교수", "DEL100", "컴퓨터공학부", 2, 3, SubjectType.전심,
+                ClassMethod.OFFLINE, false, SEMESTER, schedule("월", 1.0, 3.0));
+        inactive.setActive(false);
+
+        persistTimetable(persistUser(), database, SEMESTER);
+        persistTimetable(persistUser(), database, SEMESTER);
+        persistTimetable(persistUser(), blended, SEMESTER);
+        // 정렬 기준은 시간표의 학기를 가리지 않는다.
+        persistTimetable(persistUser(), dataStructures, "2025-2");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void catalogMatchesFindIdsWithFiltersForEveryCriteria() {
+        SubjectFilterCatalog catalog = catalog(SubjectFilterCatalog.CATALOG_MODE);
+        SubjectFilterCacheService sqlPath = new SubjectFilterCacheService(subjectRepository, userTimetableRepository, catalog);
+
+        List<SubjectFilterCriteria> criteriaList = List.of(
+                criteria(SEMESTER).build(),
+                criteria(null).build(),
+                criteria(SEMESTER).subjectName("데이터").build(),
+                criteria(SEMESTER).subjectName("data").build(),
+                criteria(SEMESTER).subjectName("_").build(),
+                criteria(SEMESTER).subjectName("100\\%").build(),
+                criteria(SEMESTER).professor("김").build(),
+                criteria(SEMESTER).courseCode("cse").build(),
+                criteria(SEMESTER).courseCode("CSE_").build(),
+                criteria(SEMESTER).department("컴퓨터공학부").build(),
+                criteria(SEMESTER).department("없는학과").build(),
+                criteria(SEMESTER).departments(List.of("컴퓨터공학부", "교양")).build(),
+                criteria(SEMESTER).dayOfWeek("화").build(),
+                criteria(SEMESTER).dayOfWeek("화").startTime(4.0).endTime(6.0).build(),
+                criteria(SEMESTER).startTime(2.0).build(),
+                criteria(SEMESTER).endTime(3.0).build(),
+                criteria(SEMESTER).subjectType(SubjectType.전심).build(),
+                criteria(SEMESTER).grade(3).build(),
+                criteria(SEMESTER).isNight(true).build(),
+                criteria(SEMESTER).isNight(false).credits(3).build(),
+                criteria(SEMESTER).unassignedTime(true).build(),
+                criteria(SEMESTER).unassignedTime(true).dayOfWeek("금").build(),
+                criteria(SEMESTER).unassignedTime(false).build(),
+                criteria(SEMESTER).timeBlocks(List.of("월:1-3", "화:1-10")).build(),
+                criteria(SEMESTER).timeBlocks(List.of("수:1-12")).build(),
+                criteria(SEMESTER).timeBlocks(List.of("토:1-5")).grade(1).build(),
+                criteria(SEMESTER).page(1).size(2).build(),
+                criteria(SEMESTER).page(10).size(5).build());
+
+        for (SubjectFilterCriteria criteria : criteriaList) {
+            Page<Long> expected = sqlPath.findIdsWithSql(criteria);
+            Page<Long> actual = catalog.findIds(criteria, NO_SQL);
+
+            assertThat(actual.getContent()).as(criteria.toString()).isEqualTo(expected.getContent());
+            assertThat(actual.getTotalElements()).as(criteria.toString()).isEqualTo(expected.getTotalElements());
+        }
+    }
+
+    @Test
+    void facetCountsMatchFindIdsWithFiltersNarrowedByEachValue() {
+        SubjectFilterCatalog catalog = catalog(SubjectFilterCatalog.SQL_MODE);
+        SubjectFilterCacheService sqlPath = new SubjectFilterCacheService(subjectRepository, userTimetableRepository, catalog);
+
+        // 패싯 값 하나를 조건에 더한 SQL 개수가 그 값의 패싯 수와 같아야 한다.
+        List<Supplier<CriteriaBuilder>> bases = List.of(
+                () -> criteria(SEMESTER),
+                () -> criteria(null),
+                () -> criteria(SEMESTER).departments(List.of("컴퓨터공학부", "교양")),
+                () -> criteria(SEMESTER).unassignedTime(true),
+                () -> criteria(SEMESTER).unassignedTime(false).departments(List.of("정보통신공학과, 교양")),
+                () -> criteria(SEMESTER).subjectName("데이터"),
+                () -> criteria(SEMESTER).startTime(2.0),
+                () -> criteria(SEMESTER).timeBlocks(List.of("월:1-3", "화:1-10")));
+
+        for (Supplier<CriteriaBuilder> base : bases) {
+            SubjectFilterCriteria criteria = base.get().build();
+            SubjectFacetCounts facets = catalog.countFacets(criteria);
+            String description = criteria.toString();
+
+            assertThat(facets.total()).as(description).isEqualTo(sqlPath.findIdsWithSql(criteria).getTotalElements());
+            facets.departments().forEach((department, count) -> assertThat(count).as(description + " " + department)
+                    .isEqualTo(sqlTotal(sqlPath, base.get().department(department))));
+            facets.grades().forEach((grade, count) -> assertThat(count).as(description + " " + grade)
+                    .isEqualTo(sqlTotal(sqlPath, base.get().grade(grade))));
+            facets.subjectTypes().forEach((subjectType, count) -> assertThat(count).as(description + " " + subjectType)
+                    .isEqualTo(sqlTotal(sqlPath, base.get().subjectType(subjectType))));
+            facets.isNight().forEach((isNight, count) -> assertThat(count).as(description + " " + isNight)
+                    .isEqualTo(sqlTotal(sqlPath, base.get().isNight(isNight))));
+            facets.credits().forEach((credits, count) -> assertThat(count).as(description + " " + credits)
+                    .isEqualTo(sqlTotal(sqlPath, base.get().credits(credits))));
+            facets.daysOfWeek().forEach((day, count) -> assertThat(count).as(description + " " + day)
+                    .isEqualTo(sqlTotal(sqlPath, base.get().dayOfWeek(day))));
+        }
+    }
+
+    @Test
+    void facetCountsListEveryValueOfTheSemesterInOrder() {
+        SubjectFilterCatalog catalog = catalog(SubjectFilterCatalog.CATALOG_MODE);
+
+        SubjectFacetCounts facets = catalog.countFacets(criteria(SEMESTER).unassignedTime(true).build());
+
+        // 온라인교양(일정 없음)과 블렌디드(온라인). 시간미정은 빈 일정 행이 있어 빠진다.
+        assertThat(facets.total()).isEqualTo(2);
+        assertThat(facets.departments()).containsExactly(
+                Map.entry("교양", 1L), Map.entry("정보통신공학과", 0L), Map.entry("컴퓨터공학부", 0L));
+        assertThat(facets.grades()).containsExactly(
+                Map.entry(1, 1L), Map.entry(2, 0L), Map.entry(3, 0L), Map.entry(4, 0L));
+        assertThat(facets.daysOfWeek().keySet()).containsExactly("월", "화", "수", "목", "금", "토", "일");
+        assertThat(facets.daysOfWeek()).containsEntry("금", 1L).containsEntry("월", 0L);
+        assertThat(facets.classMethods()).containsExactly(
+                Map.entry(ClassMethod.ONLINE, 2L), Map.entry(ClassMethod.OFFLINE, 0L), Map.entry(ClassMethod.BLENDED, 0L));
+        assertThat(meterRegistry.get("subject.catalog.facets").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void facetCountsDoNotWaitForPopularityReorder() {
+        UserTimetableRepository timetables = mock(UserTimetableRepository.class, delegatesTo(userTimetableRepository));
+        SubjectFilterCatalog catalog = new SubjectFilterCatalog(
+                subjectRepository,
+                timetables,
+                mock(AppSettingService.class),
+                mock(SharedSubjectCacheInvalidationService.class),
+                new NoOpCacheManager(),
+                meterRegistry,
+                SubjectFilterCatalog.CATALOG_MODE);
+        SubjectFilterCriteria criteria = criteria(SEMESTER).professor("김교수").build();
+        assertThat(catalog.countFacets(criteria).total()).isEqualTo(2);
+
+        persistTimetable(persistUser(), blended, SEMESTER);
+        entityManager.flush();
+        catalog.reorderAfterPopularityChanged(new SubjectPopularityChangedEvent("test"));
+
+        // 담은 사용자 수는 패싯 수와 관계없으므로 다시 읽지 않는다.
+        assertThat(catalog.countFacets(criteria).total()).isEqualTo(2);
+        verify(timetables, times(1)).countAddedUsersByActiveSubjectsInSemester(SEMESTER);
+        assertThat(meterRegistry.get("subject.catalog.rebuild").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rebuildsAfterSubjectDataChangedAndReordersAfterPopularityChanged() {
+        SubjectFilterCatalog catalog = catalog(SubjectFilterCatalog.CATALOG_MODE);
+        SubjectFilterCriteria criteria = criteria(SEMESTER).professor("김교수").build();
+        // 담은 사용자 수가 같으면 과목 id 순이다.
+        assertThat(catalog.findIds(criteria, NO_SQL).getContent())
+                .containsExactly(dataStructures.getId(), blended.getId());
+
+        Subject added = persistSubject("알고리즘", "김교수", "CSE301", "컴퓨터공학부", 3, 3, SubjectType.전심,
+                ClassMethod.OFFLINE, false, SEMESTER, schedule("수", 1.0, 3.0));
+        persistTimetable(persistUser(), blended, SEMESTER);
+        entityManager.flush();
+        // 시간표 담기만으로는 과목 사본을 다시 만들지 않고, 다음 주기에 정렬만 바꾼다. 그 전에는 이전 정렬로 답한다.
+        catalog.reorderAfterPopularityChanged(new SubjectPopularityChangedEvent("test"));
+        assertThat(catalog.findIds(criteria, NO_SQL).getContent())
+                .containsExactly(dataStructures.getId(), blended.getId());
+        catalog.refresh();
+        assertThat(catalog.findIds(criteria, NO_SQL).getContent())
+                .containsExactly(blended.getId(), dataStructures.getId());
+
+        catalog.rebuildAfterSubjectDataChanged(new SubjectDataChangedEvent("test"));
+        assertThat(catalog.findIds(criteria, NO_SQL).getContent())
+                .containsExactly(blended.getId(), dataStructures.getId(), added.getId());
+        assertThat(meterRegistry.get("subject.catalog.rebuild").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void compareModeServesSqlAndRecordsAgreement() {
+        SubjectFilterCatalog catalog = catalog(SubjectFilterCatalog.COMPARE_MODE);
+        SubjectFilterCacheService sqlPath = new SubjectFilterCacheService(subjectRepository, userTimetableRepository, catalog);
+        SubjectFilterCriteria criteria = criteria(SEMESTER).grade(3).build();
+
+        Page<Long> page = catalog.findIds(criteria, () -> sqlPath.findIdsWithSql(criteria));
+
+        assertThat(page.getContent()).containsExactly(database.getId(), dataMining.getId());
+        assertThat(meterRegistry.get("subject.catalog.compare").tag("result", "match").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("subject.catalog.compare").tag("result", "mismatch").counter().count()).isZero();
+        assertThat(meterRegistry.get("subject.catalog.queries").tag("source", "sql").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void compareModeSkipsComparisonUntilPopularityIsReordered() {
+        SubjectFilterCatalog catalog = catalog(SubjectFilterCatalog.COMPARE_MODE);
+        SubjectFilterCacheService sqlPath = new SubjectFilterCacheService(subjectRepository, userTimetableRepository, catalog);
+        SubjectFilterCriteria criteria = criteria(SEMESTER).professor("김교수").build();
+        catalog.findIds(criteria, () -> sqlPath.findIdsWithSql(criteria));
+
+        persistTimetable(persistUser(), blended, SEMESTER);
+        entityManager.flush();
+        catalog.reorderAfterPopularityChanged(new SubjectPopularityChangedEvent("test"));
+        catalog.findIds(criteria, () -> sqlPath.findIdsWithSql(criteria));
+        catalog.refresh();
+        catalog.findIds(criteria, () -> sqlPath.findIdsWithSql(criteria));
+
+        assertThat(meterRegistry.get("subject.catalog.compare").tag("result", "match").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("subject.catalog.compare").tag("result", "mismatch").counter().count()).isZero();
+    }
+
+    @Test
+    void unknownSemesterFallsBackToSqlWithoutKeepingCatalog() {
+        SubjectFilterCatalog catalog = catalog(SubjectFilterCatalog.CATALOG_MODE);
+        SubjectFilterCacheService sqlPath = new SubjectFilterCacheService(subjectRepository, userTimetableRepository, catalog);
+        SubjectFilterCriteria criteria = criteria("없는학기").build();
+
+        Page<Long> page = catalog.findIds(criteria, () -> sqlPath.findIdsWithSql(criteria));
+        SubjectFacetCounts facets = catalog.countFacets(criteria);
+
+        // 학기 없는 과목만 남는다.
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(facets.total()).isEqualTo(1);
+        assertThat(meterRegistry.get("subject.catalog.queries").tag("source", "sql").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("subject.catalog.rebuild").timer().count()).isZero();
+        assertThat(meterRegistry.get("subject.catalog.memory").gauge().value()).isZero();
+    }
+
+    @Test
+    void sqlModeNeverBuildsCatalog() {
+        SubjectFilterCatalog catalog = catalog(SubjectFilterCatalog.SQL_MODE);
+        SubjectFilterCacheService sqlPath = new SubjectFilterCacheService(subjectRepository, userTimetableRepository, catalog);
+        SubjectFilterCriteria criteria = criteria(SEMESTER).build();
+
+        catalog.buildAfterApplicationReady();
+        catalog.findIds(criteria, () -> sqlPath.findIdsWithSql(criteria));
+
+        assertThat(meterRegistry.get("subject.catalog.rebuild").timer().count()).isZero();
+        assertThat(meterRegistry.get("subject.catalog.queries").tag("source", "catalog").counter().count()).isZero();
+    }
+
+    private SubjectFilterCatalog catalog(String mode) {
+        return new SubjectFilterCatalog(
+                subjectRepository,
+                userTimetableRepository,
+                mock(AppSettingService.class),
+                mock(SharedSubjectCacheInvalidationService.class),
+                new NoOpCacheManager(),
+                meterRegistry,
+                mode);
+    }
+
+    private static long sqlTotal(SubjectFilterCacheService sqlPath, CriteriaBuilder criteria) {
+        return sqlPath.findIdsWithSql(criteria.build()).getTotalElements();
+    }
+
+    private static CriteriaBuilder criteria(String semester) {
+        return new CriteriaBuilder(semester);
+    }
+
+    private Subject persistSubject(
+            String subjectName,
+            String professor,
+            String courseCode,
+            String department,
+            Integer grade,
+            int credits,
+            SubjectType subjectType,
+            ClassMethod classMethod,
+            boolean isNight,
+            String semester,
+            Schedule... schedules) {
+        Subject subject = Subject.builder()
+                .courseCode(courseCode)
+                .semester(semester)
+                .active(true)
+                .subjectName(subjectName)
+                .credits(credits)
+                .professor(professor)
+                .department(department)
+                .grade(grade)
+                .subjectType(subjectType)
+                .classMethod(classMethod)
+                .isNight(isNight)
+                .schedules(new ArrayList<>())
+                .build();
+        for (Schedule schedule : schedules) {
+            schedule.setSubject(subject);
+            subject.getSchedules().add(schedule);
+        }
+        return entityManager.persistAndFlush(subject);
+    }
+
+    private static Schedule schedule(String day, Double start, Double end) {
+        return Schedule.builder()
+                .dayOfWeek(day)
+                .startTime(start)
+                .endTime(end)
+                .build();
+    }
+
+    private User persistUser() {
+        return entityManager.persistAndFlush(User.builder()
+                .username("student-" + UUID.randomUUID())
+                .password("password")
+                .grade(2)
+                .major("컴퓨터공학부")
+                .build());
+    }
+
+    private void persistTimetable(User user, Subject subject, String semester) {
+        entityManager.persistAndFlush(UserTimetable.builder()
+                .user(user)
+                .subject(subject)
+                .semester(semester)
+                .build());
+    }
+
+    // SubjectFilterCriteria.of 의 인자를 이름으로 채운다.
+    private static final class CriteriaBuilder {
+
+        private final String semester;
+        private String subjectName;
+        private String professor;
+        private String courseCode;
+        private String department;
+        private List<String> departments;
+        private String dayOfWeek;
+        private Double startTime;
+        private Double endTime;
+        private SubjectType subjectType;
+        private Integer grade;
+        private Boolean isNight;
+        private Boolean unassignedTime;
+        private Integer credits;
+        private List<String> timeBlocks;
+        private int page;
+        private int size = 20;
+
+        private CriteriaBuilder(String semester) {
+            this.semester = semester;
+        }
+
+        CriteriaBuilder subjectName(String value) { subjectName = value; return this; }
+        CriteriaBuilder professor(String value) { professor = value; return this; }
+        CriteriaBuilder courseCode(String value) { courseCode = value; return this; }
+        CriteriaBuilder department(String value) { department = value; return this; }
+        CriteriaBuilder departments(List<String> value) { departments = value; return this; }
+        CriteriaBuilder dayOfWeek(String value) { dayOfWeek = value; return this; }
+        CriteriaBuilder startTime(Double value) { startTime = value; return this; }
+        CriteriaBuilder endTime(Double value) { endTime = value; return this; }
+        CriteriaBuilder subjectType(SubjectType value) { subjectType = value; return this; }
+        CriteriaBuilder grade(Integer value) { grade = value; return this; }
+        CriteriaBuilder isNight(Boolean value) { isNight = value; return this; }
+        CriteriaBuilder unassignedTime(Boolean value) { unassignedTime = value; return this; }
+        CriteriaBuilder credits(Integer value) { credits = value; return this; }
+        CriteriaBuilder timeBlocks(List<String> value) { timeBlocks = value; return this; }
+        CriteriaBuilder page(int value) { page = value; return this; }
+        CriteriaBuilder size(int value) { size = value; return this; }
+
+        SubjectFilterCriteria build() {
+            return SubjectFilterCriteria.of(semester, subjectName, professor, courseCode, department, departments,
+                    dayOfWeek, startTime, endTime, subjectType, grade, isNight, unassignedTime, credits, timeBlocks,
+                    page, size);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package inu.timetable.service;
+
+import inu.timetable.entity.Schedule;
+import inu.timetable.enums.SubjectType;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.repository.SubjectRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SubjectMaskIndexTest {
+
+    private static final String SEMESTER = "2026-1";
+
+    private SubjectRepository subjectRepository;
+    private AppSettingService appSettingService;
+    private SharedSubjectCacheInvalidationService sharedInvalidationService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        subjectRepository = mock(SubjectRepository.class);
+        appSettingService = mock(AppSettingService.class);
+        when(appSettingService.getCurrentSemester()).thenReturn(SEMESTER);
+        sharedInvalidationService = mock(SharedSubjectCacheInvalidationService.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void buildsMasksMatchingEntitySchedules() {
+        when(subjectRepository.findMaskRowsBySemester(SEMESTER)).thenReturn(List.of(
+                row(3L, "자료구조", 3, "월", 1.0, 2.5),
+                row(3L, "자료구조", 3, "수", 1.0, 2.5),
+                row(7L, "운영체제", 3, "월", 2.0, 3.5),
+                row(9L, "캡스톤", 2, null, null, null)));
+        SubjectMaskIndex index = index(true);
+        index.buildAfterApplicationReady();
+
+        SubjectMaskIndex.Snapshot snapshot = index.snapshot(SEMESTER);
+
+        assertThat(snapshot.size()).isEqualTo(3);
+        int dataStructures = snapshot.indexOf(3L);
+        int operatingSystems = snapshot.indexOf(7L);
+        int capstone = snapshot.indexOf(9L);
+        assertThat(snapshot.indexOf(4L)).isNegative();
+        assertThat(snapshot.subjectName(dataStructures)).isEqualTo("자료구조");
+        assertThat(snapshot.credits(capstone)).isEqualTo(2);
+        assertThat(snapshot.timeMask(dataStructures)).isEqualTo(TimeSlotMask.of(List.of(
+                schedule("월", 1.0, 2.5),
+                schedule("수", 1.0, 2.5))));
+        assertThat(snapshot.classDayBits(dataStructures))
+                .isEqualTo(CombinationSearch.dayBits(List.of("월", "수")));
+        assertThat(snapshot.timeMask(capstone).isEmpty()).isTrue();
+        assertThat(snapshot.conflictsWithAny(operatingSystems, new int[] {dataStructures})).isTrue();
+        assertThat(snapshot.conflictsWithAny(capstone, new int[] {dataStructures, operatingSystems})).isFalse();
+        assertThat(meterRegistry.get("subject.mask.index.subjects").gauge().value()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("subject.mask.index.memory").gauge().value()).isPositive();
+    }
+
+    @Test
+    void resolveReportsMissWhenAnySubjectIsOutsideTheIndex() {
+        when(subjectRepository.findMaskRowsBySemester(SEMESTER)).thenReturn(List.of(
+                row(3L, "자료구조", 3, "월", 1.0, 2.5),
+                row(7L, "운영체제", 3, "화", 1.0, 2.5)));
+        SubjectMaskIndex index = index(true);
+        index.buildAfterApplicationReady();
+        SubjectMaskIndex.Snapshot snapshot = index.snapshot(SEMESTER);
+
+        assertThat(index.resolve(snapshot, List.of(7L, 3L))).containsExactly(1, 0);
+        assertThat(index.resolve(snapshot, List.of(3L, 11L))).isNull();
+        assertThat(meterRegistry.get("subject.mask.index.lookups").tag("result", "hit").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("subject.mask.index.lookups").tag("result", "miss").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void rebuildsAfterLocalAndSharedSubjectDataChanges() {
+        when(subjectRepository.findMaskRowsBySemester(SEMESTER))
+                .thenReturn(List.of(row(3L, "자료구조", 3, "월", 1.0, 2.5)))
+                .thenReturn(List.of(row(3L, "자료구조", 3, "화", 1.0, 2.5)))
+                .thenReturn(List.of(row(5L, "알고리즘", 3, "목", 1.0, 2.5)));
+        SubjectMaskIndex index = index(true);
+        index.buildAfterApplicationReady();
+        SubjectMaskIndex.Snapshot first = index.snapshot(SEMESTER);
+        index.refresh();
+        assertThat(index.snapshot(SEMESTER)).isSameAs(first);
+
+        index.rebuildAfterSubjectDataChanged(new SubjectDataChangedEvent("subject-updated"));
+        SubjectMaskIndex.Snapshot afterLocalChange = index.snapshot(SEMESTER);
+
+        assertThat(afterLocalChange).isNotSameAs(first);
+        assertThat(afterLocalChange.timeMask(0)).isEqualTo(TimeSlotMask.of(List.of(schedule("화", 1.0, 2.5))));
+
+        // 다른 노드의 변경은 다음 주기까지 색인을 쓰지 않고 엔티티 경로로 답한다.
+        when(sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_ALL))
+                .thenReturn(1L);
+        assertThat(index.snapshot(SEMESTER)).isNull();
+        index.refresh();
+        SubjectMaskIndex.Snapshot afterSharedChange = index.snapshot(SEMESTER);
+
+        assertThat(afterSharedChange.indexOf(5L)).isZero();
+        verify(subjectRepository, times(3)).findMaskRowsBySemester(SEMESTER);
+    }
+
+    @Test
+    void buildsOtherSemestersOnTheNextRefreshInsteadOfTheLookup() {
+        when(subjectRepository.findMaskRowsBySemester("2025-2"))
+                .thenReturn(List.of(row(3L, "자료구조", 3, "월", 1.0, 2.5)));
+        SubjectMaskIndex index = index(true);
+
+        assertThat(index.snapshot("2025-2")).isNull();
+        verifyNoInteractions(subjectRepository);
+
+        index.refresh();
+
+        assertThat(index.snapshot("2025-2").indexOf(3L)).isZero();
+    }
+
+    @Test
+    void disabledIndexNeverLoadsSubjects() {
+        SubjectMaskIndex index = index(false);
+
+        index.buildAfterApplicationReady();
+        index.refresh();
+
+        assertThat(index.snapshot(SEMESTER)).isNull();
+        verifyNoInteractions(subjectRepository);
+    }
+
+    private SubjectMaskIndex index(boolean enabled) {
+        return new SubjectMaskIndex(
+                subjectRepository,
+                appSettingService,
+                sharedInvalidationService,
+                meterRegistry,
+                enabled);
+    }
+
+    private static Schedule schedule(String day, double startTime, double endTime) {
+        return Schedule.builder().dayOfWeek(day).startTime(startTime).endTime(endTime).build();
+    }
+
+    private static SubjectRepository.SubjectMaskRow row(
+            Long subjectId, String subjectName, Integer credits, String day, Double startTime, Double endTime) {
+        return new MaskRow(subjectId, subjectName, credits, day, startTime, endTime);
+    }
+
+    private record MaskRow(
+            Long subjectId,
+            String subjectName,
+            Integer credits,
+            String dayOfWeek,
+            Double startTime,
+            Double endTime) implements SubjectRepository.SubjectMaskRow {
+
+        @Override
+        public Long getSubjectId() {
+            return subjectId;
+        }
+
+        @Override
+        public String getSubjectName() {
+            return subjectName;
+        }
+
+        @Override
+        public Integer getCredits() {
+            return credits;
+        }
+
+        @Override
+        public SubjectType getSubjectType() {
+            return null;
+        }
+
+        @Override
+        public String getDayOfWeek() {
+            return dayOfWeek;
+        }
+
+        @Override
+        public Double getStartTime() {
+            return startTime;
+        }
+
+        @Override
+        public Double getEndTime() {
+            return endTime;
+        }
+    }
+}
@@ -11,6 +11,8 @@ import inu.timetable.event.SubjectDataChangedEvent;
 import inu.timetable.event.SubjectPopularityChangedEvent;
 import inu.timetable.repository.SubjectRepository;
 import inu.timetable.repository.UserTimetableRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +35,7 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -43,11 +46,19 @@ import static org.mockito.Mockito.when;
         CacheConfig.class,
         SubjectCacheEvictionService.class,
         SubjectFilterCacheService.class,
+        SubjectFilterCatalog.class,
         SubjectSearchCacheService.class,
-        SubjectQueryService.class
+        SubjectSearchIndex.class,
+        SubjectSearchPrefixCache.class,
+        SubjectSuggestionIndex.class,
+        SubjectQueryService.class,
+        SimpleMeterRegistry.class
 }, properties = {
         "subject.cache.maximum-size=100",
-        "subject.cache.expire-after-write=10m"
+        "subject.cache.expire-after-write=10m",
+        // 이 테스트는 SQL 경로의 캐시를 본다. 카탈로그와 검색 색인 경로는 SubjectFilterCatalogTest, SubjectSearchIndexTest 가 본다.
+        "subject.catalog.mode=sql",
+        "subject.search.mode=sql"
 })
 class SubjectQueryServiceCacheTest {
 
@@ -60,12 +71,21 @@ class SubjectQueryServiceCacheTest {
     @Autowired
     private ApplicationEventPublisher eventPublisher;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockitoBean
     private SubjectRepository subjectRepository;
 
     @MockitoBean
     private UserTimetableRepository userTimetableRepository;
 
+    @MockitoBean
+    private AppSettingService appSettingService;
+
+    @MockitoBean
+    private SharedSubjectCacheInvalidationService sharedInvalidationService;
+
     @BeforeEach
     void setUp() {
         reset(subjectRepository, userTimetableRepository);
@@ -91,6 +111,49 @@ class SubjectQueryServiceCacheTest {
         verify(subjectRepository, times(2)).findBySubjectNameContainingAndActiveTrue("자료");
     }
 
+    @Test
+    void longerKeywordIsAnsweredFromCachedShorterKeywordWithoutDatabase() {
+        when(subjectRepository.findBySubjectNameContainingAndActiveTrue("자료"))
+                .thenReturn(List.of(subject(1L, "자료구조"), subject(2L, "자료통신"), subject(3L, "고급자료구조")));
+        subjectQueryService.searchBySubjectName("자료", null);
+        double hitsBefore = derivedCount("hit");
+        double missesBefore = derivedCount("miss");
+
+        assertThat(subjectQueryService.searchBySubjectName("자료구조", null))
+                .extracting(SubjectDto::getId)
+                .containsExactly(1L, 3L);
+        // 학년을 붙여도 학년 없는 캐시 결과를 학년으로 거른다.
+        assertThat(subjectQueryService.searchBySubjectName("자료구", 2))
+                .extracting(SubjectDto::getId)
+                .containsExactly(1L, 3L);
+        assertThat(subjectQueryService.searchBySubjectName("자료구조응용", null)).isEmpty();
+        verify(subjectRepository, times(1)).findBySubjectNameContainingAndActiveTrue(any());
+        verify(subjectRepository, never()).findBySubjectNameContainingAndGradeAndActiveTrue(any(), any());
+        assertThat(derivedCount("hit") - hitsBefore).isEqualTo(3);
+
+        when(subjectRepository.findBySubjectNameContainingAndActiveTrue("데이터"))
+                .thenReturn(List.of(subject(4L, "데이터베이스")));
+        assertThat(subjectQueryService.searchBySubjectName("데이터", null))
+                .extracting(SubjectDto::getId)
+                .containsExactly(4L);
+        verify(subjectRepository, times(1)).findBySubjectNameContainingAndActiveTrue("데이터");
+        assertThat(derivedCount("miss") - missesBefore).isEqualTo(1);
+    }
+
+    @Test
+    void longerKeywordIsAnsweredFromCachedKeywordItContains() {
+        when(subjectRepository.findBySubjectNameContainingAndActiveTrue("베이스"))
+                .thenReturn(List.of(subject(5L, "데이터베이스"), subject(6L, "베이스기타"), subject(7L, "지식베이스설계")));
+        subjectQueryService.searchBySubjectName("베이스", null);
+        double hitsBefore = derivedCount("hit");
+
+        assertThat(subjectQueryService.searchBySubjectName("데이터베이스", null))
+                .extracting(SubjectDto::getId)
+                .containsExactly(5L);
+        verify(subjectRepository, never()).findBySubjectNameContainingAndActiveTrue("데이터베이스");
+        assertThat(derivedCount("hit") - hitsBefore).isEqualTo(1);
+    }
+
     @Test
     void countActiveSubjectsCachesUntilSubjectDataChanges() {
         when(subjectRepository.countByActiveTrue()).thenReturn(2894L, 3000L);
@@ -336,6 +399,14 @@ class SubjectQueryServiceCacheTest {
         };
     }
 
+    private double derivedCount(String result) {
+        return meterRegistry.get("subject.search.cache.derived")
+                .tag("cache", SubjectCacheNames.SUBJECT_NAME_SEARCH)
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+
     private Subject subject(Long id, String subjectName) {
         Subject subject = Subject.builder()
                 .id(id)
@@ -0,0 +1,156 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.SubjectDto;
+import inu.timetable.dto.SubjectSearchCriteria;
+import inu.timetable.entity.Subject;
+import inu.timetable.enums.ClassMethod;
+import inu.timetable.enums.SubjectType;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.repository.SubjectRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.url=jdbc:h2:mem:subject_search_index;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class SubjectSearchIndexTest {
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Subject database;
+    private Subject dataStructures;
+    private Subject bigData;
+
+    @BeforeEach
+    void setUp() {
+        database = persistSubject("데이터베이스", "이데이", "CSE201", 3, true);
+        dataStructures = persistSubject("자료구조", "김교수", "CSE101", 2, true);
+        bigData = persistSubject("빅데이터분석", "Park", "DAT301", 3, true);
+        persistSubject("Data Mining", "park", "CSE_301", 4, true);
+        persistSubject("100%출석", "김교수", "PCT100", null, true);
+        persistSubject("데이터통신", "최교수", null, 2, false);
+        persistSubject("교수미정", "미정", "TBA001", 1, true);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void indexMatchesContainingQueriesForEveryKeyword() {
+        SubjectSearchCacheService indexPath = searchService(index(SubjectSearchIndex.INDEX_MODE));
+        SubjectSearchCacheService sqlPath = searchService(index(SubjectSearchIndex.SQL_MODE));
+
+        for (String keyword : List.of("데이터", "데이", "이터베이", "터분", "자료구조", "없는과목", "Data", "data",
+                "CSE", "CSE_", "_3", "0%", "김교수", "교수", "Park", "a", "이데이")) {
+            for (Integer grade : Arrays.asList(null, 2, 3)) {
+                assertThat(ids(indexPath.searchBySubjectName(keyword, grade)))
+                        .as(keyword + " " + grade)
+                        .isEqualTo(ids(sqlPath.searchBySubjectName(keyword, grade)));
+                assertThat(ids(indexPath.searchByProfessor(keyword, grade)))
+                        .as("professor " + keyword + " " + grade)
+                        .isEqualTo(ids(sqlPath.searchByProfessor(keyword, grade)));
+            }
+        }
+        // 과목명 검색은 과목 코드도 찾는다.
+        assertThat(ids(indexPath.searchBySubjectName("CSE2", null))).containsExactly(database.getId());
+        assertThat(ids(sqlPath.searchBySubjectName("DAT3", 3))).containsExactly(bigData.getId());
+        assertThat(meterRegistry.get("subject.search.queries").tag("source", "index").counter().count()).isPositive();
+    }
+
+    @Test
+    void matchesInitialConsonantQueries() {
+        SubjectSearchCacheService indexPath = searchService(index(SubjectSearchIndex.INDEX_MODE));
+
+        assertThat(ids(indexPath.searchBySubjectName("ㄷㅇㅌ", null)))
+                .containsExactly(database.getId(), bigData.getId());
+        assertThat(ids(indexPath.searchBySubjectName("ㄷㅇㅌ", 2))).isEmpty();
+        // 음절과 초성을 섞어도 된다.
+        assertThat(ids(indexPath.searchBySubjectName("데ㅇㅌㅂㅇ", null))).containsExactly(database.getId());
+        assertThat(ids(indexPath.searchBySubjectName("ㅈㄹ", null))).containsExactly(dataStructures.getId());
+        assertThat(ids(indexPath.searchBySubjectName("ㅈㄹㅂ", null))).isEmpty();
+        assertThat(ids(indexPath.searchByProfessor("ㅇㄷㅇ", null))).containsExactly(database.getId());
+    }
+
+    @Test
+    void rebuildsAfterSubjectDataChanged() {
+        SubjectSearchIndex index = index(SubjectSearchIndex.INDEX_MODE);
+        SubjectSearchCriteria criteria = SubjectSearchCriteria.of("알고", null);
+        assertThat(index.findIdsBySubjectName(criteria)).isEmpty();
+
+        Subject added = persistSubject("알고리즘", "김교수", "CSE301", 3, true);
+        entityManager.flush();
+        assertThat(index.findIdsBySubjectName(criteria)).isEmpty();
+
+        index.rebuildAfterSubjectDataChanged(new SubjectDataChangedEvent("test"));
+        assertThat(index.findIdsBySubjectName(criteria)).containsExactly(added.getId());
+        assertThat(meterRegistry.get("subject.search.index.rebuild").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void sqlModeNeverBuildsIndex() {
+        SubjectSearchIndex index = index(SubjectSearchIndex.SQL_MODE);
+
+        index.buildAfterApplicationReady();
+
+        assertThat(index.findIdsBySubjectName(SubjectSearchCriteria.of("데이터", null))).isNull();
+        assertThat(meterRegistry.get("subject.search.index.rebuild").timer().count()).isZero();
+    }
+
+    // 이 테스트는 캐시 없이 색인과 SQL 경로를 본다. 짧은 검색어 결과 재사용은 SubjectQueryServiceCacheTest 가 본다.
+    private SubjectSearchCacheService searchService(SubjectSearchIndex index) {
+        return new SubjectSearchCacheService(
+                subjectRepository, index, new SubjectSearchPrefixCache(new NoOpCacheManager(), meterRegistry, true));
+    }
+
+    private SubjectSearchIndex index(String mode) {
+        return new SubjectSearchIndex(
+                subjectRepository,
+                mock(SharedSubjectCacheInvalidationService.class),
+                meterRegistry,
+                mode);
+    }
+
+    private static List<Long> ids(List<SubjectDto> subjects) {
+        return subjects.stream().map(SubjectDto::getId).sorted().toList();
+    }
+
+    private Subject persistSubject(String subjectName, String professor, String courseCode, Integer grade, boolean active) {
+        return entityManager.persistAndFlush(Subject.builder()
+                .courseCode(courseCode)
+                .semester("2026-1")
+                .active(active)
+                .subjectName(subjectName)
+                .credits(3)
+                .professor(professor)
+                .grade(grade)
+                .subjectType(SubjectType.전심)
+                .classMethod(ClassMethod.OFFLINE)
+                .schedules(new ArrayList<>())
+                .build());
+    }
+}
@@ -0,0 +1,179 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.SubjectSuggestion;
+import inu.timetable.entity.Subject;
+import inu.timetable.entity.User;
+import inu.timetable.entity.UserTimetable;
+import inu.timetable.enums.ClassMethod;
+import inu.timetable.enums.SubjectType;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.event.SubjectPopularityChangedEvent;
+import inu.timetable.repository.SubjectRepository;
+import inu.timetable.repository.UserTimetableRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.url=jdbc:h2:mem:subject_suggestion;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class SubjectSuggestionIndexTest {
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private UserTimetableRepository userTimetableRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Subject dataStructures;
+
+    @BeforeEach
+    void setUp() {
+        Subject database = persistSubject("데이터베이스", "이교수", "컴퓨터공학부", true);
+        persistSubject("데이터통신", "이교수", "정보통신공학과", true);
+        dataStructures = persistSubject("자료구조", "김교수", "컴퓨터공학부", true);
+        persistSubject("Data Mining", "Park", "정보통신공학과", true);
+        persistSubject("데이터마이닝", "최교수", null, false);
+
+        persistTimetable(persistUser(), database);
+        persistTimetable(persistUser(), database);
+        persistTimetable(persistUser(), dataStructures);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void suggestsPrefixMatchesByPopularity() {
+        SubjectSuggestionIndex index = index(10);
+        index.buildAfterApplicationReady();
+
+        assertThat(index.suggest("데", 10))
+                .extracting(SubjectSuggestion::text, SubjectSuggestion::kind, SubjectSuggestion::popularity)
+                .containsExactly(
+                        tuple("데이터베이스", SubjectSuggestion.Kind.SUBJECT_NAME, 2L),
+                        tuple("데이터통신", SubjectSuggestion.Kind.SUBJECT_NAME, 0L));
+        // 학과·교수는 그 이름을 가진 과목의 인기를 더한다.
+        assertThat(index.suggest("컴", 10))
+                .containsExactly(new SubjectSuggestion("컴퓨터공학부", SubjectSuggestion.Kind.DEPARTMENT, 3L));
+        assertThat(index.suggest("이", 10))
+                .containsExactly(new SubjectSuggestion("이교수", SubjectSuggestion.Kind.PROFESSOR, 2L));
+        assertThat(index.suggest(" da", 10)).extracting(SubjectSuggestion::text).containsExactly("Data Mining");
+        assertThat(index.suggest("데이터", 1)).extracting(SubjectSuggestion::text).containsExactly("데이터베이스");
+        assertThat(index.suggest("없", 10)).isEmpty();
+        assertThat(index.suggest(" ", 10)).isEmpty();
+    }
+
+    @Test
+    void suggestsInitialConsonantPrefixes() {
+        SubjectSuggestionIndex index = index(10);
+        index.buildAfterApplicationReady();
+
+        assertThat(index.suggest("ㄷㅇㅌ", 10)).extracting(SubjectSuggestion::text)
+                .containsExactly("데이터베이스", "데이터통신");
+        assertThat(index.suggest("데이ㅌㅌ", 10)).extracting(SubjectSuggestion::text).containsExactly("데이터통신");
+        assertThat(index.suggest("ㄱ", 10)).extracting(SubjectSuggestion::text).containsExactly("김교수");
+    }
+
+    @Test
+    void rebuildsAfterSubjectDataChangedAndRefreshesPopularityPeriodically() {
+        SubjectSuggestionIndex index = index(10);
+        assertThat(index.suggest("자", 10)).isEmpty();
+        index.buildAfterApplicationReady();
+
+        persistSubject("자바프로그래밍", "김교수", "컴퓨터공학부", true);
+        entityManager.flush();
+        index.rebuildAfterSubjectDataChanged(new SubjectDataChangedEvent("test"));
+        assertThat(index.suggest("자", 10)).extracting(SubjectSuggestion::text)
+                .containsExactly("자료구조", "자바프로그래밍");
+
+        Subject java = subjectRepository.findAll().stream()
+                .filter(subject -> subject.getSubjectName().equals("자바프로그래밍"))
+                .findFirst()
+                .orElseThrow();
+        persistTimetable(persistUser(), java);
+        persistTimetable(persistUser(), java);
+        entityManager.flush();
+        index.reorderAfterPopularityChanged(new SubjectPopularityChangedEvent("test"));
+        // 주기 작업 전에는 이전 순서로 답한다.
+        assertThat(index.suggest("자", 10)).extracting(SubjectSuggestion::text)
+                .containsExactly("자료구조", "자바프로그래밍");
+
+        index.refresh();
+        assertThat(index.suggest("자", 10)).extracting(SubjectSuggestion::text)
+                .containsExactly("자바프로그래밍", "자료구조");
+        index.refresh();
+        assertThat(meterRegistry.get("subject.suggest.rebuild").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void limitsResultsToConfiguredMaximum() {
+        SubjectSuggestionIndex index = index(1);
+        index.buildAfterApplicationReady();
+
+        assertThat(index.suggest("데", 10)).extracting(SubjectSuggestion::text).containsExactly("데이터베이스");
+    }
+
+    private SubjectSuggestionIndex index(int maxResults) {
+        return new SubjectSuggestionIndex(
+                subjectRepository,
+                userTimetableRepository,
+                mock(SharedSubjectCacheInvalidationService.class),
+                meterRegistry,
+                maxResults);
+    }
+
+    private Subject persistSubject(String subjectName, String professor, String department, boolean active) {
+        return entityManager.persistAndFlush(Subject.builder()
+                .semester("2026-1")
+                .active(active)
+                .subjectName(subjectName)
+                .credits(3)
+                .professor(professor)
+                .department(department)
+                .subjectType(SubjectType.전심)
+                .classMethod(ClassMethod.OFFLINE)
+                .schedules(new ArrayList<>())
+                .build());
+    }
+
+    private User persistUser() {
+        return entityManager.persistAndFlush(User.builder()
+                .username("student-" + UUID.randomUUID())
+                .password("password")
+                .grade(2)
+                .major("컴퓨터공학부")
+                .build());
+    }
+
+    private void persistTimetable(User user, Subject subject) {
+        entityManager.persistAndFlush(UserTimetable.builder()
+                .user(user)
+                .subject(subject)
+                .semester("2026-1")
+                .build());
+    }
+}
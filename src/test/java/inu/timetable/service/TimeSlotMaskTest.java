@@ -0,0 +1,67 @@
+package inu.timetable.service;
+
+import inu.timetable.entity.Schedule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeSlotMaskTest {
+
+    @Test
+    void detectsOverlapOnlyOnTheSameDay() {
+        TimeSlotMask mondayMorning = TimeSlotMask.of(List.of(schedule("월", 1.0, 2.5)));
+
+        assertThat(mondayMorning.intersects(TimeSlotMask.of(List.of(schedule("월", 2.0, 3.5))))).isTrue();
+        assertThat(mondayMorning.intersects(TimeSlotMask.of(List.of(schedule("월", 2.5, 4.0))))).isFalse();
+        assertThat(mondayMorning.intersects(TimeSlotMask.of(List.of(schedule("화", 1.0, 2.5))))).isFalse();
+    }
+
+    @Test
+    void ignoresSchedulesWithoutDayOrTime() {
+        TimeSlotMask online = TimeSlotMask.of(List.of(schedule(null, null, null), schedule("월", null, null)));
+
+        assertThat(online.isEmpty()).isTrue();
+        assertThat(online.intersects(TimeSlotMask.of(List.of(schedule("월", 1.0, 15.0))))).isFalse();
+    }
+
+    @Test
+    void extendsNightSchedulesWhoseStartIsAfterEnd() {
+        TimeSlotMask night = TimeSlotMask.of(List.of(schedule("수", 14.0, 8.0)));
+
+        assertThat(night.isEmpty()).isFalse();
+        assertThat(night.intersects(TimeSlotMask.of("수", 15.0, 15.5))).isTrue();
+        assertThat(night.intersects(TimeSlotMask.of("수", 13.0, 14.0))).isFalse();
+    }
+
+    @Test
+    void accumulatorRejectsConflictsAndRestoresOnPop() {
+        TimeSlotMask monday = TimeSlotMask.of("월", 1.0, 2.5);
+        TimeSlotMask mondayConflict = TimeSlotMask.of("월", 2.0, 3.0);
+        TimeSlotMask tuesday = TimeSlotMask.of("화", 1.0, 2.5);
+        TimeSlotMask.Accumulator accumulator = new TimeSlotMask.Accumulator(2);
+
+        assertThat(accumulator.tryPush(monday)).isTrue();
+        assertThat(accumulator.tryPush(mondayConflict)).isFalse();
+        assertThat(accumulator.tryPush(tuesday)).isTrue();
+        assertThat(accumulator.snapshot()).isEqualTo(monday.or(tuesday));
+
+        accumulator.pop();
+        assertThat(accumulator.depth()).isEqualTo(1);
+        assertThat(accumulator.snapshot()).isEqualTo(monday);
+        assertThat(accumulator.tryPush(mondayConflict)).isFalse();
+
+        accumulator.pop();
+        assertThat(accumulator.snapshot().isEmpty()).isTrue();
+        assertThat(accumulator.tryPush(mondayConflict)).isTrue();
+    }
+
+    private Schedule schedule(String day, Double startTime, Double endTime) {
+        return Schedule.builder()
+                .dayOfWeek(day)
+                .startTime(startTime)
+                .endTime(endTime)
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package inu.timetable.service;
+
+import inu.timetable.exception.ApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimetableCombinationAdmissionServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsWith503AndRetryAfterWhenQueueIsFull() {
+        TimetableCombinationAdmissionService admission = admission(1, 0, "500ms", 0);
+
+        assertThatThrownBy(() -> admission.call(1L, () -> admission.call(2L, () -> "inner")))
+                .isInstanceOf(ApiException.class)
+                .satisfies(exception -> {
+                    assertThat(((ApiException) exception).getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(((ApiException) exception).getRetryAfter()).isEqualTo(Duration.ofSeconds(2));
+                });
+        assertThat(rejections("queue_full")).isEqualTo(1.0);
+        // 거절한 뒤 허가와 대기 수가 돌아와 다음 요청은 바로 돈다.
+        assertThat(admission.activeCount()).isZero();
+        assertThat(admission.waitingCount()).isZero();
+        assertThat(admission.call(2L, () -> "next")).isEqualTo("next");
+    }
+
+    @Test
+    void rejectsWith503WhenPermitIsNotFreedWithinQueueTimeout() {
+        TimetableCombinationAdmissionService admission = admission(1, 4, "20ms", 0);
+
+        assertThatThrownBy(() -> admission.call(1L, () -> admission.call(2L, () -> "inner")))
+                .isInstanceOf(ApiException.class)
+                .satisfies(exception -> assertThat(((ApiException) exception).getStatus())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(rejections("timeout")).isEqualTo(1.0);
+        assertThat(admission.waitingCount()).isZero();
+    }
+
+    @Test
+    void queuedRequestRunsOncePermitIsReleased() throws Exception {
+        TimetableCombinationAdmissionService admission = admission(1, 4, "5s", 0);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> admission.call(1L, () -> {
+            running.countDown();
+            await(release);
+            return "first";
+        }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> admission.call(2L, () -> "second"));
+        while (admission.waitingCount() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(meterRegistry.find("timetable.combination.admission.rejections").counter()).isNull();
+    }
+
+    @Test
+    void rejectsWith429WhenUserExceedsConcurrentLimit() {
+        TimetableCombinationAdmissionService admission = admission(8, 0, "500ms", 2);
+
+        assertThat(admission.call(1L, () -> admission.call(1L, () -> "nested"))).isEqualTo("nested");
+        assertThatThrownBy(() -> admission.call(1L, () -> admission.call(1L, () -> admission.call(1L, () -> "third"))))
+                .isInstanceOf(ApiException.class)
+                .satisfies(exception -> {
+                    assertThat(((ApiException) exception).getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                    assertThat(((ApiException) exception).getRetryAfter()).isEqualTo(Duration.ofSeconds(2));
+                });
+        assertThat(rejections("user_limit")).isEqualTo(1.0);
+        // 다른 사용자는 제한에 걸리지 않는다.
+        assertThat(admission.call(1L, () -> admission.call(1L, () -> admission.call(2L, () -> "other")))).isEqualTo("other");
+    }
+
+    @Test
+    void disabledAdmissionRunsWorkDirectly() {
+        TimetableCombinationAdmissionService admission =
+                new TimetableCombinationAdmissionService(meterRegistry, false, 1, 0, "500ms", 1, "2s");
+
+        assertThat(admission.call(1L, () -> admission.call(1L, () -> "nested"))).isEqualTo("nested");
+        assertThat(meterRegistry.find("timetable.combination.admission.rejections").counter()).isNull();
+    }
+
+    private TimetableCombinationAdmissionService admission(
+            int maxConcurrent, int queueCapacity, String queueTimeout, int perUserMaxConcurrent) {
+        return new TimetableCombinationAdmissionService(
+                meterRegistry, true, maxConcurrent, queueCapacity, queueTimeout, perUserMaxConcurrent, "2s");
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("timetable.combination.admission.rejections").tag("reason", reason).counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
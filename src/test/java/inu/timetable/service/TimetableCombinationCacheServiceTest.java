@@ -0,0 +1,189 @@
+package inu.timetable.service;
+
+import inu.timetable.dto.TimetableCombinationCriteria;
+import inu.timetable.dto.TimetableCombinationResult;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.event.WishlistChangedEvent;
+import inu.timetable.repository.WishlistRepository;
+import inu.timetable.repository.WishlistRepository.WishlistFingerprintRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TimetableCombinationCacheServiceTest {
+
+    private static final TimetableCombinationCriteria CRITERIA =
+            TimetableCombinationCriteria.of("2026-1", 18, 20, List.of(), false);
+
+    @Mock
+    private TimetableCombinationService combinationService;
+
+    @Mock
+    private WishlistRepository wishlistRepository;
+
+    @Mock
+    private SharedSubjectCacheInvalidationService sharedInvalidationService;
+
+    @Mock
+    private TimetableCombinationAdmissionService admissionService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TimetableCombinationCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cacheService = new TimetableCombinationCacheService(
+                combinationService,
+                wishlistRepository,
+                sharedInvalidationService,
+                admissionService,
+                transactionManager,
+                meterRegistry,
+                true,
+                100,
+                "10m");
+        lenient().when(combinationService.generateTimetableCombinations(eq(1L), any()))
+                .thenAnswer(invocation -> TimetableCombinationResult.empty(false));
+        lenient().when(admissionService.call(eq(1L), any())).thenAnswer(invocation ->
+                ((Supplier<?>) invocation.getArgument(1)).get());
+    }
+
+    @Test
+    void reusesResultWhileWishlistFingerprintIsUnchanged() {
+        when(wishlistRepository.findFingerprintRowsByUserIdAndSemester(1L, "2026-1"))
+                .thenReturn(List.of(row(10L, true), row(11L, false)));
+
+        TimetableCombinationResult first = cacheService.generateTimetableCombinations(1L, CRITERIA);
+        TimetableCombinationResult second = cacheService.generateTimetableCombinations(1L, CRITERIA);
+
+        assertThat(second).isSameAs(first);
+        verify(combinationService, times(1)).generateTimetableCombinations(1L, CRITERIA);
+        assertThat(requests("hit")).isEqualTo(1);
+        assertThat(requests("miss")).isEqualTo(1);
+        // 캐시에서 답한 요청은 조합 요청 허가를 얻지 않는다.
+        verify(admissionService, times(1)).call(eq(1L), any());
+    }
+
+    @Test
+    void searchesAfterTheFingerprintTransactionCommits() {
+        when(wishlistRepository.findFingerprintRowsByUserIdAndSemester(1L, "2026-1"))
+                .thenReturn(List.of(row(10L, false)));
+
+        cacheService.generateTimetableCombinations(1L, CRITERIA);
+
+        // 탐색하는 동안 DB 연결을 잡지 않도록 지문을 읽은 트랜잭션은 탐색 전에 끝난다.
+        InOrder inOrder = inOrder(wishlistRepository, transactionManager, combinationService);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(wishlistRepository).findFingerprintRowsByUserIdAndSemester(1L, "2026-1");
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(combinationService).generateTimetableCombinations(1L, CRITERIA);
+        verifyNoMoreInteractions(transactionManager);
+    }
+
+    @Test
+    void recomputesWhenRequiredFlagOrItemsChange() {
+        when(wishlistRepository.findFingerprintRowsByUserIdAndSemester(1L, "2026-1"))
+                .thenReturn(List.of(row(10L, false), row(11L, false)))
+                .thenReturn(List.of(row(10L, true), row(11L, false)))
+                .thenReturn(List.of(row(10L, true)));
+
+        cacheService.generateTimetableCombinations(1L, CRITERIA);
+        cacheService.generateTimetableCombinations(1L, CRITERIA);
+        cacheService.generateTimetableCombinations(1L, CRITERIA);
+
+        verify(combinationService, times(3)).generateTimetableCombinations(1L, CRITERIA);
+        assertThat(requests("hit")).isZero();
+    }
+
+    @Test
+    void recomputesAfterSubjectDataChangesOnThisOrAnotherNode() {
+        when(wishlistRepository.findFingerprintRowsByUserIdAndSemester(1L, "2026-1"))
+                .thenReturn(List.of(row(10L, false)));
+
+        cacheService.generateTimetableCombinations(1L, CRITERIA);
+        cacheService.evictAfterSubjectDataChanged(new SubjectDataChangedEvent("test"));
+        cacheService.generateTimetableCombinations(1L, CRITERIA);
+        when(sharedInvalidationService.observedVersion(SharedSubjectCacheInvalidationService.SCOPE_ALL))
+                .thenReturn(1L);
+        cacheService.generateTimetableCombinations(1L, CRITERIA);
+
+        verify(combinationService, times(3)).generateTimetableCombinations(1L, CRITERIA);
+    }
+
+    @Test
+    void wishlistChangeEvictsOnlyThatUsersEntries() {
+        when(wishlistRepository.findFingerprintRowsByUserIdAndSemester(1L, "2026-1"))
+                .thenReturn(List.of(row(10L, false)));
+        when(wishlistRepository.findFingerprintRowsByUserIdAndSemester(2L, "2026-1"))
+                .thenReturn(List.of(row(10L, false)));
+        when(combinationService.generateTimetableCombinations(eq(2L), any()))
+                .thenAnswer(invocation -> TimetableCombinationResult.empty(false));
+
+        cacheService.generateTimetableCombinations(1L, CRITERIA);
+        cacheService.generateTimetableCombinations(2L, CRITERIA);
+        cacheService.evictAfterWishlistChanged(new WishlistChangedEvent(1L));
+        cacheService.generateTimetableCombinations(1L, CRITERIA);
+        cacheService.generateTimetableCombinations(2L, CRITERIA);
+
+        verify(combinationService, times(2)).generateTimetableCombinations(1L, CRITERIA);
+        verify(combinationService, times(1)).generateTimetableCombinations(2L, CRITERIA);
+    }
+
+    @Test
+    void continuationPagesBypassTheCache() {
+        when(combinationService.generateTimetableCombinations(1L, CRITERIA, "next"))
+                .thenAnswer(invocation -> TimetableCombinationResult.empty(false));
+
+        cacheService.generateTimetableCombinations(1L, CRITERIA, "next");
+        cacheService.generateTimetableCombinations(1L, CRITERIA, "next");
+
+        verify(combinationService, times(2)).generateTimetableCombinations(1L, CRITERIA, "next");
+        verifyNoInteractions(wishlistRepository);
+        assertThat(requests("hit") + requests("miss")).isZero();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.counter(
+                "subject.cache.requests",
+                "cache", SubjectCacheNames.TIMETABLE_COMBINATIONS,
+                "result", result).count();
+    }
+
+    private static WishlistFingerprintRow row(Long subjectId, boolean required) {
+        return new WishlistFingerprintRow() {
+            @Override
+            public Long getSubjectId() {
+                return subjectId;
+            }
+
+            @Override
+            public Boolean getIsRequired() {
+                return required;
+            }
+        };
+    }
+}
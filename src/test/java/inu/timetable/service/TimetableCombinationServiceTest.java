@@ -1,27 +1,41 @@
 package inu.timetable.service;
 
+import inu.timetable.dto.TimetableCombinationCount;
+import inu.timetable.dto.TimetableCombinationCriteria;
+import inu.timetable.dto.TimetableCombinationResult;
+import inu.timetable.dto.TimetableCombinationStatistics;
 import inu.timetable.entity.Schedule;
 import inu.timetable.entity.Subject;
 import inu.timetable.entity.WishlistItem;
 import inu.timetable.enums.ClassMethod;
 import inu.timetable.enums.SubjectType;
+import inu.timetable.exception.ApiException;
+import inu.timetable.repository.SubjectRepository;
 import inu.timetable.repository.WishlistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,10 +48,13 @@ class TimetableCombinationServiceTest {
     @Mock
     private WishlistRepository wishlistRepository;
 
+    @Mock
+    private SubjectRepository subjectRepository;
+
     @ParameterizedTest
     @ValueSource(ints = {6, 12, 18, 24, 30})
     void generatesConflictFreeCombinationsAcrossWishlistSizes(int wishlistSize) {
-        TimetableCombinationService service = new TimetableCombinationService(wishlistRepository);
+        TimetableCombinationService service = service();
         List<WishlistItem> wishlist = wishlist(wishlistSize, 6);
         when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
                 .thenReturn(wishlist);
@@ -56,7 +73,7 @@ class TimetableCombinationServiceTest {
 
     @Test
     void generatesHighestCreditCombinationsWhenTargetCreditsAreNotSpecified() {
-        TimetableCombinationService service = new TimetableCombinationService(wishlistRepository);
+        TimetableCombinationService service = service();
         Subject mondayMorning = subject(1L, "월요일오전", "월", 1.0, 2.5);
         Subject mondayConflict = subject(2L, "월요일충돌", "월", 1.5, 3.0);
         Subject tuesday = subject(3L, "화요일", "화", 1.0, 2.5);
@@ -80,10 +97,26 @@ class TimetableCombinationServiceTest {
         assertThat(combinations).allSatisfy(combination -> assertThat(hasConflict(combination)).isFalse());
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {12, 24, 36})
+    void provesMaximumCreditsForLargeWishlists(int wishlistSize) {
+        TimetableCombinationService service = service();
+        // 12개 시간대마다 서로 겹치는 과목들이 있으므로 최대 학점은 시간대마다 3학점씩 36학점이다.
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist(wishlistSize, 12));
+
+        TimetableCombinationResult result = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, null, 20, List.of(), false));
+
+        assertThat(result.effectiveTargetCredits()).isEqualTo(36);
+        assertThat(result.maximumCreditsProven()).isTrue();
+        assertThat(result.combinations().get(0)).hasSize(12);
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {6, 12, 18, 24, 30})
     void matchesReferenceCombinationsAcrossWishlistSizes(int wishlistSize) {
-        TimetableCombinationService service = new TimetableCombinationService(wishlistRepository);
+        TimetableCombinationService service = service();
         List<WishlistItem> wishlist = wishlist(wishlistSize, 6);
         when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
                 .thenReturn(wishlist);
@@ -97,7 +130,7 @@ class TimetableCombinationServiceTest {
 
     @Test
     void matchesReferenceWhenRequiredSubjectsAndFreeDaysAreUsed() {
-        TimetableCombinationService service = new TimetableCombinationService(wishlistRepository);
+        TimetableCombinationService service = service();
         Subject required = subject(1L, "필수", "월", 1.0, 2.5);
         Subject tuesday = subject(2L, "화요일", "화", 1.0, 2.5);
         Subject wednesday = subject(3L, "수요일", "수", 1.0, 2.5);
@@ -121,7 +154,7 @@ class TimetableCombinationServiceTest {
 
     @Test
     void rejectsRequiredSubjectsWhenTheyConflict() {
-        TimetableCombinationService service = new TimetableCombinationService(wishlistRepository);
+        TimetableCombinationService service = service();
         Subject first = subject(1L, "필수1", "월", 1.0, 2.5);
         Subject second = subject(2L, "필수2", "월", 2.0, 3.5);
         Subject optional = subject(3L, "선택", "화", 1.0, 2.5);
@@ -134,9 +167,92 @@ class TimetableCombinationServiceTest {
         assertThat(combinations).isEmpty();
     }
 
+    @Test
+    void reportsTheConflictingRequiredPairWithoutSearching() {
+        TimetableCombinationService service = service();
+        Subject first = subject(1L, "필수1", "월", 1.0, 2.5);
+        Subject tuesday = subject(2L, "필수2", "화", 1.0, 2.5);
+        Subject third = subject(3L, "필수3", "월", 2.0, 3.5);
+        Subject optional = subject(4L, "선택", "수", 1.0, 2.5);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(List.of(
+                        wishlistItem(first, true),
+                        wishlistItem(tuesday, true),
+                        wishlistItem(third, true),
+                        wishlistItem(optional, false)));
+
+        TimetableCombinationResult result = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 9, 20, List.of(), false));
+
+        assertThat(result.combinations()).isEmpty();
+        assertThat(result.requiredConflict())
+                .isEqualTo(new TimetableCombinationResult.RequiredConflict(1L, "필수1", 3L, "필수3"));
+        assertThat(result.searchedNodeCount()).isZero();
+    }
+
+    @Test
+    void sectionAwareSearchDoesNotReportRequiredConflictWhileAnotherSectionFits() {
+        TimetableCombinationService service = service();
+        Subject requiredMonday = subject(1L, "필수과목", "월", 1.0, 2.5);
+        Subject requiredTuesday = subject(2L, "필수과목", "화", 1.0, 2.5);
+        Subject otherRequired = subject(3L, "다른필수", "월", 1.5, 3.0);
+        Subject blockedElective = subject(4L, "막힌선택", "월", 2.0, 2.5);
+        Subject elective = subject(5L, "선택", "수", 1.0, 2.5);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(List.of(
+                        wishlistItem(requiredMonday, true),
+                        wishlistItem(requiredTuesday, true),
+                        wishlistItem(otherRequired, true),
+                        wishlistItem(blockedElective, false),
+                        wishlistItem(elective, false)));
+
+        TimetableCombinationResult result = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 9, 20, List.of(), true));
+
+        assertThat(result.requiredConflict()).isNull();
+        assertThat(canonicalize(result.combinations()))
+                .containsExactly("TEST-002+TEST-003+TEST-005", "TEST-002+TEST-003");
+        // 필수 과목과 반드시 겹치는 선택 과목(막힌선택)은 탐색 전에 후보에서 빠져 한 번도 놓이지 않는다.
+        assertThat(result.exploredSectionCount()).isEqualTo(4);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {6, 12, 18})
+    void countsTheSameNumberOfCombinationsAsFullGeneration(int wishlistSize) {
+        TimetableCombinationService service = service();
+        List<WishlistItem> wishlist = wishlist(wishlistSize, 6);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist);
+
+        TimetableCombinationResult generated = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 12, Integer.MAX_VALUE, List.of("금"), false));
+        TimetableCombinationCount count = service.countTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 12, 1, List.of("금"), false));
+
+        assertThat(count.possibleCombinations()).isEqualTo(generated.combinations().size());
+        assertThat(count.exact()).isTrue();
+        assertThat(count.capped()).isFalse();
+    }
+
+    @Test
+    void countsRequiredOnlyTimetableWhenNoCombinationFitsTheCreditWindow() {
+        TimetableCombinationService service = service();
+        Subject first = subject(1L, "필수1", "월", 1.0, 2.5);
+        Subject second = subject(2L, "필수2", "화", 1.0, 2.5);
+        Subject third = subject(3L, "필수3", "수", 1.0, 2.5);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(List.of(wishlistItem(first, true), wishlistItem(second, true), wishlistItem(third, true)));
+
+        TimetableCombinationCount count = service.countTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 3, 1, List.of(), false));
+
+        assertThat(count.possibleCombinations()).isEqualTo(1);
+        assertThat(count.exact()).isTrue();
+    }
+
     @Test
     void excludesSubjectsOnRequestedFreeDays() {
-        TimetableCombinationService service = new TimetableCombinationService(wishlistRepository);
+        TimetableCombinationService service = service();
         Subject monday = subject(1L, "월요일수업", "월", 1.0, 2.5);
         Subject tuesday = subject(2L, "화요일수업", "화", 1.0, 2.5);
         Subject wednesday = subject(3L, "수요일수업", "수", 1.0, 2.5);
@@ -158,9 +274,37 @@ class TimetableCombinationServiceTest {
                 .doesNotContain("월"));
     }
 
+    @Test
+    void excludesSectionsOutsideTimeWindowOrInBlockedSlots() {
+        TimetableCombinationService service = service();
+        Subject early = subject(1L, "1교시수업", "월", 1.0, 2.5);
+        Subject late = subject(2L, "9교시수업", "화", 9.0, 10.5);
+        Subject wednesdayAfternoon = subject(3L, "수요일오후", "수", 6.0, 7.5);
+        Subject wednesdayMorning = subject(4L, "수요일오전", "수", 3.0, 4.5);
+        Subject thursday = subject(5L, "목요일", "목", 3.0, 4.5);
+        Subject friday = subject(6L, "금요일", "금", 4.0, 5.5);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(List.of(
+                        wishlistItem(early, false),
+                        wishlistItem(late, false),
+                        wishlistItem(wednesdayAfternoon, false),
+                        wishlistItem(wednesdayMorning, false),
+                        wishlistItem(thursday, false),
+                        wishlistItem(friday, false)));
+
+        TimetableCombinationResult result = service.generateTimetableCombinations(
+                USER_ID,
+                TimetableCombinationCriteria.of(SEMESTER, 9, 20, List.of(), false, null, 3.0, 9.0, List.of("수:5-8")));
+
+        assertThat(canonicalize(result.combinations())).containsExactly(
+                "TEST-004+TEST-005+TEST-006", "TEST-004+TEST-005", "TEST-004+TEST-006", "TEST-005+TEST-006");
+        // 금지 칸에 걸린 세 분반은 컴파일할 때 후보에서 빠진다.
+        assertThat(result.exploredSectionCount()).isEqualTo(3);
+    }
+
     @Test
     void excludesDayOnlySchedulesOnRequestedFreeDays() {
-        TimetableCombinationService service = new TimetableCombinationService(wishlistRepository);
+        TimetableCombinationService service = service();
         Subject dayOnlyMonday = subject(1L, "요일만있는월요일수업", "월", null, null);
         Subject tuesday = subject(2L, "화요일수업", "화", 1.0, 2.5);
         Subject wednesday = subject(3L, "수요일수업", "수", 1.0, 2.5);
@@ -179,6 +323,667 @@ class TimetableCombinationServiceTest {
                 .doesNotContain("요일만있는월요일수업"));
     }
 
+    @Test
+    void sectionAwareSearchTriesEverySectionOfACourse() {
+        TimetableCombinationService service = service();
+        Subject databaseMonday = subject(1L, "데이터베이스", "월", 1.0, 2.5);
+        Subject networkMonday = subject(2L, "네트워크", "월", 1.0, 2.5);
+        Subject databaseTuesday = subject(3L, "데이터베이스", "화", 1.0, 2.5);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(List.of(
+                        wishlistItem(databaseMonday, false),
+                        wishlistItem(networkMonday, false),
+                        wishlistItem(databaseTuesday, false)));
+
+        TimetableCombinationResult collapsed = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 6, 20, List.of(), false));
+        TimetableCombinationResult sectionAware = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 6, 20, List.of(), true));
+
+        assertThat(collapsed.combinations()).allSatisfy(combination -> assertThat(combination).hasSize(1));
+        assertThat(canonicalize(sectionAware.combinations())).first().isEqualTo("TEST-002+TEST-003");
+        assertThat(sectionAware.combinations()).allSatisfy(combination -> {
+            assertThat(hasConflict(combination)).isFalse();
+            assertThat(combination).extracting(Subject::getSubjectName).doesNotHaveDuplicates();
+        });
+        assertThat(sectionAware.courseGroupCount()).isEqualTo(2);
+        assertThat(sectionAware.candidateSectionCount()).isEqualTo(3);
+        assertThat(sectionAware.exploredSectionCount()).isEqualTo(3);
+    }
+
+    @Test
+    void sectionAwareSearchPicksExactlyOneRequiredSection() {
+        TimetableCombinationService service = service();
+        Subject requiredMonday = subject(1L, "필수과목", "월", 1.0, 2.5);
+        Subject requiredTuesday = subject(2L, "필수과목", "화", 1.0, 2.5);
+        Subject optionalSection = subject(3L, "필수과목", "수", 1.0, 2.5);
+        Subject mondayElective = subject(4L, "월요일선택", "월", 1.0, 2.5);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(List.of(
+                        wishlistItem(requiredMonday, true),
+                        wishlistItem(requiredTuesday, true),
+                        wishlistItem(optionalSection, false),
+                        wishlistItem(mondayElective, false)));
+
+        TimetableCombinationResult result = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 6, 20, List.of("화"), true));
+
+        assertThat(canonicalize(result.combinations())).containsExactly("TEST-001");
+    }
+
+    @Test
+    void rankingReturnsTheBestCombinationInsteadOfTheFirstFound() {
+        TimetableCombinationService service = service();
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(List.of(
+                        wishlistItem(subject(1L, "월요일", "월", 1.0, 2.5), false),
+                        wishlistItem(subject(2L, "화요일", "화", 1.0, 2.5), false),
+                        wishlistItem(subject(3L, "수요일", "수", 1.0, 2.5), false),
+                        wishlistItem(subject(4L, "목요일", "목", 1.0, 2.5), false)));
+
+        TimetableCombinationResult firstFound = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 12, 1, List.of(), false));
+        TimetableCombinationResult ranked = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 12, 1, List.of(), false, "credits"));
+
+        assertThat(canonicalize(firstFound.combinations())).containsExactly("TEST-001+TEST-002+TEST-003");
+        assertThat(canonicalize(ranked.combinations())).containsExactly("TEST-001+TEST-002+TEST-003+TEST-004");
+        assertThat(ranked.scores()).containsExactly(0L);
+    }
+
+    @Test
+    void rankingOrdersCombinationsByWeightedScore() {
+        TimetableCombinationService service = service();
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(List.of(
+                        wishlistItem(subject(1L, "월요일1교시", "월", 1.0, 2.5), false),
+                        wishlistItem(subject(2L, "월요일5교시", "월", 5.0, 6.5), false),
+                        wishlistItem(subject(3L, "월요일2교시반", "월", 2.5, 4.0), false)));
+
+        TimetableCombinationResult ranked = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 6, 3, List.of(), false, "credits:10,gaps:1"));
+
+        assertThat(canonicalize(ranked.combinations()))
+                .containsExactly("TEST-001+TEST-003", "TEST-002+TEST-003", "TEST-001+TEST-002");
+        assertThat(ranked.scores()).containsExactly(0L, 2L, 5L);
+    }
+
+    @Test
+    void rejectsUnknownRankingTerms() {
+        TimetableCombinationService service = service();
+
+        assertThatThrownBy(() -> service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 18, 20, List.of(), false, "credits,lunch")))
+                .isInstanceOf(ApiException.class);
+    }
+
+    @Test
+    void streamingDeliversEveryCombinationAndStopsWhenTheSinkDeclines() {
+        TimetableCombinationService service = service();
+        List<WishlistItem> wishlist = wishlist(18, 6);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist);
+        TimetableCombinationCriteria criteria = TimetableCombinationCriteria.of(SEMESTER, 18, 50, List.of(), false);
+        List<List<Subject>> received = new ArrayList<>();
+
+        TimetableCombinationResult full = service.streamTimetableCombinations(
+                USER_ID, criteria, (combination, statistics) -> received.add(combination));
+        List<List<Subject>> firstTwo = new ArrayList<>();
+        TimetableCombinationResult cancelled = service.streamTimetableCombinations(
+                USER_ID, criteria, (combination, statistics) -> firstTwo.add(combination) && firstTwo.size() < 2);
+
+        assertThat(canonicalize(received))
+                .containsExactlyInAnyOrderElementsOf(canonicalize(generateReferenceCombinations(wishlist, 18, 50, List.of())));
+        assertThat(full.combinations()).isEqualTo(received);
+        assertThat(canonicalize(firstTwo)).containsExactlyElementsOf(canonicalize(received).subList(0, 2));
+        assertThat(cancelled.combinations()).hasSize(2);
+        assertThat(cancelled.searchedNodeCount()).isLessThan(full.searchedNodeCount());
+    }
+
+    @Test
+    void streamingStopsInTheSearchOnceCancelledWithoutWaitingForTheSink() {
+        TimetableCombinationService service = service();
+        List<WishlistItem> wishlist = wishlist(18, 6);
+        TimetableCombinationCriteria criteria = TimetableCombinationCriteria.of(SEMESTER, 18, 50, List.of(), false);
+        List<List<Subject>> received = new ArrayList<>();
+
+        TimetableCombinationResult result = service.streamTimetableCombinations(
+                USER_ID, criteria, wishlist, (combination, statistics) -> received.add(combination), () -> true);
+
+        assertThat(received).isEmpty();
+        assertThat(result.truncated()).isTrue();
+        assertThat(result.searchedNodeCount()).isZero();
+    }
+
+    @Test
+    void carriesStatisticsForEveryCombinationFromTheSearch() {
+        TimetableCombinationService service = service();
+        Subject dataStructures = subject(1L, "자료구조", "월", 1.0, 2.5);
+        dataStructures.setSubjectType(SubjectType.전핵);
+        dataStructures.getSchedules().add(Schedule.builder()
+                .subject(dataStructures)
+                .dayOfWeek("수")
+                .startTime(1.0)
+                .endTime(2.5)
+                .build());
+        Subject writing = subject(2L, "글쓰기", "화", 1.0, 2.5);
+        writing.setSubjectType(SubjectType.핵교);
+        Subject capstone = subject(3L, "캡스톤", "목", 1.0, 2.5);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER)).thenReturn(List.of(
+                wishlistItem(dataStructures, false),
+                wishlistItem(writing, false),
+                wishlistItem(capstone, false)));
+        List<List<Subject>> streamed = new ArrayList<>();
+        List<TimetableCombinationStatistics> streamedStatistics = new ArrayList<>();
+
+        TimetableCombinationResult result = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 9, 20, List.of(), false));
+        service.streamTimetableCombinations(
+                USER_ID,
+                TimetableCombinationCriteria.of(SEMESTER, 9, 20, List.of(), false),
+                (combination, statistics) -> streamed.add(combination) && streamedStatistics.add(statistics));
+
+        assertThat(result.statistics()).isEqualTo(result.combinations().stream()
+                .map(TimetableCombinationStatistics::of)
+                .toList());
+        assertThat(streamedStatistics).isEqualTo(streamed.stream()
+                .map(TimetableCombinationStatistics::of)
+                .toList());
+        TimetableCombinationStatistics full = result.statistics().get(0);
+        assertThat(full.getTotalCredits()).isEqualTo(9);
+        assertThat(full.getSubjectCount()).isEqualTo(3);
+        assertThat(full.getSubjectTypeDistribution())
+                .containsExactlyInAnyOrderEntriesOf(Map.of("전심", 1L, "전핵", 1L, "핵교", 1L));
+        assertThat(full.getDayDistribution())
+                .containsExactlyInAnyOrderEntriesOf(Map.of("월", 1L, "화", 1L, "수", 1L, "목", 1L));
+        assertThat(full.getFreeDays()).containsExactly("금");
+    }
+
+    @Test
+    void returnsTruncatedPartialResultWhenDeadlinePasses() {
+        TimetableCombinationService complete = service();
+        TimetableCombinationService expired = new TimetableCombinationService(
+                wishlistRepository,
+                subjectRepository,
+                disabledSubjectMaskIndex(),
+                "sequential",
+                Integer.MAX_VALUE,
+                0,
+                TimetableCombinationService.DEFAULT_EXACT_MAXIMUM_CREDIT_OPTIONS,
+                "1ns",
+                "",
+                0,
+                "10m",
+                new SimpleMeterRegistry());
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist(30, 6));
+        TimetableCombinationCriteria criteria = TimetableCombinationCriteria.of(SEMESTER, 18, 50, List.of(), false);
+
+        TimetableCombinationResult full = complete.generateTimetableCombinations(USER_ID, criteria);
+        TimetableCombinationResult truncated = expired.generateTimetableCombinations(USER_ID, criteria);
+
+        assertThat(full.truncated()).isFalse();
+        assertThat(truncated.truncated()).isTrue();
+        assertThat(truncated.searchedNodeCount()).isLessThan(full.searchedNodeCount());
+        assertThat(full.combinations()).containsAll(truncated.combinations());
+    }
+
+    @Test
+    void recordsSearchMetricsTaggedByWishlistSizeBucket() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TimetableCombinationService service = new TimetableCombinationService(
+                wishlistRepository,
+                subjectRepository,
+                disabledSubjectMaskIndex(),
+                "sequential",
+                Integer.MAX_VALUE,
+                0,
+                TimetableCombinationService.DEFAULT_EXACT_MAXIMUM_CREDIT_OPTIONS,
+                "0",
+                "",
+                0,
+                "10m",
+                meterRegistry);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist(12, 6));
+
+        TimetableCombinationResult result = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 9, 5, List.of("금"), false));
+
+        assertThat(meterRegistry.get("timetable.combination.search.duration")
+                .tags("wishlist_size", "7-12", "outcome", "complete")
+                .timer()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("timetable.combination.search.nodes")
+                .tag("wishlist_size", "7-12")
+                .summary()
+                .totalAmount()).isEqualTo(result.searchedNodeCount());
+        assertThat(meterRegistry.get("timetable.combination.search.results")
+                .tag("wishlist_size", "7-12")
+                .summary()
+                .totalAmount()).isEqualTo(result.combinations().size());
+        // 금요일 시간대의 두 과목은 컴파일할 때 빠지고, 같은 시간대 과목끼리는 탐색 중 충돌로 빠진다.
+        assertThat(meterRegistry.get("timetable.combination.search.prunes")
+                .tags("wishlist_size", "7-12", "reason", "free_day")
+                .counter()
+                .count()).isEqualTo(2);
+        assertThat(meterRegistry.get("timetable.combination.search.prunes")
+                .tags("wishlist_size", "7-12", "reason", "conflict")
+                .counter()
+                .count()).isPositive();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "credits", "credits:10,days:3,gaps:1,start:1"})
+    void batchReturnsTheSameResultAsSeparateRequestsPerVariant(String ranking) {
+        TimetableCombinationService service = service();
+        List<WishlistItem> wishlist = wishlist(24, 8);
+        wishlist.set(0, wishlistItem(wishlist.get(0).getSubject(), true));
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist);
+        List<TimetableCombinationCriteria> variants = List.of(
+                TimetableCombinationCriteria.of(SEMESTER, 15, 20, List.of(), false, ranking),
+                TimetableCombinationCriteria.of(SEMESTER, 18, 20, List.of(), false, ranking),
+                TimetableCombinationCriteria.of(SEMESTER, 21, 10, List.of("금"), false, ranking),
+                TimetableCombinationCriteria.of(SEMESTER, null, 5, List.of("목"), false, ranking));
+
+        List<TimetableCombinationResult> batch = service.generateTimetableCombinationBatch(USER_ID, variants);
+
+        assertThat(batch).hasSize(variants.size());
+        for (int i = 0; i < variants.size(); i++) {
+            TimetableCombinationResult expected = service.generateTimetableCombinations(USER_ID, variants.get(i));
+            TimetableCombinationResult actual = batch.get(i);
+            assertThat(actual.combinations()).isNotEmpty();
+            assertThat(canonicalize(actual.combinations()))
+                    .containsExactlyElementsOf(canonicalize(expected.combinations()));
+            assertThat(actual.scores()).isEqualTo(expected.scores());
+            assertThat(actual.effectiveTargetCredits()).isEqualTo(expected.effectiveTargetCredits());
+            assertThat(actual.maximumCreditsProven()).isEqualTo(expected.maximumCreditsProven());
+        }
+    }
+
+    @Test
+    void batchReportsRequiredConflictOnlyForVariantsWhereBothSectionsRemain() {
+        TimetableCombinationService service = service();
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER)).thenReturn(List.of(
+                wishlistItem(subject(1L, "필수A", "월", 1.0, 2.5), true),
+                wishlistItem(subject(2L, "필수B", "월", 2.0, 3.5), true),
+                wishlistItem(subject(3L, "선택", "화", 1.0, 2.5), false)));
+
+        List<TimetableCombinationResult> batch = service.generateTimetableCombinationBatch(USER_ID, List.of(
+                TimetableCombinationCriteria.of(SEMESTER, 6, 20, List.of(), false),
+                TimetableCombinationCriteria.of(SEMESTER, 3, 20, List.of("월"), false)));
+
+        assertThat(batch.get(0).requiredConflict()).isNotNull();
+        assertThat(batch.get(1).requiredConflict()).isNull();
+        assertThat(batch.get(1).combinations()).isEqualTo(service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 3, 20, List.of("월"), false)).combinations());
+    }
+
+    @Test
+    void batchRejectsVariantsWithDifferentSharedFieldsAsBadRequest() {
+        TimetableCombinationService service = service();
+
+        assertThatThrownBy(() -> service.generateTimetableCombinationBatch(USER_ID, List.of(
+                TimetableCombinationCriteria.of(SEMESTER, 6, 20, List.of(), false),
+                TimetableCombinationCriteria.of("2026-2", 6, 20, List.of(), false))))
+                .isInstanceOf(ApiException.class)
+                .satisfies(exception -> assertThat(((ApiException) exception).getStatus())
+                        .isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void subjectMaskIndexPathReturnsTheSameResultAsEntityPath() {
+        List<WishlistItem> wishlist = wishlist(18, 6);
+        wishlist.set(0, wishlistItem(wishlist.get(0).getSubject(), true));
+        List<Subject> subjects = wishlist.stream().map(WishlistItem::getSubject).toList();
+        when(subjectRepository.findMaskRowsBySemester(SEMESTER)).thenReturn(subjects.stream()
+                .map(subject -> (SubjectRepository.SubjectMaskRow) new MaskRow(subject))
+                .toList());
+        when(wishlistRepository.findFingerprintRowsByUserIdAndSemester(USER_ID, SEMESTER)).thenReturn(wishlist.stream()
+                .map(item -> (WishlistRepository.WishlistFingerprintRow) new FingerprintRow(item))
+                .toList());
+        when(subjectRepository.findWithSchedulesByIds(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return subjects.stream().filter(subject -> ids.contains(subject.getId())).toList();
+        });
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist);
+        AppSettingService appSettingService = mock(AppSettingService.class);
+        when(appSettingService.getCurrentSemester()).thenReturn(SEMESTER);
+        SubjectMaskIndex subjectMaskIndex = new SubjectMaskIndex(
+                subjectRepository,
+                appSettingService,
+                mock(SharedSubjectCacheInvalidationService.class),
+                new SimpleMeterRegistry(),
+                true);
+        subjectMaskIndex.buildAfterApplicationReady();
+        TimetableCombinationService entityPath = service();
+        TimetableCombinationService indexPath = new TimetableCombinationService(
+                wishlistRepository,
+                subjectRepository,
+                subjectMaskIndex,
+                "sequential",
+                Integer.MAX_VALUE,
+                0,
+                TimetableCombinationService.DEFAULT_EXACT_MAXIMUM_CREDIT_OPTIONS,
+                "0",
+                "",
+                0,
+                "10m",
+                new SimpleMeterRegistry());
+
+        for (Integer targetCredits : Arrays.asList(12, 18, null)) {
+            TimetableCombinationCriteria criteria =
+                    TimetableCombinationCriteria.of(SEMESTER, targetCredits, 20, List.of("금"), false);
+            TimetableCombinationResult expected = entityPath.generateTimetableCombinations(USER_ID, criteria);
+            TimetableCombinationResult actual = indexPath.generateTimetableCombinations(USER_ID, criteria);
+
+            assertThat(actual.combinations()).isNotEmpty();
+            assertThat(canonicalize(actual.combinations()))
+                    .containsExactlyElementsOf(canonicalize(expected.combinations()));
+            assertThat(actual.effectiveTargetCredits()).isEqualTo(expected.effectiveTargetCredits());
+            assertThat(actual.statistics()).isEqualTo(expected.statistics());
+            assertThat(indexPath.countTimetableCombinations(USER_ID, criteria))
+                    .isEqualTo(entityPath.countTimetableCombinations(USER_ID, criteria));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {12, 24, 30})
+    void parallelEngineReturnsTheSameCombinationsAsSequentialSearch(int wishlistSize) {
+        TimetableCombinationService sequential = service();
+        TimetableCombinationService parallel = new TimetableCombinationService(
+                wishlistRepository,
+                subjectRepository,
+                disabledSubjectMaskIndex(),
+                "parallel",
+                1,
+                4,
+                TimetableCombinationService.DEFAULT_EXACT_MAXIMUM_CREDIT_OPTIONS,
+                "0",
+                "",
+                0,
+                "10m",
+                new SimpleMeterRegistry());
+        List<WishlistItem> wishlist = wishlist(wishlistSize, 6);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist);
+
+        try {
+            for (boolean sectionAware : List.of(false, true)) {
+                TimetableCombinationCriteria criteria =
+                        TimetableCombinationCriteria.of(SEMESTER, 18, 50, List.of(), sectionAware);
+                TimetableCombinationResult expected = sequential.generateTimetableCombinations(USER_ID, criteria);
+                TimetableCombinationResult actual = parallel.generateTimetableCombinations(USER_ID, criteria);
+
+                assertThat(canonicalize(actual.combinations()))
+                        .containsExactlyElementsOf(canonicalize(expected.combinations()));
+                assertThat(actual.searchBudgetExhausted()).isEqualTo(expected.searchBudgetExhausted());
+            }
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "credits:10,days:3,gaps:1,start:1"})
+    void continuationPagesReturnTheSameCombinationsAsOneLargerRequest(String ranking) {
+        TimetableCombinationService service = service();
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist(18, 6));
+        TimetableCombinationCriteria page = TimetableCombinationCriteria.of(SEMESTER, 15, 7, List.of(), false, ranking);
+
+        TimetableCombinationResult first = service.generateTimetableCombinations(USER_ID, page, null);
+        TimetableCombinationResult second = service.generateTimetableCombinations(
+                USER_ID, page, first.continuationToken());
+        TimetableCombinationResult whole = service.generateTimetableCombinations(
+                USER_ID, TimetableCombinationCriteria.of(SEMESTER, 15, 14, List.of(), false, ranking));
+
+        assertThat(first.continuationToken()).isNotNull();
+        assertThat(first.combinations()).hasSize(7);
+        assertThat(second.combinations()).hasSize(7);
+        List<List<Subject>> pages = new ArrayList<>(first.combinations());
+        pages.addAll(second.combinations());
+        if (ranking.isEmpty()) {
+            // 순위 없는 결과는 페이지 안에서만 학점 차이순으로 정렬하므로 두 페이지를 합친 집합을 비교한다.
+            assertThat(canonicalize(pages)).containsExactlyInAnyOrderElementsOf(canonicalize(whole.combinations()));
+        } else {
+            assertThat(canonicalize(pages)).containsExactlyElementsOf(canonicalize(whole.combinations()));
+            List<Long> scores = new ArrayList<>(first.scores());
+            scores.addAll(second.scores());
+            assertThat(scores).isEqualTo(whole.scores());
+        }
+    }
+
+    @Test
+    void issuesContinuationTokenWhenSearchStopsBeforeFindingAnyCombination() {
+        TimetableCombinationService service = service();
+        // 네 시간대에 20과목씩이라 많아야 12학점이고, 분반 모드의 노드 예산을 다 쓰도록 가지가 많다.
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist(80, 4));
+        TimetableCombinationCriteria criteria = TimetableCombinationCriteria.of(SEMESTER, 18, 10, List.of(), true);
+
+        TimetableCombinationResult first = service.generateTimetableCombinations(USER_ID, criteria, null);
+        TimetableCombinationResult second = service.generateTimetableCombinations(
+                USER_ID, criteria, first.continuationToken());
+
+        assertThat(first.combinations()).isEmpty();
+        assertThat(first.searchBudgetExhausted()).isTrue();
+        assertThat(first.continuationToken()).isNotNull();
+        assertThat(second.searchBudgetExhausted()).isTrue();
+        assertThat(second.continuationToken()).isNotNull().isNotEqualTo(first.continuationToken());
+    }
+
+    @Test
+    void rejectsTamperedOrForeignContinuationToken() {
+        TimetableCombinationService service = service();
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist(12, 6));
+        TimetableCombinationCriteria criteria = TimetableCombinationCriteria.of(SEMESTER, 12, 3, List.of(), false);
+        String token = service.generateTimetableCombinations(USER_ID, criteria, null).continuationToken();
+        char[] tampered = token.toCharArray();
+        tampered[4] = tampered[4] == 'A' ? 'B' : 'A';
+
+        for (Runnable request : List.<Runnable>of(
+                () -> service.generateTimetableCombinations(USER_ID, criteria, new String(tampered)),
+                () -> service.generateTimetableCombinations(USER_ID + 1, criteria, token),
+                () -> service()
+                        .generateTimetableCombinations(USER_ID, criteria, token))) {
+            assertThatThrownBy(request::run)
+                    .isInstanceOf(ApiException.class)
+                    .satisfies(exception -> assertThat(((ApiException) exception).getStatus())
+                            .isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+    }
+
+    @Test
+    void rejectsContinuationTokenAfterWishlistOrCriteriaChange() {
+        TimetableCombinationService service = service();
+        List<WishlistItem> wishlist = wishlist(12, 6);
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist)
+                .thenReturn(wishlist.subList(0, 11))
+                .thenReturn(wishlist);
+        TimetableCombinationCriteria criteria = TimetableCombinationCriteria.of(SEMESTER, 12, 3, List.of(), false);
+        String token = service.generateTimetableCombinations(USER_ID, criteria, null).continuationToken();
+
+        for (TimetableCombinationCriteria next : List.of(
+                criteria,
+                TimetableCombinationCriteria.of(SEMESTER, 12, 3, List.of("금"), false))) {
+            assertThatThrownBy(() -> service.generateTimetableCombinations(USER_ID, next, token))
+                    .isInstanceOf(ApiException.class)
+                    .satisfies(exception -> assertThat(((ApiException) exception).getStatus())
+                            .isEqualTo(HttpStatus.CONFLICT));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "credits:10,days:3,gaps:1,start:1"})
+    void diversityKeepsReturnedCombinationsApartAndReportsSuppressedCount(String ranking) {
+        TimetableCombinationService service = service();
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenReturn(wishlist(18, 6));
+
+        TimetableCombinationResult plain = service.generateTimetableCombinations(USER_ID,
+                TimetableCombinationCriteria.of(SEMESTER, 15, 5, List.of(), false, ranking, null, null, List.of()));
+        TimetableCombinationResult diverse = service.generateTimetableCombinations(USER_ID,
+                TimetableCombinationCriteria.of(SEMESTER, 15, 5, List.of(), false, ranking, null, null, List.of(), 4));
+
+        assertThat(diverse.combinations()).hasSize(5);
+        assertThat(diverse.suppressedNearDuplicates()).isPositive();
+        assertThat(diverse.continuationToken()).isNull();
+        assertThat(plain.suppressedNearDuplicates()).isZero();
+        if (!ranking.isEmpty()) {
+            // 가장 점수가 좋은 조합은 앞선 조합이 없으므로 걸러지지 않는다.
+            assertThat(canonicalize(diverse.combinations()).get(0)).isEqualTo(canonicalize(plain.combinations()).get(0));
+        }
+        List<List<Subject>> combinations = diverse.combinations();
+        for (int i = 0; i < combinations.size(); i++) {
+            for (int j = i + 1; j < combinations.size(); j++) {
+                Set<Long> first = combinations.get(i).stream().map(Subject::getId).collect(Collectors.toSet());
+                Set<Long> second = combinations.get(j).stream().map(Subject::getId).collect(Collectors.toSet());
+                long shared = first.stream().filter(second::contains).count();
+                assertThat(first.size() + second.size() - 2 * shared).isGreaterThanOrEqualTo(4);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 500})
+    void incrementalRegenerationAfterOneItemEditsMatchesFullRecompute(int maxCombinations) {
+        assertIncrementalRegenerationMatchesFullRecompute(
+                TimetableCombinationCriteria.of(SEMESTER, 15, maxCombinations, List.of(), false));
+    }
+
+    @Test
+    void incrementalRegenerationCoversTheDefaultRankedRequest() {
+        // 컨트롤러는 ranking 이 없으면 기본 순위와 20개를 쓴다.
+        assertIncrementalRegenerationMatchesFullRecompute(TimetableCombinationCriteria.of(
+                SEMESTER, 15, 20, List.of(), false, TimetableScoreFunctions.DEFAULT_RANKING));
+    }
+
+    private void assertIncrementalRegenerationMatchesFullRecompute(TimetableCombinationCriteria criteria) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TimetableCombinationService incremental = new TimetableCombinationService(
+                wishlistRepository,
+                subjectRepository,
+                disabledSubjectMaskIndex(),
+                "sequential",
+                Integer.MAX_VALUE,
+                0,
+                TimetableCombinationService.DEFAULT_EXACT_MAXIMUM_CREDIT_OPTIONS,
+                "0",
+                "",
+                100,
+                "10m",
+                meterRegistry);
+        TimetableCombinationService full = service();
+        List<WishlistItem> base = wishlist(18, 6);
+        List<WishlistItem> removed = new ArrayList<>(base);
+        removed.remove(4);
+        List<WishlistItem> inserted = new ArrayList<>(removed);
+        inserted.add(8, wishlistItem(subject(100L, "추가과목", "금", 4.0, 5.5), false));
+        List<WishlistItem> appended = new ArrayList<>(inserted);
+        appended.add(wishlistItem(subject(101L, "추가충돌과목", "화", 1.0, 2.5), false));
+        AtomicReference<List<WishlistItem>> current = new AtomicReference<>();
+        when(wishlistRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenAnswer(invocation -> current.get());
+
+        for (List<WishlistItem> wishlist : List.of(base, removed, inserted, appended)) {
+            current.set(wishlist);
+            TimetableCombinationResult derived = incremental.generateTimetableCombinations(USER_ID, criteria);
+            TimetableCombinationResult recomputed = full.generateTimetableCombinations(USER_ID, criteria);
+
+            assertThat(canonicalize(derived.combinations()))
+                    .containsExactlyElementsOf(canonicalize(recomputed.combinations()));
+            assertThat(derived.statistics()).isEqualTo(recomputed.statistics());
+            assertThat(derived.scores()).isEqualTo(recomputed.scores());
+            assertThat(derived.continuationToken() != null).isEqualTo(recomputed.continuationToken() != null);
+        }
+        assertThat(meterRegistry.get("timetable.combination.search.incremental")
+                .tag("result", "derived")
+                .counter()
+                .count()).isEqualTo(3.0);
+    }
+
+    // 색인·병렬 엔진·마감·증분 탐색 없이 위시리스트 엔티티로만 탐색하는 서비스.
+    private TimetableCombinationService service() {
+        return new TimetableCombinationService(
+                wishlistRepository,
+                subjectRepository,
+                disabledSubjectMaskIndex(),
+                "sequential",
+                Integer.MAX_VALUE,
+                0,
+                TimetableCombinationService.DEFAULT_EXACT_MAXIMUM_CREDIT_OPTIONS,
+                "0",
+                "",
+                0,
+                "10m",
+                new SimpleMeterRegistry());
+    }
+
+    private SubjectMaskIndex disabledSubjectMaskIndex() {
+        return new SubjectMaskIndex(
+                subjectRepository,
+                mock(AppSettingService.class),
+                mock(SharedSubjectCacheInvalidationService.class),
+                new SimpleMeterRegistry(),
+                false);
+    }
+
+    private record MaskRow(Subject subject) implements SubjectRepository.SubjectMaskRow {
+
+        @Override
+        public Long getSubjectId() {
+            return subject.getId();
+        }
+
+        @Override
+        public String getSubjectName() {
+            return subject.getSubjectName();
+        }
+
+        @Override
+        public Integer getCredits() {
+            return subject.getCredits();
+        }
+
+        @Override
+        public SubjectType getSubjectType() {
+            return subject.getSubjectType();
+        }
+
+        @Override
+        public String getDayOfWeek() {
+            return subject.getSchedules().get(0).getDayOfWeek();
+        }
+
+        @Override
+        public Double getStartTime() {
+            return subject.getSchedules().get(0).getStartTime();
+        }
+
+        @Override
+        public Double getEndTime() {
+            return subject.getSchedules().get(0).getEndTime();
+        }
+    }
+
+    private record FingerprintRow(WishlistItem item) implements WishlistRepository.WishlistFingerprintRow {
+
+        @Override
+        public Long getSubjectId() {
+            return item.getSubject().getId();
+        }
+
+        @Override
+        public Boolean getIsRequired() {
+            return item.getIsRequired();
+        }
+    }
+
     private List<WishlistItem> wishlist(int wishlistSize, int slotCount) {
         List<WishlistItem> items = new ArrayList<>();
         int groupSize = (int) Math.ceil((double) wishlistSize / slotCount);
@@ -0,0 +1,171 @@
+package inu.timetable.service;
+
+import inu.timetable.entity.Schedule;
+import inu.timetable.entity.Subject;
+import inu.timetable.entity.User;
+import inu.timetable.entity.UserTimetable;
+import inu.timetable.event.SubjectDataChangedEvent;
+import inu.timetable.exception.ApiException;
+import inu.timetable.repository.SubjectRepository;
+import inu.timetable.repository.UserRepository;
+import inu.timetable.repository.UserTimetableRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TimetableOccupancyCacheTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String SEMESTER = "2026-1";
+
+    private UserTimetableRepository userTimetableRepository;
+    private SubjectRepository subjectRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private TimetableOccupancyCache occupancyCache;
+    private TimetableService timetableService;
+    // DB 의 시간표 과목 id. 저장·삭제 목이 고친다.
+    private final List<Long> storedSubjectIds = new ArrayList<>();
+    private final List<UserTimetable> storedTimetable = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        userTimetableRepository = mock(UserTimetableRepository.class);
+        subjectRepository = mock(SubjectRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        SharedSubjectCacheInvalidationService sharedInvalidationService = mock(SharedSubjectCacheInvalidationService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        occupancyCache = new TimetableOccupancyCache(sharedInvalidationService, meterRegistry, true, 100, "30m");
+        timetableService = new TimetableService(
+                userTimetableRepository,
+                userRepository,
+                subjectRepository,
+                mock(ApplicationEventPublisher.class),
+                mock(SubjectMaskIndex.class),
+                occupancyCache);
+
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(User.builder().id(USER_ID).build()));
+        when(userTimetableRepository.findSubjectIdsByUserIdAndSemester(USER_ID, SEMESTER))
+                .thenAnswer(invocation -> List.copyOf(storedSubjectIds));
+        when(userTimetableRepository.findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER))
+                .thenAnswer(invocation -> List.copyOf(storedTimetable));
+        when(userTimetableRepository.save(any(UserTimetable.class))).thenAnswer(invocation -> {
+            UserTimetable saved = invocation.getArgument(0);
+            storedSubjectIds.add(saved.getSubject().getId());
+            storedTimetable.add(saved);
+            return saved;
+        });
+        when(userTimetableRepository.deleteAllByUserIdAndSubjectId(any(), any())).thenAnswer(invocation -> {
+            Long subjectId = invocation.getArgument(1);
+            storedSubjectIds.remove(subjectId);
+            storedTimetable.removeIf(item -> item.getSubject().getId().equals(subjectId));
+            return 1;
+        });
+        subject(10L, "월", 1.0, 2.5);
+        subject(11L, "월", 2.0, 3.5);
+        subject(12L, "화", 1.0, 2.5);
+        subject(13L, "수", 1.0, 2.5);
+    }
+
+    @Test
+    void writesThroughAddsAndChecksConflictsWithoutReloadingTimetable() {
+        timetableService.addSubjectToTimetable(USER_ID, 10L, SEMESTER, null);
+        timetableService.addSubjectToTimetable(USER_ID, 12L, SEMESTER, null);
+
+        assertThatThrownBy(() -> timetableService.addSubjectToTimetable(USER_ID, 11L, SEMESTER, null))
+                .isInstanceOf(ApiException.class)
+                .hasMessage("시간표가 겹치는 과목이 있습니다.");
+        // 처음 검사만 과목·일정을 읽고, 이후는 추가할 때 고친 점유 칸으로 판정한다.
+        verify(userTimetableRepository, times(1)).findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER);
+        assertThat(lookups("hit")).isEqualTo(2.0);
+        assertThat(lookups("miss")).isEqualTo(1.0);
+        assertThat(meterRegistry.get("timetable.conflict.check").tag("occupancy", "hit").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void writesThroughRemovalsAndClears() {
+        timetableService.addSubjectToTimetable(USER_ID, 10L, SEMESTER, null);
+        timetableService.removeSubjectFromTimetable(USER_ID, 10L);
+        timetableService.addSubjectToTimetable(USER_ID, 11L, SEMESTER, null);
+
+        when(userTimetableRepository.findByUserIdAndSemester(USER_ID, SEMESTER))
+                .thenAnswer(invocation -> List.copyOf(storedTimetable));
+        timetableService.removeAllSubjectsFromTimetable(USER_ID, SEMESTER);
+        storedSubjectIds.clear();
+        storedTimetable.clear();
+        timetableService.addSubjectToTimetable(USER_ID, 10L, SEMESTER, null);
+
+        verify(userTimetableRepository, times(1)).findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER);
+        assertThat(lookups("miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    void reloadsWhenStoredSubjectsDifferFromCachedOnes() {
+        timetableService.addSubjectToTimetable(USER_ID, 12L, SEMESTER, null);
+        // 다른 노드(또는 롤백)로 캐시가 모르는 과목이 시간표에 들어 있다.
+        Subject elsewhere = subjectRepository.findById(10L).orElseThrow();
+        storedSubjectIds.add(10L);
+        storedTimetable.add(UserTimetable.builder().subject(elsewhere).semester(SEMESTER).build());
+
+        assertThatThrownBy(() -> timetableService.addSubjectToTimetable(USER_ID, 11L, SEMESTER, null))
+                .isInstanceOf(ApiException.class);
+        verify(userTimetableRepository, times(2)).findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER);
+        assertThat(lookups("miss")).isEqualTo(2.0);
+    }
+
+    @Test
+    void subjectDataChangeInvalidatesCachedOccupancy() {
+        timetableService.addSubjectToTimetable(USER_ID, 10L, SEMESTER, null);
+        occupancyCache.invalidateAfterSubjectDataChanged(new SubjectDataChangedEvent("test"));
+        timetableService.addSubjectToTimetable(USER_ID, 13L, SEMESTER, null);
+
+        verify(userTimetableRepository, times(2)).findByUserIdAndSemesterWithSubjectAndSchedules(USER_ID, SEMESTER);
+    }
+
+    @Test
+    void disabledCacheAlwaysReloads() {
+        TimetableOccupancyCache disabled = new TimetableOccupancyCache(
+                mock(SharedSubjectCacheInvalidationService.class), meterRegistry, false, 100, "30m");
+        TimetableOccupancyCache.Occupancy occupancy = TimetableOccupancyCache.Occupancy.of(0L, Map.of());
+
+        disabled.put(USER_ID, SEMESTER, occupancy);
+
+        assertThat(disabled.get(USER_ID, SEMESTER, List.of())).isNull();
+    }
+
+    private void subject(Long id, String day, double startTime, double endTime) {
+        Subject subject = Subject.builder()
+                .id(id)
+                .semester(SEMESTER)
+                .active(true)
+                .subjectName("과목" + id)
+                .credits(3)
+                .professor("교수")
+                .schedules(new ArrayList<>())
+                .build();
+        subject.getSchedules().add(Schedule.builder()
+                .subject(subject)
+                .dayOfWeek(day)
+                .startTime(startTime)
+                .endTime(endTime)
+                .build());
+        when(subjectRepository.findById(id)).thenReturn(Optional.of(subject));
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("timetable.occupancy.cache.lookups").tag("result", result).counter().count();
+    }
+}